@@ -1,5 +1,7 @@
 package com.dhomoni.uaa.config;
 
+import com.dhomoni.uaa.security.PasswordHashingExecutor;
+
 import io.github.jhipster.async.ExceptionHandlingAsyncTaskExecutor;
 import io.github.jhipster.config.JHipsterProperties;
 
@@ -52,6 +54,15 @@ public class AsyncConfiguration implements AsyncConfigurer, SchedulingConfigurer
         taskRegistrar.setScheduler(scheduledTaskExecutor());
     }
 
+    @Bean(destroyMethod = "shutdown")
+    public PasswordHashingExecutor passwordHashingExecutor(UaaProperties uaaProperties) {
+        log.debug("Creating Password Hashing Executor");
+        int poolSize = Runtime.getRuntime().availableProcessors();
+        UaaProperties.PasswordHashing passwordHashing = uaaProperties.getPasswordHashing();
+        return new PasswordHashingExecutor(poolSize, poolSize * passwordHashing.getQueueCapacityPerThread(),
+            passwordHashing.getMaxWaitInMillis());
+    }
+
     @Bean
     public Executor scheduledTaskExecutor() {
         return Executors.newScheduledThreadPool(jHipsterProperties.getAsync().getCorePoolSize());
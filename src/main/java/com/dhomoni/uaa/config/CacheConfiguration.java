@@ -1,26 +1,45 @@
 package com.dhomoni.uaa.config;
 
+import com.dhomoni.uaa.config.hazelcast.DiscoveryClientDiscoveryStrategy;
+import com.dhomoni.uaa.config.hazelcast.DomainSerializers;
+import com.dhomoni.uaa.config.hazelcast.HazelcastClusterHealthIndicator;
+import com.dhomoni.uaa.repository.OAuthClientRepository;
+import com.dhomoni.uaa.repository.UserRepository;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+
 import io.github.jhipster.config.JHipsterConstants;
 import io.github.jhipster.config.JHipsterProperties;
 
+import com.hazelcast.client.HazelcastClient;
+import com.hazelcast.client.config.ClientConfig;
 import com.hazelcast.config.*;
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.core.Hazelcast;
+import com.hazelcast.hibernate.CacheEnvironment;
+import com.hazelcast.memory.MemorySize;
+import com.hazelcast.memory.MemoryUnit;
+import com.hazelcast.monitor.NearCacheStats;
+import com.hazelcast.spi.properties.GroupProperty;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
 import org.springframework.boot.autoconfigure.web.ServerProperties;
 
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cloud.client.ServiceInstance;
 import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.cloud.client.serviceregistry.Registration;
 import org.springframework.context.annotation.*;
 import org.springframework.core.env.Environment;
 
 import javax.annotation.PreDestroy;
+import java.util.Arrays;
+import java.util.List;
 
 @Configuration
 @EnableCaching
@@ -28,18 +47,31 @@ public class CacheConfiguration {
 
 	private final Logger log = LoggerFactory.getLogger(CacheConfiguration.class);
 
+    /**
+     * Users are read on every login and every token refresh, so these maps are near cached.
+     */
+    private static final List<String> USER_CACHES = Arrays.asList(
+        UserRepository.USERS_BY_LOGIN_CACHE, UserRepository.USERS_BY_EMAIL_CACHE, UserRepository.USER_CREDENTIALS_CACHE);
+
     private final Environment env;
 
     private final ServerProperties serverProperties;
 
     private final DiscoveryClient discoveryClient;
 
+    private final UaaProperties uaaProperties;
+
+    private final MetricRegistry metricRegistry;
+
     private Registration registration;
 
-    public CacheConfiguration(Environment env, ServerProperties serverProperties, DiscoveryClient discoveryClient) {
+    public CacheConfiguration(Environment env, ServerProperties serverProperties, DiscoveryClient discoveryClient,
+                              UaaProperties uaaProperties, MetricRegistry metricRegistry) {
         this.env = env;
         this.serverProperties = serverProperties;
         this.discoveryClient = discoveryClient;
+        this.uaaProperties = uaaProperties;
+        this.metricRegistry = metricRegistry;
     }
 
     @Autowired(required = false)
@@ -50,6 +82,7 @@ public class CacheConfiguration {
     @PreDestroy
     public void destroy() {
         log.info("Closing Cache Manager");
+        HazelcastClient.shutdownAll();
         Hazelcast.shutdownAll();
     }
 
@@ -59,54 +92,138 @@ public class CacheConfiguration {
         return new com.hazelcast.spring.cache.HazelcastCacheManager(hazelcastInstance);
     }
 
+    @Bean
+    public HazelcastClusterHealthIndicator hazelcastClusterHealthIndicator(HazelcastInstance hazelcastInstance) {
+        // the cluster can only be compared with the registry when its members are the registered instances
+        UaaProperties.CacheCluster cacheCluster = uaaProperties.getCacheCluster();
+        boolean membersAreRegistered = registration != null && cacheCluster.getMembers().isEmpty() &&
+            cacheCluster.getTopology() != UaaProperties.CacheCluster.Topology.CLIENT;
+        return new HazelcastClusterHealthIndicator(hazelcastInstance, discoveryClient,
+            membersAreRegistered ? registration.getServiceId() : null);
+    }
+
+    /**
+     * A client has no Hazelcast instance named "uaa" for the second-level cache, so Hibernate is given the client.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer hazelcastHibernatePropertiesCustomizer() {
+        return hibernateProperties -> {
+            if (uaaProperties.getCacheCluster().getTopology() == UaaProperties.CacheCluster.Topology.CLIENT) {
+                hibernateProperties.put(CacheEnvironment.USE_NATIVE_CLIENT, "true");
+                hibernateProperties.put(CacheEnvironment.NATIVE_CLIENT_INSTANCE_NAME, "uaa");
+            }
+        };
+    }
+
     @Bean
     public HazelcastInstance hazelcastInstance(JHipsterProperties jHipsterProperties) {
         log.debug("Configuring Hazelcast");
-        HazelcastInstance hazelCastInstance = Hazelcast.getHazelcastInstanceByName("uaa");
+        boolean client = uaaProperties.getCacheCluster().getTopology() == UaaProperties.CacheCluster.Topology.CLIENT;
+        HazelcastInstance hazelCastInstance = client ? HazelcastClient.getHazelcastClientByName("uaa") :
+            Hazelcast.getHazelcastInstanceByName("uaa");
         if (hazelCastInstance != null) {
             log.debug("Hazelcast already initialized");
             return hazelCastInstance;
         }
+        HazelcastInstance newHazelcastInstance = client ?
+            HazelcastClient.newHazelcastClient(initializeClientConfig(jHipsterProperties)) :
+            Hazelcast.newHazelcastInstance(initializeMemberConfig(jHipsterProperties));
+        metricRegistry.register(MetricRegistry.name("hazelcast.cluster", "size"),
+            (Gauge<Integer>) () -> newHazelcastInstance.getCluster().getMembers().size());
+        registerNearCacheMetrics(newHazelcastInstance, OAuthClientRepository.CLIENTS_BY_CLIENT_ID_CACHE);
+        USER_CACHES.forEach(name -> registerNearCacheMetrics(newHazelcastInstance, name));
+        return newHazelcastInstance;
+    }
+
+    /*
+    A member holds a share of the cached data, and takes part in the partition migrations each
+    time an instance starts or stops. A lite member holds none, but still joins the cluster and
+    knows where each entry is: it needs data members, either other instances or a cache tier.
+    */
+    private Config initializeMemberConfig(JHipsterProperties jHipsterProperties) {
+        UaaProperties.CacheCluster cacheCluster = uaaProperties.getCacheCluster();
         Config config = new Config();
         config.setInstanceName("uaa");
+        config.setLiteMember(cacheCluster.getTopology() == UaaProperties.CacheCluster.Topology.LITE_MEMBER);
         config.getNetworkConfig().getJoin().getMulticastConfig().setEnabled(false);
-        if (this.registration == null) {
+        if (!cacheCluster.getMembers().isEmpty()) {
+            log.debug("Configuring Hazelcast clustering with members {}", cacheCluster.getMembers());
+            config.getNetworkConfig().getJoin().getTcpIpConfig().setEnabled(true).setMembers(cacheCluster.getMembers());
+        } else if (this.registration == null) {
             log.warn("No discovery service is set up, Hazelcast cannot create a cluster.");
         } else {
             // The serviceId is by default the application's name,
             // see the "spring.application.name" standard Spring property
             String serviceId = registration.getServiceId();
             log.debug("Configuring Hazelcast clustering for instanceId: {}", serviceId);
+            String localhost = null;
             // In development, everything goes through 127.0.0.1, with a different port
             if (env.acceptsProfiles(JHipsterConstants.SPRING_PROFILE_DEVELOPMENT)) {
                 log.debug("Application is running with the \"dev\" profile, Hazelcast " +
                           "cluster will only work with localhost instances");
 
-                String localhost = env.getProperty("hazelcast.local.localAddress");
+                localhost = env.getProperty("hazelcast.local.localAddress");
                 System.setProperty("hazelcast.local.localAddress", localhost);
-                config.getNetworkConfig().setPort(serverProperties.getPort() + 5701);
-                config.getNetworkConfig().getJoin().getTcpIpConfig().setEnabled(true);
-                for (ServiceInstance instance : discoveryClient.getInstances(serviceId)) {
-                    String clusterMember = localhost + ":" + (instance.getPort() + 5701);
-                    log.debug("Adding Hazelcast (dev) cluster member {}", clusterMember);
-                    config.getNetworkConfig().getJoin().getTcpIpConfig().addMember(clusterMember);
-                }
+                config.getNetworkConfig().setPort(serverProperties.getPort() + DiscoveryClientDiscoveryStrategy.HAZELCAST_PORT);
             } else { // Production configuration, one host per instance all using port 5701
-                config.getNetworkConfig().setPort(5701);
-                config.getNetworkConfig().getJoin().getTcpIpConfig().setEnabled(true);
-                for (ServiceInstance instance : discoveryClient.getInstances(serviceId)) {
-                    String clusterMember = instance.getHost() + ":5701";
-                    log.debug("Adding Hazelcast (prod) cluster member {}", clusterMember);
-                    config.getNetworkConfig().getJoin().getTcpIpConfig().addMember(clusterMember);
-                }
+                config.getNetworkConfig().setPort(DiscoveryClientDiscoveryStrategy.HAZELCAST_PORT);
             }
+            // The members are looked up in the service registry when joining, and again when looking for other
+            // clusters to merge with, so that members started before their peers still find them
+            config.getNetworkConfig().getJoin().getTcpIpConfig().setEnabled(false);
+            config.getNetworkConfig().getJoin().getDiscoveryConfig().addDiscoveryStrategyConfig(
+                new DiscoveryStrategyConfig(new DiscoveryClientDiscoveryStrategy.Factory(discoveryClient, serviceId, localhost)));
+            config.setProperty(GroupProperty.DISCOVERY_SPI_ENABLED.getName(), "true");
+            config.setProperty(GroupProperty.WAIT_SECONDS_BEFORE_JOIN.getName(),
+                String.valueOf(cacheCluster.getWaitSecondsBeforeJoin()));
+            config.setProperty(GroupProperty.MAX_JOIN_SECONDS.getName(), String.valueOf(cacheCluster.getMaxJoinSeconds()));
+            config.setProperty(GroupProperty.MERGE_FIRST_RUN_DELAY_SECONDS.getName(),
+                String.valueOf(cacheCluster.getMergeFirstRunDelaySeconds()));
+            config.setProperty(GroupProperty.MERGE_NEXT_RUN_DELAY_SECONDS.getName(),
+                String.valueOf(cacheCluster.getMergeNextRunDelaySeconds()));
         }
         config.getMapConfigs().put("default", initializeDefaultMapConfig(jHipsterProperties));
+        DomainSerializers.register(config.getSerializationConfig());
 
         // Full reference is available at: http://docs.hazelcast.org/docs/management-center/3.9/manual/html/Deploying_and_Starting.html
         config.setManagementCenterConfig(initializeDefaultManagementCenterConfig(jHipsterProperties));
-        config.getMapConfigs().put("com.dhomoni.uaa.domain.*", initializeDomainMapConfig(jHipsterProperties));
-        return Hazelcast.newHazelcastInstance(config);
+        UaaProperties.EntityCache entityCache = uaaProperties.getEntityCache();
+        config.getMapConfigs().put("com.dhomoni.uaa.domain.*",
+            initializeDomainMapConfig(jHipsterProperties, new UaaProperties.EntityCache.Region()));
+        entityCache.getRegions().forEach((name, region) ->
+            config.getMapConfigs().put(name, initializeDomainMapConfig(jHipsterProperties, region)));
+        if (config.getMapConfigs().values().stream().anyMatch(mapConfig -> mapConfig.getInMemoryFormat() == InMemoryFormat.NATIVE)) {
+            config.setNativeMemoryConfig(new NativeMemoryConfig().setEnabled(true)
+                .setSize(new MemorySize(entityCache.getNativeMemorySizeInMegabytes(), MemoryUnit.MEGABYTES)));
+        }
+        config.getMapConfigs().put(OAuthClientRepository.CLIENTS_BY_CLIENT_ID_CACHE, initializeClientMapConfig(jHipsterProperties));
+        USER_CACHES.forEach(name -> config.getMapConfigs().put(name, initializeUserMapConfig(name, jHipsterProperties)));
+        // how the entries of two clusters are merged once a partition heals, or once members find each other late
+        config.getMapConfigs().values().forEach(mapConfig ->
+            mapConfig.setMergePolicy(uaaProperties.getCacheCluster().getMergePolicy()));
+        return config;
+    }
+
+    /*
+    A client holds no data and doesn't join the cluster: it sends each operation to the member
+    owning the entry, and keeps the same near caches as a member would. The maps themselves,
+    with their sizes and time-to-lives, are configured on the members of the cache tier.
+    */
+    private ClientConfig initializeClientConfig(JHipsterProperties jHipsterProperties) {
+        List<String> members = uaaProperties.getCacheCluster().getMembers();
+        if (members.isEmpty()) {
+            throw new IllegalStateException("uaa.cache-cluster.members must list the cache tier to connect to as a client");
+        }
+        log.debug("Connecting to Hazelcast members {} as a client", members);
+        ClientConfig clientConfig = new ClientConfig();
+        clientConfig.setInstanceName("uaa");
+        clientConfig.getNetworkConfig().setAddresses(members);
+        // keep trying to reconnect while the cache tier restarts
+        clientConfig.getNetworkConfig().setConnectionAttemptLimit(0);
+        DomainSerializers.register(clientConfig.getSerializationConfig());
+        clientConfig.addNearCacheConfig(initializeClientNearCacheConfig(jHipsterProperties));
+        USER_CACHES.forEach(name -> clientConfig.addNearCacheConfig(initializeUserNearCacheConfig(name)));
+        return clientConfig;
     }
 
     private ManagementCenterConfig initializeDefaultManagementCenterConfig(JHipsterProperties jHipsterProperties) {
@@ -147,9 +264,93 @@ public class CacheConfiguration {
         return mapConfig;
     }
 
-    private MapConfig initializeDomainMapConfig(JHipsterProperties jHipsterProperties) {
-        MapConfig mapConfig = new MapConfig();
+    /*
+    Each region is bounded by the memory its entries use on each member, rather than by a
+    number of entries, as their sizes differ a lot from an entity to another. NATIVE regions
+    are kept off-heap, away from the garbage collector.
+    */
+    private MapConfig initializeDomainMapConfig(JHipsterProperties jHipsterProperties, UaaProperties.EntityCache.Region region) {
+        UaaProperties.EntityCache entityCache = uaaProperties.getEntityCache();
+        InMemoryFormat inMemoryFormat = InMemoryFormat.valueOf(
+            region.getInMemoryFormat() != null ? region.getInMemoryFormat() : entityCache.getInMemoryFormat());
+        int maxSizeInMegabytes = region.getMaxSizeInMegabytes() != null ? region.getMaxSizeInMegabytes() :
+            entityCache.getMaxSizeInMegabytes();
+        MapConfig mapConfig = initializeDefaultMapConfig(jHipsterProperties);
+        mapConfig.setTimeToLiveSeconds(jHipsterProperties.getCache().getHazelcast().getTimeToLiveSeconds());
+        mapConfig.setInMemoryFormat(inMemoryFormat);
+        mapConfig.setEvictionPolicy(EvictionPolicy.valueOf(
+            region.getEvictionPolicy() != null ? region.getEvictionPolicy() : entityCache.getEvictionPolicy()));
+        mapConfig.setMaxSizeConfig(new MaxSizeConfig(maxSizeInMegabytes, inMemoryFormat == InMemoryFormat.NATIVE ?
+            MaxSizeConfig.MaxSizePolicy.USED_NATIVE_MEMORY_SIZE : MaxSizeConfig.MaxSizePolicy.USED_HEAP_SIZE));
+        return mapConfig;
+    }
+
+    /*
+    OAuth2 clients are read on every token request, so each member keeps a near cache of
+    them, invalidated whenever an entry of the distributed map changes.
+    */
+    private MapConfig initializeClientMapConfig(JHipsterProperties jHipsterProperties) {
+        MapConfig mapConfig = initializeDefaultMapConfig(jHipsterProperties);
         mapConfig.setTimeToLiveSeconds(jHipsterProperties.getCache().getHazelcast().getTimeToLiveSeconds());
+
+        mapConfig.setNearCacheConfig(initializeClientNearCacheConfig(jHipsterProperties));
+        return mapConfig;
+    }
+
+    private NearCacheConfig initializeClientNearCacheConfig(JHipsterProperties jHipsterProperties) {
+        NearCacheConfig nearCacheConfig = new NearCacheConfig(OAuthClientRepository.CLIENTS_BY_CLIENT_ID_CACHE);
+        nearCacheConfig.setInMemoryFormat(InMemoryFormat.OBJECT);
+        nearCacheConfig.setInvalidateOnChange(true);
+        nearCacheConfig.setTimeToLiveSeconds(jHipsterProperties.getCache().getHazelcast().getTimeToLiveSeconds());
+        return nearCacheConfig;
+    }
+
+    /*
+    Users have their own size bound and time-to-live, rather than the ones of the default map,
+    and a near cache which also keeps the entries owned by this member, so that they are not
+    deserialized again on each read. The credentials are immutable, so their near cache always
+    keeps objects.
+    */
+    private MapConfig initializeUserMapConfig(String name, JHipsterProperties jHipsterProperties) {
+        UaaProperties.UserCache userCache = uaaProperties.getUserCache();
+        MapConfig mapConfig = initializeDefaultMapConfig(jHipsterProperties);
+        mapConfig.setTimeToLiveSeconds(userCache.getTimeToLiveInSeconds());
+        mapConfig.setMaxSizeConfig(new MaxSizeConfig(userCache.getMaxSize(), MaxSizeConfig.MaxSizePolicy.PER_NODE));
+        mapConfig.setNearCacheConfig(initializeUserNearCacheConfig(name));
         return mapConfig;
     }
+
+    private NearCacheConfig initializeUserNearCacheConfig(String name) {
+        UaaProperties.UserCache userCache = uaaProperties.getUserCache();
+        NearCacheConfig nearCacheConfig = new NearCacheConfig(name);
+        nearCacheConfig.setInMemoryFormat(UserRepository.USER_CREDENTIALS_CACHE.equals(name) ?
+            InMemoryFormat.OBJECT : InMemoryFormat.valueOf(userCache.getNearCacheInMemoryFormat()));
+        nearCacheConfig.setInvalidateOnChange(true);
+        nearCacheConfig.setCacheLocalEntries(true);
+        nearCacheConfig.setTimeToLiveSeconds(userCache.getTimeToLiveInSeconds());
+        nearCacheConfig.setEvictionConfig(new EvictionConfig(userCache.getNearCacheMaxSize(),
+            EvictionConfig.MaxSizePolicy.ENTRY_COUNT, EvictionPolicy.LRU));
+        return nearCacheConfig;
+    }
+
+    private void registerNearCacheMetrics(HazelcastInstance hazelcastInstance, String name) {
+        String prefix = MetricRegistry.name("hazelcast.near-cache", name);
+        metricRegistry.register(MetricRegistry.name(prefix, "hit-ratio"), new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                NearCacheStats nearCacheStats = nearCacheStats(hazelcastInstance, name);
+                return Ratio.of(nearCacheStats.getHits(), nearCacheStats.getHits() + nearCacheStats.getMisses());
+            }
+        });
+        metricRegistry.register(MetricRegistry.name(prefix, "hits"),
+            (Gauge<Long>) () -> nearCacheStats(hazelcastInstance, name).getHits());
+        metricRegistry.register(MetricRegistry.name(prefix, "misses"),
+            (Gauge<Long>) () -> nearCacheStats(hazelcastInstance, name).getMisses());
+        metricRegistry.register(MetricRegistry.name(prefix, "size"),
+            (Gauge<Long>) () -> nearCacheStats(hazelcastInstance, name).getOwnedEntryCount());
+    }
+
+    private static NearCacheStats nearCacheStats(HazelcastInstance hazelcastInstance, String name) {
+        return hazelcastInstance.getMap(name).getLocalMapStats().getNearCacheStats();
+    }
 }
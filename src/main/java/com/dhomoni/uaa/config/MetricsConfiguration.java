@@ -1,5 +1,7 @@
 package com.dhomoni.uaa.config;
 
+import com.dhomoni.uaa.security.PasswordHashingExecutor;
+
 import io.github.jhipster.config.JHipsterProperties;
 
 import com.codahale.metrics.JmxReporter;
@@ -37,6 +39,7 @@ public class MetricsConfiguration extends MetricsConfigurerAdapter implements Se
     private static final String PROP_METRIC_REG_JVM_FILES = "jvm.files";
     private static final String PROP_METRIC_REG_JVM_BUFFERS = "jvm.buffers";
     private static final String PROP_METRIC_REG_JVM_ATTRIBUTE_SET = "jvm.attributes";
+    private static final String PROP_METRIC_REG_PASSWORD_HASHING = "password.hashing";
 
     private final Logger log = LoggerFactory.getLogger(MetricsConfiguration.class);
 
@@ -48,6 +51,8 @@ public class MetricsConfiguration extends MetricsConfigurerAdapter implements Se
 
     private HikariDataSource hikariDataSource;
 
+    private PasswordHashingExecutor passwordHashingExecutor;
+
     public MetricsConfiguration(JHipsterProperties jHipsterProperties) {
         this.jHipsterProperties = jHipsterProperties;
     }
@@ -57,6 +62,11 @@ public class MetricsConfiguration extends MetricsConfigurerAdapter implements Se
         this.hikariDataSource = hikariDataSource;
     }
 
+    @Autowired(required = false)
+    public void setPasswordHashingExecutor(PasswordHashingExecutor passwordHashingExecutor) {
+        this.passwordHashingExecutor = passwordHashingExecutor;
+    }
+
     @Override
     @Bean
     public MetricRegistry getMetricRegistry() {
@@ -84,6 +94,10 @@ public class MetricsConfiguration extends MetricsConfigurerAdapter implements Se
             hikariDataSource.setMetricsTrackerFactory(null);
             hikariDataSource.setMetricRegistry(metricRegistry);
         }
+        if (passwordHashingExecutor != null) {
+            log.debug("Monitoring the password hashing executor");
+            metricRegistry.register(PROP_METRIC_REG_PASSWORD_HASHING, passwordHashingExecutor);
+        }
         if (jHipsterProperties.getMetrics().getJmx().isEnabled()) {
             log.debug("Initializing Metrics JMX reporting");
             JmxReporter jmxReporter = JmxReporter.forRegistry(metricRegistry).build();
@@ -1,6 +1,15 @@
 package com.dhomoni.uaa.config;
 
+import com.codahale.metrics.MetricRegistry;
+import com.dhomoni.uaa.repository.OAuthClientRepository;
 import com.dhomoni.uaa.security.AuthoritiesConstants;
+import com.dhomoni.uaa.security.CachingJwtTokenStore;
+import com.dhomoni.uaa.security.ClientSecretPasswordEncoder;
+import com.dhomoni.uaa.security.DomainClientDetailsService;
+import com.dhomoni.uaa.security.PasswordHashingRejectedFilter;
+import com.dhomoni.uaa.security.jwt.JwtKeyRing;
+import com.dhomoni.uaa.security.jwt.JwtKeyStore;
+import com.dhomoni.uaa.security.jwt.KeyStoreJwtAccessTokenConverter;
 import io.github.jhipster.config.JHipsterProperties;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,7 +18,10 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.IntervalTask;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
@@ -22,23 +34,24 @@ import org.springframework.security.oauth2.config.annotation.web.configuration.R
 import org.springframework.security.oauth2.config.annotation.web.configurers.AuthorizationServerEndpointsConfigurer;
 import org.springframework.security.oauth2.config.annotation.web.configurers.AuthorizationServerSecurityConfigurer;
 import org.springframework.security.oauth2.config.annotation.web.configurers.ResourceServerSecurityConfigurer;
+import org.springframework.security.oauth2.provider.client.BaseClientDetails;
 import org.springframework.security.oauth2.provider.token.TokenEnhancer;
 import org.springframework.security.oauth2.provider.token.TokenEnhancerChain;
 import org.springframework.security.oauth2.provider.token.TokenStore;
 import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
 import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
-import org.springframework.security.oauth2.provider.token.store.KeyStoreKeyFactory;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.filter.CorsFilter;
 
 import javax.servlet.http.HttpServletResponse;
-import java.security.KeyPair;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 
 @Configuration
 @EnableAuthorizationServer
-public class UaaConfiguration extends AuthorizationServerConfigurerAdapter implements ApplicationContextAware {
+public class UaaConfiguration extends AuthorizationServerConfigurerAdapter implements ApplicationContextAware, SchedulingConfigurer {
     /**
      * Access tokens will not expire any earlier than this.
      */
@@ -87,6 +100,7 @@ public class UaaConfiguration extends AuthorizationServerConfigurerAdapter imple
                 .antMatchers("/api/account/reset-password/finish").permitAll()
                 .antMatchers("/api/**").authenticated()
                 .antMatchers("/management/health").permitAll()
+                .antMatchers("/.well-known/jwks.json").permitAll()
                 .antMatchers("/management/**").hasAuthority(AuthoritiesConstants.ADMIN)
                 .antMatchers("/v2/api-docs/**").permitAll()
                 .antMatchers("/swagger-resources/configuration/ui").permitAll()
@@ -105,10 +119,17 @@ public class UaaConfiguration extends AuthorizationServerConfigurerAdapter imple
 
     private final PasswordEncoder passwordEncoder;
 
-    public UaaConfiguration(JHipsterProperties jHipsterProperties, UaaProperties uaaProperties, PasswordEncoder passwordEncoder) {
+    private final MetricRegistry metricRegistry;
+
+    private final OAuthClientRepository oAuthClientRepository;
+
+    public UaaConfiguration(JHipsterProperties jHipsterProperties, UaaProperties uaaProperties, PasswordEncoder passwordEncoder,
+                            MetricRegistry metricRegistry, OAuthClientRepository oAuthClientRepository) {
         this.jHipsterProperties = jHipsterProperties;
         this.uaaProperties = uaaProperties;
         this.passwordEncoder = passwordEncoder;
+        this.metricRegistry = metricRegistry;
+        this.oAuthClientRepository = oAuthClientRepository;
     }
 
     @Override
@@ -117,26 +138,20 @@ public class UaaConfiguration extends AuthorizationServerConfigurerAdapter imple
         accessTokenValidity = Math.max(accessTokenValidity, MIN_ACCESS_TOKEN_VALIDITY_SECS);
         int refreshTokenValidity = uaaProperties.getWebClientConfiguration().getRefreshTokenValidityInSecondsForRememberMe();
         refreshTokenValidity = Math.max(refreshTokenValidity, accessTokenValidity);
-        /*
-        For a better client design, this should be done by a ClientDetailsService (similar to UserDetailsService).
-         */
-        clients.inMemory()
-            .withClient(uaaProperties.getWebClientConfiguration().getClientId())
-            .secret(passwordEncoder.encode(uaaProperties.getWebClientConfiguration().getSecret()))
-            .scopes("openid")
-            .autoApprove(true)
-            .authorizedGrantTypes("implicit","refresh_token", "password", "authorization_code")
-            .accessTokenValiditySeconds(accessTokenValidity)
-            .refreshTokenValiditySeconds(refreshTokenValidity)
-            .and()
-            .withClient(jHipsterProperties.getSecurity().getClientAuthorization().getClientId())
-            .secret(passwordEncoder.encode(jHipsterProperties.getSecurity().getClientAuthorization().getClientSecret()))
-            .scopes("web-app")
-            .authorities("ROLE_ADMIN")
-            .autoApprove(true)
-            .authorizedGrantTypes("client_credentials")
-            .accessTokenValiditySeconds((int) jHipsterProperties.getSecurity().getAuthentication().getJwt().getTokenValidityInSeconds())
-            .refreshTokenValiditySeconds((int) jHipsterProperties.getSecurity().getAuthentication().getJwt().getTokenValidityInSecondsForRememberMe());
+        BaseClientDetails webClient = new BaseClientDetails(uaaProperties.getWebClientConfiguration().getClientId(),
+            null, "openid", "implicit,refresh_token,password,authorization_code", null);
+        webClient.setClientSecret(passwordEncoder.encode(uaaProperties.getWebClientConfiguration().getSecret()));
+        webClient.setAutoApproveScopes(Collections.singleton("true"));
+        webClient.setAccessTokenValiditySeconds(accessTokenValidity);
+        webClient.setRefreshTokenValiditySeconds(refreshTokenValidity);
+        BaseClientDetails internalClient = new BaseClientDetails(jHipsterProperties.getSecurity().getClientAuthorization().getClientId(),
+            null, "web-app", "client_credentials", "ROLE_ADMIN");
+        internalClient.setClientSecret(passwordEncoder.encode(jHipsterProperties.getSecurity().getClientAuthorization().getClientSecret()));
+        internalClient.setAutoApproveScopes(Collections.singleton("true"));
+        internalClient.setAccessTokenValiditySeconds((int) jHipsterProperties.getSecurity().getAuthentication().getJwt().getTokenValidityInSeconds());
+        internalClient.setRefreshTokenValiditySeconds((int) jHipsterProperties.getSecurity().getAuthentication().getJwt().getTokenValidityInSecondsForRememberMe());
+        // the other clients, such as the internal services, are stored in the "oauth_client" table
+        clients.withClientDetails(new DomainClientDetailsService(oAuthClientRepository, Arrays.asList(webClient, internalClient)));
     }
 
     @Override
@@ -159,32 +174,74 @@ public class UaaConfiguration extends AuthorizationServerConfigurerAdapter imple
 
     /**
      * Apply the token converter (and enhancer) for token store.
+     * Verified access tokens are cached, unless disabled by "uaa.token-cache.enabled", until the key which
+     * verified them is removed from the key store.
      * @return the JwtTokenStore managing the tokens.
      */
     @Bean
     public JwtTokenStore tokenStore() {
-        return new JwtTokenStore(jwtAccessTokenConverter());
+        UaaProperties.TokenCache tokenCache = uaaProperties.getTokenCache();
+        if (!tokenCache.isEnabled()) {
+            return new JwtTokenStore(jwtAccessTokenConverter());
+        }
+        CachingJwtTokenStore tokenStore = new CachingJwtTokenStore(jwtAccessTokenConverter(), tokenCache.getMaxSize(),
+            tokenCache.getTimeToLiveInSeconds(), metricRegistry);
+        jwtKeyRing().addKeyRemovalListener(tokenStore::evictKeys);
+        return tokenStore;
     }
 
     /**
      * This bean generates an token enhancer, which manages the exchange between JWT acces tokens and Authentication
      * in both directions.
      *
+     * The key pair may be either RSA or Elliptic Curve, the signer and verifier are picked accordingly.
+     *
      * @return an access token converter configured with the authorization server's public/private keys
      */
     @Bean
     public JwtAccessTokenConverter jwtAccessTokenConverter() {
-        JwtAccessTokenConverter converter = new JwtAccessTokenConverter();
-        KeyPair keyPair = new KeyStoreKeyFactory(
-             new ClassPathResource(uaaProperties.getKeyStore().getName()), uaaProperties.getKeyStore().getPassword().toCharArray())
-             .getKeyPair(uaaProperties.getKeyStore().getAlias());
-        converter.setKeyPair(keyPair);
-        return converter;
+        return new KeyStoreJwtAccessTokenConverter(jwtKeyRing());
+    }
+
+    /**
+     * The keys used to sign and verify tokens, all those of the keystore are published by the JSON Web Key Set.
+     *
+     * @return the key ring, reloaded from the keystore every "uaa.key-store.refresh-interval-in-seconds"
+     */
+    @Bean
+    public JwtKeyRing jwtKeyRing() {
+        JwtKeyStore keyStore = new JwtKeyStore(
+             new DefaultResourceLoader().getResource(uaaProperties.getKeyStore().getName()),
+             uaaProperties.getKeyStore().getPassword().toCharArray());
+        return new JwtKeyRing(keyStore, uaaProperties.getKeyStore().getAlias(), uaaProperties.getKeyStore().isRotate());
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        long refreshInterval = uaaProperties.getKeyStore().getRefreshIntervalInSeconds() * 1000L;
+        if (refreshInterval > 0) {
+            taskRegistrar.addFixedDelayTask(new IntervalTask(jwtKeyRing()::refresh, refreshInterval, refreshInterval));
+        }
+    }
+
+    /**
+     * Verified client secrets are cached, unless disabled by "uaa.client-credentials-cache.enabled".
+     * @return the encoder checking the secrets of OAuth2 clients
+     */
+    private PasswordEncoder clientSecretPasswordEncoder() {
+        UaaProperties.ClientCredentialsCache clientCredentialsCache = uaaProperties.getClientCredentialsCache();
+        if (!clientCredentialsCache.isEnabled()) {
+            return passwordEncoder;
+        }
+        return new ClientSecretPasswordEncoder(passwordEncoder, clientCredentialsCache.getMaxSize(),
+            clientCredentialsCache.getTimeToLiveInSeconds(), metricRegistry);
     }
 
     @Override
     public void configure(AuthorizationServerSecurityConfigurer oauthServer) throws Exception {
         oauthServer.tokenKeyAccess("permitAll()").checkTokenAccess(
-                "isAuthenticated()");
+                "isAuthenticated()")
+            .passwordEncoder(clientSecretPasswordEncoder())
+            .addTokenEndpointAuthenticationFilter(new PasswordHashingRejectedFilter());
     }
 }
@@ -3,6 +3,12 @@ package com.dhomoni.uaa.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Properties for UAA-based OAuth2 security.
  */
@@ -21,17 +27,87 @@ public class UaaProperties {
         return webClientConfiguration;
     }
 
+    private TokenCache tokenCache = new TokenCache();
+
+    public TokenCache getTokenCache() {
+        return tokenCache;
+    }
+
+    private PasswordHashing passwordHashing = new PasswordHashing();
+
+    public PasswordHashing getPasswordHashing() {
+        return passwordHashing;
+    }
+
+    private UserCache userCache = new UserCache();
+
+    public UserCache getUserCache() {
+        return userCache;
+    }
+
+    private CacheCluster cacheCluster = new CacheCluster();
+
+    public CacheCluster getCacheCluster() {
+        return cacheCluster;
+    }
+
+    private CacheWarmUp cacheWarmUp = new CacheWarmUp();
+
+    public CacheWarmUp getCacheWarmUp() {
+        return cacheWarmUp;
+    }
+
+    private ClientCredentialsCache clientCredentialsCache = new ClientCredentialsCache();
+
+    public ClientCredentialsCache getClientCredentialsCache() {
+        return clientCredentialsCache;
+    }
+
+    private EntityCache entityCache = new EntityCache();
+
+    public EntityCache getEntityCache() {
+        return entityCache;
+    }
+
+    private ImageStore imageStore = new ImageStore();
+
+    public ImageStore getImageStore() {
+        return imageStore;
+    }
+
+    private SearchOutbox searchOutbox = new SearchOutbox();
+
+    public SearchOutbox getSearchOutbox() {
+        return searchOutbox;
+    }
+
+    private SearchReindex searchReindex = new SearchReindex();
+
+    public SearchReindex getSearchReindex() {
+        return searchReindex;
+    }
+
+    private UserSearch userSearch = new UserSearch();
+
+    public UserSearch getUserSearch() {
+        return userSearch;
+    }
+
     /**
      * Keystore configuration for signing and verifying JWT tokens.
      */
     @SuppressWarnings("squid:S2068")
     public static class KeyStore {
-        //name of the keystore in the classpath
+        //name of the keystore in the classpath, or a "file:" location so that keys can be rotated without a restart
         private String name = "config/tls/keystore.p12";
         //password used to access the key
         private String password = "password";
-        //name of the alias to fetch
+        //name of the alias to fetch, either an RSA or an EC (P-256, P-384, P-521) key pair
         private String alias = "selfsigned";
+        //sign with the key pair whose certificate started most recently among those whose alias starts with the alias
+        private boolean rotate = false;
+        //how often the keystore is reloaded, also the max-age of the JSON Web Key Set (0 disables reloading)
+        private long refreshIntervalInSeconds = 60 * 60;
 
         public String getName() {
             return name;
@@ -56,6 +132,22 @@ public class UaaProperties {
         public void setAlias(String alias) {
             this.alias = alias;
         }
+
+        public boolean isRotate() {
+            return rotate;
+        }
+
+        public void setRotate(boolean rotate) {
+            this.rotate = rotate;
+        }
+
+        public long getRefreshIntervalInSeconds() {
+            return refreshIntervalInSeconds;
+        }
+
+        public void setRefreshIntervalInSeconds(long refreshIntervalInSeconds) {
+            this.refreshIntervalInSeconds = refreshIntervalInSeconds;
+        }
     }
 
     public static class WebClientConfiguration {
@@ -98,4 +190,623 @@ public class UaaProperties {
             this.secret = secret;
         }
     }
+
+    /**
+     * Cache of verified JWT access tokens, used by the resource server.
+     */
+    public static class TokenCache {
+        //set to false to verify the signature of every incoming token
+        private boolean enabled = true;
+        //maximum number of tokens kept at the same time
+        private int maxSize = 10000;
+        //upper bound for keeping a token, it is never kept beyond its own expiry
+        private long timeToLiveInSeconds = 5 * 60;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public long getTimeToLiveInSeconds() {
+            return timeToLiveInSeconds;
+        }
+
+        public void setTimeToLiveInSeconds(long timeToLiveInSeconds) {
+            this.timeToLiveInSeconds = timeToLiveInSeconds;
+        }
+    }
+
+    /**
+     * Forming and healing of the Hazelcast cluster, whose members are found in the service registry.
+     */
+    public static class CacheCluster {
+        //MEMBER (holds data), LITE_MEMBER (member without data) or CLIENT (connects to the members listed below)
+        private Topology topology = Topology.MEMBER;
+        //addresses (host:port) of the cache tier, required by CLIENT, instead of the service registry otherwise
+        private List<String> members = new ArrayList<>();
+        //how long a member waits for the others before joining, to join them all at once
+        private int waitSecondsBeforeJoin = 2;
+        //how long a member tries to join a cluster, before starting its own
+        private int maxJoinSeconds = 10;
+        //how long after startup a member first looks for other clusters to merge with
+        private int mergeFirstRunDelaySeconds = 30;
+        //how often a member then looks for other clusters to merge with
+        private int mergeNextRunDelaySeconds = 30;
+        //class of the Hazelcast MapMergePolicy deciding which entry is kept when two clusters merge
+        private String mergePolicy = "com.hazelcast.map.merge.PutIfAbsentMapMergePolicy";
+
+        public Topology getTopology() {
+            return topology;
+        }
+
+        public void setTopology(Topology topology) {
+            this.topology = topology;
+        }
+
+        public List<String> getMembers() {
+            return members;
+        }
+
+        public void setMembers(List<String> members) {
+            this.members = members;
+        }
+
+        public int getWaitSecondsBeforeJoin() {
+            return waitSecondsBeforeJoin;
+        }
+
+        public void setWaitSecondsBeforeJoin(int waitSecondsBeforeJoin) {
+            this.waitSecondsBeforeJoin = waitSecondsBeforeJoin;
+        }
+
+        public int getMaxJoinSeconds() {
+            return maxJoinSeconds;
+        }
+
+        public void setMaxJoinSeconds(int maxJoinSeconds) {
+            this.maxJoinSeconds = maxJoinSeconds;
+        }
+
+        public int getMergeFirstRunDelaySeconds() {
+            return mergeFirstRunDelaySeconds;
+        }
+
+        public void setMergeFirstRunDelaySeconds(int mergeFirstRunDelaySeconds) {
+            this.mergeFirstRunDelaySeconds = mergeFirstRunDelaySeconds;
+        }
+
+        public int getMergeNextRunDelaySeconds() {
+            return mergeNextRunDelaySeconds;
+        }
+
+        public void setMergeNextRunDelaySeconds(int mergeNextRunDelaySeconds) {
+            this.mergeNextRunDelaySeconds = mergeNextRunDelaySeconds;
+        }
+
+        public String getMergePolicy() {
+            return mergePolicy;
+        }
+
+        public void setMergePolicy(String mergePolicy) {
+            this.mergePolicy = mergePolicy;
+        }
+
+        /**
+         * How an instance takes part in the cache cluster.
+         */
+        public enum Topology {
+            MEMBER, LITE_MEMBER, CLIENT
+        }
+    }
+
+    /**
+     * Loading of the users who authenticated recently into the caches, when the application starts.
+     */
+    public static class CacheWarmUp {
+        //set to true to warm the caches up before the application reports itself as healthy
+        private boolean enabled = false;
+        //maximum number of users loaded
+        private int maxUsers = 1000;
+        //number of users loaded by each query
+        private int batchSize = 100;
+        //only users who authenticated during this period are loaded
+        private int lookbackInDays = 7;
+        //the warm-up stops after this time, even if users remain to be loaded
+        private int timeBudgetInSeconds = 30;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxUsers() {
+            return maxUsers;
+        }
+
+        public void setMaxUsers(int maxUsers) {
+            this.maxUsers = maxUsers;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getLookbackInDays() {
+            return lookbackInDays;
+        }
+
+        public void setLookbackInDays(int lookbackInDays) {
+            this.lookbackInDays = lookbackInDays;
+        }
+
+        public int getTimeBudgetInSeconds() {
+            return timeBudgetInSeconds;
+        }
+
+        public void setTimeBudgetInSeconds(int timeBudgetInSeconds) {
+            this.timeBudgetInSeconds = timeBudgetInSeconds;
+        }
+    }
+
+    /**
+     * Cache of verified client secrets, used when authenticating OAuth2 clients.
+     */
+    public static class ClientCredentialsCache {
+        //set to false to BCrypt-check the secret of every token request
+        private boolean enabled = true;
+        //maximum number of client secrets kept at the same time
+        private int maxSize = 1000;
+        //how long a verified secret is trusted before being checked again
+        private long timeToLiveInSeconds = 10 * 60;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public long getTimeToLiveInSeconds() {
+            return timeToLiveInSeconds;
+        }
+
+        public void setTimeToLiveInSeconds(long timeToLiveInSeconds) {
+            this.timeToLiveInSeconds = timeToLiveInSeconds;
+        }
+    }
+
+    /**
+     * Hashing of the user passwords, hashes computed with another algorithm or a lower cost are upgraded on login.
+     */
+    public static class PasswordHashing {
+        //algorithm used to hash new passwords, either "bcrypt" or "scrypt"
+        private String algorithm = "bcrypt";
+        //log2 of the number of BCrypt rounds
+        private int bcryptStrength = 10;
+        //log2 of the SCrypt CPU cost
+        private int scryptCpuCost = 14;
+        //when positive, the cost is raised at startup until hashing a password takes about this long on this machine
+        private long targetHashTimeInMillis = 0;
+        //passwords hashed at the same time are limited to the number of CPUs, the others wait in a queue of this many
+        //entries per CPU, kept well below the number of web server workers so that they are never all waiting
+        private int queueCapacityPerThread = 2;
+        //a request whose password is not hashed within this time gets a 503, and its hash is cancelled
+        private long maxWaitInMillis = 1000;
+
+        public String getAlgorithm() {
+            return algorithm;
+        }
+
+        public void setAlgorithm(String algorithm) {
+            this.algorithm = algorithm;
+        }
+
+        public int getBcryptStrength() {
+            return bcryptStrength;
+        }
+
+        public void setBcryptStrength(int bcryptStrength) {
+            this.bcryptStrength = bcryptStrength;
+        }
+
+        public int getScryptCpuCost() {
+            return scryptCpuCost;
+        }
+
+        public void setScryptCpuCost(int scryptCpuCost) {
+            this.scryptCpuCost = scryptCpuCost;
+        }
+
+        public long getTargetHashTimeInMillis() {
+            return targetHashTimeInMillis;
+        }
+
+        public void setTargetHashTimeInMillis(long targetHashTimeInMillis) {
+            this.targetHashTimeInMillis = targetHashTimeInMillis;
+        }
+
+        public int getQueueCapacityPerThread() {
+            return queueCapacityPerThread;
+        }
+
+        public void setQueueCapacityPerThread(int queueCapacityPerThread) {
+            this.queueCapacityPerThread = queueCapacityPerThread;
+        }
+
+        public long getMaxWaitInMillis() {
+            return maxWaitInMillis;
+        }
+
+        public void setMaxWaitInMillis(long maxWaitInMillis) {
+            this.maxWaitInMillis = maxWaitInMillis;
+        }
+    }
+
+    /**
+     * Hazelcast maps caching the users by login, by email, and their credentials, read on every login.
+     */
+    public static class UserCache {
+        //how long a user is kept in the distributed maps and in the near caches
+        private int timeToLiveInSeconds = 60 * 60;
+        //maximum number of users kept by each member, in each map
+        private int maxSize = 10000;
+        //maximum number of users kept in each near cache, next to the application
+        private int nearCacheMaxSize = 1000;
+        //format of the users in the near caches: BINARY (deserialized on each read) or OBJECT (shared instances)
+        private String nearCacheInMemoryFormat = "BINARY";
+        //put the updated users back in the caches after commit, unless a newer version is cached, instead of evicting
+        private boolean writeThrough = false;
+
+        public int getTimeToLiveInSeconds() {
+            return timeToLiveInSeconds;
+        }
+
+        public void setTimeToLiveInSeconds(int timeToLiveInSeconds) {
+            this.timeToLiveInSeconds = timeToLiveInSeconds;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public int getNearCacheMaxSize() {
+            return nearCacheMaxSize;
+        }
+
+        public void setNearCacheMaxSize(int nearCacheMaxSize) {
+            this.nearCacheMaxSize = nearCacheMaxSize;
+        }
+
+        public String getNearCacheInMemoryFormat() {
+            return nearCacheInMemoryFormat;
+        }
+
+        public void setNearCacheInMemoryFormat(String nearCacheInMemoryFormat) {
+            this.nearCacheInMemoryFormat = nearCacheInMemoryFormat;
+        }
+
+        public boolean isWriteThrough() {
+            return writeThrough;
+        }
+
+        public void setWriteThrough(boolean writeThrough) {
+            this.writeThrough = writeThrough;
+        }
+    }
+
+    /**
+     * Limits of the Hibernate second-level cache regions, one Hazelcast map per entity or collection.
+     */
+    public static class EntityCache {
+        //maximum size of each region on each member, in megabytes
+        private int maxSizeInMegabytes = 64;
+        //format of the entries: BINARY, OBJECT or NATIVE (off-heap, requires Hazelcast Enterprise HD)
+        private String inMemoryFormat = "BINARY";
+        //entries evicted first once a region is full: LRU or LFU
+        private String evictionPolicy = "LRU";
+        //off-heap memory reserved on each member when a region is NATIVE, in megabytes
+        private int nativeMemorySizeInMegabytes = 256;
+        //settings of single regions, by region name (e.g. "[com.dhomoni.uaa.domain.Doctor]"), overriding the above
+        private Map<String, Region> regions = new LinkedHashMap<>();
+
+        public int getMaxSizeInMegabytes() {
+            return maxSizeInMegabytes;
+        }
+
+        public void setMaxSizeInMegabytes(int maxSizeInMegabytes) {
+            this.maxSizeInMegabytes = maxSizeInMegabytes;
+        }
+
+        public String getInMemoryFormat() {
+            return inMemoryFormat;
+        }
+
+        public void setInMemoryFormat(String inMemoryFormat) {
+            this.inMemoryFormat = inMemoryFormat;
+        }
+
+        public String getEvictionPolicy() {
+            return evictionPolicy;
+        }
+
+        public void setEvictionPolicy(String evictionPolicy) {
+            this.evictionPolicy = evictionPolicy;
+        }
+
+        public int getNativeMemorySizeInMegabytes() {
+            return nativeMemorySizeInMegabytes;
+        }
+
+        public void setNativeMemorySizeInMegabytes(int nativeMemorySizeInMegabytes) {
+            this.nativeMemorySizeInMegabytes = nativeMemorySizeInMegabytes;
+        }
+
+        public Map<String, Region> getRegions() {
+            return regions;
+        }
+
+        public void setRegions(Map<String, Region> regions) {
+            this.regions = regions;
+        }
+
+        /**
+         * Settings of a single region, those left empty are the defaults of all the regions.
+         */
+        public static class Region {
+            private Integer maxSizeInMegabytes;
+
+            private String inMemoryFormat;
+
+            private String evictionPolicy;
+
+            public Integer getMaxSizeInMegabytes() {
+                return maxSizeInMegabytes;
+            }
+
+            public void setMaxSizeInMegabytes(Integer maxSizeInMegabytes) {
+                this.maxSizeInMegabytes = maxSizeInMegabytes;
+            }
+
+            public String getInMemoryFormat() {
+                return inMemoryFormat;
+            }
+
+            public void setInMemoryFormat(String inMemoryFormat) {
+                this.inMemoryFormat = inMemoryFormat;
+            }
+
+            public String getEvictionPolicy() {
+                return evictionPolicy;
+            }
+
+            public void setEvictionPolicy(String evictionPolicy) {
+                this.evictionPolicy = evictionPolicy;
+            }
+        }
+    }
+
+    /**
+     * Where the profile images of the doctors and patients are stored.
+     */
+    public static class ImageStore {
+        //"filesystem", or "database" to keep them in the doctor and patient tables, which are read when a file is missing
+        private String type = "database";
+        //directory of the "filesystem" store, shared by all the instances
+        private String directory = "images";
+        //largest upload accepted, in kilobytes
+        private int maxSizeInKilobytes = 5 * 1024;
+        //largest width and height accepted, in pixels, checked before the image is decoded
+        private int maxDimension = 6000;
+        //quality of the JPEG images and thumbnails, between 0 and 1
+        private float jpegQuality = 0.85f;
+        //sizes of the thumbnails created after each upload, in pixels, requires the "filesystem" store
+        private List<Integer> thumbnailSizes = new ArrayList<>(Arrays.asList(64, 256));
+
+        public String getType() {
+            return type;
+        }
+
+        public void setType(String type) {
+            this.type = type;
+        }
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        public int getMaxSizeInKilobytes() {
+            return maxSizeInKilobytes;
+        }
+
+        public void setMaxSizeInKilobytes(int maxSizeInKilobytes) {
+            this.maxSizeInKilobytes = maxSizeInKilobytes;
+        }
+
+        public int getMaxDimension() {
+            return maxDimension;
+        }
+
+        public void setMaxDimension(int maxDimension) {
+            this.maxDimension = maxDimension;
+        }
+
+        public float getJpegQuality() {
+            return jpegQuality;
+        }
+
+        public void setJpegQuality(float jpegQuality) {
+            this.jpegQuality = jpegQuality;
+        }
+
+        public List<Integer> getThumbnailSizes() {
+            return thumbnailSizes;
+        }
+
+        public void setThumbnailSizes(List<Integer> thumbnailSizes) {
+            this.thumbnailSizes = thumbnailSizes;
+        }
+    }
+
+    /**
+     * Indexing of the users and doctors in Elasticsearch, in the background, from the outbox of their changes.
+     */
+    public static class SearchOutbox {
+        //set to false to leave the entries in the outbox, e.g. while the cluster is being migrated
+        private boolean enabled = true;
+        //time between two drains of the outbox, read by the @Scheduled worker
+        private long flushIntervalInMillis = 1000;
+        //largest number of entries sent in one bulk request
+        private int batchSize = 500;
+        //delay before the first retry of a failed entry, doubled after each failure
+        private long initialBackoffInMillis = 1000;
+        //longest delay between two retries of a failed entry
+        private long maxBackoffInSeconds = 5 * 60;
+        //time an instance holds the entries it drains, after which they are due again, e.g. if it stopped meanwhile
+        private long leaseInSeconds = 60;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getFlushIntervalInMillis() {
+            return flushIntervalInMillis;
+        }
+
+        public void setFlushIntervalInMillis(long flushIntervalInMillis) {
+            this.flushIntervalInMillis = flushIntervalInMillis;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public long getInitialBackoffInMillis() {
+            return initialBackoffInMillis;
+        }
+
+        public void setInitialBackoffInMillis(long initialBackoffInMillis) {
+            this.initialBackoffInMillis = initialBackoffInMillis;
+        }
+
+        public long getMaxBackoffInSeconds() {
+            return maxBackoffInSeconds;
+        }
+
+        public void setMaxBackoffInSeconds(long maxBackoffInSeconds) {
+            this.maxBackoffInSeconds = maxBackoffInSeconds;
+        }
+
+        public long getLeaseInSeconds() {
+            return leaseInSeconds;
+        }
+
+        public void setLeaseInSeconds(long leaseInSeconds) {
+            this.leaseInSeconds = leaseInSeconds;
+        }
+    }
+
+    /**
+     * Rebuild of the user index from the database, started from the management API.
+     */
+    public static class SearchReindex {
+        //number of users read by each query, and sent in each bulk request
+        private int chunkSize = 1000;
+        //number of bulk requests sent at the same time
+        private int threads = 4;
+        //attempts of a bulk request before the rebuild fails, the failed documents only are sent again
+        private int maxAttempts = 5;
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+    }
+
+    /**
+     * Limits of the searches for users.
+     */
+    public static class UserSearch {
+        //position of the end of the last page reachable by number, at most the index.max_result_window of the index
+        private int maxResultWindow = 10000;
+        //time after which the shards stop searching, the search is then rejected rather than partial
+        private long timeoutInMillis = 2000;
+
+        public int getMaxResultWindow() {
+            return maxResultWindow;
+        }
+
+        public void setMaxResultWindow(int maxResultWindow) {
+            this.maxResultWindow = maxResultWindow;
+        }
+
+        public long getTimeoutInMillis() {
+            return timeoutInMillis;
+        }
+
+        public void setTimeoutInMillis(long timeoutInMillis) {
+            this.timeoutInMillis = timeoutInMillis;
+        }
+    }
 }
@@ -1,5 +1,10 @@
 package com.dhomoni.uaa.config;
 
+import com.dhomoni.uaa.security.AdaptivePasswordEncoder;
+import com.dhomoni.uaa.security.DomainUserDetailsService;
+import com.dhomoni.uaa.security.PasswordHashingExecutor;
+import com.dhomoni.uaa.security.PasswordUpgradingAuthenticationProvider;
+
 import org.springframework.beans.factory.BeanInitializationException;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -9,9 +14,6 @@ import org.springframework.security.config.annotation.authentication.builders.Au
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.WebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
-import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.data.repository.query.SecurityEvaluationContextExtension;
 
 import javax.annotation.PostConstruct;
@@ -20,30 +22,46 @@ import javax.annotation.PostConstruct;
 @EnableGlobalMethodSecurity(prePostEnabled = true, securedEnabled = true)
 public class UaaWebSecurityConfiguration extends WebSecurityConfigurerAdapter {
 
-    private final UserDetailsService userDetailsService;
+    private final DomainUserDetailsService userDetailsService;
 
     private final AuthenticationManagerBuilder authenticationManagerBuilder;
 
-    public UaaWebSecurityConfiguration(UserDetailsService userDetailsService, AuthenticationManagerBuilder authenticationManagerBuilder) {
+    private final UaaProperties uaaProperties;
+
+    private final PasswordHashingExecutor passwordHashingExecutor;
+
+    public UaaWebSecurityConfiguration(DomainUserDetailsService userDetailsService, AuthenticationManagerBuilder authenticationManagerBuilder,
+                                       UaaProperties uaaProperties, PasswordHashingExecutor passwordHashingExecutor) {
         this.userDetailsService = userDetailsService;
         this.authenticationManagerBuilder = authenticationManagerBuilder;
+        this.uaaProperties = uaaProperties;
+        this.passwordHashingExecutor = passwordHashingExecutor;
     }
 
     @PostConstruct
     public void init() throws Exception {
         try {
             authenticationManagerBuilder
-                .userDetailsService(userDetailsService)
-                .passwordEncoder(passwordEncoder());
+                .authenticationProvider(new PasswordUpgradingAuthenticationProvider(userDetailsService, passwordEncoder()));
         } catch (Exception e) {
             throw new BeanInitializationException("Security configuration failed", e);
         }
     }
-    
- 
+
+    /**
+     * Hashes are prefixed by their algorithm, so that those computed with an older algorithm or a lower cost
+     * can be upgraded on login. They are hashed on the bounded "passwordHashingExecutor" pool.
+     * @return the encoder of the user passwords, calibrated to "uaa.password-hashing.target-hash-time-in-millis"
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public AdaptivePasswordEncoder passwordEncoder() {
+        UaaProperties.PasswordHashing passwordHashing = uaaProperties.getPasswordHashing();
+        String algorithm = passwordHashing.getAlgorithm();
+        int cost = AdaptivePasswordEncoder.SCRYPT.equals(algorithm) ? passwordHashing.getScryptCpuCost() : passwordHashing.getBcryptStrength();
+        if (passwordHashing.getTargetHashTimeInMillis() > 0) {
+            cost = AdaptivePasswordEncoder.calibrate(algorithm, cost, passwordHashing.getTargetHashTimeInMillis());
+        }
+        return new AdaptivePasswordEncoder(algorithm, cost, passwordHashingExecutor);
     }
 
     @Override
@@ -0,0 +1,106 @@
+package com.dhomoni.uaa.config.hazelcast;
+
+import com.hazelcast.config.properties.PropertyDefinition;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.nio.Address;
+import com.hazelcast.spi.discovery.AbstractDiscoveryStrategy;
+import com.hazelcast.spi.discovery.DiscoveryNode;
+import com.hazelcast.spi.discovery.DiscoveryStrategy;
+import com.hazelcast.spi.discovery.DiscoveryStrategyFactory;
+import com.hazelcast.spi.discovery.SimpleDiscoveryNode;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A Hazelcast discovery strategy finding the other members in the service registry, through the
+ * {@link DiscoveryClient}.
+ * <p>
+ * Hazelcast asks for the members when it joins a cluster, and again each time it looks for other clusters to merge
+ * with, so a member which started before its peers were registered still finds them later. Each instance of the
+ * service is expected to run a member on port 5701 of its host or, in development where all the instances run on
+ * the same host, on its own port plus 5701.
+ */
+public class DiscoveryClientDiscoveryStrategy extends AbstractDiscoveryStrategy {
+
+    public static final int HAZELCAST_PORT = 5701;
+
+    private final DiscoveryClient discoveryClient;
+
+    private final String serviceId;
+
+    private final String localhost;
+
+    /**
+     * @param localhost the address of all the members in development, null if each member runs on its own host
+     */
+    DiscoveryClientDiscoveryStrategy(ILogger logger, Map<String, Comparable> properties, DiscoveryClient discoveryClient,
+                                     String serviceId, String localhost) {
+        super(logger, properties);
+        this.discoveryClient = discoveryClient;
+        this.serviceId = serviceId;
+        this.localhost = localhost;
+    }
+
+    @Override
+    public Iterable<DiscoveryNode> discoverNodes() {
+        List<DiscoveryNode> nodes = new ArrayList<>();
+        for (ServiceInstance instance : discoveryClient.getInstances(serviceId)) {
+            String host = localhost == null ? instance.getHost() : localhost;
+            int port = localhost == null ? HAZELCAST_PORT : instance.getPort() + HAZELCAST_PORT;
+            try {
+                nodes.add(new SimpleDiscoveryNode(new Address(host, port)));
+            } catch (UnknownHostException e) {
+                getLogger().warning("Ignoring instance " + instance.getServiceId() + " of unknown host " + host);
+            }
+        }
+        getLogger().fine("Discovered Hazelcast members " + nodes);
+        return nodes;
+    }
+
+    /**
+     * Creates the strategy with the discovery client of the application, which Hazelcast can't instantiate itself.
+     */
+    public static class Factory implements DiscoveryStrategyFactory {
+
+        private final DiscoveryClient discoveryClient;
+
+        private final String serviceId;
+
+        private final String localhost;
+
+        /**
+         * @param discoveryClient the client of the service registry
+         * @param serviceId the service whose instances are the members
+         * @param localhost the address of all the members in development, null if each member runs on its own host
+         */
+        public Factory(DiscoveryClient discoveryClient, String serviceId, String localhost) {
+            this.discoveryClient = discoveryClient;
+            this.serviceId = serviceId;
+            this.localhost = localhost;
+        }
+
+        @Override
+        public Class<? extends DiscoveryStrategy> getDiscoveryStrategyType() {
+            return DiscoveryClientDiscoveryStrategy.class;
+        }
+
+        @Override
+        public DiscoveryStrategy newDiscoveryStrategy(DiscoveryNode discoveryNode, ILogger logger,
+                                                      Map<String, Comparable> properties) {
+            return new DiscoveryClientDiscoveryStrategy(logger, properties, discoveryClient, serviceId, localhost);
+        }
+
+        @Override
+        public Collection<PropertyDefinition> getConfigurationProperties() {
+            return Collections.emptyList();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.dhomoni.uaa.config.hazelcast;
+
+import com.dhomoni.uaa.domain.AbstractAuditingEntity;
+import com.dhomoni.uaa.domain.Authority;
+import com.dhomoni.uaa.domain.User;
+
+import com.hazelcast.config.SerializationConfig;
+import com.hazelcast.config.SerializerConfig;
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.StreamSerializer;
+import org.hibernate.Hibernate;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Hazelcast serializers for the domain entities kept in the distributed caches.
+ * <p>
+ * Java serialization writes the class descriptor of every object of the graph, including the Hibernate collection
+ * wrappers, and reads them back through reflection. These serializers only write the field values, in a fixed
+ * order, under a type id: a cached {@link User} with its authorities is several times smaller and faster to read.
+ * <p>
+ * The format has no version: every member of the cluster must run the same serializers, and a field added to one
+ * of these entities must be added here too. Only the entities which are cached as such have a serializer: the
+ * second-level cache regions of Hibernate hold disassembled entries, not entities.
+ */
+public final class DomainSerializers {
+
+    static final int AUTHORITY_TYPE_ID = 1001;
+
+    static final int USER_TYPE_ID = 1002;
+
+    private DomainSerializers() {
+    }
+
+    /**
+     * Registers the serializers of the domain entities.
+     *
+     * @param serializationConfig the serialization configuration of the Hazelcast instance
+     * @return the serialization configuration
+     */
+    public static SerializationConfig register(SerializationConfig serializationConfig) {
+        serializationConfig.addSerializerConfig(serializerConfig(Authority.class, new AuthoritySerializer()));
+        serializationConfig.addSerializerConfig(serializerConfig(User.class, new UserSerializer()));
+        return serializationConfig;
+    }
+
+    private static SerializerConfig serializerConfig(Class<?> typeClass, StreamSerializer<?> serializer) {
+        return new SerializerConfig().setTypeClass(typeClass).setImplementation(serializer);
+    }
+
+    static class AuthoritySerializer extends DomainSerializer<Authority> {
+
+        AuthoritySerializer() {
+            super(AUTHORITY_TYPE_ID);
+        }
+
+        @Override
+        public void write(ObjectDataOutput out, Authority authority) throws IOException {
+            out.writeUTF(authority.getName());
+        }
+
+        @Override
+        public Authority read(ObjectDataInput in) throws IOException {
+            Authority authority = new Authority();
+            authority.setName(in.readUTF());
+            return authority;
+        }
+    }
+
+    /**
+     * Authorities are written by name, they are nothing more. Authorities which have not been loaded are written
+     * like no authorities, so that caching a detached user never triggers the lazy loading.
+     */
+    static class UserSerializer extends DomainSerializer<User> {
+
+        UserSerializer() {
+            super(USER_TYPE_ID);
+        }
+
+        @Override
+        public void write(ObjectDataOutput out, User user) throws IOException {
+            writeLong(out, user.getId());
+            out.writeUTF(user.getLogin());
+            out.writeUTF(user.getPassword());
+            out.writeUTF(user.getFirstName());
+            out.writeUTF(user.getLastName());
+            out.writeUTF(user.getEmail());
+            out.writeBoolean(user.getActivated());
+            out.writeUTF(user.getLangKey());
+            out.writeUTF(user.getImageUrl());
+            out.writeUTF(user.getActivationKey());
+            out.writeUTF(user.getResetKey());
+            writeInstant(out, user.getResetDate());
+            writeLong(out, user.getVersion());
+            writeAuditing(out, user);
+            Set<Authority> authorities = user.getAuthorities();
+            if (authorities == null || !Hibernate.isInitialized(authorities)) {
+                out.writeInt(-1);
+            } else {
+                out.writeInt(authorities.size());
+                for (Authority authority : authorities) {
+                    out.writeUTF(authority.getName());
+                }
+            }
+        }
+
+        @Override
+        public User read(ObjectDataInput in) throws IOException {
+            User user = new User();
+            user.setId(readLong(in));
+            user.setLogin(in.readUTF());
+            user.setPassword(in.readUTF());
+            user.setFirstName(in.readUTF());
+            user.setLastName(in.readUTF());
+            user.setEmail(in.readUTF());
+            user.setActivated(in.readBoolean());
+            user.setLangKey(in.readUTF());
+            user.setImageUrl(in.readUTF());
+            user.setActivationKey(in.readUTF());
+            user.setResetKey(in.readUTF());
+            user.setResetDate(readInstant(in));
+            user.setVersion(readLong(in));
+            readAuditing(in, user);
+            int size = in.readInt();
+            if (size < 0) {
+                user.setAuthorities(null);
+            } else {
+                Set<Authority> authorities = new HashSet<>(size * 2);
+                for (int i = 0; i < size; i++) {
+                    Authority authority = new Authority();
+                    authority.setName(in.readUTF());
+                    authorities.add(authority);
+                }
+                user.setAuthorities(authorities);
+            }
+            return user;
+        }
+    }
+
+    /**
+     * Base class of the serializers, with the encoding of the nullable values: strings already encode null, the
+     * other values are preceded by a presence flag.
+     */
+    abstract static class DomainSerializer<T> implements StreamSerializer<T> {
+
+        private final int typeId;
+
+        DomainSerializer(int typeId) {
+            this.typeId = typeId;
+        }
+
+        @Override
+        public int getTypeId() {
+            return typeId;
+        }
+
+        @Override
+        public void destroy() {
+        }
+
+        static void writeLong(ObjectDataOutput out, Long value) throws IOException {
+            out.writeBoolean(value != null);
+            if (value != null) {
+                out.writeLong(value);
+            }
+        }
+
+        static Long readLong(ObjectDataInput in) throws IOException {
+            return in.readBoolean() ? in.readLong() : null;
+        }
+
+        static void writeInstant(ObjectDataOutput out, Instant value) throws IOException {
+            out.writeBoolean(value != null);
+            if (value != null) {
+                out.writeLong(value.getEpochSecond());
+                out.writeInt(value.getNano());
+            }
+        }
+
+        static Instant readInstant(ObjectDataInput in) throws IOException {
+            return in.readBoolean() ? Instant.ofEpochSecond(in.readLong(), in.readInt()) : null;
+        }
+
+        static void writeAuditing(ObjectDataOutput out, AbstractAuditingEntity entity) throws IOException {
+            out.writeUTF(entity.getCreatedBy());
+            writeInstant(out, entity.getCreatedDate());
+            out.writeUTF(entity.getLastModifiedBy());
+            writeInstant(out, entity.getLastModifiedDate());
+        }
+
+        static void readAuditing(ObjectDataInput in, AbstractAuditingEntity entity) throws IOException {
+            entity.setCreatedBy(in.readUTF());
+            entity.setCreatedDate(readInstant(in));
+            entity.setLastModifiedBy(in.readUTF());
+            entity.setLastModifiedDate(readInstant(in));
+        }
+    }
+}
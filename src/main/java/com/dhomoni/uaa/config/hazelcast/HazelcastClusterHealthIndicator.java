@@ -0,0 +1,50 @@
+package com.dhomoni.uaa.config.hazelcast;
+
+import com.hazelcast.core.HazelcastInstance;
+
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+
+/**
+ * Compares the size of the Hazelcast cluster with the number of instances of the service in the registry.
+ * <p>
+ * Fewer members than instances means that some instances have their own caches, e.g. before they have found each
+ * other or after a network partition. The status is then UNKNOWN rather than DOWN: the instance still works, with
+ * a cache which is not shared.
+ */
+public class HazelcastClusterHealthIndicator extends AbstractHealthIndicator {
+
+    private final HazelcastInstance hazelcastInstance;
+
+    private final DiscoveryClient discoveryClient;
+
+    private final String serviceId;
+
+    /**
+     * @param serviceId the service whose instances should be members, null if the application is not registered
+     */
+    public HazelcastClusterHealthIndicator(HazelcastInstance hazelcastInstance, DiscoveryClient discoveryClient,
+                                           String serviceId) {
+        this.hazelcastInstance = hazelcastInstance;
+        this.discoveryClient = discoveryClient;
+        this.serviceId = serviceId;
+    }
+
+    @Override
+    protected void doHealthCheck(Health.Builder builder) {
+        int clusterSize = hazelcastInstance.getCluster().getMembers().size();
+        builder.withDetail("clusterSize", clusterSize);
+        if (serviceId == null) {
+            builder.up();
+            return;
+        }
+        int registeredInstances = discoveryClient.getInstances(serviceId).size();
+        builder.withDetail("registeredInstances", registeredInstances);
+        if (clusterSize < registeredInstances) {
+            builder.unknown();
+        } else {
+            builder.up();
+        }
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Hazelcast integration: serialization of the cached domain entities, discovery and health of the cluster.
+ */
+package com.dhomoni.uaa.config.hazelcast;
@@ -3,11 +3,13 @@ package com.dhomoni.uaa.domain;
 import java.io.Serializable;
 import java.util.Set;
 
+import javax.persistence.Basic;
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
@@ -21,17 +23,25 @@ import javax.validation.constraints.Pattern;
 
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.LazyGroup;
 
 import com.dhomoni.uaa.config.Constants;
 import com.dhomoni.uaa.domain.enumeration.DoctorType;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.vividsolutions.jts.geom.Point;
 
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 
 @Entity
 @Table(name = "doctor")
-@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, include = "non-lazy")
+@DynamicUpdate
 @Data
+@EqualsAndHashCode(exclude = {"description", "image"})
+@ToString(exclude = {"description", "image"})
 public class Doctor implements Serializable {
     
 	private static final long serialVersionUID = 1L;
@@ -63,6 +73,8 @@ public class Doctor implements Serializable {
     @Column(name = "designation")
     private String designation;
 
+    @Basic(fetch = FetchType.LAZY)
+    @LazyGroup("description")
     @Lob
     @Column(name = "description")
     private String description;
@@ -77,6 +89,9 @@ public class Doctor implements Serializable {
     @Column(name = "GEOM", columnDefinition = "GEOMETRY(Point, 4326)")
     private Point location;
 
+    @JsonIgnore
+    @Basic(fetch = FetchType.LAZY)
+    @LazyGroup("image")
     @Lob
     @Column(name = "image")
     private byte[] image;
@@ -84,6 +99,9 @@ public class Doctor implements Serializable {
     @Column(name = "image_content_type")
     private String imageContentType;
 
+    @Column(name = "image_etag", length = 32)
+    private String imageEtag;
+
     @OneToOne
     private User user;
 }
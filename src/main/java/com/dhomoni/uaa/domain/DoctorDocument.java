@@ -0,0 +1,83 @@
+package com.dhomoni.uaa.domain;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.annotations.Field;
+import org.springframework.data.elasticsearch.annotations.FieldType;
+import org.springframework.data.elasticsearch.annotations.GeoPointField;
+import org.springframework.data.elasticsearch.core.geo.GeoPoint;
+
+import com.dhomoni.uaa.domain.enumeration.DoctorType;
+
+import lombok.Data;
+
+/**
+ * The search document of an activated doctor, denormalized from the Doctor, its User and its ProfessionalDegrees.
+ * <p>
+ * The type and the medical department are keywords, for the filters and the facets, and the location is a
+ * geo_point, for the distance filter and sort.
+ */
+@Document(indexName = "doctor")
+@Data
+public class DoctorDocument implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    private Long id;
+
+    @Field(type = FieldType.Text)
+    private String firstName;
+
+    @Field(type = FieldType.Text)
+    private String lastName;
+
+    @Field(type = FieldType.Keyword)
+    private DoctorType type;
+
+    @Field(type = FieldType.Keyword)
+    private Integer medicalDepartment;
+
+    @Field(type = FieldType.Text)
+    private String designation;
+
+    @Field(type = FieldType.Text)
+    private String description;
+
+    @Field(type = FieldType.Text)
+    private String address;
+
+    @GeoPointField
+    private GeoPoint location;
+
+    @Field(type = FieldType.Nested)
+    private List<Degree> professionalDegrees = new ArrayList<>();
+
+    @Field(type = FieldType.Keyword, index = false)
+    private String imageLink;
+
+    /**
+     * A professional degree of the doctor, nested so its name and its institute are matched together.
+     */
+    @Data
+    public static class Degree implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        @Field(type = FieldType.Text)
+        private String name;
+
+        @Field(type = FieldType.Text)
+        private String institute;
+
+        @Field(type = FieldType.Keyword)
+        private String country;
+
+        @Field(type = FieldType.Integer)
+        private Integer passingYear;
+    }
+}
@@ -0,0 +1,174 @@
+package com.dhomoni.uaa.domain;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.io.Serializable;
+
+/**
+ * An OAuth2 client, such as an internal service authenticating with the "client_credentials" grant.
+ * <p>
+ * Lists (scopes, grant types...) are stored as comma-separated values, as expected by
+ * {@link org.springframework.security.oauth2.provider.client.BaseClientDetails}, which keeps the entity flat
+ * and cheap to serialize into the cache.
+ */
+@Entity
+@Table(name = "oauth_client")
+public class OAuthClient implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @NotNull
+    @Size(max = 100)
+    @Id
+    @Column(name = "client_id", length = 100)
+    private String clientId;
+
+    @NotNull
+    @Size(min = 1, max = 100)
+    @Column(name = "client_secret", length = 100, nullable = false)
+    private String clientSecret;
+
+    @Size(max = 256)
+    @Column(name = "resource_ids", length = 256)
+    private String resourceIds;
+
+    @Size(max = 256)
+    @Column(name = "scopes", length = 256)
+    private String scopes;
+
+    @Size(max = 256)
+    @Column(name = "authorized_grant_types", length = 256)
+    private String authorizedGrantTypes;
+
+    @Size(max = 256)
+    @Column(name = "authorities", length = 256)
+    private String authorities;
+
+    @Size(max = 2048)
+    @Column(name = "redirect_uris", length = 2048)
+    private String redirectUris;
+
+    @Column(name = "access_token_validity")
+    private Integer accessTokenValidity;
+
+    @Column(name = "refresh_token_validity")
+    private Integer refreshTokenValidity;
+
+    @NotNull
+    @Column(name = "auto_approve", nullable = false)
+    private boolean autoApprove = false;
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(String clientId) {
+        this.clientId = clientId;
+    }
+
+    public String getClientSecret() {
+        return clientSecret;
+    }
+
+    public void setClientSecret(String clientSecret) {
+        this.clientSecret = clientSecret;
+    }
+
+    public String getResourceIds() {
+        return resourceIds;
+    }
+
+    public void setResourceIds(String resourceIds) {
+        this.resourceIds = resourceIds;
+    }
+
+    public String getScopes() {
+        return scopes;
+    }
+
+    public void setScopes(String scopes) {
+        this.scopes = scopes;
+    }
+
+    public String getAuthorizedGrantTypes() {
+        return authorizedGrantTypes;
+    }
+
+    public void setAuthorizedGrantTypes(String authorizedGrantTypes) {
+        this.authorizedGrantTypes = authorizedGrantTypes;
+    }
+
+    public String getAuthorities() {
+        return authorities;
+    }
+
+    public void setAuthorities(String authorities) {
+        this.authorities = authorities;
+    }
+
+    public String getRedirectUris() {
+        return redirectUris;
+    }
+
+    public void setRedirectUris(String redirectUris) {
+        this.redirectUris = redirectUris;
+    }
+
+    public Integer getAccessTokenValidity() {
+        return accessTokenValidity;
+    }
+
+    public void setAccessTokenValidity(Integer accessTokenValidity) {
+        this.accessTokenValidity = accessTokenValidity;
+    }
+
+    public Integer getRefreshTokenValidity() {
+        return refreshTokenValidity;
+    }
+
+    public void setRefreshTokenValidity(Integer refreshTokenValidity) {
+        this.refreshTokenValidity = refreshTokenValidity;
+    }
+
+    public boolean isAutoApprove() {
+        return autoApprove;
+    }
+
+    public void setAutoApprove(boolean autoApprove) {
+        this.autoApprove = autoApprove;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        OAuthClient oAuthClient = (OAuthClient) o;
+
+        return !(clientId != null ? !clientId.equals(oAuthClient.clientId) : oAuthClient.clientId != null);
+    }
+
+    @Override
+    public int hashCode() {
+        return clientId != null ? clientId.hashCode() : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "OAuthClient{" +
+            "clientId='" + clientId + '\'' +
+            ", scopes='" + scopes + '\'' +
+            ", authorizedGrantTypes='" + authorizedGrantTypes + '\'' +
+            ", authorities='" + authorities + '\'' +
+            ", autoApprove=" + autoApprove +
+            "}";
+    }
+}
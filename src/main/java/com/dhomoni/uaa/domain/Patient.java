@@ -3,10 +3,12 @@ package com.dhomoni.uaa.domain;
 import java.io.Serializable;
 import java.time.Instant;
 
+import javax.persistence.Basic;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
@@ -18,18 +20,25 @@ import javax.validation.constraints.Pattern;
 
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
 
 import com.dhomoni.uaa.config.Constants;
 import com.dhomoni.uaa.domain.enumeration.BloodGroup;
 import com.dhomoni.uaa.domain.enumeration.Sex;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.vividsolutions.jts.geom.Point;
 
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 
 @Entity
 @Table(name = "patient")
-@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, include = "non-lazy")
+@DynamicUpdate
 @Data
+@EqualsAndHashCode(exclude = "image")
+@ToString(exclude = "image")
 public class Patient implements Serializable {
 
 	private static final long serialVersionUID = 1L;
@@ -59,6 +68,8 @@ public class Patient implements Serializable {
 	@Column(name = "height_in_inch")
 	private Double heightInInch;
 
+	@JsonIgnore
+	@Basic(fetch = FetchType.LAZY)
 	@Lob
 	@Column(name = "image")
 	private byte[] image;
@@ -66,6 +77,9 @@ public class Patient implements Serializable {
 	@Column(name = "image_content_type")
 	private String imageContentType;
 
+	@Column(name = "image_etag", length = 32)
+	private String imageEtag;
+
 	@Column(name = "address")
 	private String address;
 
@@ -0,0 +1,63 @@
+package com.dhomoni.uaa.domain;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.validation.constraints.NotNull;
+
+import com.dhomoni.uaa.domain.enumeration.SearchDocumentType;
+
+import lombok.Data;
+
+/**
+ * A user or a doctor whose search document has to be indexed again, recorded in the transaction which changed it.
+ * <p>
+ * The entry only holds the id: the document is built from the state of the database when the entry is drained, or
+ * deleted if the user is gone, so the entries of a same document can be drained together, in any order.
+ * <p>
+ * The instance draining an entry holds it until its next attempt date, and records itself in lockedBy.
+ */
+@Entity
+@Table(name = "search_outbox")
+@Data
+public class SearchOutboxEntry implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
+    @SequenceGenerator(name = "sequenceGenerator")
+    private Long id;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "document_type", length = 20, nullable = false)
+    private SearchDocumentType documentType;
+
+    @NotNull
+    @Column(name = "document_id", nullable = false)
+    private Long documentId;
+
+    @NotNull
+    @Column(name = "created_date", nullable = false)
+    private Instant createdDate;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @NotNull
+    @Column(name = "next_attempt_date", nullable = false)
+    private Instant nextAttemptDate;
+
+    @Column(name = "locked_by", length = 36)
+    private String lockedBy;
+}
@@ -0,0 +1,8 @@
+package com.dhomoni.uaa.domain.enumeration;
+
+/**
+ * The SearchDocumentType enumeration, the search index of an outbox entry.
+ */
+public enum SearchDocumentType {
+    USER, DOCTOR
+}
@@ -1,9 +1,13 @@
 package com.dhomoni.uaa.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.dhomoni.uaa.domain.Doctor;
@@ -18,4 +22,13 @@ public interface DoctorRepository extends JpaRepository<Doctor, Long> {
 	
 	@EntityGraph(attributePaths = "professionalDegrees")
 	Optional<Doctor> findOneWithProfessionalDegreesByUser(User user);
+
+	/**
+	 * A doctor comes back once per professional degree.
+	 */
+	@EntityGraph(attributePaths = {"user", "professionalDegrees"})
+	List<Doctor> findAllWithUserAndProfessionalDegreesByIdIn(Collection<Long> ids);
+
+	@Query("select d.image from Doctor d where d.id = :id")
+	Optional<byte[]> findImageById(@Param("id") Long id);
 }
@@ -0,0 +1,92 @@
+package com.dhomoni.uaa.repository;
+
+/**
+ * A circle on the sphere of ST_DistanceSphere, and its bounding box in degrees, which the spatial indexes can use.
+ * <p>
+ * The poles and the antimeridian widen the box to the whole longitude range.
+ */
+public final class GeoCircle {
+
+    /**
+     * The radius of the sphere of ST_DistanceSphere, in meters.
+     */
+    public static final double EARTH_RADIUS_IN_METERS = 6370986.0;
+
+    private final double latitude;
+
+    private final double longitude;
+
+    private final double radiusInMeters;
+
+    private final double minLatitude;
+
+    private final double maxLatitude;
+
+    private final double minLongitude;
+
+    private final double maxLongitude;
+
+    public GeoCircle(double latitude, double longitude, double radiusInMeters) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.radiusInMeters = radiusInMeters;
+        double latitudeDelta = Math.toDegrees(radiusInMeters / EARTH_RADIUS_IN_METERS);
+        double longitudeDelta = 180;
+        if (latitude - latitudeDelta > -90 && latitude + latitudeDelta < 90) {
+            longitudeDelta = Math.toDegrees(Math.asin(Math.min(1,
+                Math.sin(radiusInMeters / EARTH_RADIUS_IN_METERS) / Math.cos(Math.toRadians(latitude)))));
+        }
+        boolean wholeLongitudeRange = longitude - longitudeDelta < -180 || longitude + longitudeDelta > 180;
+        this.minLatitude = Math.max(-90, latitude - latitudeDelta);
+        this.maxLatitude = Math.min(90, latitude + latitudeDelta);
+        this.minLongitude = wholeLongitudeRange ? -180 : longitude - longitudeDelta;
+        this.maxLongitude = wholeLongitudeRange ? 180 : longitude + longitudeDelta;
+    }
+
+    /**
+     * @return the distance of the point to the center of the circle, in meters
+     */
+    public double distanceTo(double pointLatitude, double pointLongitude) {
+        double haversine = Math.pow(Math.sin(Math.toRadians(pointLatitude - latitude) / 2), 2)
+            + Math.cos(Math.toRadians(latitude)) * Math.cos(Math.toRadians(pointLatitude))
+            * Math.pow(Math.sin(Math.toRadians(pointLongitude - longitude) / 2), 2);
+        return 2 * EARTH_RADIUS_IN_METERS * Math.asin(Math.sqrt(haversine));
+    }
+
+    /**
+     * @return the bounding box as a WKT polygon
+     */
+    public String boundingBox() {
+        return "POLYGON((" + minLongitude + " " + minLatitude + ", " + maxLongitude + " " + minLatitude + ", "
+            + maxLongitude + " " + maxLatitude + ", " + minLongitude + " " + maxLatitude + ", "
+            + minLongitude + " " + minLatitude + "))";
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public double getRadiusInMeters() {
+        return radiusInMeters;
+    }
+
+    public double getMinLatitude() {
+        return minLatitude;
+    }
+
+    public double getMaxLatitude() {
+        return maxLatitude;
+    }
+
+    public double getMinLongitude() {
+        return minLongitude;
+    }
+
+    public double getMaxLongitude() {
+        return maxLongitude;
+    }
+}
@@ -0,0 +1,122 @@
+package com.dhomoni.uaa.repository;
+
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.orm.jpa.JpaProperties;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.orm.jpa.vendor.Database;
+import org.springframework.stereotype.Repository;
+
+import com.dhomoni.uaa.domain.enumeration.DoctorType;
+import com.dhomoni.uaa.service.dto.NearbyDoctorDTO;
+
+/**
+ * Finds the activated doctors around a point, from the nearest to the farthest.
+ * <p>
+ * The doctors are first selected in the bounding box of the circle, then their distance on the sphere is computed
+ * and compared to the radius. On PostGIS, the bounding box is an "&&" on the GiST index of the GEOM column; on
+ * H2/GeoDB, which is only used for development and tests, it is a comparison of the coordinates, without index.
+ * <p>
+ * The results are paginated by keyset: a page starts after the (distance, id) of the last doctor of the previous
+ * one, so it costs the same whatever its position, and doesn't skip or repeat doctors when others are added.
+ */
+@Repository
+public class NearbyDoctorRepository {
+
+    private static final String SELECT =
+        "select * from (" +
+        " select d.id, u.first_name, u.last_name, d.type, d.medical_department_id, d.designation, d.address," +
+        " d.image_content_type, ST_Y(d.GEOM) as latitude, ST_X(d.GEOM) as longitude, %s as distance" +
+        " from doctor d join jhi_user u on u.id = d.user_id" +
+        " where %s and u.activated = true%s" +
+        ") nearby where distance <= :radius%s" +
+        " order by distance, id limit :size";
+
+    private static final String POSTGIS_DISTANCE =
+        "ST_DistanceSphere(d.GEOM, ST_SetSRID(ST_MakePoint(:longitude, :latitude), 4326))";
+
+    private static final String POSTGIS_BOUNDING_BOX =
+        "d.GEOM && ST_MakeEnvelope(:minLongitude, :minLatitude, :maxLongitude, :maxLatitude, 4326)";
+
+    private static final String H2_DISTANCE =
+        "2 * " + GeoCircle.EARTH_RADIUS_IN_METERS + " * ASIN(SQRT(POWER(SIN(RADIANS(ST_Y(d.GEOM) - :latitude) / 2), 2)" +
+        " + COS(RADIANS(:latitude)) * COS(RADIANS(ST_Y(d.GEOM))) * POWER(SIN(RADIANS(ST_X(d.GEOM) - :longitude) / 2), 2)))";
+
+    private static final String H2_BOUNDING_BOX =
+        "ST_X(d.GEOM) between :minLongitude and :maxLongitude and ST_Y(d.GEOM) between :minLatitude and :maxLatitude";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    private final boolean postgis;
+
+    public NearbyDoctorRepository(NamedParameterJdbcTemplate jdbcTemplate, JpaProperties jpaProperties) {
+        this(jdbcTemplate, jpaProperties.getDatabase() == Database.POSTGRESQL);
+    }
+
+    NearbyDoctorRepository(NamedParameterJdbcTemplate jdbcTemplate, boolean postgis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.postgis = postgis;
+    }
+
+    /**
+     * @param latitude the latitude of the point, in degrees
+     * @param longitude the longitude of the point, in degrees
+     * @param radiusInMeters the maximum distance of the doctors to the point
+     * @param type the type of the doctors, null for all of them
+     * @param medicalDepartment the medical department of the doctors, null for all of them
+     * @param afterDistance the distance of the last doctor of the previous page, null for the first page
+     * @param afterId the id of the last doctor of the previous page, null for the first page
+     * @param size the maximum number of doctors
+     * @return the doctors, from the nearest to the farthest, and by id at the same distance
+     */
+    public List<NearbyDoctorDTO> findNearby(double latitude, double longitude, double radiusInMeters,
+                                            DoctorType type, Integer medicalDepartment,
+                                            Double afterDistance, Long afterId, int size) {
+        GeoCircle circle = new GeoCircle(latitude, longitude, radiusInMeters);
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+            .addValue("latitude", latitude)
+            .addValue("longitude", longitude)
+            .addValue("radius", radiusInMeters)
+            .addValue("size", size)
+            .addValue("minLatitude", circle.getMinLatitude())
+            .addValue("maxLatitude", circle.getMaxLatitude())
+            .addValue("minLongitude", circle.getMinLongitude())
+            .addValue("maxLongitude", circle.getMaxLongitude());
+
+        StringBuilder filters = new StringBuilder();
+        if (type != null) {
+            filters.append(" and d.type = :type");
+            parameters.addValue("type", type.name());
+        }
+        if (medicalDepartment != null) {
+            filters.append(" and d.medical_department_id = :medicalDepartment");
+            parameters.addValue("medicalDepartment", medicalDepartment);
+        }
+        String after = "";
+        if (afterDistance != null && afterId != null) {
+            after = " and (distance > :afterDistance or (distance = :afterDistance and id > :afterId))";
+            parameters.addValue("afterDistance", afterDistance).addValue("afterId", afterId);
+        }
+        String sql = String.format(SELECT, postgis ? POSTGIS_DISTANCE : H2_DISTANCE,
+            postgis ? POSTGIS_BOUNDING_BOX : H2_BOUNDING_BOX, filters, after);
+        return jdbcTemplate.query(sql, parameters, (resultSet, row) -> {
+            NearbyDoctorDTO doctor = new NearbyDoctorDTO();
+            doctor.setId(resultSet.getLong("id"));
+            doctor.setFirstName(resultSet.getString("first_name"));
+            doctor.setLastName(resultSet.getString("last_name"));
+            String doctorType = resultSet.getString("type");
+            doctor.setType(doctorType == null ? null : DoctorType.valueOf(doctorType));
+            doctor.setMedicalDepartment((Integer) resultSet.getObject("medical_department_id"));
+            doctor.setDesignation(resultSet.getString("designation"));
+            doctor.setAddress(resultSet.getString("address"));
+            doctor.setLatitude(resultSet.getDouble("latitude"));
+            doctor.setLongitude(resultSet.getDouble("longitude"));
+            doctor.setDistanceInMeters(resultSet.getDouble("distance"));
+            if (resultSet.getString("image_content_type") != null) {
+                doctor.setImageLink("/api/doctors/" + doctor.getId() + "/image");
+            }
+            return doctor;
+        });
+    }
+}
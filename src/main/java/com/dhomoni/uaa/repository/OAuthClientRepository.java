@@ -0,0 +1,21 @@
+package com.dhomoni.uaa.repository;
+
+import com.dhomoni.uaa.domain.OAuthClient;
+
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * Spring Data JPA repository for the OAuthClient entity.
+ */
+@Repository
+public interface OAuthClientRepository extends JpaRepository<OAuthClient, String> {
+
+    String CLIENTS_BY_CLIENT_ID_CACHE = "clientsByClientId";
+
+    @Cacheable(cacheNames = CLIENTS_BY_CLIENT_ID_CACHE)
+    Optional<OAuthClient> findOneByClientId(String clientId);
+}
@@ -3,14 +3,20 @@ package com.dhomoni.uaa.repository;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.dhomoni.uaa.domain.Patient;
 import com.dhomoni.uaa.domain.User;
 
 @Repository
-public interface PatientRepository extends JpaRepository<Patient, Long> {
+public interface PatientRepository extends JpaRepository<Patient, Long>, JpaSpecificationExecutor<Patient>,
+	PatientRepositoryCustom {
 	
 	Optional<Patient> findOneByUser(User user);
 
+	@Query("select p.image from Patient p where p.id = :id")
+	Optional<byte[]> findImageById(@Param("id") Long id);
 }
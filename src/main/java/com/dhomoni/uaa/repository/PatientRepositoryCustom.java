@@ -0,0 +1,22 @@
+package com.dhomoni.uaa.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import com.dhomoni.uaa.domain.Patient;
+import com.dhomoni.uaa.service.dto.PatientCohortDTO;
+
+/**
+ * Queries of the {@link PatientRepository} which Spring Data JPA can't derive.
+ */
+public interface PatientRepositoryCustom {
+
+    /**
+     * @param specification the cohort, for example built with {@link PatientSpecifications}
+     * @param afterId the id of the last patient of the previous page, null for the first page
+     * @param size the maximum number of patients
+     * @return the patients of the cohort whose user is activated, by id
+     */
+    List<PatientCohortDTO> findCohort(Specification<Patient> specification, Long afterId, int size);
+}
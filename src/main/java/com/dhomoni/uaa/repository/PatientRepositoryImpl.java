@@ -0,0 +1,53 @@
+package com.dhomoni.uaa.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import com.dhomoni.uaa.domain.Patient;
+import com.dhomoni.uaa.domain.User;
+import com.dhomoni.uaa.service.dto.PatientCohortDTO;
+
+/**
+ * Selects the cohorts as projections, so neither the patients nor their users are loaded in the persistence context,
+ * and by keyset on the id, so a page costs the same whatever its position.
+ */
+public class PatientRepositoryImpl implements PatientRepositoryCustom {
+
+    private final EntityManager entityManager;
+
+    public PatientRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<PatientCohortDTO> findCohort(Specification<Patient> specification, Long afterId, int size) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<PatientCohortDTO> query = cb.createQuery(PatientCohortDTO.class);
+        Root<Patient> patient = query.from(Patient.class);
+        Join<Patient, User> user = patient.join("user");
+        query.select(cb.construct(PatientCohortDTO.class, patient.get("id"), user.get("firstName"),
+            user.get("lastName"), patient.get("phone"), patient.get("bloodGroup"), patient.get("sex"),
+            patient.get("birthTimestamp"), patient.get("location")));
+
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.isTrue(user.get("activated")));
+        Predicate cohort = specification == null ? null : specification.toPredicate(patient, query, cb);
+        if (cohort != null) {
+            predicates.add(cohort);
+        }
+        if (afterId != null) {
+            predicates.add(cb.greaterThan(patient.get("id"), afterId));
+        }
+        query.where(predicates.toArray(new Predicate[0])).orderBy(cb.asc(patient.get("id")));
+        return entityManager.createQuery(query).setMaxResults(size).getResultList();
+    }
+}
@@ -0,0 +1,48 @@
+package com.dhomoni.uaa.repository;
+
+import java.time.Instant;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import com.dhomoni.uaa.domain.Patient;
+import com.dhomoni.uaa.domain.enumeration.BloodGroup;
+import com.dhomoni.uaa.domain.enumeration.Sex;
+
+/**
+ * Specifications of the patient cohorts, to combine with {@link Specification#where(Specification)}.
+ * <p>
+ * The blood group and the sex are the first columns of the composite index idx_patient_cohort, followed by the id
+ * of the keyset pagination; the location is on the GiST index idx_patient_geom on PostGIS.
+ */
+public final class PatientSpecifications {
+
+    private PatientSpecifications() {
+    }
+
+    public static Specification<Patient> hasBloodGroup(BloodGroup bloodGroup) {
+        return (root, query, cb) -> cb.equal(root.get("bloodGroup"), bloodGroup);
+    }
+
+    public static Specification<Patient> hasSex(Sex sex) {
+        return (root, query, cb) -> cb.equal(root.get("sex"), sex);
+    }
+
+    public static Specification<Patient> bornAfter(Instant birthTimestamp) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("birthTimestamp"), birthTimestamp);
+    }
+
+    public static Specification<Patient> bornBefore(Instant birthTimestamp) {
+        return (root, query, cb) -> cb.lessThan(root.get("birthTimestamp"), birthTimestamp);
+    }
+
+    /**
+     * The patients in the bounding box of the circle: some of them are outside of the circle, and have to be
+     * filtered out with {@link GeoCircle#distanceTo(double, double)}.
+     * <p>
+     * The box is a WKT parameter rather than a geometry, which Hibernate Spatial can't bind on H2/GeoDB.
+     */
+    public static Specification<Patient> locatedAround(GeoCircle circle) {
+        return (root, query, cb) -> cb.isTrue(cb.function("ST_Intersects", Boolean.class, root.get("location"),
+            cb.function("ST_GeomFromText", Object.class, cb.literal(circle.boundingBox()), cb.literal(4326))));
+    }
+}
@@ -4,6 +4,8 @@ import com.dhomoni.uaa.domain.PersistentAuditEvent;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.Instant;
 import java.util.List;
@@ -22,4 +24,12 @@ public interface PersistenceAuditEventRepository extends JpaRepository<Persisten
     List<PersistentAuditEvent> findByPrincipalAndAuditEventDateAfterAndAuditEventType(String principal, Instant after, String type);
 
     Page<PersistentAuditEvent> findAllByAuditEventDateBetween(Instant fromDate, Instant toDate, Pageable pageable);
+
+    /**
+     * @return the principals with events of the given type since the given date, the most recent first
+     */
+    @Query("select e.principal from PersistentAuditEvent e where e.auditEventType = :type and e.auditEventDate > :after " +
+        "group by e.principal order by max(e.auditEventDate) desc")
+    List<String> findRecentPrincipalsByAuditEventType(@Param("type") String type, @Param("after") Instant after,
+                                                      Pageable pageable);
 }
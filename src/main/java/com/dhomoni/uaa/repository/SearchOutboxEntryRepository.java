@@ -0,0 +1,61 @@
+package com.dhomoni.uaa.repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.dhomoni.uaa.domain.SearchOutboxEntry;
+
+/**
+ * Spring Data JPA repository for the SearchOutboxEntry entity.
+ */
+@Repository
+public interface SearchOutboxEntryRepository extends JpaRepository<SearchOutboxEntry, Long> {
+
+    /**
+     * The entries due, on the index idx_search_outbox_next_attempt.
+     */
+    List<SearchOutboxEntry> findAllByNextAttemptDateLessThanEqualOrderByNextAttemptDateAscIdAsc(Instant now,
+                                                                                             Pageable pageable);
+
+    Optional<SearchOutboxEntry> findFirstByOrderByIdAsc();
+
+    List<SearchOutboxEntry> findAllByLockedByOrderByIdAsc(String lockedBy);
+
+    /**
+     * Holds the entries which are still due, and whose document isn't held by another drain, until the end of the
+     * lease. A concurrent drain waits for the rows it updates too, then finds them no longer due and skips them.
+     * <p>
+     * A native query, as Hibernate doesn't qualify the columns of the updated table in a correlated subquery.
+     *
+     * @return the number of entries held
+     */
+    @Modifying
+    @Query(value = "update search_outbox e set locked_by = :lockedBy, next_attempt_date = :leaseEnd " +
+        "where e.id in (:ids) and e.next_attempt_date <= :now and not exists (select 1 from search_outbox o " +
+        "where o.document_type = e.document_type and o.document_id = e.document_id " +
+        "and o.locked_by <> :lockedBy and o.next_attempt_date > :now)", nativeQuery = true)
+    int lock(@Param("ids") List<Long> ids, @Param("lockedBy") String lockedBy, @Param("now") Instant now,
+             @Param("leaseEnd") Instant leaseEnd);
+
+    /**
+     * Releases the entry. An update rather than a merge, which would insert the entry again if another instance has
+     * drained it.
+     */
+    @Modifying
+    @Query("update SearchOutboxEntry e set e.attempts = :attempts, e.nextAttemptDate = :nextAttemptDate, " +
+        "e.lockedBy = null where e.id = :id")
+    int updateAttempts(@Param("id") Long id, @Param("attempts") int attempts,
+                       @Param("nextAttemptDate") Instant nextAttemptDate);
+
+    @Modifying
+    @Query("delete from SearchOutboxEntry e where e.id in :ids")
+    int deleteByIdIn(@Param("ids") List<Long> ids);
+}
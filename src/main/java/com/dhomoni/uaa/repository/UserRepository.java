@@ -7,7 +7,10 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.time.Instant;
@@ -20,6 +23,7 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     String USERS_BY_LOGIN_CACHE = "usersByLogin";
 	String USERS_BY_EMAIL_CACHE = "usersByEmail";
+    String USER_CREDENTIALS_CACHE = "userCredentials";
 
 	Optional<User> findOneByActivationKey(String activationKey);
 
@@ -42,5 +46,59 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Cacheable(cacheNames = USERS_BY_EMAIL_CACHE)
     Optional<User> findOneWithAuthoritiesByEmail(String email);
 
+    @EntityGraph(attributePaths = "authorities")
+    List<User> findAllWithAuthoritiesByLoginIn(Collection<String> logins);
+
+    @EntityGraph(attributePaths = "authorities")
+    List<User> findAllWithAuthoritiesByEmailIn(Collection<String> emails);
+
+    @EntityGraph(attributePaths = "authorities")
+    List<User> findAllWithAuthoritiesByIdIn(Collection<Long> ids);
+
+    @Query("select u.id as id, u.version as version from User u where u.id in :ids")
+    List<VersionRow> findVersionsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select u.id from User u where u.id > :afterId order by u.id")
+    List<Long> findAllIdsByIdGreaterThan(@Param("afterId") Long afterId, Pageable pageable);
+
     Page<User> findAllByLoginNot(Pageable pageable, String login);
+
+    /**
+     * @param loginOrEmail a login or an email
+     * @return one row per authority of the users whose login or email matches, with a null authority if they have none
+     */
+    @Query("select u.id as id, u.login as login, u.email as email, u.password as password, u.activated as activated, " +
+        "u.version as version, a.name as authority from User u left join u.authorities a " +
+        "where u.login = :loginOrEmail or u.email = :loginOrEmail")
+    List<CredentialsRow> findCredentialsByLoginOrEmail(@Param("loginOrEmail") String loginOrEmail);
+
+    /**
+     * A row of {@link #findCredentialsByLoginOrEmail(String)}.
+     */
+    interface CredentialsRow {
+
+        Long getId();
+
+        String getLogin();
+
+        String getEmail();
+
+        String getPassword();
+
+        Boolean getActivated();
+
+        Long getVersion();
+
+        String getAuthority();
+    }
+
+    /**
+     * A row of {@link #findVersionsByIdIn(Collection)}.
+     */
+    interface VersionRow {
+
+        Long getId();
+
+        Long getVersion();
+    }
 }
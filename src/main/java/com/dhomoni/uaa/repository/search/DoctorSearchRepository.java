@@ -0,0 +1,10 @@
+package com.dhomoni.uaa.repository.search;
+
+import com.dhomoni.uaa.domain.DoctorDocument;
+import org.springframework.data.elasticsearch.repository.ElasticsearchRepository;
+
+/**
+ * Spring Data Elasticsearch repository for the DoctorDocument.
+ */
+public interface DoctorSearchRepository extends ElasticsearchRepository<DoctorDocument, Long> {
+}
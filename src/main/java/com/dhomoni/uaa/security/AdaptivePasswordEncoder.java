@@ -0,0 +1,153 @@
+package com.dhomoni.uaa.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+import org.springframework.security.crypto.scrypt.SCryptPasswordEncoder;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@link PasswordEncoder} storing the algorithm as a prefix of each hash (e.g. "{bcrypt}$2a$10$..."), so that the
+ * algorithm and its cost can be changed without invalidating the existing passwords.
+ * <p>
+ * New passwords are hashed with "bcrypt" or "scrypt", whose hashes also record their cost. Hashes without a prefix
+ * are the BCrypt hashes stored before prefixes were introduced, "pbkdf2" hashes are checked with the default
+ * parameters of {@link Pbkdf2PasswordEncoder}. {@link #needsUpgrade(String)} tells which hashes should be replaced,
+ * once the user has presented the matching password.
+ * <p>
+ * When given a {@link PasswordHashingExecutor}, passwords are hashed on its pool rather than on the calling thread.
+ */
+public class AdaptivePasswordEncoder implements PasswordEncoder {
+
+    public static final String BCRYPT = "bcrypt";
+
+    public static final String PBKDF2 = "pbkdf2";
+
+    public static final String SCRYPT = "scrypt";
+
+    private static final Logger log = LoggerFactory.getLogger(AdaptivePasswordEncoder.class);
+
+    private static final int MAX_BCRYPT_STRENGTH = 31;
+
+    private static final int MAX_SCRYPT_CPU_COST_LOG2 = 24;
+
+    private final String algorithm;
+
+    private final int cost;
+
+    private final String prefix;
+
+    private final DelegatingPasswordEncoder delegate;
+
+    private final PasswordHashingExecutor hashingExecutor;
+
+    /**
+     * @param algorithm the algorithm new passwords are hashed with, "bcrypt" or "scrypt"
+     * @param cost the BCrypt strength, or the base 2 logarithm of the SCrypt CPU cost
+     */
+    public AdaptivePasswordEncoder(String algorithm, int cost) {
+        this(algorithm, cost, null);
+    }
+
+    /**
+     * @param algorithm the algorithm new passwords are hashed with, "bcrypt" or "scrypt"
+     * @param cost the BCrypt strength, or the base 2 logarithm of the SCrypt CPU cost
+     * @param hashingExecutor the pool passwords are hashed on, null to hash them on the calling thread
+     */
+    public AdaptivePasswordEncoder(String algorithm, int cost, PasswordHashingExecutor hashingExecutor) {
+        if (!BCRYPT.equals(algorithm) && !SCRYPT.equals(algorithm)) {
+            throw new IllegalArgumentException("Passwords can't be hashed with '" + algorithm + "', use bcrypt or scrypt");
+        }
+        this.algorithm = algorithm;
+        this.cost = cost;
+        this.prefix = "{" + algorithm + "}";
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put(BCRYPT, BCRYPT.equals(algorithm) ? new BCryptPasswordEncoder(cost) : new BCryptPasswordEncoder());
+        encoders.put(PBKDF2, new Pbkdf2PasswordEncoder());
+        encoders.put(SCRYPT, SCRYPT.equals(algorithm) ? scrypt(cost) : new SCryptPasswordEncoder());
+        this.delegate = new DelegatingPasswordEncoder(algorithm, encoders);
+        this.delegate.setDefaultPasswordEncoderForMatches(encoders.get(BCRYPT));
+        this.hashingExecutor = hashingExecutor;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        if (hashingExecutor == null) {
+            return delegate.encode(rawPassword);
+        }
+        return hashingExecutor.execute(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        if (hashingExecutor == null) {
+            return delegate.matches(rawPassword, encodedPassword);
+        }
+        return hashingExecutor.execute(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * A hash is out of date when it was computed by another algorithm, or with a lower cost. A higher cost is kept,
+     * so that nodes calibrated on faster hardware don't have their hashes downgraded by the others.
+     *
+     * @param encodedPassword a hash which matched the password presented by the user
+     * @return true if the password should be hashed again
+     */
+    public boolean needsUpgrade(String encodedPassword) {
+        if (encodedPassword == null || !encodedPassword.startsWith(prefix)) {
+            return true;
+        }
+        String hash = encodedPassword.substring(prefix.length());
+        try {
+            if (BCRYPT.equals(algorithm)) {
+                // $2a$10$...
+                return Integer.parseInt(hash.substring(4, 6)) < cost;
+            }
+            // $<hexadecimal parameters, with the base 2 logarithm of the CPU cost in the upper bits>$...
+            long parameters = Long.parseLong(hash.substring(1, hash.indexOf('$', 1)), 16);
+            return (parameters >> 16) < cost;
+        } catch (RuntimeException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Raises the cost until hashing a password takes about the target time on this machine. The time is measured
+     * once at the configured cost, each additional unit of cost doubles it.
+     *
+     * @param algorithm the algorithm new passwords are hashed with, "bcrypt" or "scrypt"
+     * @param cost the minimum cost, never lowered
+     * @param targetHashTimeInMillis how long hashing a password should take
+     * @return the cost to use
+     */
+    public static int calibrate(String algorithm, int cost, long targetHashTimeInMillis) {
+        PasswordEncoder encoder = BCRYPT.equals(algorithm) ? new BCryptPasswordEncoder(cost) : scrypt(cost);
+        int maxCost = BCRYPT.equals(algorithm) ? MAX_BCRYPT_STRENGTH : MAX_SCRYPT_CPU_COST_LOG2;
+        long hashTime = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            encoder.encode("calibration");
+            hashTime = Math.min(hashTime, System.nanoTime() - start);
+        }
+        long targetHashTime = targetHashTimeInMillis * 1_000_000L;
+        int calibratedCost = cost;
+        long calibratedHashTime = hashTime;
+        while (calibratedCost < maxCost && calibratedHashTime * 2 <= targetHashTime) {
+            calibratedCost++;
+            calibratedHashTime *= 2;
+        }
+        log.info("Hashing passwords with {} at cost {}, which takes about {} ms (measured {} ms at cost {})",
+            algorithm, calibratedCost, calibratedHashTime / 1_000_000L, hashTime / 1_000_000L, cost);
+        return calibratedCost;
+    }
+
+    private static SCryptPasswordEncoder scrypt(int cpuCostLog2) {
+        // memory cost, parallelization, key length and salt length are the SCryptPasswordEncoder defaults
+        return new SCryptPasswordEncoder(1 << cpuCostLog2, 8, 1, 32, 64);
+    }
+}
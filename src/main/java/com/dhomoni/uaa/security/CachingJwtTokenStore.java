@@ -0,0 +1,133 @@
+package com.dhomoni.uaa.security;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+import org.springframework.security.jwt.JwtHelper;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link JwtTokenStore} which remembers the tokens it has already verified.
+ * <p>
+ * Verifying a JWT means checking its signature, parsing its claims and rebuilding the {@link OAuth2Authentication},
+ * which is done for every request hitting a resource server, even though the same token is usually presented many
+ * times during its short life. This store keeps the decoded access token and authentication in an
+ * {@link ExpiringCache}, keyed by a SHA-256 hash of the token value so the raw token is never kept in memory.
+ * <p>
+ * An entry never outlives the token's "exp" claim, nor the configured time-to-live, nor the key it was verified
+ * with: the entries of the keys removed from the key ring are dropped by {@link #evictKeys(Collection)}.
+ * <p>
+ * A request reads the access token, then its authentication, with the same token value. The hits and misses are
+ * only counted when the authentication is read, once per request. The token is hashed by each of the two lookups,
+ * which takes microseconds, against the signature verification they save.
+ */
+public class CachingJwtTokenStore extends JwtTokenStore {
+
+    private final ExpiringCache<String, CachedToken> cache;
+
+    private final Set<String> removedKeyIds = ConcurrentHashMap.newKeySet();
+
+    private final Meter hits;
+
+    private final Meter misses;
+
+    public CachingJwtTokenStore(JwtAccessTokenConverter jwtTokenEnhancer, int maxSize, long timeToLiveSeconds,
+                                MetricRegistry metricRegistry) {
+        super(jwtTokenEnhancer);
+        this.cache = new ExpiringCache<>(maxSize, timeToLiveSeconds * 1000L);
+        this.hits = metricRegistry.meter(MetricRegistry.name(CachingJwtTokenStore.class, "hits"));
+        this.misses = metricRegistry.meter(MetricRegistry.name(CachingJwtTokenStore.class, "misses"));
+        metricRegistry.register(MetricRegistry.name(CachingJwtTokenStore.class, "size"), (Gauge<Integer>) cache::size);
+    }
+
+    @Override
+    public OAuth2AccessToken readAccessToken(String tokenValue) {
+        String key = hash(tokenValue);
+        CachedToken cached = cache.get(key);
+        if (cached != null) {
+            return cached.accessToken;
+        }
+        OAuth2AccessToken accessToken = super.readAccessToken(tokenValue);
+        store(key, JwtHelper.headers(tokenValue).get("kid"), accessToken);
+        return accessToken;
+    }
+
+    @Override
+    public OAuth2Authentication readAuthentication(String token) {
+        String key = hash(token);
+        CachedToken cached = cache.get(key);
+        if (cached != null && cached.authentication != null) {
+            hits.mark();
+            return cached.authentication;
+        }
+        misses.mark();
+        OAuth2Authentication authentication = super.readAuthentication(token);
+        // the expiry is only known once the access token has been read, so there is nothing to attach to otherwise
+        if (cached != null) {
+            cached.authentication = authentication;
+        }
+        return authentication;
+    }
+
+    @Override
+    public void removeAccessToken(OAuth2AccessToken token) {
+        cache.remove(hash(token.getValue()));
+        super.removeAccessToken(token);
+    }
+
+    /**
+     * Forgets the tokens verified with keys which are no longer trusted, and those without a "kid" header, which
+     * were verified with the key of the configured alias.
+     *
+     * @param keyIds the ids of the removed keys
+     */
+    public void evictKeys(Collection<String> keyIds) {
+        // a token verified just before the removal is not stored afterwards
+        removedKeyIds.addAll(keyIds);
+        cache.removeIf(cached -> cached.keyId == null || keyIds.contains(cached.keyId));
+    }
+
+    private void store(String key, String keyId, OAuth2AccessToken accessToken) {
+        if (keyId != null && removedKeyIds.contains(keyId)) {
+            return;
+        }
+        Date expiration = accessToken.getExpiration();
+        cache.put(key, new CachedToken(keyId, accessToken), expiration != null ? expiration.getTime() : Long.MAX_VALUE);
+    }
+
+    private static String hash(String tokenValue) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(tokenValue.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static final class CachedToken {
+
+        private final String keyId;
+
+        private final OAuth2AccessToken accessToken;
+
+        private volatile OAuth2Authentication authentication;
+
+        private CachedToken(String keyId, OAuth2AccessToken accessToken) {
+            this.keyId = keyId;
+            this.accessToken = accessToken;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.dhomoni.uaa.security;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+/**
+ * A {@link PasswordEncoder} for OAuth2 client secrets, which only runs the (slow, on purpose) delegate once in a while
+ * for each stored secret.
+ * <p>
+ * Clients authenticate on every token request, with the same secret, so once a secret has matched a stored hash,
+ * an HMAC of it is remembered for that hash and later requests are checked against the HMAC. The HMAC key is
+ * generated at startup and never leaves the process, so the remembered values can't be used to guess a secret.
+ * <p>
+ * An entry is kept for the configured time-to-live, and changing the stored secret changes its hash, so the new
+ * secret is checked by the delegate again.
+ */
+public class ClientSecretPasswordEncoder implements PasswordEncoder {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final PasswordEncoder delegate;
+
+    private final ExpiringCache<String, byte[]> verifiedSecrets;
+
+    private final ThreadLocal<Mac> mac;
+
+    private final Meter hits;
+
+    private final Meter misses;
+
+    public ClientSecretPasswordEncoder(PasswordEncoder delegate, int maxSize, long timeToLiveSeconds,
+                                       MetricRegistry metricRegistry) {
+        this.delegate = delegate;
+        this.verifiedSecrets = new ExpiringCache<>(maxSize, timeToLiveSeconds * 1000L);
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        SecretKeySpec keySpec = new SecretKeySpec(key, HMAC_ALGORITHM);
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+                mac.init(keySpec);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(HMAC_ALGORITHM + " is not available", e);
+            }
+        });
+        this.hits = metricRegistry.meter(MetricRegistry.name(ClientSecretPasswordEncoder.class, "hits"));
+        this.misses = metricRegistry.meter(MetricRegistry.name(ClientSecretPasswordEncoder.class, "misses"));
+        metricRegistry.register(MetricRegistry.name(ClientSecretPasswordEncoder.class, "size"),
+            (Gauge<Integer>) verifiedSecrets::size);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return delegate.encode(rawPassword);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        if (rawPassword == null || encodedPassword == null) {
+            return delegate.matches(rawPassword, encodedPassword);
+        }
+        byte[] hmac = mac.get().doFinal(rawPassword.toString().getBytes(StandardCharsets.UTF_8));
+        byte[] verifiedHmac = verifiedSecrets.get(encodedPassword);
+        if (verifiedHmac != null && MessageDigest.isEqual(verifiedHmac, hmac)) {
+            hits.mark();
+            return true;
+        }
+        misses.mark();
+        if (!delegate.matches(rawPassword, encodedPassword)) {
+            return false;
+        }
+        verifiedSecrets.put(encodedPassword, hmac);
+        return true;
+    }
+}
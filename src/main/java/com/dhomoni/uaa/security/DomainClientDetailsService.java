@@ -0,0 +1,64 @@
+package com.dhomoni.uaa.security;
+
+import com.dhomoni.uaa.domain.OAuthClient;
+import com.dhomoni.uaa.repository.OAuthClientRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.oauth2.provider.ClientDetails;
+import org.springframework.security.oauth2.provider.ClientDetailsService;
+import org.springframework.security.oauth2.provider.NoSuchClientException;
+import org.springframework.security.oauth2.provider.client.BaseClientDetails;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Load OAuth2 clients from the database.
+ * <p>
+ * The clients declared in the application configuration (the web app and the internal client) are looked up
+ * first, the others are read through the "clientsByClientId" cache, so issuing a token doesn't hit the database.
+ */
+public class DomainClientDetailsService implements ClientDetailsService {
+
+    private final Logger log = LoggerFactory.getLogger(DomainClientDetailsService.class);
+
+    private final OAuthClientRepository oAuthClientRepository;
+
+    private final Map<String, ClientDetails> configuredClients;
+
+    public DomainClientDetailsService(OAuthClientRepository oAuthClientRepository,
+                                      Collection<? extends ClientDetails> configuredClients) {
+        this.oAuthClientRepository = oAuthClientRepository;
+        this.configuredClients = configuredClients.stream()
+            .collect(Collectors.toMap(ClientDetails::getClientId, Function.identity()));
+    }
+
+    @Override
+    public ClientDetails loadClientByClientId(String clientId) {
+        ClientDetails configuredClient = configuredClients.get(clientId);
+        if (configuredClient != null) {
+            return configuredClient;
+        }
+        log.debug("Loading client {}", clientId);
+        return oAuthClientRepository.findOneByClientId(clientId)
+            .map(DomainClientDetailsService::createClientDetails)
+            .orElseThrow(() -> new NoSuchClientException("Client " + clientId + " was not found in the database"));
+    }
+
+    private static ClientDetails createClientDetails(OAuthClient oAuthClient) {
+        BaseClientDetails clientDetails = new BaseClientDetails(oAuthClient.getClientId(), oAuthClient.getResourceIds(),
+            oAuthClient.getScopes(), oAuthClient.getAuthorizedGrantTypes(), oAuthClient.getAuthorities(),
+            oAuthClient.getRedirectUris());
+        clientDetails.setClientSecret(oAuthClient.getClientSecret());
+        clientDetails.setAccessTokenValiditySeconds(oAuthClient.getAccessTokenValidity());
+        clientDetails.setRefreshTokenValiditySeconds(oAuthClient.getRefreshTokenValidity());
+        if (oAuthClient.isAutoApprove()) {
+            clientDetails.setAutoApproveScopes(Collections.singleton("true"));
+        }
+        return clientDetails;
+    }
+}
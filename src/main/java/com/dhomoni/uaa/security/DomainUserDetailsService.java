@@ -3,11 +3,14 @@ package com.dhomoni.uaa.security;
 import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 import org.hibernate.validator.internal.constraintvalidators.hv.EmailValidator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -16,8 +19,8 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
-import com.dhomoni.uaa.domain.User;
 import com.dhomoni.uaa.repository.UserRepository;
+import com.dhomoni.uaa.service.UserCacheEvictor;
 
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
@@ -28,39 +31,86 @@ import lombok.Getter;
 @Component("userDetailsService")
 public class DomainUserDetailsService implements UserDetailsService {
 
+    private static final EmailValidator EMAIL_VALIDATOR = new EmailValidator();
+
     private final Logger log = LoggerFactory.getLogger(DomainUserDetailsService.class);
 
     private final UserRepository userRepository;
 
-    public DomainUserDetailsService(UserRepository userRepository) {
+    private final CacheManager cacheManager;
+
+    private final UserCacheEvictor userCacheEvictor;
+
+    public DomainUserDetailsService(UserRepository userRepository, CacheManager cacheManager,
+                                    UserCacheEvictor userCacheEvictor) {
         this.userRepository = userRepository;
+        this.cacheManager = cacheManager;
+        this.userCacheEvictor = userCacheEvictor;
     }
 
     @Override
-    @Transactional
+    @Transactional(readOnly = true)
     public UserDetails loadUserByUsername(final String login) {
         log.debug("Authenticating {}", login);
 
-        if (new EmailValidator().isValid(login, null)) {
-            return userRepository.findOneWithAuthoritiesByEmail(login)
-                .map(user -> createSpringSecurityUser(login, user))
-                .orElseThrow(() -> new UsernameNotFoundException("User with email " + login + " was not found in the database"));
+        boolean isEmail = EMAIL_VALIDATOR.isValid(login, null);
+        String key = isEmail ? login : login.toLowerCase(Locale.ENGLISH);
+        Cache cache = Objects.requireNonNull(cacheManager.getCache(UserRepository.USER_CREDENTIALS_CACHE));
+        UserCredentials credentials = cache.get(key, UserCredentials.class);
+        if (credentials == null) {
+            credentials = loadCredentials(key, isEmail);
+            if (credentials == null) {
+                throw new UsernameNotFoundException(isEmail ? "User with email " + login + " was not found in the database" :
+                    "User " + key + " was not found in the database");
+            }
+            cache.put(key, credentials);
         }
+        return createSpringSecurityUser(key, credentials);
+    }
 
-        String lowercaseLogin = login.toLowerCase(Locale.ENGLISH);
-        return userRepository.findOneWithAuthoritiesByLogin(lowercaseLogin)
-            .map(user -> createSpringSecurityUser(lowercaseLogin, user))
-            .orElseThrow(() -> new UsernameNotFoundException("User " + lowercaseLogin + " was not found in the database"));
+    /**
+     * Load the credentials of the user whose email (or login) is the given key, along with their authorities,
+     * with a single query.
+     */
+    private UserCredentials loadCredentials(String key, boolean isEmail) {
+        List<UserRepository.CredentialsRow> rows = userRepository.findCredentialsByLoginOrEmail(key).stream()
+            .filter(row -> key.equals(isEmail ? row.getEmail() : row.getLogin()))
+            .collect(Collectors.toList());
+        if (rows.isEmpty()) {
+            return null;
+        }
+        UserRepository.CredentialsRow user = rows.get(0);
+        List<String> authorities = rows.stream()
+            .map(UserRepository.CredentialsRow::getAuthority)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toList());
+        return new UserCredentials(user.getId(), user.getLogin(), user.getPassword(), Boolean.TRUE.equals(user.getActivated()),
+            authorities, user.getVersion());
+    }
 
+    /**
+     * Replace the password hash of an authenticated user, e.g. when it was computed with an outdated algorithm.
+     *
+     * @param userDetails the authenticated user
+     * @param encodedPassword the new hash of the password
+     */
+    @Transactional
+    public void updatePassword(UserDetails userDetails, String encodedPassword) {
+        String login = userDetails.getUsername().toLowerCase(Locale.ENGLISH);
+        userRepository.findOneByLogin(login).ifPresent(user -> {
+            user.setPassword(encodedPassword);
+            userCacheEvictor.refresh(user);
+            log.debug("Upgraded the password hash of user {}", login);
+        });
     }
 
-    private UserDetails createSpringSecurityUser(String lowercaseLogin, User user) {
-        if (!user.getActivated()) {
+    private UserDetails createSpringSecurityUser(String lowercaseLogin, UserCredentials credentials) {
+        if (!credentials.isActivated()) {
             throw new UserNotActivatedException("User " + lowercaseLogin + " was not activated");
         }
-        List<GrantedAuthority> grantedAuthorities = user.getAuthorities().stream()
-            .map(authority -> new SimpleGrantedAuthority(authority.getName()))
+        List<GrantedAuthority> grantedAuthorities = credentials.getAuthorities().stream()
+            .map(SimpleGrantedAuthority::new)
             .collect(Collectors.toList());
-        return new CustomUser(user.getLogin(), user.getPassword(), grantedAuthorities, user.getId());
+        return new CustomUser(credentials.getLogin(), credentials.getPassword(), grantedAuthorities, credentials.getId());
     }
 }
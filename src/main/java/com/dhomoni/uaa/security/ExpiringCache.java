@@ -0,0 +1,118 @@
+package com.dhomoni.uaa.security;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+
+/**
+ * A bounded in-memory cache, whose entries expire after a time-to-live, or earlier if their value does.
+ * <p>
+ * Reads are a map access. When the cache is full, the expired entries are dropped, then those which expire first,
+ * which are the oldest ones when they all have the same time-to-live. A tenth of the entries is dropped at once, so
+ * that the following puts don't have to make room again, each time going through all the entries.
+ */
+final class ExpiringCache<K, V> {
+
+    private final ConcurrentMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+
+    private final int maxSize;
+
+    private final int evictionBatchSize;
+
+    private final long timeToLiveMillis;
+
+    ExpiringCache(int maxSize, long timeToLiveMillis) {
+        this.maxSize = maxSize;
+        this.evictionBatchSize = Math.max(1, maxSize / 10);
+        this.timeToLiveMillis = timeToLiveMillis;
+    }
+
+    /**
+     * @return the value of the key, null if there is none or it has expired
+     */
+    V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired(System.currentTimeMillis())) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.value;
+    }
+
+    void put(K key, V value) {
+        put(key, value, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param expiresAt the time, in milliseconds since the epoch, after which the value is no longer valid, the
+     * entry expires at the end of the time-to-live if that is earlier, and is not kept if it has already expired
+     */
+    void put(K key, V value, long expiresAt) {
+        long now = System.currentTimeMillis();
+        expiresAt = Math.min(expiresAt, now + timeToLiveMillis);
+        if (expiresAt <= now) {
+            return;
+        }
+        if (entries.size() >= maxSize) {
+            makeRoom(now);
+        }
+        entries.put(key, new Entry<>(value, expiresAt));
+    }
+
+    void remove(K key) {
+        entries.remove(key);
+    }
+
+    void removeIf(Predicate<V> predicate) {
+        entries.values().removeIf(entry -> predicate.test(entry.value));
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private synchronized void makeRoom(long now) {
+        if (entries.size() < maxSize) {
+            // another put made room meanwhile
+            return;
+        }
+        entries.values().removeIf(entry -> entry.isExpired(now));
+        int excess = entries.size() - maxSize + evictionBatchSize;
+        if (excess > 0) {
+            // the entries which expire first, the latest of them at the head, without sorting all the entries
+            PriorityQueue<Map.Entry<K, Entry<V>>> first = new PriorityQueue<>(excess,
+                Comparator.comparingLong((Map.Entry<K, Entry<V>> entry) -> entry.getValue().expiresAt).reversed());
+            for (Map.Entry<K, Entry<V>> entry : entries.entrySet()) {
+                if (first.size() < excess) {
+                    first.add(entry);
+                } else if (entry.getValue().expiresAt < first.peek().getValue().expiresAt) {
+                    first.poll();
+                    first.add(entry);
+                }
+            }
+            first.forEach(entry -> entries.remove(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    private static final class Entry<V> {
+
+        private final V value;
+
+        private final long expiresAt;
+
+        private Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return expiresAt <= now;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.dhomoni.uaa.security;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricSet;
+import com.codahale.metrics.Timer;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs password hashing on a dedicated pool, with one thread per CPU and a bounded queue.
+ * <p>
+ * Hashing is slow on purpose, so running it on the web server threads lets a burst of logins use all the CPUs and
+ * starve every other request. Here the calling thread waits for its hash, but at most one hash per CPU is computed
+ * at the same time, and the request fails with a {@link PasswordHashingRejectedException} instead of piling up when
+ * the queue is full or its hash is not done within the maximum wait. The queue should be a small multiple of the
+ * pool size, far below the number of web server workers, so that most workers are never parked on a hash.
+ * <p>
+ * The queue depth, the time spent waiting in the queue and the time spent hashing are published as a
+ * {@link MetricSet}.
+ */
+public class PasswordHashingExecutor implements MetricSet {
+
+    private final ThreadPoolExecutor executor;
+
+    private final Timer waitTimer = new Timer();
+
+    private final Timer hashTimer = new Timer();
+
+    private final Meter rejected = new Meter();
+
+    private final long maxWaitMillis;
+
+    public PasswordHashingExecutor(int poolSize, int queueCapacity, long maxWaitMillis) {
+        this.maxWaitMillis = maxWaitMillis;
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("uaa-PasswordHashing-"),
+            new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * @param hashing the hashing to run, encoding or matching a password
+     * @param <T> the result of the hashing
+     * @return the result of the hashing, once it has been run on the pool
+     * @throws PasswordHashingRejectedException if the queue is full, or the hashing is not done within the maximum wait
+     */
+    public <T> T execute(Supplier<T> hashing) {
+        long submitted = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long started = System.nanoTime();
+                waitTimer.update(started - submitted, TimeUnit.NANOSECONDS);
+                try {
+                    return hashing.get();
+                } finally {
+                    hashTimer.update(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.mark();
+            throw new PasswordHashingRejectedException();
+        }
+        try {
+            return future.get(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // a queued hash is then skipped by the pool, a running one is finished but its result is dropped
+            future.cancel(false);
+            rejected.mark();
+            throw new PasswordHashingRejectedException();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new IllegalStateException("Interrupted while hashing a password", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException("Could not hash a password", cause);
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Override
+    public Map<String, Metric> getMetrics() {
+        Map<String, Metric> metrics = new HashMap<>();
+        metrics.put("queue", (Gauge<Integer>) () -> executor.getQueue().size());
+        metrics.put("active", (Gauge<Integer>) executor::getActiveCount);
+        metrics.put("wait", waitTimer);
+        metrics.put("hash", hashTimer);
+        metrics.put("rejected", rejected);
+        return metrics;
+    }
+}
@@ -0,0 +1,28 @@
+package com.dhomoni.uaa.security;
+
+import org.springframework.security.oauth2.common.exceptions.OAuth2Exception;
+
+/**
+ * This exception is thrown when too many passwords are already waiting to be hashed.
+ * <p>
+ * It is an {@link OAuth2Exception} so that the token endpoint answers with the standard "temporarily_unavailable"
+ * error, the REST API translates it to a 503 response.
+ */
+public class PasswordHashingRejectedException extends OAuth2Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    public PasswordHashingRejectedException() {
+        super("Too many passwords are being hashed, try again later");
+    }
+
+    @Override
+    public String getOAuth2ErrorCode() {
+        return "temporarily_unavailable";
+    }
+
+    @Override
+    public int getHttpErrorCode() {
+        return 503;
+    }
+}
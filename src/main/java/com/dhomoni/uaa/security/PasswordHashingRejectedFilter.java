@@ -0,0 +1,48 @@
+package com.dhomoni.uaa.security;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.oauth2.common.exceptions.OAuth2Exception;
+import org.springframework.security.oauth2.provider.error.DefaultOAuth2ExceptionRenderer;
+import org.springframework.security.oauth2.provider.error.OAuth2ExceptionRenderer;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Answers a {@link PasswordHashingRejectedException} thrown while a client authenticates to the token endpoints
+ * with a 503 and a Retry-After header, like the token endpoint and the REST API do.
+ * <p>
+ * The HTTP Basic authentication filter only translates authentication errors, any other exception would surface
+ * as a 500, so this filter goes before it.
+ */
+public class PasswordHashingRejectedFilter extends OncePerRequestFilter {
+
+    private final OAuth2ExceptionRenderer exceptionRenderer = new DefaultOAuth2ExceptionRenderer();
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+        try {
+            filterChain.doFilter(request, response);
+        } catch (PasswordHashingRejectedException e) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(HttpHeaders.RETRY_AFTER, "1");
+            try {
+                exceptionRenderer.handleHttpEntityResponse(
+                    new ResponseEntity<OAuth2Exception>(e, headers, HttpStatus.SERVICE_UNAVAILABLE),
+                    new ServletWebRequest(request, response));
+            } catch (IOException | ServletException | RuntimeException renderingFailure) {
+                throw renderingFailure;
+            } catch (Exception renderingFailure) {
+                throw new ServletException(renderingFailure);
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.dhomoni.uaa.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+
+/**
+ * Authenticate a user from the database, and hash the password again when its hash is out of date, as told by
+ * {@link AdaptivePasswordEncoder#needsUpgrade(String)}.
+ */
+public class PasswordUpgradingAuthenticationProvider extends DaoAuthenticationProvider {
+
+    private final Logger log = LoggerFactory.getLogger(PasswordUpgradingAuthenticationProvider.class);
+
+    private final DomainUserDetailsService userDetailsService;
+
+    private final AdaptivePasswordEncoder passwordEncoder;
+
+    public PasswordUpgradingAuthenticationProvider(DomainUserDetailsService userDetailsService,
+                                                   AdaptivePasswordEncoder passwordEncoder) {
+        this.userDetailsService = userDetailsService;
+        this.passwordEncoder = passwordEncoder;
+        setUserDetailsService(userDetailsService);
+        setPasswordEncoder(passwordEncoder);
+    }
+
+    @Override
+    protected Authentication createSuccessAuthentication(Object principal, Authentication authentication, UserDetails user) {
+        if (authentication.getCredentials() != null && passwordEncoder.needsUpgrade(user.getPassword())) {
+            try {
+                userDetailsService.updatePassword(user, passwordEncoder.encode(authentication.getCredentials().toString()));
+            } catch (RuntimeException e) {
+                // the password is still valid, it will be upgraded on the next login
+                log.warn("Could not upgrade the password hash of user {}: {}", user.getUsername(), e.getMessage());
+            }
+        }
+        return super.createSuccessAuthentication(principal, authentication, user);
+    }
+}
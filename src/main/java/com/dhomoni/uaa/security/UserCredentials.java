@@ -0,0 +1,71 @@
+package com.dhomoni.uaa.security;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What is needed to authenticate a user, cached instead of the full User entity.
+ * <p>
+ * It is immutable, so the near cache can hand out the same instance to every reader. It carries the version of its
+ * user, so that cached credentials are only replaced by newer ones.
+ */
+public class UserCredentials implements Serializable {
+
+    private static final long serialVersionUID = 2L;
+
+    private final Long id;
+
+    private final String login;
+
+    private final String password;
+
+    private final boolean activated;
+
+    private final List<String> authorities;
+
+    private final Long version;
+
+    public UserCredentials(Long id, String login, String password, boolean activated, List<String> authorities,
+                           Long version) {
+        this.id = id;
+        this.login = login;
+        this.password = password;
+        this.activated = activated;
+        this.authorities = Collections.unmodifiableList(authorities);
+        this.version = version;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getLogin() {
+        return login;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public boolean isActivated() {
+        return activated;
+    }
+
+    public List<String> getAuthorities() {
+        return authorities;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    @Override
+    public String toString() {
+        return "UserCredentials{" +
+            "login='" + login + '\'' +
+            ", activated=" + activated +
+            ", authorities=" + authorities +
+            "}";
+    }
+}
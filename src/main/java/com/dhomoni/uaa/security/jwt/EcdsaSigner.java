@@ -0,0 +1,108 @@
+package com.dhomoni.uaa.security.jwt;
+
+import org.springframework.security.jwt.crypto.sign.Signer;
+
+import java.security.GeneralSecurityException;
+import java.security.Signature;
+import java.security.interfaces.ECPrivateKey;
+
+/**
+ * Signs JWTs with an Elliptic Curve private key (ES256, ES384 or ES512).
+ * <p>
+ * The JCA produces ASN.1/DER encoded signatures, whereas JWS expects the raw R and S values concatenated,
+ * so the signature is transcoded before being returned.
+ */
+public class EcdsaSigner implements Signer {
+
+    private final ECPrivateKey key;
+
+    private final String algorithm;
+
+    private final String jwsAlgorithm;
+
+    private final int signatureLength;
+
+    public EcdsaSigner(ECPrivateKey key) {
+        this.key = key;
+        int fieldSize = key.getParams().getCurve().getField().getFieldSize();
+        this.algorithm = jcaAlgorithm(fieldSize);
+        this.jwsAlgorithm = "ES" + (fieldSize == 521 ? 512 : fieldSize);
+        // each of R and S is as long as the curve's field, rounded up to whole bytes
+        this.signatureLength = 2 * ((fieldSize + 7) / 8);
+    }
+
+    @Override
+    public String algorithm() {
+        return algorithm;
+    }
+
+    /**
+     * @return the JWS algorithm name, as found in the "alg" header
+     */
+    public String jwsAlgorithm() {
+        return jwsAlgorithm;
+    }
+
+    @Override
+    public byte[] sign(byte[] bytes) {
+        try {
+            Signature signature = Signature.getInstance(algorithm);
+            signature.initSign(key);
+            signature.update(bytes);
+            return toConcatenated(signature.sign(), signatureLength);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not sign with the EC key", e);
+        }
+    }
+
+    static String jcaAlgorithm(int fieldSize) {
+        switch (fieldSize) {
+            case 256:
+                return "SHA256withECDSA";
+            case 384:
+                return "SHA384withECDSA";
+            case 521:
+                return "SHA512withECDSA";
+            default:
+                throw new IllegalArgumentException("Unsupported EC key size: " + fieldSize);
+        }
+    }
+
+    /**
+     * Transcodes a DER sequence of two integers into their fixed-length, big-endian concatenation.
+     */
+    static byte[] toConcatenated(byte[] der, int length) throws GeneralSecurityException {
+        if (der.length < 8 || der[0] != 0x30) {
+            throw new GeneralSecurityException("Invalid ECDSA signature format");
+        }
+        // P-521 signatures are long enough to need a two byte sequence length
+        int offset = der[1] == (byte) 0x81 ? 3 : 2;
+        if (der[offset] != 0x02) {
+            throw new GeneralSecurityException("Invalid ECDSA signature format");
+        }
+        int rLength = der[offset + 1];
+        int rOffset = offset + 2;
+        int sOffset = rOffset + rLength + 2;
+        if (der[sOffset - 2] != 0x02) {
+            throw new GeneralSecurityException("Invalid ECDSA signature format");
+        }
+        int sLength = der[sOffset - 1];
+        byte[] concatenated = new byte[length];
+        copyUnsigned(der, rOffset, rLength, concatenated, 0, length / 2);
+        copyUnsigned(der, sOffset, sLength, concatenated, length / 2, length / 2);
+        return concatenated;
+    }
+
+    private static void copyUnsigned(byte[] src, int offset, int length, byte[] dest, int destOffset, int size)
+        throws GeneralSecurityException {
+        // DER integers are signed, so they may carry a leading zero byte
+        while (length > size && src[offset] == 0) {
+            offset++;
+            length--;
+        }
+        if (length > size) {
+            throw new GeneralSecurityException("Invalid ECDSA signature format");
+        }
+        System.arraycopy(src, offset, dest, destOffset + size - length, length);
+    }
+}
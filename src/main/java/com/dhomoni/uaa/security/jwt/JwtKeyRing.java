@@ -0,0 +1,168 @@
+package com.dhomoni.uaa.security.jwt;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * The set of keys used to sign and verify JWTs, reloaded from the {@link JwtKeyStore} on {@link #refresh()}.
+ * <p>
+ * Tokens are signed with a single key, and verified with the key named by their "kid" header. Keys are parsed when
+ * the key store is (re)loaded, so looking up a verifier is a map access and a rotation never parses the key store
+ * on the request path.
+ * <p>
+ * Without rotation, tokens are signed with the key of the configured alias. With rotation, they are signed with the
+ * key whose certificate started most recently among those whose alias starts with the configured one, so that other
+ * entries of the key store never sign tokens: a new key is rolled out by importing it with a future start date,
+ * it is then published (and can be cached by clients) before it is used. A key is retired by removing it from the
+ * key store once the tokens it signed have expired, or at once if it is compromised: the listeners are then told
+ * to forget the tokens they verified with it.
+ */
+public class JwtKeyRing {
+
+    private final Logger log = LoggerFactory.getLogger(JwtKeyRing.class);
+
+    private final JwtKeyStore keyStore;
+
+    private final String alias;
+
+    private final boolean rotate;
+
+    private final List<Consumer<Set<String>>> keyRemovalListeners = new CopyOnWriteArrayList<>();
+
+    private volatile Keys keys;
+
+    public JwtKeyRing(JwtKeyStore keyStore, String alias, boolean rotate) {
+        this.keyStore = keyStore;
+        this.alias = alias;
+        this.rotate = rotate;
+        this.keys = load();
+        log.info("JWT tokens are signed with key '{}'", keys.signingKey.getKeyId());
+    }
+
+    /**
+     * Reloads the key store and selects the signing key. The current keys are kept if the key store can't be read.
+     */
+    public void refresh() {
+        try {
+            Keys loaded = load();
+            if (!loaded.signingKey.getKeyId().equals(keys.signingKey.getKeyId())) {
+                log.info("Rotating JWT signing key from '{}' to '{}'", keys.signingKey.getKeyId(), loaded.signingKey.getKeyId());
+            }
+            Set<String> removedKeyIds = new HashSet<>(keys.verificationKeys.keySet());
+            removedKeyIds.removeAll(loaded.verificationKeys.keySet());
+            keys = loaded;
+            if (!removedKeyIds.isEmpty()) {
+                log.info("JWT keys {} were removed from the key store", removedKeyIds);
+                keyRemovalListeners.forEach(listener -> listener.accept(removedKeyIds));
+            }
+        } catch (RuntimeException e) {
+            log.error("Could not refresh the JWT signing keys, keeping the current ones", e);
+        }
+    }
+
+    /**
+     * @param listener called on {@link #refresh()} with the ids of the keys which are no longer in the key store
+     */
+    public void addKeyRemovalListener(Consumer<Set<String>> listener) {
+        keyRemovalListeners.add(listener);
+    }
+
+    /**
+     * @return the key to sign new tokens with
+     */
+    public JwtSigningKey getSigningKey() {
+        return keys.signingKey;
+    }
+
+    /**
+     * @param keyId the "kid" header of the token, tokens issued without one are verified with the configured alias
+     * @return the key to verify the token with, if it is known
+     */
+    public Optional<JwtSigningKey> getVerificationKey(String keyId) {
+        return Optional.ofNullable(keys.verificationKeys.get(keyId == null ? alias : keyId));
+    }
+
+    /**
+     * @return all the public keys, including those not used for signing yet, as a JSON Web Key Set (RFC 7517)
+     */
+    public Map<String, Object> getJwkSet() {
+        return keys.jwkSet;
+    }
+
+    /**
+     * @return an entity tag for the JSON Web Key Set, which changes whenever a key is added or removed
+     */
+    public String getJwkSetETag() {
+        return keys.jwkSetETag;
+    }
+
+    private Keys load() {
+        List<JwtSigningKey> signingKeys = keyStore.getSigningKeys();
+        Map<String, JwtSigningKey> verificationKeys = new LinkedHashMap<>();
+        signingKeys.forEach(signingKey -> verificationKeys.put(signingKey.getKeyId(), signingKey));
+        return new Keys(selectSigningKey(signingKeys, verificationKeys), verificationKeys);
+    }
+
+    private JwtSigningKey selectSigningKey(List<JwtSigningKey> signingKeys, Map<String, JwtSigningKey> verificationKeys) {
+        if (!rotate) {
+            return Optional.ofNullable(verificationKeys.get(alias))
+                .orElseThrow(() -> new IllegalStateException("No key pair found for alias '" + alias + "'"));
+        }
+        Instant now = Instant.now();
+        return signingKeys.stream()
+            .filter(signingKey -> signingKey.getKeyId().startsWith(alias))
+            .filter(signingKey -> !signingKey.getNotBefore().isAfter(now))
+            .max(Comparator.comparing(JwtSigningKey::getNotBefore))
+            .orElseThrow(() -> new IllegalStateException("No key pair starting with '" + alias + "' is valid yet in the key store"));
+    }
+
+    private static final class Keys {
+
+        private final JwtSigningKey signingKey;
+
+        private final Map<String, JwtSigningKey> verificationKeys;
+
+        private final Map<String, Object> jwkSet;
+
+        private final String jwkSetETag;
+
+        private Keys(JwtSigningKey signingKey, Map<String, JwtSigningKey> verificationKeys) {
+            this.signingKey = signingKey;
+            this.verificationKeys = Collections.unmodifiableMap(verificationKeys);
+            List<Map<String, String>> jwks = new ArrayList<>();
+            verificationKeys.values().forEach(verificationKey -> jwks.add(verificationKey.toJwk()));
+            this.jwkSet = Collections.singletonMap("keys", Collections.unmodifiableList(jwks));
+            this.jwkSetETag = eTag(jwks);
+        }
+
+        private static String eTag(List<Map<String, String>> jwks) {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                jwks.forEach(jwk -> digest.update(jwk.toString().getBytes(StandardCharsets.UTF_8)));
+                StringBuilder eTag = new StringBuilder("\"");
+                for (byte b : digest.digest()) {
+                    eTag.append(String.format("%02x", b));
+                }
+                return eTag.append('"').toString();
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.dhomoni.uaa.security.jwt;
+
+import org.springframework.core.io.Resource;
+
+import java.io.InputStream;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Loads JWT signing keys from a keystore.
+ * <p>
+ * Unlike {@link org.springframework.security.oauth2.provider.token.store.KeyStoreKeyFactory}, which only deals with
+ * RSA keys, any key type supported by {@link JwtSigningKey} can be used. Every key pair of the keystore is loaded,
+ * using its alias as key id and the start date of its certificate as the instant it may start signing tokens.
+ */
+public class JwtKeyStore {
+
+    private final Resource resource;
+
+    private final char[] password;
+
+    public JwtKeyStore(Resource resource, char[] password) {
+        this.resource = resource;
+        this.password = password;
+    }
+
+    public List<JwtSigningKey> getSigningKeys() {
+        try {
+            KeyStore store = load();
+            List<JwtSigningKey> signingKeys = new ArrayList<>();
+            for (String alias : Collections.list(store.aliases())) {
+                if (!store.isKeyEntry(alias)) {
+                    continue;
+                }
+                Key key = store.getKey(alias, password);
+                Certificate certificate = store.getCertificate(alias);
+                if (key instanceof PrivateKey && certificate != null) {
+                    Instant notBefore = certificate instanceof X509Certificate
+                        ? ((X509Certificate) certificate).getNotBefore().toInstant()
+                        : Instant.EPOCH;
+                    signingKeys.add(JwtSigningKey.of(alias, new KeyPair(certificate.getPublicKey(), (PrivateKey) key), notBefore));
+                }
+            }
+            return signingKeys;
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot load keys from store: " + resource, e);
+        }
+    }
+
+    private KeyStore load() throws Exception {
+        // the "jks" keystore also reads PKCS12 files
+        KeyStore store = KeyStore.getInstance("jks");
+        try (InputStream inputStream = resource.getInputStream()) {
+            store.load(inputStream, password);
+        }
+        return store;
+    }
+}
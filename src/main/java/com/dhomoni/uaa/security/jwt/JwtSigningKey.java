@@ -0,0 +1,167 @@
+package com.dhomoni.uaa.security.jwt;
+
+import org.springframework.security.jwt.crypto.sign.EllipticCurveVerifier;
+import org.springframework.security.jwt.crypto.sign.RsaSigner;
+import org.springframework.security.jwt.crypto.sign.RsaVerifier;
+import org.springframework.security.jwt.crypto.sign.SignatureVerifier;
+import org.springframework.security.jwt.crypto.sign.Signer;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An asymmetric key pair used to sign and verify JWTs, either RSA (RS256) or Elliptic Curve (ES256, ES384, ES512).
+ * <p>
+ * Each key has an id, sent in the "kid" header of the tokens it signs, and the instant from which it may be used.
+ * <p>
+ * Ed25519 is not offered, as EdDSA is not available in the Java 8 JCA.
+ */
+public final class JwtSigningKey {
+
+    private static final Base64.Encoder BASE64_URL = Base64.getUrlEncoder().withoutPadding();
+
+    private final String keyId;
+
+    private final Instant notBefore;
+
+    private final String algorithm;
+
+    private final Signer signer;
+
+    private final SignatureVerifier verifier;
+
+    private final PublicKey publicKey;
+
+    private final String header;
+
+    private JwtSigningKey(String keyId, Instant notBefore, String algorithm, Signer signer, SignatureVerifier verifier,
+                          PublicKey publicKey) {
+        this.keyId = keyId;
+        this.notBefore = notBefore;
+        this.algorithm = algorithm;
+        this.signer = signer;
+        this.verifier = verifier;
+        this.publicKey = publicKey;
+        this.header = BASE64_URL.encodeToString(
+            ("{\"alg\":\"" + algorithm + "\",\"typ\":\"JWT\",\"kid\":\"" + keyId + "\"}").getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static JwtSigningKey of(String keyId, KeyPair keyPair) {
+        return of(keyId, keyPair, Instant.EPOCH);
+    }
+
+    public static JwtSigningKey of(String keyId, KeyPair keyPair, Instant notBefore) {
+        PrivateKey privateKey = keyPair.getPrivate();
+        if (privateKey instanceof RSAPrivateKey) {
+            return new JwtSigningKey(keyId, notBefore, "RS256", new RsaSigner((RSAPrivateKey) privateKey),
+                new RsaVerifier((RSAPublicKey) keyPair.getPublic()), keyPair.getPublic());
+        }
+        if (privateKey instanceof ECPrivateKey) {
+            EcdsaSigner signer = new EcdsaSigner((ECPrivateKey) privateKey);
+            return new JwtSigningKey(keyId, notBefore, signer.jwsAlgorithm(), signer,
+                new EllipticCurveVerifier((ECPublicKey) keyPair.getPublic(), signer.algorithm()), keyPair.getPublic());
+        }
+        throw new IllegalArgumentException("Unsupported JWT signing key algorithm: " + privateKey.getAlgorithm());
+    }
+
+    /**
+     * @return the key id, as found in the "kid" header
+     */
+    public String getKeyId() {
+        return keyId;
+    }
+
+    /**
+     * @return the instant from which this key may sign tokens
+     */
+    public Instant getNotBefore() {
+        return notBefore;
+    }
+
+    /**
+     * @return the JWS algorithm name, as found in the "alg" header
+     */
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public Signer getSigner() {
+        return signer;
+    }
+
+    public SignatureVerifier getVerifier() {
+        return verifier;
+    }
+
+    public PublicKey getPublicKey() {
+        return publicKey;
+    }
+
+    /**
+     * @return the public key in PEM format, as published by the "/oauth/token_key" endpoint
+     */
+    public String getVerifierKey() {
+        return "-----BEGIN PUBLIC KEY-----\n" + Base64.getEncoder().encodeToString(publicKey.getEncoded()) +
+            "\n-----END PUBLIC KEY-----";
+    }
+
+    /**
+     * @return the public key as a JSON Web Key (RFC 7517)
+     */
+    public Map<String, String> toJwk() {
+        Map<String, String> jwk = new LinkedHashMap<>();
+        jwk.put("kid", keyId);
+        jwk.put("use", "sig");
+        jwk.put("alg", algorithm);
+        if (publicKey instanceof RSAPublicKey) {
+            RSAPublicKey rsaPublicKey = (RSAPublicKey) publicKey;
+            jwk.put("kty", "RSA");
+            jwk.put("n", BASE64_URL.encodeToString(unsigned(rsaPublicKey.getModulus(), 0)));
+            jwk.put("e", BASE64_URL.encodeToString(unsigned(rsaPublicKey.getPublicExponent(), 0)));
+        } else {
+            ECPublicKey ecPublicKey = (ECPublicKey) publicKey;
+            int fieldSize = ecPublicKey.getParams().getCurve().getField().getFieldSize();
+            int length = (fieldSize + 7) / 8;
+            jwk.put("kty", "EC");
+            jwk.put("crv", "P-" + fieldSize);
+            jwk.put("x", BASE64_URL.encodeToString(unsigned(ecPublicKey.getW().getAffineX(), length)));
+            jwk.put("y", BASE64_URL.encodeToString(unsigned(ecPublicKey.getW().getAffineY(), length)));
+        }
+        return jwk;
+    }
+
+    /**
+     * Creates a signed JWT in compact serialization.
+     *
+     * @param claims the JSON claims set
+     * @return the encoded token
+     */
+    public String sign(String claims) {
+        String signingInput = header + "." + BASE64_URL.encodeToString(claims.getBytes(StandardCharsets.UTF_8));
+        byte[] signature = signer.sign(signingInput.getBytes(StandardCharsets.US_ASCII));
+        return signingInput + "." + BASE64_URL.encodeToString(signature);
+    }
+
+    /**
+     * Big-endian bytes without the sign byte, left-padded with zeros up to the given length.
+     */
+    private static byte[] unsigned(BigInteger value, int length) {
+        byte[] bytes = value.toByteArray();
+        int offset = bytes[0] == 0 && bytes.length > 1 ? 1 : 0;
+        int size = Math.max(bytes.length - offset, length);
+        byte[] result = new byte[size];
+        System.arraycopy(bytes, offset, result, size - (bytes.length - offset), bytes.length - offset);
+        return result;
+    }
+}
@@ -0,0 +1,89 @@
+package com.dhomoni.uaa.security.jwt;
+
+import org.springframework.security.jwt.Jwt;
+import org.springframework.security.jwt.JwtHelper;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.common.util.JsonParser;
+import org.springframework.security.oauth2.common.util.JsonParserFactory;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A {@link JwtAccessTokenConverter} signing tokens with the current key of a {@link JwtKeyRing}, which may be an RSA
+ * or an Elliptic Curve key, and verifying them with the key named by their "kid" header.
+ * <p>
+ * {@link org.springframework.security.jwt.JwtHelper} only knows the RSA and HMAC algorithm names, so the token is
+ * encoded by the signing key itself.
+ */
+public class KeyStoreJwtAccessTokenConverter extends JwtAccessTokenConverter {
+
+    private final JsonParser objectMapper = JsonParserFactory.create();
+
+    private final JwtKeyRing keyRing;
+
+    public KeyStoreJwtAccessTokenConverter(JwtKeyRing keyRing) {
+        this.keyRing = keyRing;
+        JwtSigningKey signingKey = keyRing.getSigningKey();
+        setSigner(signingKey.getSigner());
+        setVerifier(signingKey.getVerifier());
+        setVerifierKey(signingKey.getVerifierKey());
+    }
+
+    @Override
+    public boolean isPublic() {
+        return true;
+    }
+
+    /**
+     * @return the key currently used for signing, the other ones are published by the JSON Web Key Set
+     */
+    @Override
+    public Map<String, String> getKey() {
+        JwtSigningKey signingKey = keyRing.getSigningKey();
+        Map<String, String> result = new LinkedHashMap<>();
+        result.put("alg", signingKey.getSigner().algorithm());
+        result.put("value", signingKey.getVerifierKey());
+        return result;
+    }
+
+    @Override
+    protected String encode(OAuth2AccessToken accessToken, OAuth2Authentication authentication) {
+        String content;
+        try {
+            content = objectMapper.formatMap(getAccessTokenConverter().convertAccessToken(accessToken, authentication));
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot convert access token to JSON", e);
+        }
+        return keyRing.getSigningKey().sign(content);
+    }
+
+    @Override
+    protected Map<String, Object> decode(String token) {
+        try {
+            Jwt jwt = JwtHelper.decode(token);
+            JwtSigningKey verificationKey = keyRing.getVerificationKey(keyId(token))
+                .orElseThrow(() -> new InvalidTokenException("Token signed with an unknown key"));
+            jwt.verifySignature(verificationKey.getVerifier());
+            Map<String, Object> claims = objectMapper.parseMap(jwt.getClaims());
+            if (claims.get(EXP) instanceof Integer) {
+                claims.put(EXP, ((Integer) claims.get(EXP)).longValue());
+            }
+            getJwtClaimsSetVerifier().verify(claims);
+            return claims;
+        } catch (Exception e) {
+            throw new InvalidTokenException("Cannot convert access token to JSON", e);
+        }
+    }
+
+    private String keyId(String token) {
+        String header = new String(Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))), StandardCharsets.UTF_8);
+        Object keyId = objectMapper.parseMap(header).get("kid");
+        return keyId == null ? null : keyId.toString();
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * JWT signing keys and token conversion.
+ */
+package com.dhomoni.uaa.security.jwt;
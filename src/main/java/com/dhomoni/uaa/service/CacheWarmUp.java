@@ -0,0 +1,133 @@
+package com.dhomoni.uaa.service;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.security.AuthenticationAuditListener;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import com.dhomoni.uaa.config.UaaProperties;
+import com.dhomoni.uaa.domain.User;
+import com.dhomoni.uaa.repository.AuthorityRepository;
+import com.dhomoni.uaa.repository.PersistenceAuditEventRepository;
+import com.dhomoni.uaa.repository.UserRepository;
+
+/**
+ * Loads the users who authenticated recently into the caches, once the application has started.
+ * <p>
+ * A new node would otherwise send a query to the database for each of the first logins it handles. The principals
+ * of the most recent authentication successes are read from the audit events, and their users, with authorities,
+ * loaded by batches and put in the user caches, along with all the authorities. The number of users loaded and the
+ * time spent are bounded, the warm-up stops when either is exceeded.
+ * <p>
+ * A user changed on another node while its batch is loaded could be put in the caches after it was evicted there,
+ * and its old password or activation served until the time-to-live. A newer cached version is never replaced, and
+ * once a batch is cached the versions of its users are read again: those which have changed are evicted.
+ * <p>
+ * The node reports itself as out of service until the warm-up is over, so that the discovery service doesn't send
+ * requests to it before.
+ */
+@Component
+public class CacheWarmUp implements HealthIndicator {
+
+    private final Logger log = LoggerFactory.getLogger(CacheWarmUp.class);
+
+    private final PersistenceAuditEventRepository persistenceAuditEventRepository;
+
+    private final UserRepository userRepository;
+
+    private final AuthorityRepository authorityRepository;
+
+    private final UserCacheEvictor userCacheEvictor;
+
+    private final UaaProperties.CacheWarmUp properties;
+
+    private volatile boolean done;
+
+    private volatile int loadedUsers;
+
+    public CacheWarmUp(PersistenceAuditEventRepository persistenceAuditEventRepository, UserRepository userRepository,
+                       AuthorityRepository authorityRepository, UserCacheEvictor userCacheEvictor,
+                       UaaProperties uaaProperties) {
+        this.persistenceAuditEventRepository = persistenceAuditEventRepository;
+        this.userRepository = userRepository;
+        this.authorityRepository = authorityRepository;
+        this.userCacheEvictor = userCacheEvictor;
+        this.properties = uaaProperties.getCacheWarmUp();
+        this.done = !properties.isEnabled();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (done) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        long deadline = start + properties.getTimeBudgetInSeconds() * 1000L;
+        try {
+            authorityRepository.findAll();
+            List<String> principals = persistenceAuditEventRepository.findRecentPrincipalsByAuditEventType(
+                AuthenticationAuditListener.AUTHENTICATION_SUCCESS,
+                Instant.now().minus(properties.getLookbackInDays(), ChronoUnit.DAYS),
+                PageRequest.of(0, properties.getMaxUsers()));
+            for (int from = 0; from < principals.size(); from += properties.getBatchSize()) {
+                if (System.currentTimeMillis() > deadline) {
+                    log.warn("Cache warm-up stopped after {} ms, {} of {} users loaded",
+                        System.currentTimeMillis() - start, loadedUsers, principals.size());
+                    return;
+                }
+                loadBatch(principals.subList(from, Math.min(from + properties.getBatchSize(), principals.size())));
+            }
+            log.info("Cache warm-up loaded {} users in {} ms", loadedUsers, System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            log.warn("Cache warm-up failed after {} users: {}", loadedUsers, e.getMessage());
+        } finally {
+            done = true;
+        }
+    }
+
+    /**
+     * Principals are logins, or emails for the users who logged in with theirs. Logins may contain "@" too.
+     */
+    private void loadBatch(List<String> principals) {
+        List<String> emails = principals.stream().filter(principal -> principal.contains("@")).collect(Collectors.toList());
+        // the authorities are fetched with a join, so a user comes back once per authority
+        Map<Long, User> users = new LinkedHashMap<>();
+        userRepository.findAllWithAuthoritiesByLoginIn(principals).forEach(user -> users.putIfAbsent(user.getId(), user));
+        if (!emails.isEmpty()) {
+            userRepository.findAllWithAuthoritiesByEmailIn(emails).forEach(user -> users.putIfAbsent(user.getId(), user));
+        }
+        users.values().forEach(userCacheEvictor::cache);
+        Map<Long, Long> versions = new HashMap<>();
+        if (!users.isEmpty()) {
+            userRepository.findVersionsByIdIn(users.keySet()).forEach(row -> versions.put(row.getId(), row.getVersion()));
+        }
+        // a deleted user has no version anymore, and is evicted too
+        List<User> changed = users.values().stream()
+            .filter(user -> !Objects.equals(versions.get(user.getId()), user.getVersion()))
+            .collect(Collectors.toList());
+        changed.forEach(userCacheEvictor::evict);
+        loadedUsers += users.size() - changed.size();
+    }
+
+    @Override
+    public Health health() {
+        if (!done) {
+            return Health.outOfService().withDetail("loadedUsers", loadedUsers).build();
+        }
+        return Health.up().withDetail("loadedUsers", loadedUsers).build();
+    }
+}
@@ -0,0 +1,135 @@
+package com.dhomoni.uaa.service;
+
+import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
+import static org.elasticsearch.index.query.QueryBuilders.geoDistanceQuery;
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.index.query.QueryBuilders.multiMatchQuery;
+import static org.elasticsearch.index.query.QueryBuilders.nestedQuery;
+import static org.elasticsearch.index.query.QueryBuilders.termQuery;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.lucene.search.join.ScoreMode;
+import org.elasticsearch.common.unit.DistanceUnit;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.aggregations.AbstractAggregationBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
+import org.springframework.stereotype.Service;
+
+import com.dhomoni.uaa.domain.DoctorDocument;
+import com.dhomoni.uaa.domain.enumeration.DoctorType;
+import com.dhomoni.uaa.service.dto.DoctorSearchResultDTO;
+import com.github.vanroy.springdata.jest.aggregation.AggregatedPage;
+
+import io.searchbox.core.search.aggregation.FilterAggregation;
+import io.searchbox.core.search.aggregation.TermsAggregation;
+
+/**
+ * Service for searching the doctors in Elasticsearch.
+ * <p>
+ * The text, the location filter and sort, and the facet counts are a single request. The type and the medical
+ * department are post filters, applied after the facets are counted. Each facet is counted within the other facet's
+ * filter but not its own, so it still lists the alternatives to the selected value, with the number of doctors that
+ * choosing them would give.
+ */
+@Service
+public class DoctorSearchService {
+
+    public static final String TYPE = "type";
+
+    public static final String MEDICAL_DEPARTMENT = "medicalDepartment";
+
+    private final Logger log = LoggerFactory.getLogger(DoctorSearchService.class);
+
+    private final ElasticsearchOperations elasticsearchOperations;
+
+    public DoctorSearchService(ElasticsearchOperations elasticsearchOperations) {
+        this.elasticsearchOperations = elasticsearchOperations;
+    }
+
+    /**
+     * @param query the text to find in the names, the designation, the description, the address and the degrees,
+     * all the doctors if blank
+     * @param latitude the latitude of the point, null for no location
+     * @param longitude the longitude of the point, null for no location
+     * @param radiusInKilometers the maximum distance of the doctors to the point, null for all of them
+     * @param type the type of the doctors, null for all of them
+     * @param medicalDepartment the medical department of the doctors, null for all of them
+     * @param pageable the page, whose sort is replaced by the distance to the point when there is one
+     * @return the page of doctors, by relevance or from the nearest to the farthest, and the facets
+     */
+    public DoctorSearchResultDTO search(String query, Double latitude, Double longitude, Double radiusInKilometers,
+                                        DoctorType type, Integer medicalDepartment, Pageable pageable) {
+        log.debug("Request to search for a page of Doctors for query {}", query);
+        BoolQueryBuilder bool = boolQuery();
+        if (StringUtils.isBlank(query)) {
+            bool.must(matchAllQuery());
+        } else {
+            bool.must(boolQuery()
+                .should(multiMatchQuery(query, "firstName", "lastName", "designation", "description", "address"))
+                .should(nestedQuery("professionalDegrees",
+                    multiMatchQuery(query, "professionalDegrees.name", "professionalDegrees.institute"), ScoreMode.Max)));
+        }
+        boolean located = latitude != null && longitude != null;
+        if (located && radiusInKilometers != null) {
+            bool.filter(geoDistanceQuery("location").point(latitude, longitude)
+                .distance(radiusInKilometers, DistanceUnit.KILOMETERS));
+        }
+        QueryBuilder typeFilter = type != null ? termQuery(TYPE, type.name()) : matchAllQuery();
+        QueryBuilder medicalDepartmentFilter = medicalDepartment != null ?
+            termQuery(MEDICAL_DEPARTMENT, medicalDepartment) : matchAllQuery();
+        NativeSearchQueryBuilder searchQuery = new NativeSearchQueryBuilder()
+            .withQuery(bool)
+            .withFilter(boolQuery().filter(typeFilter).filter(medicalDepartmentFilter))
+            .addAggregation(facet(medicalDepartmentFilter, AggregationBuilders.terms(TYPE).field(TYPE)))
+            .addAggregation(facet(typeFilter,
+                AggregationBuilders.terms(MEDICAL_DEPARTMENT).field(MEDICAL_DEPARTMENT).size(100)));
+        if (located) {
+            searchQuery.withPageable(PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()))
+                .withSort(SortBuilders.geoDistanceSort("location", latitude, longitude)
+                    .unit(DistanceUnit.KILOMETERS).order(SortOrder.ASC));
+        } else {
+            searchQuery.withPageable(pageable);
+        }
+        // the pages of the Jest template carry the aggregations
+        AggregatedPage<DoctorDocument> page = (AggregatedPage<DoctorDocument>)
+            elasticsearchOperations.queryForPage(searchQuery.build(), DoctorDocument.class);
+        Map<String, Map<String, Long>> facets = new LinkedHashMap<>();
+        facets.put(TYPE, buckets(page, TYPE));
+        facets.put(MEDICAL_DEPARTMENT, buckets(page, MEDICAL_DEPARTMENT));
+        DoctorSearchResultDTO result = new DoctorSearchResultDTO();
+        result.setDoctors(page.getContent());
+        result.setTotal(page.getTotalElements());
+        result.setFacets(facets);
+        return result;
+    }
+
+    /**
+     * @return the terms aggregation, within a filter aggregation of the same name
+     */
+    private static AbstractAggregationBuilder<?> facet(QueryBuilder otherFacetFilter,
+                                                       AbstractAggregationBuilder<?> terms) {
+        return AggregationBuilders.filter(terms.getName(), otherFacetFilter).subAggregation(terms);
+    }
+
+    private static Map<String, Long> buckets(AggregatedPage<DoctorDocument> page, String name) {
+        Map<String, Long> buckets = new LinkedHashMap<>();
+        FilterAggregation filter = page.hasAggregations() ? page.getAggregation(name, FilterAggregation.class) : null;
+        TermsAggregation aggregation = filter != null ? filter.getTermsAggregation(name) : null;
+        if (aggregation != null) {
+            aggregation.getBuckets().forEach(bucket -> buckets.put(bucket.getKey(), bucket.getCount()));
+        }
+        return buckets;
+    }
+}
@@ -0,0 +1,258 @@
+package com.dhomoni.uaa.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.DigestUtils;
+
+import com.dhomoni.uaa.config.UaaProperties;
+import com.dhomoni.uaa.domain.Doctor;
+import com.dhomoni.uaa.domain.Patient;
+import com.dhomoni.uaa.repository.DoctorRepository;
+import com.dhomoni.uaa.repository.PatientRepository;
+import com.dhomoni.uaa.security.AuthoritiesConstants;
+import com.dhomoni.uaa.security.SecurityUtils;
+import com.dhomoni.uaa.service.image.DatabaseImageStore;
+import com.dhomoni.uaa.service.image.FileSystemImageStore;
+import com.dhomoni.uaa.service.image.ImageProcessor;
+import com.dhomoni.uaa.service.image.ImageStore;
+import com.dhomoni.uaa.service.image.StoredImage;
+
+/**
+ * Service for the profile images of the doctors and patients.
+ * <p>
+ * The entities only keep the content type of their image and its ETag, the MD5 of its content, while the image
+ * itself is kept in the configured {@link ImageStore}. Images which aren't found there are looked for in the database,
+ * where they were stored before.
+ * <p>
+ * Uploads are validated and stripped of their metadata by the {@link ImageProcessor}. Once an upload is committed,
+ * its thumbnails are created on the task executor, so a thumbnail may be missing for a short while: the smallest
+ * larger one, or the image itself, is returned instead.
+ * <p>
+ * The images of the doctors are part of their profiles, which any authenticated user searches, so they are returned
+ * to anyone who asks. The image of a patient is only returned to the patient and to the admins.
+ */
+@Service
+@Transactional
+public class ImageService {
+
+    public static final String FILESYSTEM = "filesystem";
+
+    private final Logger log = LoggerFactory.getLogger(ImageService.class);
+
+    private final DoctorRepository doctorRepository;
+
+    private final PatientRepository patientRepository;
+
+    private final DatabaseImageStore databaseImageStore;
+
+    private final ImageStore imageStore;
+
+    private final ImageProcessor imageProcessor;
+
+    private final List<Integer> thumbnailSizes;
+
+    private final Executor taskExecutor;
+
+    public ImageService(DoctorRepository doctorRepository, PatientRepository patientRepository,
+                        UaaProperties uaaProperties, @Qualifier("taskExecutor") Executor taskExecutor) {
+        this.doctorRepository = doctorRepository;
+        this.patientRepository = patientRepository;
+        this.databaseImageStore = new DatabaseImageStore(doctorRepository, patientRepository);
+        UaaProperties.ImageStore properties = uaaProperties.getImageStore();
+        this.imageStore = FILESYSTEM.equals(properties.getType()) ?
+            new FileSystemImageStore(Paths.get(properties.getDirectory())) : databaseImageStore;
+        this.imageProcessor = new ImageProcessor(properties.getMaxSizeInKilobytes() * 1024,
+            properties.getMaxDimension(), properties.getJpegQuality());
+        this.thumbnailSizes = properties.getThumbnailSizes().stream().sorted().distinct().collect(Collectors.toList());
+        this.taskExecutor = taskExecutor;
+    }
+
+    /**
+     * Stores a new image of the doctor, which must have been saved already.
+     *
+     * @param doctor the doctor
+     * @param content the uploaded image, null to keep the current one
+     * @throws com.dhomoni.uaa.web.rest.errors.InvalidImageException if the upload isn't a valid image
+     */
+    public void saveImage(Doctor doctor, byte[] content) {
+        if (content == null) {
+            return;
+        }
+        ImageProcessor.EncodedImage image = imageProcessor.process(content);
+        String previousKey = key(DatabaseImageStore.DOCTORS, doctor.getId(), doctor.getImageEtag());
+        String etag = DigestUtils.md5DigestAsHex(image.getContent());
+        doctor.setImageContentType(image.getContentType());
+        doctor.setImageEtag(etag);
+        if (imageStore != databaseImageStore) {
+            doctor.setImage(null);
+        }
+        save(previousKey, key(DatabaseImageStore.DOCTORS, doctor.getId(), etag), image.getContent());
+    }
+
+    /**
+     * Stores a new image of the patient, which must have been saved already.
+     *
+     * @param patient the patient
+     * @param content the uploaded image, null to keep the current one
+     * @throws com.dhomoni.uaa.web.rest.errors.InvalidImageException if the upload isn't a valid image
+     */
+    public void saveImage(Patient patient, byte[] content) {
+        if (content == null) {
+            return;
+        }
+        ImageProcessor.EncodedImage image = imageProcessor.process(content);
+        String previousKey = key(DatabaseImageStore.PATIENTS, patient.getId(), patient.getImageEtag());
+        String etag = DigestUtils.md5DigestAsHex(image.getContent());
+        patient.setImageContentType(image.getContentType());
+        patient.setImageEtag(etag);
+        if (imageStore != databaseImageStore) {
+            patient.setImage(null);
+        }
+        save(previousKey, key(DatabaseImageStore.PATIENTS, patient.getId(), etag), image.getContent());
+    }
+
+    /**
+     * @param id the id of the doctor
+     * @param size the width and height the image is displayed at, null for the image itself
+     * @return the smallest thumbnail at least as large, or the image itself
+     */
+    @Transactional(readOnly = true)
+    public Optional<StoredImage> findDoctorImage(Long id, Integer size) {
+        return doctorRepository.findById(id)
+            .filter(doctor -> doctor.getImageContentType() != null)
+            .flatMap(doctor -> find(DatabaseImageStore.DOCTORS, id, doctor.getImageContentType(), doctor.getImageEtag(), size));
+    }
+
+    /**
+     * @param id the id of the patient
+     * @param size the width and height the image is displayed at, null for the image itself
+     * @return the smallest thumbnail at least as large, or the image itself, empty if the current user is neither
+     * the patient nor an admin, so as not to tell which patients exist
+     */
+    @Transactional(readOnly = true)
+    public Optional<StoredImage> findPatientImage(Long id, Integer size) {
+        return patientRepository.findById(id)
+            .filter(ImageService::isVisibleToCurrentUser)
+            .filter(patient -> patient.getImageContentType() != null)
+            .flatMap(patient -> find(DatabaseImageStore.PATIENTS, id, patient.getImageContentType(), patient.getImageEtag(), size));
+    }
+
+    private static boolean isVisibleToCurrentUser(Patient patient) {
+        if (SecurityUtils.isCurrentUserInRole(AuthoritiesConstants.ADMIN)) {
+            return true;
+        }
+        return patient.getUser() != null && SecurityUtils.getCurrentUserLogin()
+            .filter(login -> login.equals(patient.getUser().getLogin()))
+            .isPresent();
+    }
+
+    private Optional<StoredImage> find(String owner, Long id, String contentType, String etag, Integer size) {
+        if (etag != null) {
+            if (size != null) {
+                // a thumbnail has the content type of its image, which has transparency or not
+                for (Integer thumbnailSize : thumbnailSizes) {
+                    if (thumbnailSize >= size) {
+                        String thumbnailEtag = etag + "-" + thumbnailSize;
+                        Optional<Resource> thumbnail = imageStore.find(key(owner, id, thumbnailEtag));
+                        if (thumbnail.isPresent()) {
+                            return Optional.of(new StoredImage(thumbnail.get(), contentType, thumbnailEtag));
+                        }
+                    }
+                }
+            }
+            Optional<Resource> content = imageStore.find(key(owner, id, etag));
+            if (content.isPresent() || imageStore == databaseImageStore) {
+                return content.map(image -> new StoredImage(image, contentType, etag));
+            }
+        }
+        // stored before the image store was configured, or before the ETags: the image is in the database
+        return databaseImageStore.find(owner + "/" + id)
+            .map(image -> new StoredImage(image, contentType, etag != null ? etag : etag(image)));
+    }
+
+    private static String etag(Resource image) {
+        try (InputStream content = image.getInputStream()) {
+            return DigestUtils.md5DigestAsHex(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Saves the image under its new key, and once the transaction has committed, deletes the previous one and
+     * creates the thumbnails of the new one. If the transaction rolls back, the new image is deleted instead.
+     */
+    private void save(String previousKey, String key, byte[] content) {
+        if (key.equals(previousKey)) {
+            return;
+        }
+        imageStore.save(key, content);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            delete(previousKey);
+            taskExecutor.execute(() -> createThumbnails(key, content));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                    delete(previousKey);
+                    taskExecutor.execute(() -> createThumbnails(key, content));
+                } else {
+                    delete(key);
+                }
+            }
+        });
+    }
+
+    private void createThumbnails(String key, byte[] content) {
+        if (imageStore == databaseImageStore) {
+            return;
+        }
+        for (Integer size : thumbnailSizes) {
+            try {
+                imageProcessor.thumbnail(content, size)
+                    .ifPresent(thumbnail -> imageStore.save(key + "-" + size, thumbnail.getContent()));
+            } catch (RuntimeException e) {
+                // the image itself is returned instead
+                log.warn("Could not create the {} pixels thumbnail of image {}: {}", size, key, e.getMessage());
+            }
+        }
+    }
+
+    private void delete(String key) {
+        if (key == null) {
+            return;
+        }
+        try {
+            imageStore.delete(key);
+            for (Integer size : thumbnailSizes) {
+                imageStore.delete(key + "-" + size);
+            }
+        } catch (RuntimeException e) {
+            // the image is left behind, but no entity refers to it anymore
+            log.warn("Could not delete image {}: {}", key, e.getMessage());
+        }
+    }
+
+    private static String key(String owner, Long id, String etag) {
+        return etag == null ? null : owner + "/" + id + "/" + etag;
+    }
+}
@@ -0,0 +1,92 @@
+package com.dhomoni.uaa.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.dhomoni.uaa.domain.Patient;
+import com.dhomoni.uaa.repository.GeoCircle;
+import com.dhomoni.uaa.repository.PatientRepository;
+import com.dhomoni.uaa.repository.PatientSpecifications;
+import com.dhomoni.uaa.service.dto.PatientCohortCriteria;
+import com.dhomoni.uaa.service.dto.PatientCohortDTO;
+
+/**
+ * Service for finding the cohorts of patients, for example the O- donors within 10 km of a hospital.
+ * <p>
+ * The database selects the patients in the bounding box of the circle, by id; the ones outside of the circle are
+ * filtered out here, and more patients are selected until the page is full or the cohort is exhausted. A page
+ * which isn't full is then always the last one.
+ */
+@Service
+@Transactional(readOnly = true)
+public class PatientCohortService {
+
+    private final Logger log = LoggerFactory.getLogger(PatientCohortService.class);
+
+    private final PatientRepository patientRepository;
+
+    public PatientCohortService(PatientRepository patientRepository) {
+        this.patientRepository = patientRepository;
+    }
+
+    /**
+     * @param criteria the criteria of the cohort
+     * @param afterId the id of the last patient of the previous page, null for the first page
+     * @param size the maximum number of patients
+     * @return the patients of the cohort, by id, with their distance to the point of the criteria if any
+     */
+    public List<PatientCohortDTO> findCohort(PatientCohortCriteria criteria, Long afterId, int size) {
+        log.debug("Request to get a page of the Patient cohort : {} after {}", criteria, afterId);
+        GeoCircle circle = criteria.hasLocation() ?
+            new GeoCircle(criteria.getLatitude(), criteria.getLongitude(), criteria.getRadius() * 1000) : null;
+        Specification<Patient> specification = toSpecification(criteria, circle);
+        List<PatientCohortDTO> cohort = new ArrayList<>(size);
+        List<PatientCohortDTO> scanned;
+        do {
+            scanned = patientRepository.findCohort(specification, afterId, size);
+            for (PatientCohortDTO patient : scanned) {
+                if (circle != null) {
+                    double distance = circle.distanceTo(patient.getLatitude(), patient.getLongitude());
+                    if (distance > circle.getRadiusInMeters()) {
+                        continue;
+                    }
+                    patient.setDistanceInMeters(distance);
+                }
+                cohort.add(patient);
+                if (cohort.size() == size) {
+                    return cohort;
+                }
+            }
+            if (!scanned.isEmpty()) {
+                afterId = scanned.get(scanned.size() - 1).getId();
+            }
+        } while (scanned.size() == size);
+        return cohort;
+    }
+
+    private static Specification<Patient> toSpecification(PatientCohortCriteria criteria, GeoCircle circle) {
+        Specification<Patient> specification = Specification.where(null);
+        if (criteria.getBloodGroup() != null) {
+            specification = specification.and(PatientSpecifications.hasBloodGroup(criteria.getBloodGroup()));
+        }
+        if (criteria.getSex() != null) {
+            specification = specification.and(PatientSpecifications.hasSex(criteria.getSex()));
+        }
+        if (criteria.getBornAfter() != null) {
+            specification = specification.and(PatientSpecifications.bornAfter(criteria.getBornAfter()));
+        }
+        if (criteria.getBornBefore() != null) {
+            specification = specification.and(PatientSpecifications.bornBefore(criteria.getBornBefore()));
+        }
+        if (circle != null) {
+            specification = specification.and(PatientSpecifications.locatedAround(circle));
+        }
+        return specification;
+    }
+}
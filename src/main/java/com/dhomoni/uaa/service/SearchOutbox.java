@@ -0,0 +1,60 @@
+package com.dhomoni.uaa.service;
+
+import java.time.Instant;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.dhomoni.uaa.domain.Doctor;
+import com.dhomoni.uaa.domain.SearchOutboxEntry;
+import com.dhomoni.uaa.domain.User;
+import com.dhomoni.uaa.domain.enumeration.SearchDocumentType;
+import com.dhomoni.uaa.repository.SearchOutboxEntryRepository;
+
+/**
+ * Records the users and doctors whose search documents are out of date, in the transaction which changes them.
+ * <p>
+ * The entries are committed, or rolled back, with the change itself, and indexed in the background by the
+ * {@link SearchOutboxWorker}: a write never waits for Elasticsearch, and never fails because of it.
+ */
+@Service
+@Transactional(propagation = Propagation.MANDATORY)
+public class SearchOutbox {
+
+    private final Logger log = LoggerFactory.getLogger(SearchOutbox.class);
+
+    private final SearchOutboxEntryRepository searchOutboxEntryRepository;
+
+    public SearchOutbox(SearchOutboxEntryRepository searchOutboxEntryRepository) {
+        this.searchOutboxEntryRepository = searchOutboxEntryRepository;
+    }
+
+    /**
+     * The user has been created, changed or deleted.
+     */
+    public void userChanged(User user) {
+        record(SearchDocumentType.USER, user.getId());
+    }
+
+    /**
+     * The doctor, or its user, has been created, changed or deleted: it is indexed if its user is activated, and
+     * removed from the index otherwise.
+     */
+    public void doctorChanged(Doctor doctor) {
+        record(SearchDocumentType.DOCTOR, doctor.getId());
+    }
+
+    private void record(SearchDocumentType documentType, Long documentId) {
+        log.debug("Request to index the {} {}", documentType, documentId);
+        Instant now = Instant.now();
+        SearchOutboxEntry entry = new SearchOutboxEntry();
+        entry.setDocumentType(documentType);
+        entry.setDocumentId(documentId);
+        entry.setCreatedDate(now);
+        entry.setNextAttemptDate(now);
+        searchOutboxEntryRepository.save(entry);
+    }
+}
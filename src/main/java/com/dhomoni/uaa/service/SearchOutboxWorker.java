@@ -0,0 +1,317 @@
+package com.dhomoni.uaa.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.EntityMapper;
+import org.springframework.data.elasticsearch.core.mapping.ElasticsearchPersistentEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.dhomoni.uaa.config.UaaProperties;
+import com.dhomoni.uaa.domain.Doctor;
+import com.dhomoni.uaa.domain.DoctorDocument;
+import com.dhomoni.uaa.domain.SearchOutboxEntry;
+import com.dhomoni.uaa.domain.User;
+import com.dhomoni.uaa.domain.enumeration.SearchDocumentType;
+import com.dhomoni.uaa.repository.DoctorRepository;
+import com.dhomoni.uaa.repository.SearchOutboxEntryRepository;
+import com.dhomoni.uaa.repository.UserRepository;
+import com.dhomoni.uaa.service.mapper.DoctorDocumentMapper;
+
+import io.searchbox.action.BulkableAction;
+import io.searchbox.client.JestClient;
+import io.searchbox.core.Bulk;
+import io.searchbox.core.BulkResult;
+import io.searchbox.core.Delete;
+import io.searchbox.core.Index;
+
+/**
+ * Drains the {@link SearchOutbox}: the users and doctors of the entries due are indexed, or deleted from their
+ * index, by batches, each in one bulk request.
+ * <p>
+ * The outbox is drained at a fixed delay, batch after batch while they are full, so a burst of writes goes in a
+ * few large requests. The entries due are first locked, the documents are read in a transaction, sent outside of it,
+ * and the entries of the documents indexed are then deleted; the others are attempted again later, after a delay
+ * doubled at each failure.
+ * <p>
+ * Several instances drain the outbox together. Locking an entry holds it for the lease, and is skipped while another
+ * drain holds an entry of the same document: two instances never send a same document at the same time, so an
+ * older state can't overwrite a newer one. An instance which stops while holding entries only delays them until the
+ * end of the lease.
+ * <p>
+ * The metrics "search.outbox.lag", the age in milliseconds of the oldest entry, and "search.outbox.pending", the
+ * number of entries, are updated after each drain. No instance drains the outbox while the user index is rebuilt
+ * by the {@link SearchReindexJob}.
+ */
+@Component
+public class SearchOutboxWorker {
+
+    static final String METRIC_PREFIX = "search.outbox";
+
+    private final Logger log = LoggerFactory.getLogger(SearchOutboxWorker.class);
+
+    private final SearchOutboxEntryRepository searchOutboxEntryRepository;
+
+    private final UserRepository userRepository;
+
+    private final DoctorRepository doctorRepository;
+
+    private final DoctorDocumentMapper doctorDocumentMapper;
+
+    private final JestClient jestClient;
+
+    private final EntityMapper entityMapper;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final SearchReindexJob searchReindexJob;
+
+    private final UaaProperties.SearchOutbox properties;
+
+    private final ElasticsearchPersistentEntity<?> userEntity;
+
+    private final ElasticsearchPersistentEntity<?> doctorEntity;
+
+    private final AtomicLong lagInMillis = new AtomicLong();
+
+    private final AtomicLong pending = new AtomicLong();
+
+    private final Timer bulkTimer;
+
+    private final Meter indexed;
+
+    private final Meter failed;
+
+    public SearchOutboxWorker(SearchOutboxEntryRepository searchOutboxEntryRepository, UserRepository userRepository,
+                              DoctorRepository doctorRepository, DoctorDocumentMapper doctorDocumentMapper,
+                              JestClient jestClient, ElasticsearchOperations elasticsearchOperations,
+                              EntityMapper entityMapper, PlatformTransactionManager transactionManager,
+                              SearchReindexJob searchReindexJob, MetricRegistry metricRegistry,
+                              UaaProperties uaaProperties) {
+        this.searchOutboxEntryRepository = searchOutboxEntryRepository;
+        this.userRepository = userRepository;
+        this.doctorRepository = doctorRepository;
+        this.doctorDocumentMapper = doctorDocumentMapper;
+        this.jestClient = jestClient;
+        this.entityMapper = entityMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.searchReindexJob = searchReindexJob;
+        this.properties = uaaProperties.getSearchOutbox();
+        this.userEntity = elasticsearchOperations.getPersistentEntityFor(User.class);
+        this.doctorEntity = elasticsearchOperations.getPersistentEntityFor(DoctorDocument.class);
+        metricRegistry.register(MetricRegistry.name(METRIC_PREFIX, "lag"), (Gauge<Long>) lagInMillis::get);
+        metricRegistry.register(MetricRegistry.name(METRIC_PREFIX, "pending"), (Gauge<Long>) pending::get);
+        this.bulkTimer = metricRegistry.timer(MetricRegistry.name(METRIC_PREFIX, "bulk"));
+        this.indexed = metricRegistry.meter(MetricRegistry.name(METRIC_PREFIX, "indexed"));
+        this.failed = metricRegistry.meter(MetricRegistry.name(METRIC_PREFIX, "failed"));
+    }
+
+    @Scheduled(fixedDelayString = "${uaa.search-outbox.flush-interval-in-millis:1000}")
+    public void drain() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            if (searchReindexJob.isRunning()) {
+                // the changes are indexed once the new user index has replaced the old one
+                return;
+            }
+            int drained;
+            do {
+                drained = drainBatch();
+            } while (drained == properties.getBatchSize());
+            updateMetrics();
+        } catch (RuntimeException e) {
+            log.warn("Search outbox drain failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return the number of entries locked and drained, indexed or not
+     */
+    int drainBatch() {
+        Instant now = Instant.now();
+        List<SearchOutboxEntry> entries = transactionTemplate.execute(status -> lock(now));
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        Set<String> failedKeys = new HashSet<>();
+        Map<String, BulkableAction<?>> actions = transactionTemplate.execute(status -> toActions(entries, failedKeys));
+        if (!actions.isEmpty()) {
+            failedKeys.addAll(send(actions));
+        }
+        transactionTemplate.execute(status -> {
+            complete(entries, failedKeys, now);
+            return null;
+        });
+        return entries.size();
+    }
+
+    /**
+     * @return the entries due which this drain now holds, those held by another drain, or whose document is, are left
+     */
+    private List<SearchOutboxEntry> lock(Instant now) {
+        List<Long> ids = searchOutboxEntryRepository
+            .findAllByNextAttemptDateLessThanEqualOrderByNextAttemptDateAscIdAsc(now,
+                PageRequest.of(0, properties.getBatchSize()))
+            .stream()
+            .map(SearchOutboxEntry::getId)
+            .collect(Collectors.toList());
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String lockedBy = UUID.randomUUID().toString();
+        if (searchOutboxEntryRepository.lock(ids, lockedBy, now, now.plusSeconds(properties.getLeaseInSeconds())) == 0) {
+            return Collections.emptyList();
+        }
+        return searchOutboxEntryRepository.findAllByLockedByOrderByIdAsc(lockedBy);
+    }
+
+    /**
+     * One action by document, whatever the number of its entries. The documents which can't be serialized are
+     * added to the failed keys.
+     */
+    private Map<String, BulkableAction<?>> toActions(List<SearchOutboxEntry> entries, Set<String> failedKeys) {
+        Set<Long> userIds = idsOf(entries, SearchDocumentType.USER);
+        Set<Long> doctorIds = idsOf(entries, SearchDocumentType.DOCTOR);
+        Map<String, BulkableAction<?>> actions = new LinkedHashMap<>();
+        Map<Long, User> users = new HashMap<>();
+        if (!userIds.isEmpty()) {
+            userRepository.findAllWithAuthoritiesByIdIn(userIds).forEach(user -> users.putIfAbsent(user.getId(), user));
+        }
+        for (Long id : userIds) {
+            String key = key(userEntity, id);
+            try {
+                User user = users.get(id);
+                actions.put(key, user == null ? delete(userEntity, id) : index(userEntity, id, entityMapper.mapToString(user)));
+            } catch (IOException | RuntimeException e) {
+                log.warn("Could not serialize the user {}: {}", id, e.getMessage());
+                failedKeys.add(key);
+            }
+        }
+        // the professional degrees are fetched with a join, so a doctor comes back once per degree
+        Map<Long, Doctor> doctors = new HashMap<>();
+        if (!doctorIds.isEmpty()) {
+            doctorRepository.findAllWithUserAndProfessionalDegreesByIdIn(doctorIds)
+                .forEach(doctor -> doctors.putIfAbsent(doctor.getId(), doctor));
+        }
+        for (Long id : doctorIds) {
+            String key = key(doctorEntity, id);
+            try {
+                Doctor doctor = doctors.get(id);
+                if (doctor == null || doctor.getUser() == null || !doctor.getUser().getActivated()) {
+                    actions.put(key, delete(doctorEntity, id));
+                } else {
+                    DoctorDocument document = doctorDocumentMapper.doctorToDoctorDocument(doctor);
+                    actions.put(key, index(doctorEntity, id, entityMapper.mapToString(document)));
+                }
+            } catch (IOException | RuntimeException e) {
+                log.warn("Could not serialize the doctor {}: {}", id, e.getMessage());
+                failedKeys.add(key);
+            }
+        }
+        return actions;
+    }
+
+    /**
+     * @return the keys of the documents which failed
+     */
+    private Set<String> send(Map<String, BulkableAction<?>> actions) {
+        Bulk bulk = new Bulk.Builder().addAction(actions.values()).build();
+        try (Timer.Context ignored = bulkTimer.time()) {
+            BulkResult result = jestClient.execute(bulk);
+            List<BulkResult.BulkResultItem> failedItems = result.getFailedItems();
+            if (failedItems.isEmpty() && !result.isSucceeded()) {
+                log.warn("Search outbox bulk request of {} documents failed: {}", actions.size(), result.getErrorMessage());
+                return actions.keySet();
+            }
+            if (!failedItems.isEmpty()) {
+                BulkResult.BulkResultItem item = failedItems.get(0);
+                log.warn("Search outbox bulk request: {} of {} documents failed, {} {}/{}: {}", failedItems.size(),
+                    actions.size(), item.operation, item.index, item.id, item.error);
+            }
+            return failedItems.stream().map(item -> item.index + "/" + item.id).collect(Collectors.toSet());
+        } catch (IOException e) {
+            log.warn("Search outbox bulk request of {} documents failed: {}", actions.size(), e.getMessage());
+            return actions.keySet();
+        }
+    }
+
+    /**
+     * Deletes the entries of the documents indexed, and delays the others.
+     */
+    private void complete(List<SearchOutboxEntry> entries, Set<String> failedKeys, Instant now) {
+        List<Long> done = entries.stream()
+            .filter(entry -> !failedKeys.contains(key(entry)))
+            .map(SearchOutboxEntry::getId)
+            .collect(Collectors.toList());
+        if (!done.isEmpty()) {
+            searchOutboxEntryRepository.deleteByIdIn(done);
+        }
+        entries.stream().filter(entry -> failedKeys.contains(key(entry))).forEach(entry -> {
+            int attempts = entry.getAttempts() + 1;
+            searchOutboxEntryRepository.updateAttempts(entry.getId(), attempts, now.plus(backoff(attempts)));
+        });
+        indexed.mark(done.size());
+        failed.mark(entries.size() - done.size());
+    }
+
+    Duration backoff(int attempts) {
+        Duration max = Duration.ofSeconds(properties.getMaxBackoffInSeconds());
+        // beyond 2^20 the delay is above the maximum anyway, and the shift could overflow
+        Duration backoff = Duration.ofMillis(properties.getInitialBackoffInMillis() << Math.min(attempts - 1, 20));
+        return backoff.compareTo(max) > 0 ? max : backoff;
+    }
+
+    private void updateMetrics() {
+        pending.set(searchOutboxEntryRepository.count());
+        lagInMillis.set(searchOutboxEntryRepository.findFirstByOrderByIdAsc()
+            .map(entry -> Duration.between(entry.getCreatedDate(), Instant.now()).toMillis())
+            .orElse(0L));
+    }
+
+    private static Set<Long> idsOf(List<SearchOutboxEntry> entries, SearchDocumentType documentType) {
+        return entries.stream()
+            .filter(entry -> entry.getDocumentType() == documentType)
+            .map(SearchOutboxEntry::getDocumentId)
+            .collect(Collectors.toCollection(HashSet::new));
+    }
+
+    private String key(SearchOutboxEntry entry) {
+        return key(entry.getDocumentType() == SearchDocumentType.USER ? userEntity : doctorEntity, entry.getDocumentId());
+    }
+
+    private static String key(ElasticsearchPersistentEntity<?> entity, Long id) {
+        return entity.getIndexName() + "/" + id;
+    }
+
+    private static Index index(ElasticsearchPersistentEntity<?> entity, Long id, String source) {
+        return new Index.Builder(source).index(entity.getIndexName()).type(entity.getIndexType()).id(id.toString()).build();
+    }
+
+    private static Delete delete(ElasticsearchPersistentEntity<?> entity, Long id) {
+        return new Delete.Builder(id.toString()).index(entity.getIndexName()).type(entity.getIndexType()).build();
+    }
+}
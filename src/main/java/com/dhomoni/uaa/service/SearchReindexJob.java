@@ -0,0 +1,416 @@
+package com.dhomoni.uaa.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.EntityMapper;
+import org.springframework.data.elasticsearch.core.mapping.ElasticsearchPersistentEntity;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StreamUtils;
+
+import com.dhomoni.uaa.config.UaaProperties;
+import com.dhomoni.uaa.domain.User;
+import com.dhomoni.uaa.repository.UserRepository;
+import com.dhomoni.uaa.service.dto.SearchReindexProgressDTO;
+import com.dhomoni.uaa.service.dto.SearchReindexProgressDTO.Status;
+import com.dhomoni.uaa.web.rest.errors.BadRequestAlertException;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+
+import io.searchbox.action.Action;
+import io.searchbox.client.JestClient;
+import io.searchbox.client.JestResult;
+import io.searchbox.core.Bulk;
+import io.searchbox.core.BulkResult;
+import io.searchbox.core.Index;
+import io.searchbox.indices.CreateIndex;
+import io.searchbox.indices.DeleteIndex;
+import io.searchbox.indices.Refresh;
+import io.searchbox.indices.aliases.AddAliasMapping;
+import io.searchbox.indices.aliases.GetAliases;
+import io.searchbox.indices.aliases.ModifyAliases;
+import io.searchbox.indices.aliases.RemoveAliasMapping;
+import io.searchbox.indices.settings.UpdateSettings;
+
+/**
+ * Rebuilds the user index from the database, without interrupting the searches.
+ * <p>
+ * The users are read by chunks, in the order of their ids, each chunk with the authorities of its users, and sent
+ * by bulk requests to a new index, named after the alias "user" and the time of the start, from several threads.
+ * The new index has the mapping of the user document, and no replica and no refresh until it is complete. The alias is then moved to it, in one request,
+ * and the old index deleted. The index created by the repository before the first rebuild has the name of the
+ * alias: it is deleted just before the alias is added, so the searches fail for that moment only.
+ * <p>
+ * The progress is kept in a Hazelcast map, so that it can be read from any instance, and only one rebuild runs in
+ * the cluster at a time. The {@link SearchOutboxWorker}s don't drain the outbox while it runs: the changes made
+ * during the rebuild are indexed afterwards, in the new index.
+ */
+@Service
+public class SearchReindexJob {
+
+    static final String PROGRESS_MAP = "search-reindex";
+
+    private static final String ENTITY_NAME = "searchReindex";
+
+    private static final DateTimeFormatter VERSION_FORMATTER =
+        DateTimeFormatter.ofPattern("yyyyMMddHHmmss").withZone(ZoneOffset.UTC);
+
+    // the progress of a rebuild expires if its instance stops updating it, when it dies for example
+    private static final long RUNNING_TIME_TO_LIVE_IN_MINUTES = 10;
+
+    private static final long RETRY_DELAY_IN_MILLIS = 1000;
+
+    private final Logger log = LoggerFactory.getLogger(SearchReindexJob.class);
+
+    private final UserRepository userRepository;
+
+    private final JestClient jestClient;
+
+    private final EntityMapper entityMapper;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final HazelcastInstance hazelcastInstance;
+
+    private final Executor taskExecutor;
+
+    private final UaaProperties.SearchReindex properties;
+
+    private final ElasticsearchPersistentEntity<?> userEntity;
+
+    public SearchReindexJob(UserRepository userRepository, JestClient jestClient,
+                            ElasticsearchOperations elasticsearchOperations, EntityMapper entityMapper,
+                            PlatformTransactionManager transactionManager, HazelcastInstance hazelcastInstance,
+                            @Qualifier("taskExecutor") Executor taskExecutor, UaaProperties uaaProperties) {
+        this.userRepository = userRepository;
+        this.jestClient = jestClient;
+        this.entityMapper = entityMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.hazelcastInstance = hazelcastInstance;
+        this.taskExecutor = taskExecutor;
+        this.properties = uaaProperties.getSearchReindex();
+        this.userEntity = elasticsearchOperations.getPersistentEntityFor(User.class);
+    }
+
+    /**
+     * @return the progress of the running rebuild, or of the last one
+     */
+    public Optional<SearchReindexProgressDTO> getProgress() {
+        return Optional.ofNullable(progressMap().get(alias()));
+    }
+
+    public boolean isRunning() {
+        return getProgress().filter(progress -> progress.getStatus() == Status.RUNNING).isPresent();
+    }
+
+    /**
+     * Starts a rebuild in the background.
+     *
+     * @return the progress of the rebuild
+     * @throws BadRequestAlertException if a rebuild is already running in the cluster
+     */
+    public SearchReindexProgressDTO start() {
+        IMap<String, SearchReindexProgressDTO> progressMap = progressMap();
+        Run run;
+        progressMap.lock(alias());
+        try {
+            SearchReindexProgressDTO current = progressMap.get(alias());
+            if (current != null && current.getStatus() == Status.RUNNING) {
+                throw new BadRequestAlertException("The index " + current.getIndex() + " is being built", ENTITY_NAME,
+                    "reindexrunning");
+            }
+            Instant now = Instant.now();
+            run = new Run(alias() + "_" + VERSION_FORMATTER.format(now), now, userRepository.count());
+            publish(run);
+        } finally {
+            progressMap.unlock(alias());
+        }
+        SearchReindexProgressDTO progress = run.toProgress();
+        taskExecutor.execute(() -> rebuild(run));
+        return progress;
+    }
+
+    void rebuild(Run run) {
+        log.info("Rebuilding the search index {} into {}, {} users", alias(), run.index, run.totalUsers);
+        ExecutorService bulkExecutor = Executors.newFixedThreadPool(properties.getThreads(),
+            new CustomizableThreadFactory("search-reindex-"));
+        try {
+            createIndex(run.index);
+            indexUsers(run, bulkExecutor);
+            openIndex(run.index);
+            swapAlias(run.index);
+            run.complete(null);
+            log.info("Rebuilt the search index {} into {}, {} users in {} s", alias(), run.index, run.indexedUsers.get(),
+                Duration.between(run.startDate, run.endDate).getSeconds());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(run, bulkExecutor, e);
+        } catch (Exception e) {
+            fail(run, bulkExecutor, e);
+        } finally {
+            bulkExecutor.shutdownNow();
+            publish(run);
+        }
+    }
+
+    /**
+     * The chunks are read one after the other, since each one starts after the last id of the previous one, and
+     * sent in parallel. A chunk is read only when a thread is about to be free, so at most two chunks by thread are
+     * held in memory.
+     */
+    private void indexUsers(Run run, ExecutorService bulkExecutor) throws Exception {
+        int permits = properties.getThreads() * 2;
+        Semaphore inFlight = new Semaphore(permits);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        Long afterId = 0L;
+        List<Long> ids;
+        do {
+            ids = userRepository.findAllIdsByIdGreaterThan(afterId, PageRequest.of(0, properties.getChunkSize()));
+            if (ids.isEmpty()) {
+                break;
+            }
+            afterId = ids.get(ids.size() - 1);
+            List<Long> chunk = ids;
+            Map<String, String> documents = transactionTemplate.execute(status -> readDocuments(chunk));
+            inFlight.acquire();
+            bulkExecutor.execute(() -> {
+                try {
+                    sendDocuments(run.index, documents);
+                    run.indexedUsers.addAndGet(documents.size());
+                } catch (Exception e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    inFlight.release();
+                }
+            });
+            publish(run);
+        } while (ids.size() == properties.getChunkSize() && failure.get() == null);
+        // all the permits are free once the last chunk is sent
+        inFlight.acquire(permits);
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    /**
+     * The authorities of the users are fetched with a join, so a user comes back once per authority.
+     */
+    private Map<String, String> readDocuments(List<Long> ids) {
+        Map<Long, User> users = new HashMap<>();
+        userRepository.findAllWithAuthoritiesByIdIn(ids).forEach(user -> users.putIfAbsent(user.getId(), user));
+        Map<String, String> documents = new LinkedHashMap<>();
+        for (Long id : ids) {
+            // a user deleted since its id was read is left out
+            User user = users.get(id);
+            if (user != null) {
+                try {
+                    documents.put(id.toString(), entityMapper.mapToString(user));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+        return documents;
+    }
+
+    /**
+     * Sends the documents again, after a delay doubled at each attempt, until all of them are indexed.
+     */
+    private void sendDocuments(String index, Map<String, String> documents) throws InterruptedException {
+        Map<String, String> pending = new LinkedHashMap<>(documents);
+        for (int attempt = 1; ; attempt++) {
+            Bulk.Builder bulk = new Bulk.Builder().defaultIndex(index).defaultType(userEntity.getIndexType());
+            pending.forEach((id, source) -> bulk.addAction(new Index.Builder(source).id(id).build()));
+            String error;
+            try {
+                BulkResult result = jestClient.execute(bulk.build());
+                List<BulkResult.BulkResultItem> failedItems = result.getFailedItems();
+                if (failedItems.isEmpty() && result.isSucceeded()) {
+                    return;
+                }
+                if (failedItems.isEmpty()) {
+                    error = result.getErrorMessage();
+                } else {
+                    pending.keySet().retainAll(failedItems.stream().map(item -> item.id).collect(Collectors.toSet()));
+                    error = failedItems.size() + " documents failed, " + failedItems.get(0).error;
+                }
+            } catch (IOException e) {
+                error = e.getMessage();
+            }
+            if (attempt >= properties.getMaxAttempts()) {
+                throw new IllegalStateException("Bulk request failed after " + attempt + " attempts: " + error);
+            }
+            log.warn("Bulk request to {} failed, attempt {}: {}", index, attempt, error);
+            Thread.sleep(RETRY_DELAY_IN_MILLIS << (attempt - 1));
+        }
+    }
+
+    private void createIndex(String index) throws IOException {
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("number_of_shards", userEntity.getShards());
+        settings.put("number_of_replicas", 0);
+        settings.put("refresh_interval", "-1");
+        String mapping;
+        try (InputStream content = new ClassPathResource(User.MAPPING_PATH).getInputStream()) {
+            mapping = StreamUtils.copyToString(content, StandardCharsets.UTF_8);
+        }
+        execute(new CreateIndex.Builder(index).settings(settings).mappings(mapping).build(),
+            "create the index " + index);
+    }
+
+    /**
+     * Gives the new index the replicas and the refresh interval of the user document, and makes its users searchable.
+     */
+    private void openIndex(String index) throws IOException {
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("number_of_replicas", userEntity.getReplicas());
+        settings.put("refresh_interval", userEntity.getRefreshInterval());
+        execute(new UpdateSettings.Builder(Collections.singletonMap("index", settings)).addIndex(index).build(),
+            "update the settings of the index " + index);
+        execute(new Refresh.Builder().addIndex(index).build(), "refresh the index " + index);
+    }
+
+    private void swapAlias(String index) throws IOException {
+        JestResult aliases = jestClient.execute(new GetAliases.Builder().addIndex(alias()).build());
+        // the indices behind the alias, or the index named after it; none if the cluster has lost both
+        Set<String> oldIndices = aliases.isSucceeded() && aliases.getJsonObject() != null ?
+            aliases.getJsonObject().entrySet().stream().map(Map.Entry::getKey).collect(Collectors.toSet()) :
+            new HashSet<>();
+        if (oldIndices.remove(alias())) {
+            log.warn("Deleting the index {} to replace it by an alias", alias());
+            execute(new DeleteIndex.Builder(alias()).build(), "delete the index " + alias());
+        }
+        ModifyAliases.Builder modifyAliases = new ModifyAliases.Builder(new AddAliasMapping.Builder(index, alias()).build());
+        oldIndices.forEach(oldIndex -> modifyAliases.addAlias(new RemoveAliasMapping.Builder(oldIndex, alias()).build()));
+        execute(modifyAliases.build(), "move the alias " + alias() + " to " + index);
+        oldIndices.forEach(this::deleteIndexQuietly);
+    }
+
+    /**
+     * The bulk requests still running are stopped first, so they can't create the index again.
+     */
+    private void fail(Run run, ExecutorService bulkExecutor, Exception e) {
+        log.error("Rebuild of the search index {} into {} failed: {}", alias(), run.index, e.getMessage());
+        run.complete(e.getMessage() != null ? e.getMessage() : e.getClass().getName());
+        bulkExecutor.shutdownNow();
+        try {
+            bulkExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        deleteIndexQuietly(run.index);
+    }
+
+    private void deleteIndexQuietly(String index) {
+        try {
+            execute(new DeleteIndex.Builder(index).build(), "delete the index " + index);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not delete the index {}: {}", index, e.getMessage());
+        }
+    }
+
+    private <T extends JestResult> T execute(Action<T> action, String what) throws IOException {
+        T result = jestClient.execute(action);
+        if (!result.isSucceeded()) {
+            throw new IllegalStateException("Could not " + what + ": " + result.getErrorMessage());
+        }
+        return result;
+    }
+
+    private void publish(Run run) {
+        SearchReindexProgressDTO progress = run.toProgress();
+        if (progress.getStatus() == Status.RUNNING) {
+            progressMap().put(alias(), progress, RUNNING_TIME_TO_LIVE_IN_MINUTES, TimeUnit.MINUTES);
+        } else {
+            progressMap().put(alias(), progress);
+        }
+    }
+
+    private IMap<String, SearchReindexProgressDTO> progressMap() {
+        return hazelcastInstance.getMap(PROGRESS_MAP);
+    }
+
+    private String alias() {
+        return userEntity.getIndexName();
+    }
+
+    /**
+     * The state of a rebuild on the instance which runs it.
+     */
+    static final class Run {
+
+        final String index;
+
+        final Instant startDate;
+
+        final long totalUsers;
+
+        final AtomicLong indexedUsers = new AtomicLong();
+
+        volatile Instant endDate;
+
+        volatile String error;
+
+        Run(String index, Instant startDate, long totalUsers) {
+            this.index = index;
+            this.startDate = startDate;
+            this.totalUsers = totalUsers;
+        }
+
+        void complete(String error) {
+            this.error = error;
+            this.endDate = Instant.now();
+        }
+
+        SearchReindexProgressDTO toProgress() {
+            SearchReindexProgressDTO progress = new SearchReindexProgressDTO();
+            progress.setStatus(endDate == null ? Status.RUNNING : error == null ? Status.COMPLETED : Status.FAILED);
+            progress.setIndex(index);
+            progress.setStartDate(startDate);
+            progress.setEndDate(endDate);
+            progress.setTotalUsers(totalUsers);
+            long indexed = indexedUsers.get();
+            progress.setIndexedUsers(indexed);
+            long elapsedInMillis = Duration.between(startDate, endDate != null ? endDate : Instant.now()).toMillis();
+            double usersPerSecond = elapsedInMillis > 0 ? indexed * 1000.0 / elapsedInMillis : 0;
+            progress.setUsersPerSecond(usersPerSecond);
+            if (endDate == null && usersPerSecond > 0) {
+                progress.setEtaInSeconds((long) (Math.max(totalUsers - indexed, 0) / usersPerSecond));
+            }
+            progress.setError(error);
+            return progress;
+        }
+    }
+}
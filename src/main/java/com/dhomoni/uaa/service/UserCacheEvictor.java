@@ -0,0 +1,335 @@
+package com.dhomoni.uaa.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.dhomoni.uaa.config.UaaProperties;
+import com.dhomoni.uaa.domain.Authority;
+import com.dhomoni.uaa.domain.User;
+import com.dhomoni.uaa.repository.UserRepository;
+import com.dhomoni.uaa.security.UserCredentials;
+import com.hazelcast.core.IMap;
+import com.hazelcast.map.AbstractEntryProcessor;
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.DataSerializable;
+
+/**
+ * Evicts the cached entries of the users modified by a transaction, once it has completed.
+ * <p>
+ * Evicting in the middle of a transaction lets a concurrent reader load the row which is about to change, and
+ * cache it again before the commit. Instead, the keys are collected, without duplicates, until the transaction
+ * completes, and then all evicted together: the removals from the distributed maps are sent at once, and only then
+ * waited for. Outside a transaction, the keys are evicted right away.
+ * <p>
+ * A user should be evicted, or refreshed, before its login or email is changed, so that the old keys are evicted too.
+ * <p>
+ * With write-through, the refreshed users are put back in the caches after commit instead. The transactions may
+ * complete in another order than they committed, so the put only replaces a cached user, or credentials, of an
+ * older version: it runs on the member which owns the key, and compares the versions there. The keys which are
+ * written are not evicted first, an empty entry would let an older transaction cache its stale user. The keys which
+ * the user no longer has, and those of the deleted users, are evicted.
+ */
+@Component
+public class UserCacheEvictor {
+
+    private final Logger log = LoggerFactory.getLogger(UserCacheEvictor.class);
+
+    private final CacheManager cacheManager;
+
+    private final boolean writeThrough;
+
+    public UserCacheEvictor(CacheManager cacheManager, UaaProperties uaaProperties) {
+        this.cacheManager = cacheManager;
+        this.writeThrough = uaaProperties.getUserCache().isWriteThrough();
+    }
+
+    /**
+     * Evicts the entries of the user, by its current login and email, from the user caches.
+     *
+     * @param user the user which is modified, or deleted
+     */
+    public void evict(User user) {
+        PendingChanges changes = pendingChanges();
+        changes.evict(user);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evictAll(changes.keys);
+        }
+    }
+
+    /**
+     * With write-through, puts the user back in the caches once the transaction has committed, and evicts its keys
+     * which have changed. Otherwise, or outside a transaction, evicts it like {@link #evict(User)}.
+     *
+     * @param user the managed user which is updated
+     */
+    public void refresh(User user) {
+        if (!writeThrough || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(user);
+            return;
+        }
+        // the authorities are cached with the user, and can't be loaded once the transaction is over
+        Hibernate.initialize(user.getAuthorities());
+        pendingChanges().refresh(user);
+    }
+
+    /**
+     * Puts the user in the caches, as it is now, unless a newer version of it is cached. An older version may still
+     * be put after the user was changed and evicted, so the caller should check the version again afterwards, and
+     * evict the user if it has changed.
+     *
+     * @param user the user, with its authorities
+     */
+    public void cache(User user) {
+        try {
+            putAllIfNewer(entries(user));
+        } catch (RuntimeException e) {
+            // the user is not cached, it will be read from the database instead
+            log.warn("Could not put user {} in the caches: {}", user.getLogin(), e.getMessage());
+        }
+    }
+
+    /**
+     * @return the changes pending until the current transaction completes, or new ones if there is no transaction
+     */
+    private PendingChanges pendingChanges() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return new PendingChanges();
+        }
+        PendingChanges changes = (PendingChanges) TransactionSynchronizationManager.getResource(this);
+        if (changes == null) {
+            PendingChanges transactionChanges = new PendingChanges();
+            TransactionSynchronizationManager.bindResource(this, transactionChanges);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(UserCacheEvictor.this);
+                    if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                        complete(transactionChanges);
+                    } else {
+                        // a rolled back transaction may still have cached what it read, so its keys are evicted too
+                        evictAll(transactionChanges.keys);
+                    }
+                }
+            });
+            changes = transactionChanges;
+        }
+        return changes;
+    }
+
+    /**
+     * Evicts the keys of the committed changes, but those of the refreshed users, which are put instead.
+     */
+    private void complete(PendingChanges changes) {
+        Map<String, Map<Object, Object>> entries = new LinkedHashMap<>();
+        try {
+            for (User user : changes.users) {
+                entries(user).forEach((cacheName, values) ->
+                    entries.computeIfAbsent(cacheName, name -> new LinkedHashMap<>()).putAll(values));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not put users {} back in the caches: {}", changes.keys, e.getMessage());
+            evictAll(changes.keys);
+            return;
+        }
+        entries.forEach((cacheName, values) -> {
+            Set<Object> keys = changes.keys.get(cacheName);
+            if (keys != null) {
+                keys.removeAll(values.keySet());
+            }
+        });
+        evictAll(changes.keys);
+        putAllIfNewer(entries);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void evictAll(Map<String, Set<Object>> keys) {
+        List<Future<?>> removals = new ArrayList<>();
+        keys.forEach((cacheName, cacheKeys) -> {
+            Cache cache = Objects.requireNonNull(cacheManager.getCache(cacheName));
+            Object nativeCache = cache.getNativeCache();
+            for (Object key : cacheKeys) {
+                if (nativeCache instanceof IMap) {
+                    removals.add(((IMap<Object, Object>) nativeCache).removeAsync(key));
+                } else {
+                    cache.evict(key);
+                }
+            }
+        });
+        for (Future<?> removal : removals) {
+            try {
+                removal.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Interrupted while evicting users {}", keys);
+                return;
+            } catch (ExecutionException e) {
+                log.warn("Could not evict users {}: {}", keys, e.getCause().getMessage());
+            }
+        }
+    }
+
+    /**
+     * Puts the values which are newer than the cached ones, all sent at once to the distributed maps, then waited
+     * for. A value which could not be put is evicted.
+     */
+    @SuppressWarnings("unchecked")
+    private void putAllIfNewer(Map<String, Map<Object, Object>> entries) {
+        Map<String, Map<Object, Future<?>>> puts = new LinkedHashMap<>();
+        entries.forEach((cacheName, values) -> {
+            Cache cache = Objects.requireNonNull(cacheManager.getCache(cacheName));
+            Object nativeCache = cache.getNativeCache();
+            values.forEach((key, value) -> {
+                if (nativeCache instanceof IMap) {
+                    puts.computeIfAbsent(cacheName, name -> new LinkedHashMap<>())
+                        .put(key, ((IMap<Object, Object>) nativeCache).submitToKey(key, new PutIfNewer(value)));
+                } else if (nativeCache instanceof ConcurrentMap) {
+                    ((ConcurrentMap<Object, Object>) nativeCache)
+                        .compute(key, (cachedKey, cached) -> isNewer(value, cached) ? value : cached);
+                } else {
+                    // no atomic comparison, the next read caches the user instead
+                    cache.evict(key);
+                }
+            });
+        });
+        puts.forEach((cacheName, cachePuts) -> cachePuts.forEach((key, put) -> {
+            try {
+                put.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Interrupted while putting user {} in cache {}", key, cacheName);
+            } catch (ExecutionException e) {
+                log.warn("Could not put user {} in cache {}: {}", key, cacheName, e.getCause().getMessage());
+                Objects.requireNonNull(cacheManager.getCache(cacheName)).evict(key);
+            }
+        }));
+    }
+
+    /**
+     * @return the values of the user in each cache, by key
+     */
+    private static Map<String, Map<Object, Object>> entries(User user) {
+        UserCredentials credentials = credentials(user);
+        Map<String, Map<Object, Object>> entries = new LinkedHashMap<>();
+        if (user.getLogin() != null) {
+            entries.computeIfAbsent(UserRepository.USERS_BY_LOGIN_CACHE, name -> new LinkedHashMap<>())
+                .put(user.getLogin(), user);
+            entries.computeIfAbsent(UserRepository.USER_CREDENTIALS_CACHE, name -> new LinkedHashMap<>())
+                .put(user.getLogin().toLowerCase(Locale.ENGLISH), credentials);
+        }
+        if (user.getEmail() != null) {
+            entries.computeIfAbsent(UserRepository.USERS_BY_EMAIL_CACHE, name -> new LinkedHashMap<>())
+                .put(user.getEmail(), user);
+            entries.computeIfAbsent(UserRepository.USER_CREDENTIALS_CACHE, name -> new LinkedHashMap<>())
+                .put(user.getEmail(), credentials);
+        }
+        return entries;
+    }
+
+    private static UserCredentials credentials(User user) {
+        return new UserCredentials(user.getId(), user.getLogin(), user.getPassword(), user.getActivated(),
+            user.getAuthorities().stream().map(Authority::getName).collect(Collectors.toList()), user.getVersion());
+    }
+
+    /**
+     * @return true if the value, a user or credentials, is of a newer version than the cached one, or nothing is cached
+     */
+    static boolean isNewer(Object value, Object cached) {
+        return cached == null || version(value) > version(cached);
+    }
+
+    private static long version(Object value) {
+        Long version = null;
+        if (value instanceof User) {
+            version = ((User) value).getVersion();
+        } else if (value instanceof UserCredentials) {
+            version = ((UserCredentials) value).getVersion();
+        }
+        return version == null ? -1 : version;
+    }
+
+    /**
+     * Puts a user, or its credentials, unless the cached one is of the same version or a newer one. It runs on the
+     * member which owns the key, and on its backups, so that no other write comes between the comparison and the put.
+     */
+    public static class PutIfNewer extends AbstractEntryProcessor<Object, Object> implements DataSerializable {
+
+        private Object value;
+
+        public PutIfNewer() {
+        }
+
+        PutIfNewer(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public Object process(Map.Entry<Object, Object> entry) {
+            if (isNewer(value, entry.getValue())) {
+                entry.setValue(value);
+            }
+            return null;
+        }
+
+        @Override
+        public void writeData(ObjectDataOutput out) throws IOException {
+            out.writeObject(value);
+        }
+
+        @Override
+        public void readData(ObjectDataInput in) throws IOException {
+            value = in.readObject();
+        }
+    }
+
+    private static final class PendingChanges {
+
+        private final Map<String, Set<Object>> keys = new LinkedHashMap<>();
+
+        // the users to put back after commit, by identity, as a user may change its login and email meanwhile
+        private final Set<User> users = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        private void evict(User user) {
+            if (user.getLogin() != null) {
+                keys.computeIfAbsent(UserRepository.USERS_BY_LOGIN_CACHE, name -> new LinkedHashSet<>()).add(user.getLogin());
+                keys.computeIfAbsent(UserRepository.USER_CREDENTIALS_CACHE, name -> new LinkedHashSet<>())
+                    .add(user.getLogin().toLowerCase(Locale.ENGLISH));
+            }
+            if (user.getEmail() != null) {
+                keys.computeIfAbsent(UserRepository.USERS_BY_EMAIL_CACHE, name -> new LinkedHashSet<>()).add(user.getEmail());
+                keys.computeIfAbsent(UserRepository.USER_CREDENTIALS_CACHE, name -> new LinkedHashSet<>()).add(user.getEmail());
+            }
+            // a user evicted in the same transaction, when it is deleted for example, is not put back
+            users.remove(user);
+        }
+
+        private void refresh(User user) {
+            evict(user);
+            users.add(user);
+        }
+    }
+}
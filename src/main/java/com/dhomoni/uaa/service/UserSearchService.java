@@ -0,0 +1,233 @@
+package com.dhomoni.uaa.service;
+
+import static org.elasticsearch.index.query.QueryBuilders.queryStringQuery;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.EntityMapper;
+import org.springframework.data.elasticsearch.core.mapping.ElasticsearchPersistentEntity;
+import org.springframework.stereotype.Service;
+
+import com.dhomoni.uaa.config.UaaProperties;
+import com.dhomoni.uaa.domain.User;
+import com.dhomoni.uaa.service.dto.UserSearchDTO;
+import com.dhomoni.uaa.web.rest.errors.BadRequestAlertException;
+import com.dhomoni.uaa.web.rest.errors.SearchTimeoutException;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import io.searchbox.client.JestClient;
+import io.searchbox.core.Search;
+import io.searchbox.core.SearchResult;
+
+/**
+ * Service for searching the users in Elasticsearch.
+ * <p>
+ * Only the fields of {@link UserSearchDTO} are read from the sources of the hits. The pages reachable by number end
+ * within the max result window, and so does their total, so that the last page can be read too; the users beyond are
+ * read by search_after, sorted by id. The shards stop searching after the timeout, and such a search fails as
+ * unavailable instead of returning a partial page. The pages are sorted on the fields which the user mapping makes
+ * sortable.
+ */
+@Service
+public class UserSearchService {
+
+    static final String[] FIELDS = {"id", "login", "firstName", "lastName", "email", "imageUrl", "activated", "langKey"};
+
+    private static final String ENTITY_NAME = "user";
+
+    private final Logger log = LoggerFactory.getLogger(UserSearchService.class);
+
+    private final JestClient jestClient;
+
+    private final EntityMapper entityMapper;
+
+    private final ElasticsearchPersistentEntity<?> userEntity;
+
+    private final UaaProperties.UserSearch properties;
+
+    private final Map<String, String> sortFields;
+
+    public UserSearchService(JestClient jestClient, ElasticsearchOperations elasticsearchOperations,
+                             EntityMapper entityMapper, UaaProperties uaaProperties) {
+        this.jestClient = jestClient;
+        this.entityMapper = entityMapper;
+        this.userEntity = elasticsearchOperations.getPersistentEntityFor(User.class);
+        this.properties = uaaProperties.getUserSearch();
+        this.sortFields = sortFields();
+    }
+
+    /**
+     * @param query the query, in the query string syntax
+     * @param pageable the page, sorted by relevance if unsorted
+     * @return the page of users, the last one cut at the max result window
+     * @throws BadRequestAlertException if the page starts beyond the max result window, the sort is on another field
+     * than those of {@link UserSearchDTO} or the query is invalid
+     * @throws SearchTimeoutException if the search times out
+     */
+    public UserSearchPage search(String query, Pageable pageable) {
+        log.debug("Request to search for a page of Users for query {}", query);
+        int maxResultWindow = properties.getMaxResultWindow();
+        if (pageable.getOffset() >= maxResultWindow) {
+            throw new BadRequestAlertException("The pages end within the first " + maxResultWindow +
+                " users, the next ones are read with afterId", ENTITY_NAME, "resultwindowexceeded");
+        }
+        SearchSourceBuilder source = source(query)
+            .from((int) pageable.getOffset())
+            .size((int) Math.min(pageable.getPageSize(), maxResultWindow - pageable.getOffset()));
+        for (Sort.Order order : pageable.getSort()) {
+            String field = sortFields.get(order.getProperty());
+            if (field == null) {
+                throw new BadRequestAlertException("The users can't be sorted by " + order.getProperty(), ENTITY_NAME,
+                    "sortinvalid");
+            }
+            source.sort(field, order.isAscending() ? SortOrder.ASC : SortOrder.DESC);
+        }
+        if (pageable.getSort().isUnsorted()) {
+            source.sort(SortBuilders.scoreSort());
+        }
+        source.sort("id", SortOrder.ASC);
+        SearchResult result = execute(source);
+        return new UserSearchPage(users(result), pageable, result.getTotal(), maxResultWindow);
+    }
+
+    /**
+     * @param query the query, in the query string syntax
+     * @param afterId the id of the last user of the previous page, null for the first page
+     * @param size the maximum number of users of the page
+     * @return the users, in the order of their ids
+     * @throws BadRequestAlertException if the query is invalid
+     * @throws SearchTimeoutException if the search times out
+     */
+    public List<UserSearchDTO> searchAfter(String query, Long afterId, int size) {
+        log.debug("Request to search for the Users after {} for query {}", afterId, query);
+        SearchSourceBuilder source = source(query)
+            .size(size)
+            .sort("id", SortOrder.ASC);
+        if (afterId != null) {
+            source.searchAfter(new Object[] {afterId});
+        }
+        return users(execute(source));
+    }
+
+    /**
+     * @return the fields of {@link UserSearchDTO} which the user mapping makes sortable, by name: those of a type
+     * with doc values, or the keyword sub-field of a text
+     */
+    static Map<String, String> sortFields() {
+        JsonObject properties;
+        try (Reader mapping = new InputStreamReader(new ClassPathResource(User.MAPPING_PATH).getInputStream(),
+            StandardCharsets.UTF_8)) {
+            properties = new JsonParser().parse(mapping).getAsJsonObject().entrySet().iterator().next().getValue()
+                .getAsJsonObject().getAsJsonObject("properties");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Map<String, String> sortFields = new HashMap<>();
+        for (String field : FIELDS) {
+            JsonObject property = properties.getAsJsonObject(field);
+            if (property == null || property.has("index") && !property.get("index").getAsBoolean()) {
+                continue;
+            }
+            String type = property.get("type").getAsString();
+            if (Arrays.asList("long", "integer", "boolean", "date", "keyword").contains(type)) {
+                sortFields.put(field, field);
+            } else if (property.has("fields") && property.getAsJsonObject("fields").has("keyword")) {
+                sortFields.put(field, field + ".keyword");
+            }
+        }
+        return sortFields;
+    }
+
+    private SearchSourceBuilder source(String query) {
+        return new SearchSourceBuilder()
+            .query(queryStringQuery(query))
+            .fetchSource(FIELDS, null)
+            .timeout(TimeValue.timeValueMillis(properties.getTimeoutInMillis()));
+    }
+
+    private SearchResult execute(SearchSourceBuilder source) {
+        Search search = new Search.Builder(source.toString())
+            .addIndex(userEntity.getIndexName())
+            .addType(userEntity.getIndexType())
+            .build();
+        SearchResult result;
+        try {
+            result = jestClient.execute(search);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (!result.isSucceeded()) {
+            if (result.getResponseCode() == 400) {
+                throw new BadRequestAlertException("Invalid query: " + result.getErrorMessage(), ENTITY_NAME,
+                    "queryinvalid");
+            }
+            throw new IllegalStateException("Could not search for the users: " + result.getErrorMessage());
+        }
+        JsonElement timedOut = result.getJsonObject().get("timed_out");
+        if (timedOut != null && timedOut.getAsBoolean()) {
+            log.warn("Search for the users timed out after {} ms", properties.getTimeoutInMillis());
+            throw new SearchTimeoutException("The search took too long, it should be retried later, or narrowed");
+        }
+        return result;
+    }
+
+    private List<UserSearchDTO> users(SearchResult result) {
+        if (!result.getJsonObject().has("hits")) {
+            return Collections.emptyList();
+        }
+        List<UserSearchDTO> users = new ArrayList<>();
+        for (JsonElement hit : result.getJsonObject().getAsJsonObject("hits").getAsJsonArray("hits")) {
+            try {
+                users.add(entityMapper.mapToObject(hit.getAsJsonObject().get("_source").toString(), UserSearchDTO.class));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return users;
+    }
+
+    /**
+     * A page of users, whose total is the number of users reachable by page, at most the max result window.
+     */
+    public static final class UserSearchPage extends PageImpl<UserSearchDTO> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long totalHits;
+
+        UserSearchPage(List<UserSearchDTO> content, Pageable pageable, long totalHits, int maxResultWindow) {
+            super(content, pageable, Math.min(totalHits, maxResultWindow));
+            this.totalHits = totalHits;
+        }
+
+        /**
+         * @return the number of users matching the query, including those beyond the max result window
+         */
+        public long getTotalHits() {
+            return totalHits;
+        }
+    }
+}
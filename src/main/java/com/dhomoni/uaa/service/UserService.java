@@ -4,14 +4,12 @@ import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cache.CacheManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.integration.support.MessageBuilder;
@@ -30,7 +28,6 @@ import com.dhomoni.uaa.repository.AuthorityRepository;
 import com.dhomoni.uaa.repository.DoctorRepository;
 import com.dhomoni.uaa.repository.PatientRepository;
 import com.dhomoni.uaa.repository.UserRepository;
-import com.dhomoni.uaa.repository.search.UserSearchRepository;
 import com.dhomoni.uaa.security.AuthoritiesConstants;
 import com.dhomoni.uaa.security.SecurityUtils;
 import com.dhomoni.uaa.service.dto.UserDTO;
@@ -63,24 +60,28 @@ public class UserService {
 
 	private final PasswordEncoder passwordEncoder;
 
-	private final UserSearchRepository userSearchRepository;
+	private final SearchOutbox searchOutbox;
 
 	private final AuthorityRepository authorityRepository;
 
-	private final CacheManager cacheManager;
+	private final UserCacheEvictor userCacheEvictor;
+
+	private final ImageService imageService;
 	
 	private final MessageChannel channel;
 
-	public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, UserSearchRepository userSearchRepository, 
+	public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, SearchOutbox searchOutbox,
     		DoctorRepository doctorRepository, PatientRepository patientRepository,
-    		AuthorityRepository authorityRepository, CacheManager cacheManager, ProducerChannel channel) {
+    		AuthorityRepository authorityRepository, UserCacheEvictor userCacheEvictor, ImageService imageService,
+    		ProducerChannel channel) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
-        this.userSearchRepository = userSearchRepository;
+        this.searchOutbox = searchOutbox;
         this.patientRepository = patientRepository;
         this.doctorRepository = doctorRepository;
         this.authorityRepository = authorityRepository;
-        this.cacheManager = cacheManager;
+        this.userCacheEvictor = userCacheEvictor;
+        this.imageService = imageService;
         this.channel = channel.messageChannel();
     }
 
@@ -90,11 +91,13 @@ public class UserService {
 			// activate given user for the registration key.
 			user.setActivated(true);
 			user.setActivationKey(null);
-			userSearchRepository.save(user);
-			this.clearUserCaches(user);
+			searchOutbox.userChanged(user);
+			this.refreshUserCaches(user);
 	        if(user.isDoctor()) {
+	        	// the description is loaded, on its own, when the event is serialized: the image never is
 	        	doctorRepository.findOneWithProfessionalDegreesByUser(user).ifPresent(doctor -> {
 	        		doctor.setUser(user);
+	        		searchOutbox.doctorChanged(doctor);
 	        		channel.send(MessageBuilder.withPayload(doctor)
 	        				.setHeader("authority", AuthoritiesConstants.DOCTOR).build());
 	        	});
@@ -117,7 +120,7 @@ public class UserService {
 					user.setPassword(passwordEncoder.encode(newPassword));
 					user.setResetKey(null);
 					user.setResetDate(null);
-					this.clearUserCaches(user);
+					this.refreshUserCaches(user);
 					return user;
 				});
 	}
@@ -126,7 +129,7 @@ public class UserService {
 		return userRepository.findOneByEmailIgnoreCase(mail).filter(User::getActivated).map(user -> {
 			user.setResetKey(RandomUtil.generateResetKey());
 			user.setResetDate(Instant.now());
-			this.clearUserCaches(user);
+			this.refreshUserCaches(user);
 			return user;
 		});
 	}
@@ -179,7 +182,7 @@ public class UserService {
         	.forEach(a -> a.ifPresent(authorities::add));
         newUser.setAuthorities(authorities);
         userRepository.save(newUser);
-        userSearchRepository.save(newUser);
+        searchOutbox.userChanged(newUser);
         this.clearUserCaches(newUser);
         log.debug("Created Information for User: {}", newUser);
         if(userDTO.hasDoctorAuthority()) {
@@ -194,8 +197,6 @@ public class UserService {
 		// Create and save the Doctor entity
 		Doctor newDoctor = new Doctor();
 		newDoctor.setPhone(userDTO.getPhone());
-		newDoctor.setImage(userDTO.getImage());
-		newDoctor.setImageContentType(userDTO.getImageContentType());
 		newDoctor.setAddress(userDTO.getAddress());
 		newDoctor.setLocation(userDTO.getLocation());
 		userDTO.getDoctorDTO().ifPresent(doctorDTO -> {
@@ -210,14 +211,13 @@ public class UserService {
 		});
 		newDoctor.setUser(newUser);
 		doctorRepository.save(newDoctor);
+		imageService.saveImage(newDoctor, userDTO.getImage());
 		log.debug("Created Information for Doctor: {}", newDoctor);
 	}
 
 	private void createPatient(UserDTO userDTO, User newUser) {
 		// Create and save the Patient entity
 		Patient newPatient = new Patient();
-		newPatient.setImage(userDTO.getImage());
-		newPatient.setImageContentType(userDTO.getImageContentType());
 		newPatient.setAddress(userDTO.getAddress());
 		newPatient.setLocation(userDTO.getLocation());
 		newPatient.setPhone(userDTO.getPhone());
@@ -230,6 +230,7 @@ public class UserService {
 		});
 		newPatient.setUser(newUser);
 		patientRepository.save(newPatient);
+		imageService.saveImage(newPatient, userDTO.getImage());
 		log.debug("Created Information for Patient: {}", newPatient);
 	}
 
@@ -239,6 +240,7 @@ public class UserService {
 		}
 		userRepository.delete(existingUser);
 		userRepository.flush();
+		searchOutbox.userChanged(existingUser);
 		this.clearUserCaches(existingUser);
 		return true;
 	}
@@ -278,7 +280,7 @@ public class UserService {
 			user.setAuthorities(authorities);
 		}
 		userRepository.save(user);
-		userSearchRepository.save(user);
+		searchOutbox.userChanged(user);
 		this.clearUserCaches(user);
 		log.debug("Created Information for User: {}", user);
 		return user;
@@ -292,15 +294,15 @@ public class UserService {
 	@Transactional
 	public Optional<UserDTO> updateCurrentUser(UserDTO userDTO) {	
 		return SecurityUtils.getCurrentUserLogin()
-				.flatMap(userRepository::findOneWithAuthoritiesByLogin).map(user -> {
-			this.clearUserCaches(user);
+				.flatMap(userRepository::findOneByLogin).map(user -> {
+			this.refreshUserCaches(user);
 			user.setFirstName(userDTO.getFirstName());
 			user.setLastName(userDTO.getLastName());
 			user.setEmail(userDTO.getEmail().toLowerCase());
 			user.setImageUrl(userDTO.getImageUrl());
 			user.setLangKey(userDTO.getLangKey());
-			userSearchRepository.save(user);
-			this.clearUserCaches(user);
+			searchOutbox.userChanged(user);
+			this.refreshUserCaches(user);
 			log.debug(CHANGED_INFORMATION_FOR_USER, user);
 			if(user.isDoctor()) {
 				updateCurrentDoctor(userDTO, user);
@@ -315,8 +317,6 @@ public class UserService {
 		// Update doctor
 		Doctor doctor = doctorRepository.findOneByUser(user).orElseGet(Doctor::new);
 		doctor.setPhone(userDTO.getPhone());
-		doctor.setImage(userDTO.getImage());
-		doctor.setImageContentType(userDTO.getImageContentType());
 		doctor.setAddress(userDTO.getAddress());
 		doctor.setLocation(userDTO.getLocation());
 		userDTO.getDoctorDTO().ifPresent(doctorDTO -> {
@@ -331,6 +331,8 @@ public class UserService {
 		});
 		doctor.setUser(user);
 		doctorRepository.save(doctor);
+		imageService.saveImage(doctor, userDTO.getImage());
+		searchOutbox.doctorChanged(doctor);
 		log.debug("Created Information for Doctor: {}", doctor);
 	}
 
@@ -338,8 +340,6 @@ public class UserService {
 		// Update patient
 		Patient patient = patientRepository.findOneByUser(user).orElseGet(Patient::new);
 		patient.setPhone(userDTO.getPhone());
-		patient.setImage(userDTO.getImage());
-		patient.setImageContentType(userDTO.getImageContentType());
 		patient.setAddress(userDTO.getAddress());
 		patient.setLocation(userDTO.getLocation());
 		userDTO.getPatientDTO().ifPresent(patientDTO -> {
@@ -351,6 +351,7 @@ public class UserService {
 		});
 		patient.setUser(user);
 		patientRepository.save(patient);
+		imageService.saveImage(patient, userDTO.getImage());
 		log.debug("Created Information for Patient: {}", patient);
 	}
 
@@ -363,7 +364,7 @@ public class UserService {
 	public Optional<UserDTO> updateUser(UserDTO userDTO) {
 		return userRepository.findById(userDTO.getId())
 				.map(user -> {
-					this.clearUserCaches(user);
+					this.refreshUserCaches(user);
 					user.setLogin(userDTO.getLogin().toLowerCase());
 					user.setFirstName(userDTO.getFirstName());
 					user.setLastName(userDTO.getLastName());
@@ -375,8 +376,12 @@ public class UserService {
 					managedAuthorities.clear();
 					userDTO.getAuthorities().stream().map(authorityRepository::findById).filter(Optional::isPresent)
 							.map(Optional::get).forEach(managedAuthorities::add);
-					userSearchRepository.save(user);
-					this.clearUserCaches(user);
+					searchOutbox.userChanged(user);
+					this.refreshUserCaches(user);
+					if (user.isDoctor()) {
+						// the activation decides whether the doctor is searchable
+						doctorRepository.findOneByUser(user).ifPresent(searchOutbox::doctorChanged);
+					}
 					log.debug(CHANGED_INFORMATION_FOR_USER, user);
 					return user;
 				}).map(UserDTO::new);
@@ -384,8 +389,9 @@ public class UserService {
 
 	public void deleteUser(String login) {
 		userRepository.findOneByLogin(login).ifPresent(user -> {
+			doctorRepository.findOneByUser(user).ifPresent(searchOutbox::doctorChanged);
 			userRepository.delete(user);
-			userSearchRepository.delete(user);
+			searchOutbox.userChanged(user);
 			this.clearUserCaches(user);
 			log.debug("Deleted User: {}", user);
 		});
@@ -399,7 +405,7 @@ public class UserService {
 			}
 			String encryptedPassword = passwordEncoder.encode(newPassword);
 			user.setPassword(encryptedPassword);
-			this.clearUserCaches(user);
+			this.refreshUserCaches(user);
 			log.debug("Changed password for User: {}", user);
 		});
 	}
@@ -431,6 +437,8 @@ public class UserService {
 				.flatMap(userRepository::findOneWithAuthoritiesByLogin)
 				.flatMap(user -> doctorRepository.findOneWithProfessionalDegreesByUser(user).map(doctor -> {
 					doctor.setUser(user);
+					// the description is loaded lazily, the profile needs it once the transaction is over
+					doctor.getDescription();
 					return doctor;
 				}));
 	}
@@ -456,7 +464,7 @@ public class UserService {
 				.forEach(user -> {
 					log.debug("Deleting not activated user {}", user.getLogin());
 					userRepository.delete(user);
-					userSearchRepository.delete(user);
+					searchOutbox.userChanged(user);
 					this.clearUserCaches(user);
 				});
 	}
@@ -468,8 +476,19 @@ public class UserService {
 		return authorityRepository.findAll().stream().map(Authority::getName).collect(Collectors.toList());
 	}
 
+	/**
+	 * Evicts the user from the caches once the transaction has completed. Called before its login or email is
+	 * changed, the old keys are evicted too.
+	 */
 	private void clearUserCaches(User user) {
-		Objects.requireNonNull(cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE)).evict(user.getLogin());
-		Objects.requireNonNull(cacheManager.getCache(UserRepository.USERS_BY_EMAIL_CACHE)).evict(user.getEmail());
+		userCacheEvictor.evict(user);
+	}
+
+	/**
+	 * Puts the updated user back in the caches after commit, with write-through, or evicts it otherwise. Called
+	 * before its login or email is changed, the old keys are evicted.
+	 */
+	private void refreshUserCaches(User user) {
+		userCacheEvictor.refresh(user);
 	}
 }
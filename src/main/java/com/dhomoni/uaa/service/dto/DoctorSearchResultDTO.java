@@ -0,0 +1,24 @@
+package com.dhomoni.uaa.service.dto;
+
+import java.util.List;
+import java.util.Map;
+
+import com.dhomoni.uaa.domain.DoctorDocument;
+
+import lombok.Data;
+
+/**
+ * A page of doctors found by a search, with their total and the facet counts of the search.
+ * <p>
+ * The facets are by field, "type" and "medicalDepartment", then by value. They count the doctors which match the
+ * text and the location, whatever their type and medical department, so the other values remain selectable.
+ */
+@Data
+public class DoctorSearchResultDTO {
+
+    private List<DoctorDocument> doctors;
+
+    private long total;
+
+    private Map<String, Map<String, Long>> facets;
+}
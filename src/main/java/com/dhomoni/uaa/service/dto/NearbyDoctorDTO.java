@@ -0,0 +1,37 @@
+package com.dhomoni.uaa.service.dto;
+
+import com.dhomoni.uaa.domain.enumeration.DoctorType;
+
+import lombok.Data;
+
+/**
+ * A doctor found around a point, with its distance to it.
+ * <p>
+ * The distance and the id are the position of the doctor in the results: they are sent back as "afterDistance"
+ * and "afterId" to get the doctors which come after it.
+ */
+@Data
+public class NearbyDoctorDTO {
+
+    private Long id;
+
+    private String firstName;
+
+    private String lastName;
+
+    private DoctorType type;
+
+    private Integer medicalDepartment;
+
+    private String designation;
+
+    private String address;
+
+    private double latitude;
+
+    private double longitude;
+
+    private double distanceInMeters;
+
+    private String imageLink;
+}
@@ -0,0 +1,35 @@
+package com.dhomoni.uaa.service.dto;
+
+import java.time.Instant;
+
+import com.dhomoni.uaa.domain.enumeration.BloodGroup;
+import com.dhomoni.uaa.domain.enumeration.Sex;
+
+import lombok.Data;
+
+/**
+ * The criteria of a patient cohort, bound from the request parameters. Absent criteria match all the patients.
+ * <p>
+ * The latitude, the longitude and the radius, in kilometers, go together.
+ */
+@Data
+public class PatientCohortCriteria {
+
+    private BloodGroup bloodGroup;
+
+    private Sex sex;
+
+    private Instant bornAfter;
+
+    private Instant bornBefore;
+
+    private Double latitude;
+
+    private Double longitude;
+
+    private Double radius;
+
+    public boolean hasLocation() {
+        return latitude != null || longitude != null || radius != null;
+    }
+}
@@ -0,0 +1,61 @@
+package com.dhomoni.uaa.service.dto;
+
+import java.time.Instant;
+
+import com.dhomoni.uaa.domain.enumeration.BloodGroup;
+import com.dhomoni.uaa.domain.enumeration.Sex;
+import com.vividsolutions.jts.geom.Geometry;
+
+import lombok.Data;
+
+/**
+ * A patient of a cohort, with its distance to the point of the criteria if any.
+ * <p>
+ * The id is the position of the patient in the results: it is sent back as "afterId" to get the patients which
+ * come after it.
+ */
+@Data
+public class PatientCohortDTO {
+
+    private Long id;
+
+    private String firstName;
+
+    private String lastName;
+
+    private String phone;
+
+    private BloodGroup bloodGroup;
+
+    private Sex sex;
+
+    private Instant birthTimestamp;
+
+    private Double latitude;
+
+    private Double longitude;
+
+    private Double distanceInMeters;
+
+    public PatientCohortDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    /**
+     * The constructor of the JPA projection.
+     */
+    public PatientCohortDTO(Long id, String firstName, String lastName, String phone, BloodGroup bloodGroup, Sex sex,
+                            Instant birthTimestamp, Geometry location) {
+        this.id = id;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.phone = phone;
+        this.bloodGroup = bloodGroup;
+        this.sex = sex;
+        this.birthTimestamp = birthTimestamp;
+        if (location != null) {
+            this.latitude = location.getCoordinate().y;
+            this.longitude = location.getCoordinate().x;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.dhomoni.uaa.service.dto;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+import lombok.Data;
+
+/**
+ * The progress of the last rebuild of a search index, shared by the instances of the cluster.
+ * <p>
+ * The throughput is the average since the start, in users per second, and the ETA the time left at that throughput.
+ */
+@Data
+public class SearchReindexProgressDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Status {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    private Status status;
+
+    private String index;
+
+    private Instant startDate;
+
+    private Instant endDate;
+
+    private long totalUsers;
+
+    private long indexedUsers;
+
+    private double usersPerSecond;
+
+    private Long etaInSeconds;
+
+    private String error;
+}
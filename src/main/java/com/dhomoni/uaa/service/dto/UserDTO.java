@@ -16,6 +16,7 @@ import com.dhomoni.uaa.domain.Doctor;
 import com.dhomoni.uaa.domain.Patient;
 import com.dhomoni.uaa.domain.User;
 import com.dhomoni.uaa.security.AuthoritiesConstants;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.vividsolutions.jts.geom.Point;
 
 import lombok.Data;
@@ -63,9 +64,15 @@ public class UserDTO {
     @Pattern(regexp = Constants.PHONE_REGEX)
     private String phone;
     
+    // only received, to replace the image: it is sent back through imageLink
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private byte[] image;
 
     private String imageContentType;
+
+    private String imageLink;
+
+    private String imageEtag;
     
     private String address;
     
@@ -100,8 +107,11 @@ public class UserDTO {
     public UserDTO(Doctor doctor) {
     	this(doctor.getUser());
     	this.phone = doctor.getPhone();
-    	this.image = doctor.getImage();
     	this.imageContentType = doctor.getImageContentType();
+    	if (doctor.getImageContentType() != null) {
+    		this.imageLink = "/api/doctors/" + doctor.getId() + "/image";
+    		this.imageEtag = doctor.getImageEtag();
+    	}
     	this.address = doctor.getAddress();
     	this.location = doctor.getLocation();
     	this.doctorDTO = new DoctorDTO();
@@ -119,8 +129,11 @@ public class UserDTO {
     public UserDTO(Patient patient) {
     	this(patient.getUser());
     	this.phone = patient.getPhone();
-    	this.image = patient.getImage();
     	this.imageContentType = patient.getImageContentType();
+    	if (patient.getImageContentType() != null) {
+    		this.imageLink = "/api/patients/" + patient.getId() + "/image";
+    		this.imageEtag = patient.getImageEtag();
+    	}
     	this.address = patient.getAddress();
     	this.location = patient.getLocation();
     	this.patientDTO = new PatientDTO();
@@ -0,0 +1,26 @@
+package com.dhomoni.uaa.service.dto;
+
+import lombok.Data;
+
+/**
+ * A user found by a search, with the fields read from the search index only.
+ */
+@Data
+public class UserSearchDTO {
+
+    private Long id;
+
+    private String login;
+
+    private String firstName;
+
+    private String lastName;
+
+    private String email;
+
+    private String imageUrl;
+
+    private boolean activated;
+
+    private String langKey;
+}
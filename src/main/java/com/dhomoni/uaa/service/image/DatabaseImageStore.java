@@ -0,0 +1,74 @@
+package com.dhomoni.uaa.service.image;
+
+import java.util.Optional;
+
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+
+import com.dhomoni.uaa.repository.DoctorRepository;
+import com.dhomoni.uaa.repository.PatientRepository;
+
+/**
+ * Keeps the images in the "image" column of their doctor or patient, where they were stored before the image stores.
+ * <p>
+ * A column holds a single image, so the ETag of the key is ignored: saving replaces the image, and deleting is left
+ * to the next save, or to the deletion of the row. There is no room for the variants of an image (e.g. its
+ * thumbnails, "doctors/12/3f2a...-64"), which are neither saved nor found. It must be used within a transaction.
+ */
+public class DatabaseImageStore implements ImageStore {
+
+    public static final String DOCTORS = "doctors";
+
+    public static final String PATIENTS = "patients";
+
+    private final DoctorRepository doctorRepository;
+
+    private final PatientRepository patientRepository;
+
+    public DatabaseImageStore(DoctorRepository doctorRepository, PatientRepository patientRepository) {
+        this.doctorRepository = doctorRepository;
+        this.patientRepository = patientRepository;
+    }
+
+    @Override
+    public void save(String key, byte[] content) {
+        if (isVariant(key)) {
+            return;
+        }
+        Long id = ownerId(key);
+        if (key.startsWith(DOCTORS + "/")) {
+            doctorRepository.findById(id).ifPresent(doctor -> doctor.setImage(content));
+        } else {
+            patientRepository.findById(id).ifPresent(patient -> patient.setImage(content));
+        }
+    }
+
+    @Override
+    public Optional<Resource> find(String key) {
+        if (isVariant(key)) {
+            return Optional.empty();
+        }
+        Long id = ownerId(key);
+        Optional<byte[]> content = key.startsWith(DOCTORS + "/") ?
+            doctorRepository.findImageById(id) : patientRepository.findImageById(id);
+        return content.map(ByteArrayResource::new);
+    }
+
+    @Override
+    public void delete(String key) {
+        // the column is overwritten by the next image
+    }
+
+    private static boolean isVariant(String key) {
+        String[] parts = key.split("/");
+        return parts.length > 2 && parts[2].contains("-");
+    }
+
+    private static Long ownerId(String key) {
+        String[] parts = key.split("/");
+        if (parts.length < 2 || !(DOCTORS.equals(parts[0]) || PATIENTS.equals(parts[0]))) {
+            throw new IllegalArgumentException("Invalid image key " + key);
+        }
+        return Long.valueOf(parts[1]);
+    }
+}
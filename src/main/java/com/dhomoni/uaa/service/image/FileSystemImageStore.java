@@ -0,0 +1,65 @@
+package com.dhomoni.uaa.service.image;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+/**
+ * Keeps each image in a file, named after its key, under a directory which all the instances share.
+ * <p>
+ * An image is written to a temporary file first and then moved in place, so that a file which exists is complete.
+ */
+public class FileSystemImageStore implements ImageStore {
+
+    private final Path directory;
+
+    public FileSystemImageStore(Path directory) {
+        this.directory = directory.toAbsolutePath().normalize();
+    }
+
+    @Override
+    public void save(String key, byte[] content) {
+        Path file = resolve(key);
+        try {
+            Files.createDirectories(file.getParent());
+            Path temporaryFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try {
+                Files.write(temporaryFile, content);
+                Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporaryFile);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not save image " + key, e);
+        }
+    }
+
+    @Override
+    public Optional<Resource> find(String key) {
+        Path file = resolve(key);
+        return Files.isRegularFile(file) ? Optional.of(new FileSystemResource(file.toFile())) : Optional.empty();
+    }
+
+    @Override
+    public void delete(String key) {
+        try {
+            Files.deleteIfExists(resolve(key));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not delete image " + key, e);
+        }
+    }
+
+    private Path resolve(String key) {
+        Path file = directory.resolve(key).normalize();
+        if (!file.startsWith(directory) || file.equals(directory)) {
+            throw new IllegalArgumentException("Invalid image key " + key);
+        }
+        return file;
+    }
+}
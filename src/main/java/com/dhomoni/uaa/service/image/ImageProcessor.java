@@ -0,0 +1,178 @@
+package com.dhomoni.uaa.service.image;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+import com.dhomoni.uaa.web.rest.errors.InvalidImageException;
+
+/**
+ * Validates the uploaded images and scales them down to thumbnails.
+ * <p>
+ * The format of an upload is found from its content, never from the content type given by the client, and its
+ * dimensions are checked before its pixels are decoded. It is then encoded again, which leaves out its metadata
+ * (location, camera, comments): as a PNG if it has transparency, as a JPEG otherwise.
+ */
+public class ImageProcessor {
+
+    public static final String JPEG = "image/jpeg";
+
+    public static final String PNG = "image/png";
+
+    private static final List<String> FORMATS = Arrays.asList("jpeg", "png", "gif", "bmp");
+
+    private final int maxSizeInBytes;
+
+    private final int maxDimension;
+
+    private final float jpegQuality;
+
+    /**
+     * @param maxSizeInBytes the maximum size of an upload
+     * @param maxDimension the maximum width and height of an upload, in pixels
+     * @param jpegQuality the quality of the JPEG images, between 0 and 1
+     */
+    public ImageProcessor(int maxSizeInBytes, int maxDimension, float jpegQuality) {
+        this.maxSizeInBytes = maxSizeInBytes;
+        this.maxDimension = maxDimension;
+        this.jpegQuality = jpegQuality;
+    }
+
+    /**
+     * @param content an uploaded image
+     * @return the image, without its metadata
+     * @throws InvalidImageException if the upload is too large, or isn't an image in a supported format
+     */
+    public EncodedImage process(byte[] content) {
+        if (content.length > maxSizeInBytes) {
+            throw new InvalidImageException("The image is larger than " + maxSizeInBytes / 1024 + " KB");
+        }
+        return encode(decode(content));
+    }
+
+    /**
+     * @param content an image returned by {@link #process(byte[])}
+     * @param size the maximum width and height of the thumbnail
+     * @return the thumbnail, or empty if the image is already small enough
+     */
+    public Optional<EncodedImage> thumbnail(byte[] content, int size) {
+        BufferedImage image = decode(content);
+        if (image.getWidth() <= size && image.getHeight() <= size) {
+            return Optional.empty();
+        }
+        double scale = Math.min((double) size / image.getWidth(), (double) size / image.getHeight());
+        int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+        // halving the image at each step keeps the quality of a bilinear interpolation on large reductions
+        BufferedImage thumbnail = image;
+        do {
+            int stepWidth = Math.max(width, thumbnail.getWidth() / 2);
+            int stepHeight = Math.max(height, thumbnail.getHeight() / 2);
+            thumbnail = resize(thumbnail, stepWidth, stepHeight);
+        } while (thumbnail.getWidth() != width || thumbnail.getHeight() != height);
+        return Optional.of(encode(thumbnail));
+    }
+
+    private BufferedImage decode(byte[] content) {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(content))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new InvalidImageException("The image format isn't supported");
+            }
+            ImageReader reader = readers.next();
+            try {
+                if (!FORMATS.contains(reader.getFormatName().toLowerCase(Locale.ENGLISH))) {
+                    throw new InvalidImageException("The image format isn't supported");
+                }
+                reader.setInput(input, true, true);
+                if (reader.getWidth(0) > maxDimension || reader.getHeight(0) > maxDimension) {
+                    throw new InvalidImageException("The image is larger than " + maxDimension + " pixels");
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        } catch (InvalidImageException e) {
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            throw new InvalidImageException("The image can't be read");
+        }
+    }
+
+    private EncodedImage encode(BufferedImage image) {
+        boolean transparent = image.getColorModel().hasAlpha();
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(transparent ? "png" : "jpeg").next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(content)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            BufferedImage encoded = image;
+            if (!transparent) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(jpegQuality);
+                encoded = image.getType() == BufferedImage.TYPE_INT_RGB ? image :
+                    resize(image, image.getWidth(), image.getHeight());
+            }
+            writer.write(null, new IIOImage(encoded, null, null), param);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            writer.dispose();
+        }
+        return new EncodedImage(content.toByteArray(), transparent ? PNG : JPEG);
+    }
+
+    private static BufferedImage resize(BufferedImage image, int width, int height) {
+        BufferedImage resized = new BufferedImage(width, height,
+            image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = resized.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return resized;
+    }
+
+    /**
+     * An image encoded by the processor, with its content type.
+     */
+    public static final class EncodedImage {
+
+        private final byte[] content;
+
+        private final String contentType;
+
+        EncodedImage(byte[] content, String contentType) {
+            this.content = content;
+            this.contentType = contentType;
+        }
+
+        public byte[] getContent() {
+            return content;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.dhomoni.uaa.service.image;
+
+import java.util.Optional;
+
+import org.springframework.core.io.Resource;
+
+/**
+ * Stores the profile images of the doctors and patients, outside of their entities.
+ * <p>
+ * Keys are made of the kind of owner, its id and the ETag of the image (e.g. "doctors/12/3f2a..."), so that an image
+ * is never overwritten: a new image gets a new key, and the previous one is deleted once the new one is committed.
+ * The variants of an image, such as its thumbnails, are kept under its key followed by "-" and the variant name.
+ */
+public interface ImageStore {
+
+    /**
+     * @param key the key of the image
+     * @param content the image
+     */
+    void save(String key, byte[] content);
+
+    /**
+     * @param key the key of the image
+     * @return the image, read when it is streamed, or empty if there is none under this key
+     */
+    Optional<Resource> find(String key);
+
+    /**
+     * @param key the key of the image, which may not exist
+     */
+    void delete(String key);
+}
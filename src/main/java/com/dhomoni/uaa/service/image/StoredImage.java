@@ -0,0 +1,33 @@
+package com.dhomoni.uaa.service.image;
+
+import org.springframework.core.io.Resource;
+
+/**
+ * An image found in a store, with what a client needs to cache it.
+ */
+public final class StoredImage {
+
+    private final Resource content;
+
+    private final String contentType;
+
+    private final String etag;
+
+    public StoredImage(Resource content, String contentType, String etag) {
+        this.content = content;
+        this.contentType = contentType;
+        this.etag = etag;
+    }
+
+    public Resource getContent() {
+        return content;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Stores of the profile images of the doctors and patients.
+ */
+package com.dhomoni.uaa.service.image;
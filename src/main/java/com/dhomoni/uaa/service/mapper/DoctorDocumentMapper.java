@@ -0,0 +1,54 @@
+package com.dhomoni.uaa.service.mapper;
+
+import java.util.stream.Collectors;
+
+import org.springframework.data.elasticsearch.core.geo.GeoPoint;
+import org.springframework.stereotype.Service;
+
+import com.dhomoni.uaa.domain.Doctor;
+import com.dhomoni.uaa.domain.DoctorDocument;
+import com.dhomoni.uaa.domain.ProfessionalDegree;
+
+/**
+ * Mapper for the entity Doctor and its search document called DoctorDocument.
+ * <p>
+ * The description and the professional degrees are lazy: the doctor has to be mapped in a transaction.
+ */
+@Service
+public class DoctorDocumentMapper {
+
+    public DoctorDocument doctorToDoctorDocument(Doctor doctor) {
+        DoctorDocument document = new DoctorDocument();
+        document.setId(doctor.getId());
+        if (doctor.getUser() != null) {
+            document.setFirstName(doctor.getUser().getFirstName());
+            document.setLastName(doctor.getUser().getLastName());
+        }
+        document.setType(doctor.getType());
+        document.setMedicalDepartment(doctor.getMedicalDepartment());
+        document.setDesignation(doctor.getDesignation());
+        document.setDescription(doctor.getDescription());
+        document.setAddress(doctor.getAddress());
+        if (doctor.getLocation() != null) {
+            document.setLocation(new GeoPoint(doctor.getLocation().getY(), doctor.getLocation().getX()));
+        }
+        if (doctor.getProfessionalDegrees() != null) {
+            document.setProfessionalDegrees(doctor.getProfessionalDegrees().stream()
+                .map(this::professionalDegreeToDegree)
+                .collect(Collectors.toList()));
+        }
+        if (doctor.getImageContentType() != null) {
+            document.setImageLink("/api/doctors/" + doctor.getId() + "/image");
+        }
+        return document;
+    }
+
+    private DoctorDocument.Degree professionalDegreeToDegree(ProfessionalDegree professionalDegree) {
+        DoctorDocument.Degree degree = new DoctorDocument.Degree();
+        degree.setName(professionalDegree.getName());
+        degree.setInstitute(professionalDegree.getInstitute());
+        degree.setCountry(professionalDegree.getCountry());
+        degree.setPassingYear(professionalDegree.getPassingYear());
+        return degree;
+    }
+}
@@ -0,0 +1,149 @@
+package com.dhomoni.uaa.web.rest;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import com.codahale.metrics.annotation.Timed;
+import com.dhomoni.uaa.domain.enumeration.DoctorType;
+import com.dhomoni.uaa.repository.NearbyDoctorRepository;
+import com.dhomoni.uaa.service.DoctorSearchService;
+import com.dhomoni.uaa.service.dto.DoctorSearchResultDTO;
+import com.dhomoni.uaa.service.dto.NearbyDoctorDTO;
+import com.dhomoni.uaa.web.rest.errors.BadRequestAlertException;
+import com.dhomoni.uaa.web.rest.util.PaginationUtil;
+
+/**
+ * REST controller for finding doctors.
+ */
+@RestController
+@RequestMapping("/api")
+public class DoctorResource {
+
+    static final double MAX_RADIUS_IN_KILOMETERS = 100;
+
+    static final int MAX_SIZE = 100;
+
+    private static final String ENTITY_NAME = "doctor";
+
+    private final Logger log = LoggerFactory.getLogger(DoctorResource.class);
+
+    private final NearbyDoctorRepository nearbyDoctorRepository;
+
+    private final DoctorSearchService doctorSearchService;
+
+    public DoctorResource(NearbyDoctorRepository nearbyDoctorRepository, DoctorSearchService doctorSearchService) {
+        this.nearbyDoctorRepository = nearbyDoctorRepository;
+        this.doctorSearchService = doctorSearchService;
+    }
+
+    /**
+     * GET /doctors/nearby : get the doctors around a point, from the nearest to the farthest.
+     * <p>
+     * A full page has a "Link" header to the next one, which starts after the distance and the id of its last doctor.
+     *
+     * @param latitude the latitude of the point, in degrees
+     * @param longitude the longitude of the point, in degrees
+     * @param radius the maximum distance of the doctors to the point, in kilometers
+     * @param type the type of the doctors, all of them if absent
+     * @param medicalDepartment the medical department of the doctors, all of them if absent
+     * @param afterDistance the distanceInMeters of the last doctor of the previous page
+     * @param afterId the id of the last doctor of the previous page
+     * @param size the maximum number of doctors of the page
+     * @return the ResponseEntity with status 200 (OK) and with body the doctors, or with status 400 (Bad Request) if
+     * the point, the radius or the size is out of range
+     */
+    @GetMapping("/doctors/nearby")
+    @Timed
+    public ResponseEntity<List<NearbyDoctorDTO>> getNearbyDoctors(@RequestParam double latitude,
+                                                                  @RequestParam double longitude,
+                                                                  @RequestParam(defaultValue = "10") double radius,
+                                                                  @RequestParam(required = false) DoctorType type,
+                                                                  @RequestParam(required = false) Integer medicalDepartment,
+                                                                  @RequestParam(required = false) Double afterDistance,
+                                                                  @RequestParam(required = false) Long afterId,
+                                                                  @RequestParam(defaultValue = "20") int size) {
+        log.debug("REST request to get the Doctors within {} km of {}, {}", radius, latitude, longitude);
+        if (!(latitude >= -90 && latitude <= 90 && longitude >= -180 && longitude <= 180)) {
+            throw new BadRequestAlertException("Invalid location", ENTITY_NAME, "locationinvalid");
+        }
+        if (!(radius > 0 && radius <= MAX_RADIUS_IN_KILOMETERS)) {
+            throw new BadRequestAlertException("The radius must be at most " + MAX_RADIUS_IN_KILOMETERS + " km",
+                ENTITY_NAME, "radiusinvalid");
+        }
+        if (size < 1 || size > MAX_SIZE) {
+            throw new BadRequestAlertException("The size must be at most " + MAX_SIZE, ENTITY_NAME, "sizeinvalid");
+        }
+        if ((afterDistance == null) != (afterId == null)) {
+            throw new BadRequestAlertException("afterDistance and afterId go together", ENTITY_NAME, "afterinvalid");
+        }
+        List<NearbyDoctorDTO> doctors = nearbyDoctorRepository.findNearby(latitude, longitude, radius * 1000,
+            type, medicalDepartment, afterDistance, afterId, size);
+        HttpHeaders headers = new HttpHeaders();
+        if (doctors.size() == size) {
+            NearbyDoctorDTO last = doctors.get(size - 1);
+            Map<String, Object> after = new LinkedHashMap<>();
+            after.put("afterDistance", last.getDistanceInMeters());
+            after.put("afterId", last.getId());
+            headers = PaginationUtil.generateKeysetPaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), after);
+        }
+        return new ResponseEntity<>(doctors, headers, HttpStatus.OK);
+    }
+
+    /**
+     * SEARCH /_search/doctors : search for the doctors, with the facet counts of the search.
+     * <p>
+     * The doctors are sorted by relevance, or from the nearest to the farthest when there is a location.
+     *
+     * @param query the text to search, all the doctors if absent
+     * @param latitude the latitude of the point, in degrees
+     * @param longitude the longitude of the point, in degrees
+     * @param radius the maximum distance of the doctors to the point, in kilometers, all of them if absent
+     * @param type the type of the doctors, all of them if absent
+     * @param medicalDepartment the medical department of the doctors, all of them if absent
+     * @param pageable the pagination information
+     * @return the ResponseEntity with status 200 (OK) and with body the doctors and the facets, or with status 400
+     * (Bad Request) if the location or the radius is out of range
+     */
+    @GetMapping("/_search/doctors")
+    @Timed
+    public ResponseEntity<DoctorSearchResultDTO> searchDoctors(@RequestParam(required = false) String query,
+                                                               @RequestParam(required = false) Double latitude,
+                                                               @RequestParam(required = false) Double longitude,
+                                                               @RequestParam(required = false) Double radius,
+                                                               @RequestParam(required = false) DoctorType type,
+                                                               @RequestParam(required = false) Integer medicalDepartment,
+                                                               Pageable pageable) {
+        log.debug("REST request to search for a page of Doctors for query {}", query);
+        if ((latitude == null) != (longitude == null) || (radius != null && latitude == null)) {
+            throw new BadRequestAlertException("latitude and longitude go together, and with radius", ENTITY_NAME,
+                "locationinvalid");
+        }
+        if (latitude != null && !(latitude >= -90 && latitude <= 90 && longitude >= -180 && longitude <= 180)) {
+            throw new BadRequestAlertException("Invalid location", ENTITY_NAME, "locationinvalid");
+        }
+        if (radius != null && !(radius > 0 && radius <= MAX_RADIUS_IN_KILOMETERS)) {
+            throw new BadRequestAlertException("The radius must be at most " + MAX_RADIUS_IN_KILOMETERS + " km",
+                ENTITY_NAME, "radiusinvalid");
+        }
+        DoctorSearchResultDTO result = doctorSearchService.search(query, latitude, longitude, radius, type,
+            medicalDepartment, pageable);
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(
+            new PageImpl<>(result.getDoctors(), pageable, result.getTotal()),
+            ServletUriComponentsBuilder.fromCurrentRequest().replaceQueryParam("page").replaceQueryParam("size").toUriString());
+        return new ResponseEntity<>(result, headers, HttpStatus.OK);
+    }
+}
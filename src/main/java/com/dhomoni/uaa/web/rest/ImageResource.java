@@ -0,0 +1,86 @@
+package com.dhomoni.uaa.web.rest;
+
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.InvalidMimeTypeException;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.codahale.metrics.annotation.Timed;
+import com.dhomoni.uaa.service.ImageService;
+import com.dhomoni.uaa.service.image.StoredImage;
+
+/**
+ * REST controller streaming the profile images of the doctors and patients.
+ * <p>
+ * The images are sent with their ETag, and must be revalidated: a request with a matching "If-None-Match" header
+ * gets a 304 (Not Modified) without the image. Requests with a "Range" header get the requested bytes only. Requests
+ * with a "size" parameter get a thumbnail, with an ETag of its own.
+ */
+@RestController
+@RequestMapping("/api")
+public class ImageResource {
+
+    private final Logger log = LoggerFactory.getLogger(ImageResource.class);
+
+    private final ImageService imageService;
+
+    public ImageResource(ImageService imageService) {
+        this.imageService = imageService;
+    }
+
+    /**
+     * GET /doctors/:id/image : get the image of the doctor, which is part of the profile any user searches.
+     *
+     * @param id the id of the doctor
+     * @param size the width and height the image is displayed at, to get the smallest thumbnail at least as large
+     * @return the ResponseEntity with status 200 (OK) and the image, or with status 404 (Not Found)
+     */
+    @GetMapping("/doctors/{id}/image")
+    @Timed
+    public ResponseEntity<Resource> getDoctorImage(@PathVariable Long id, @RequestParam(required = false) Integer size) {
+        log.debug("REST request to get the image of Doctor : {}", id);
+        return image(imageService.findDoctorImage(id, size));
+    }
+
+    /**
+     * GET /patients/:id/image : get the image of the patient, for the patient or an admin.
+     *
+     * @param id the id of the patient
+     * @param size the width and height the image is displayed at, to get the smallest thumbnail at least as large
+     * @return the ResponseEntity with status 200 (OK) and the image, or with status 404 (Not Found), also when the
+     * current user is neither the patient nor an admin
+     */
+    @GetMapping("/patients/{id}/image")
+    @Timed
+    public ResponseEntity<Resource> getPatientImage(@PathVariable Long id, @RequestParam(required = false) Integer size) {
+        log.debug("REST request to get the image of Patient : {}", id);
+        return image(imageService.findPatientImage(id, size));
+    }
+
+    private ResponseEntity<Resource> image(Optional<StoredImage> image) {
+        return image.map(storedImage -> ResponseEntity.ok()
+            .contentType(mediaType(storedImage.getContentType()))
+            .eTag(storedImage.getEtag())
+            .cacheControl(CacheControl.noCache().cachePrivate())
+            .body(storedImage.getContent()))
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    private static MediaType mediaType(String contentType) {
+        try {
+            return MediaType.parseMediaType(contentType);
+        } catch (InvalidMimeTypeException e) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
+    }
+}
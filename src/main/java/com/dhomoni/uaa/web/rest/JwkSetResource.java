@@ -0,0 +1,49 @@
+package com.dhomoni.uaa.web.rest;
+
+import com.dhomoni.uaa.config.UaaProperties;
+import com.dhomoni.uaa.security.jwt.JwtKeyRing;
+
+import com.codahale.metrics.annotation.Timed;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Controller publishing the public keys used to verify JWT tokens.
+ * <p>
+ * Unlike "/oauth/token_key", which only gives the current signing key, all the keys of the key store are published,
+ * so that clients already know a key when it starts signing tokens.
+ */
+@RestController
+public class JwkSetResource {
+
+    private final JwtKeyRing jwtKeyRing;
+
+    private final UaaProperties uaaProperties;
+
+    public JwkSetResource(JwtKeyRing jwtKeyRing, UaaProperties uaaProperties) {
+        this.jwtKeyRing = jwtKeyRing;
+        this.uaaProperties = uaaProperties;
+    }
+
+    /**
+     * GET /.well-known/jwks.json : get the JSON Web Key Set.
+     * <p>
+     * The response carries an ETag, so that a client revalidating its copy gets a 304 (Not Modified) as long as
+     * no key was added or removed.
+     *
+     * @return the ResponseEntity with status 200 (OK) and with body the JSON Web Key Set
+     */
+    @GetMapping("/.well-known/jwks.json")
+    @Timed
+    public ResponseEntity<Map<String, Object>> getJwkSet() {
+        return ResponseEntity.ok()
+            .cacheControl(CacheControl.maxAge(uaaProperties.getKeyStore().getRefreshIntervalInSeconds(), TimeUnit.SECONDS).cachePublic())
+            .eTag(jwtKeyRing.getJwkSetETag())
+            .body(jwtKeyRing.getJwkSet());
+    }
+}
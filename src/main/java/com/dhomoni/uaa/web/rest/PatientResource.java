@@ -0,0 +1,145 @@
+package com.dhomoni.uaa.web.rest;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import com.codahale.metrics.annotation.Timed;
+import com.dhomoni.uaa.security.AuthoritiesConstants;
+import com.dhomoni.uaa.service.PatientCohortService;
+import com.dhomoni.uaa.service.dto.PatientCohortCriteria;
+import com.dhomoni.uaa.service.dto.PatientCohortDTO;
+import com.dhomoni.uaa.web.rest.errors.BadRequestAlertException;
+import com.dhomoni.uaa.web.rest.util.PaginationUtil;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * REST controller for finding the cohorts of patients.
+ * <p>
+ * The criteria are the request parameters bloodGroup, sex, bornAfter, bornBefore, and latitude, longitude and
+ * radius in kilometers, which go together.
+ */
+@RestController
+@RequestMapping("/api")
+public class PatientResource {
+
+    static final double MAX_RADIUS_IN_KILOMETERS = 100;
+
+    static final int MAX_SIZE = 1000;
+
+    static final int STREAM_PAGE_SIZE = 500;
+
+    private static final String ENTITY_NAME = "patient";
+
+    private final Logger log = LoggerFactory.getLogger(PatientResource.class);
+
+    private final PatientCohortService patientCohortService;
+
+    private final ObjectMapper objectMapper;
+
+    public PatientResource(PatientCohortService patientCohortService, ObjectMapper objectMapper) {
+        this.patientCohortService = patientCohortService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * GET /patients/cohort : get a page of the patients of a cohort, by id.
+     * <p>
+     * A full page has a "Link" header to the next one, which starts after the id of its last patient.
+     *
+     * @param criteria the criteria of the cohort
+     * @param afterId the id of the last patient of the previous page
+     * @param size the maximum number of patients of the page
+     * @return the ResponseEntity with status 200 (OK) and with body the patients, or with status 400 (Bad Request) if
+     * the location, the radius or the size is out of range
+     */
+    @GetMapping("/patients/cohort")
+    @Timed
+    @PreAuthorize("hasRole(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<List<PatientCohortDTO>> getPatientCohort(PatientCohortCriteria criteria,
+                                                                   @RequestParam(required = false) Long afterId,
+                                                                   @RequestParam(defaultValue = "100") int size) {
+        log.debug("REST request to get a page of the Patient cohort : {}", criteria);
+        validate(criteria);
+        if (size < 1 || size > MAX_SIZE) {
+            throw new BadRequestAlertException("The size must be at most " + MAX_SIZE, ENTITY_NAME, "sizeinvalid");
+        }
+        List<PatientCohortDTO> patients = patientCohortService.findCohort(criteria, afterId, size);
+        HttpHeaders headers = new HttpHeaders();
+        if (patients.size() == size) {
+            headers = PaginationUtil.generateKeysetPaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(),
+                Collections.singletonMap("afterId", patients.get(size - 1).getId()));
+        }
+        return new ResponseEntity<>(patients, headers, HttpStatus.OK);
+    }
+
+    /**
+     * GET /patients/cohort/stream : get all the patients of a cohort, by id.
+     * <p>
+     * The patients are selected and written page by page, each in its own transaction, so neither the database
+     * connection nor the memory are held for the whole cohort.
+     *
+     * @param criteria the criteria of the cohort
+     * @return the ResponseEntity with status 200 (OK) and with body the patients, or with status 400 (Bad Request) if
+     * the location or the radius is out of range
+     */
+    @GetMapping(value = "/patients/cohort/stream", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    @Timed
+    @PreAuthorize("hasRole(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<StreamingResponseBody> streamPatientCohort(PatientCohortCriteria criteria) {
+        log.debug("REST request to stream the Patient cohort : {}", criteria);
+        validate(criteria);
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                Long afterId = null;
+                List<PatientCohortDTO> patients;
+                do {
+                    patients = patientCohortService.findCohort(criteria, afterId, STREAM_PAGE_SIZE);
+                    for (PatientCohortDTO patient : patients) {
+                        generator.writeObject(patient);
+                    }
+                    generator.flush();
+                    if (!patients.isEmpty()) {
+                        afterId = patients.get(patients.size() - 1).getId();
+                    }
+                } while (patients.size() == STREAM_PAGE_SIZE);
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON_UTF8).body(body);
+    }
+
+    private static void validate(PatientCohortCriteria criteria) {
+        if (!criteria.hasLocation()) {
+            return;
+        }
+        Double latitude = criteria.getLatitude();
+        Double longitude = criteria.getLongitude();
+        Double radius = criteria.getRadius();
+        if (latitude == null || longitude == null || radius == null) {
+            throw new BadRequestAlertException("latitude, longitude and radius go together", ENTITY_NAME, "locationinvalid");
+        }
+        if (!(latitude >= -90 && latitude <= 90 && longitude >= -180 && longitude <= 180)) {
+            throw new BadRequestAlertException("Invalid location", ENTITY_NAME, "locationinvalid");
+        }
+        if (!(radius > 0 && radius <= MAX_RADIUS_IN_KILOMETERS)) {
+            throw new BadRequestAlertException("The radius must be at most " + MAX_RADIUS_IN_KILOMETERS + " km",
+                ENTITY_NAME, "radiusinvalid");
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.dhomoni.uaa.web.rest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.codahale.metrics.annotation.Timed;
+import com.dhomoni.uaa.service.SearchReindexJob;
+import com.dhomoni.uaa.service.dto.SearchReindexProgressDTO;
+
+import io.github.jhipster.web.util.ResponseUtil;
+
+/**
+ * Controller for rebuilding the user search index from the database, and following its progress.
+ */
+@RestController
+@RequestMapping("/management")
+public class SearchReindexResource {
+
+    private final Logger log = LoggerFactory.getLogger(SearchReindexResource.class);
+
+    private final SearchReindexJob searchReindexJob;
+
+    public SearchReindexResource(SearchReindexJob searchReindexJob) {
+        this.searchReindexJob = searchReindexJob;
+    }
+
+    /**
+     * POST /search-reindex : start rebuilding the user index.
+     *
+     * @return the ResponseEntity with status 202 (Accepted) and with body the progress of the rebuild, or with status
+     * 400 (Bad Request) if a rebuild is already running
+     */
+    @PostMapping("/search-reindex")
+    @Timed
+    public ResponseEntity<SearchReindexProgressDTO> startReindex() {
+        log.debug("REST request to rebuild the user search index");
+        return ResponseEntity.accepted().body(searchReindexJob.start());
+    }
+
+    /**
+     * GET /search-reindex : get the progress of the running rebuild, or of the last one.
+     *
+     * @return the ResponseEntity with status 200 (OK) and with body the progress, or with status 404 (Not Found) if
+     * the index was never rebuilt
+     */
+    @GetMapping("/search-reindex")
+    @Timed
+    public ResponseEntity<SearchReindexProgressDTO> getReindexProgress() {
+        return ResponseUtil.wrapOrNotFound(searchReindexJob.getProgress());
+    }
+}
@@ -3,11 +3,12 @@ package com.dhomoni.uaa.web.rest;
 import com.dhomoni.uaa.config.Constants;
 import com.dhomoni.uaa.domain.User;
 import com.dhomoni.uaa.repository.UserRepository;
-import com.dhomoni.uaa.repository.search.UserSearchRepository;
 import com.dhomoni.uaa.security.AuthoritiesConstants;
 import com.dhomoni.uaa.service.MailService;
+import com.dhomoni.uaa.service.UserSearchService;
 import com.dhomoni.uaa.service.UserService;
 import com.dhomoni.uaa.service.dto.UserDTO;
+import com.dhomoni.uaa.service.dto.UserSearchDTO;
 import com.dhomoni.uaa.web.rest.errors.BadRequestAlertException;
 import com.dhomoni.uaa.web.rest.errors.EmailAlreadyUsedException;
 import com.dhomoni.uaa.web.rest.errors.LoginAlreadyUsedException;
@@ -25,15 +26,12 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import javax.validation.Valid;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
-
-import static org.elasticsearch.index.query.QueryBuilders.*;
 
 /**
  * REST controller for managing users.
@@ -63,6 +61,8 @@ import static org.elasticsearch.index.query.QueryBuilders.*;
 @RequestMapping("/api")
 public class UserResource {
 
+    static final int MAX_SIZE = 100;
+
     private final Logger log = LoggerFactory.getLogger(UserResource.class);
 
     private final UserService userService;
@@ -71,14 +71,14 @@ public class UserResource {
 
     private final MailService mailService;
 
-    private final UserSearchRepository userSearchRepository;
+    private final UserSearchService userSearchService;
 
-    public UserResource(UserService userService, UserRepository userRepository, MailService mailService, UserSearchRepository userSearchRepository) {
+    public UserResource(UserService userService, UserRepository userRepository, MailService mailService, UserSearchService userSearchService) {
 
         this.userService = userService;
         this.userRepository = userRepository;
         this.mailService = mailService;
-        this.userSearchRepository = userSearchRepository;
+        this.userSearchService = userSearchService;
     }
 
     /**
@@ -197,17 +197,41 @@ public class UserResource {
     }
 
     /**
-     * SEARCH /_search/users/:query : search for the User corresponding
-     * to the query.
+     * SEARCH /_search/users/:query : search for the users corresponding to the query.
+     * <p>
+     * The pages are read by number within the max result window. With afterId, the users are sorted by id instead,
+     * and a full page has a "Link" header to the next one, which starts after the id of its last user.
      *
-     * @param query the query to search
-     * @return the result of the search
+     * @param query the query, in the query string syntax
+     * @param afterId the id of the last user of the previous page, to read the users by id
+     * @param pageable the pagination information
+     * @return the ResponseEntity with status 200 (OK) and with body the users, the "X-Total-Count" header counting
+     * those within the max result window and the "X-Total-Hits" header all of them, or with status 400 (Bad Request)
+     * if the page is out of range or the query is invalid, or with status 503 (Service Unavailable) if the search
+     * times out
      */
     @GetMapping("/_search/users/{query}")
     @Timed
-    public List<User> search(@PathVariable String query) {
-        return StreamSupport
-            .stream(userSearchRepository.search(queryStringQuery(query)).spliterator(), false)
-            .collect(Collectors.toList());
+    public ResponseEntity<List<UserSearchDTO>> search(@PathVariable String query,
+                                                      @RequestParam(required = false) Long afterId,
+                                                      Pageable pageable) {
+        log.debug("REST request to search for a page of Users for query {}", query);
+        if (pageable.getPageSize() > MAX_SIZE) {
+            throw new BadRequestAlertException("The size must be at most " + MAX_SIZE, "user", "sizeinvalid");
+        }
+        if (afterId != null) {
+            List<UserSearchDTO> users = userSearchService.searchAfter(query, afterId, pageable.getPageSize());
+            HttpHeaders headers = new HttpHeaders();
+            if (users.size() == pageable.getPageSize()) {
+                headers = PaginationUtil.generateKeysetPaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(),
+                    Collections.singletonMap("afterId", users.get(users.size() - 1).getId()));
+            }
+            return new ResponseEntity<>(users, headers, HttpStatus.OK);
+        }
+        UserSearchService.UserSearchPage page = userSearchService.search(query, pageable);
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page,
+            ServletUriComponentsBuilder.fromCurrentRequest().replaceQueryParam("page").replaceQueryParam("size").toUriString());
+        headers.add("X-Total-Hits", Long.toString(page.getTotalHits()));
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 }
@@ -17,6 +17,7 @@ public final class ErrorConstants {
     public static final URI INVALID_LICENCENUMBER_TYPE = URI.create(PROBLEM_BASE_URL + "/invalid-licencenumber");
     public static final URI LICENCENUMBER_ALREADY_USED_TYPE = URI.create(PROBLEM_BASE_URL + "/licencenumber-already-used");
     public static final URI EMAIL_NOT_FOUND_TYPE = URI.create(PROBLEM_BASE_URL + "/email-not-found");
+    public static final URI INVALID_IMAGE_TYPE = URI.create(PROBLEM_BASE_URL + "/invalid-image");
 
     private ErrorConstants() {
     }
@@ -0,0 +1,14 @@
+package com.dhomoni.uaa.web.rest.errors;
+
+import org.zalando.problem.AbstractThrowableProblem;
+import org.zalando.problem.Status;
+
+@SuppressWarnings("squid:MaximumInheritanceDepth")
+public class InvalidImageException extends AbstractThrowableProblem {
+    private static final long serialVersionUID = 1L;
+
+    public InvalidImageException(String detail) {
+        super(ErrorConstants.INVALID_IMAGE_TYPE, "Invalid image", Status.BAD_REQUEST, detail);
+    }
+
+}
@@ -0,0 +1,17 @@
+package com.dhomoni.uaa.web.rest.errors;
+
+import org.zalando.problem.AbstractThrowableProblem;
+import org.zalando.problem.Status;
+
+/**
+ * Thrown when a search is stopped by its timeout, as the search engine is too busy, or the query too costly. It
+ * returns a Service Unavailable code, the search may be retried later, or narrowed.
+ */
+public class SearchTimeoutException extends AbstractThrowableProblem {
+
+    private static final long serialVersionUID = 1L;
+
+    public SearchTimeoutException(String message) {
+        super(ErrorConstants.DEFAULT_TYPE, message, Status.SERVICE_UNAVAILABLE);
+    }
+}
@@ -6,6 +6,7 @@ import org.springframework.web.util.UriComponentsBuilder;
 
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.util.Map;
 
 /**
  * Utility class for handling pagination.
@@ -75,4 +76,20 @@ public final class PaginationUtil {
         headers.add(HttpHeaders.LINK, link);
         return headers;
     }
+
+    /**
+     * Generates the "next" link of a page paginated by keyset, which is the request of the page with the position of
+     * its last element. There is no link to the previous, first or last pages, and no total count.
+     *
+     * @param request the request of the page
+     * @param after the position of the last element of the page, by parameter name
+     * @return the headers
+     */
+    public static HttpHeaders generateKeysetPaginationHttpHeaders(UriComponentsBuilder request, Map<String, Object> after) {
+        UriComponentsBuilder next = request.cloneBuilder();
+        after.forEach(next::replaceQueryParam);
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.LINK, "<" + next.toUriString() + ">; rel=\"next\"");
+        return headers;
+    }
 }
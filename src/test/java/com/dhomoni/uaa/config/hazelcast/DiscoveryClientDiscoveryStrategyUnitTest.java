@@ -0,0 +1,73 @@
+package com.dhomoni.uaa.config.hazelcast;
+
+import com.hazelcast.logging.Logger;
+import com.hazelcast.nio.Address;
+import com.hazelcast.spi.discovery.DiscoveryNode;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for the DiscoveryClientDiscoveryStrategy.
+ *
+ * @see DiscoveryClientDiscoveryStrategy
+ */
+public class DiscoveryClientDiscoveryStrategyUnitTest {
+
+    private DiscoveryClient discoveryClient;
+
+    @Before
+    public void setup() {
+        discoveryClient = mock(DiscoveryClient.class);
+        when(discoveryClient.getInstances("uaa")).thenReturn(Arrays.asList(
+            new DefaultServiceInstance("uaa", "127.0.0.2", 9999, false),
+            new DefaultServiceInstance("uaa", "127.0.0.3", 9998, false)));
+    }
+
+    @Test
+    public void testMembersRunOnTheirHost() throws Exception {
+        List<Address> addresses = discover(null);
+
+        assertThat(addresses).containsExactly(new Address("127.0.0.2", 5701), new Address("127.0.0.3", 5701));
+    }
+
+    @Test
+    public void testMembersRunOnLocalhostInDevelopment() throws Exception {
+        List<Address> addresses = discover("127.0.0.1");
+
+        assertThat(addresses).containsExactly(new Address("127.0.0.1", 15700), new Address("127.0.0.1", 15699));
+    }
+
+    @Test
+    public void testMembersAreDiscoveredOnEachCall() {
+        DiscoveryClientDiscoveryStrategy strategy = strategy(null);
+        strategy.discoverNodes();
+        when(discoveryClient.getInstances("uaa")).thenReturn(Collections.emptyList());
+
+        assertThat(strategy.discoverNodes()).isEmpty();
+    }
+
+    private List<Address> discover(String localhost) {
+        List<Address> addresses = new ArrayList<>();
+        for (DiscoveryNode node : strategy(localhost).discoverNodes()) {
+            addresses.add(node.getPrivateAddress());
+        }
+        return addresses;
+    }
+
+    private DiscoveryClientDiscoveryStrategy strategy(String localhost) {
+        return (DiscoveryClientDiscoveryStrategy) new DiscoveryClientDiscoveryStrategy.Factory(discoveryClient, "uaa", localhost)
+            .newDiscoveryStrategy(null, Logger.getLogger(DiscoveryClientDiscoveryStrategy.class), Collections.emptyMap());
+    }
+}
@@ -0,0 +1,73 @@
+package com.dhomoni.uaa.config.hazelcast;
+
+import com.dhomoni.uaa.domain.User;
+
+import com.hazelcast.config.SerializationConfig;
+import com.hazelcast.internal.serialization.InternalSerializationService;
+import com.hazelcast.nio.serialization.Data;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the serialization and deserialization time of a cached {@link User} with its authorities, using Java
+ * serialization and the {@link DomainSerializers}. The serialized sizes are printed during the setup.
+ * <p>
+ * This is not a unit test, run it with the {@link #main(String[])} method once the test classes are compiled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DomainSerializationBenchmark {
+
+    @Param({"java", "compact"})
+    private String serialization;
+
+    private InternalSerializationService serializationService;
+
+    private User user;
+
+    private Data data;
+
+    @Setup
+    public void setup() {
+        SerializationConfig serializationConfig = new SerializationConfig();
+        if ("compact".equals(serialization)) {
+            DomainSerializers.register(serializationConfig);
+        }
+        serializationService = DomainSerializersUnitTest.serializationService(serializationConfig);
+        user = DomainSerializersUnitTest.user();
+        data = serializationService.toData(user);
+        System.out.println(serialization + " serialized size of a user: " + data.totalSize() + " bytes");
+    }
+
+    @Benchmark
+    public Data serialize() {
+        return serializationService.toData(user);
+    }
+
+    @Benchmark
+    public User deserialize() {
+        return serializationService.toObject(data);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(DomainSerializationBenchmark.class.getSimpleName()).build()).run();
+    }
+}
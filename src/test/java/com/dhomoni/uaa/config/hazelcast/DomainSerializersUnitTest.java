@@ -0,0 +1,103 @@
+package com.dhomoni.uaa.config.hazelcast;
+
+import com.dhomoni.uaa.domain.Authority;
+import com.dhomoni.uaa.domain.User;
+import com.dhomoni.uaa.security.AuthoritiesConstants;
+
+import com.hazelcast.config.SerializationConfig;
+import com.hazelcast.internal.serialization.InternalSerializationService;
+import com.hazelcast.internal.serialization.impl.DefaultSerializationServiceBuilder;
+import com.hazelcast.nio.serialization.Data;
+import org.hibernate.collection.internal.PersistentSet;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the DomainSerializers.
+ *
+ * @see DomainSerializers
+ */
+public class DomainSerializersUnitTest {
+
+    private final InternalSerializationService compactSerialization = serializationService(
+        DomainSerializers.register(new SerializationConfig()));
+
+    private final InternalSerializationService javaSerialization = serializationService(new SerializationConfig());
+
+    @Test
+    public void testUserRoundTrip() {
+        User user = user();
+
+        Data data = compactSerialization.toData(user);
+        User read = compactSerialization.toObject(data);
+
+        assertThat(data.getType()).isEqualTo(DomainSerializers.USER_TYPE_ID);
+        assertThat(read).isEqualToComparingFieldByField(user);
+        assertThat(read.getAuthorities()).extracting(Authority::getName)
+            .containsExactlyInAnyOrder(AuthoritiesConstants.USER, AuthoritiesConstants.DOCTOR);
+    }
+
+    @Test
+    public void testUserIsSmallerThanWithJavaSerialization() {
+        User user = user();
+
+        assertThat(compactSerialization.toData(user).totalSize() * 3)
+            .isLessThan(javaSerialization.toData(user).totalSize());
+    }
+
+    @Test
+    public void testUserWithNullValuesRoundTrip() {
+        User user = new User();
+        user.setLogin("johndoe");
+        user.setCreatedDate(null);
+        user.setLastModifiedDate(null);
+        user.setAuthorities(null);
+
+        User read = compactSerialization.toObject(compactSerialization.toData(user));
+
+        assertThat(read).isEqualToComparingFieldByField(user);
+    }
+
+    @Test
+    public void testUserWithUnloadedAuthoritiesIsWrittenWithoutThem() {
+        User user = user();
+        user.setAuthorities(new PersistentSet((SharedSessionContractImplementor) null));
+
+        User read = compactSerialization.toObject(compactSerialization.toData(user));
+
+        assertThat(read.getLogin()).isEqualTo("johndoe");
+        assertThat(read.getAuthorities()).isNull();
+    }
+
+    static User user() {
+        User user = new User();
+        user.setId(1L);
+        user.setLogin("johndoe");
+        user.setPassword("{bcrypt}$2a$10$VEjxo0jq2YG9Rbk2HmX9S.k1uZBGYUHdUcid3g/vfiEl7lwWgOH/K");
+        user.setFirstName("John");
+        user.setLastName("Doe");
+        user.setEmail("johndoe@localhost");
+        user.setActivated(true);
+        user.setLangKey("en");
+        user.setImageUrl("http://placehold.it/50x50");
+        user.setVersion(3L);
+        user.setCreatedBy("system");
+        user.setLastModifiedBy("system");
+        Authority userAuthority = new Authority();
+        userAuthority.setName(AuthoritiesConstants.USER);
+        Authority doctorAuthority = new Authority();
+        doctorAuthority.setName(AuthoritiesConstants.DOCTOR);
+        user.setAuthorities(new HashSet<>(Arrays.asList(userAuthority, doctorAuthority)));
+        return user;
+    }
+
+    static InternalSerializationService serializationService(SerializationConfig serializationConfig) {
+        return new DefaultSerializationServiceBuilder().setConfig(serializationConfig).build();
+    }
+}
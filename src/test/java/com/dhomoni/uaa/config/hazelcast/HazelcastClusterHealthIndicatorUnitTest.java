@@ -0,0 +1,71 @@
+package com.dhomoni.uaa.config.hazelcast;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.Member;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for the HazelcastClusterHealthIndicator.
+ *
+ * @see HazelcastClusterHealthIndicator
+ */
+public class HazelcastClusterHealthIndicatorUnitTest {
+
+    private HazelcastInstance hazelcastInstance;
+
+    private DiscoveryClient discoveryClient;
+
+    @Before
+    public void setup() {
+        hazelcastInstance = mock(HazelcastInstance.class, RETURNS_DEEP_STUBS);
+        discoveryClient = mock(DiscoveryClient.class);
+        when(discoveryClient.getInstances("uaa")).thenReturn(Arrays.asList(
+            new DefaultServiceInstance("uaa", "127.0.0.2", 9999, false),
+            new DefaultServiceInstance("uaa", "127.0.0.3", 9999, false)));
+    }
+
+    @Test
+    public void testUpWhenAllInstancesAreMembers() {
+        when(hazelcastInstance.getCluster().getMembers())
+            .thenReturn(new HashSet<>(Arrays.asList(mock(Member.class), mock(Member.class))));
+
+        Health health = new HazelcastClusterHealthIndicator(hazelcastInstance, discoveryClient, "uaa").health();
+
+        assertThat(health.getStatus()).isEqualTo(Status.UP);
+        assertThat(health.getDetails()).containsEntry("clusterSize", 2).containsEntry("registeredInstances", 2);
+    }
+
+    @Test
+    public void testUnknownWhenInstancesAreMissing() {
+        when(hazelcastInstance.getCluster().getMembers()).thenReturn(Collections.singleton(mock(Member.class)));
+
+        Health health = new HazelcastClusterHealthIndicator(hazelcastInstance, discoveryClient, "uaa").health();
+
+        assertThat(health.getStatus()).isEqualTo(Status.UNKNOWN);
+    }
+
+    @Test
+    public void testUpWithoutRegistration() {
+        when(hazelcastInstance.getCluster().getMembers()).thenReturn(Collections.singleton(mock(Member.class)));
+
+        Health health = new HazelcastClusterHealthIndicator(hazelcastInstance, discoveryClient, null).health();
+
+        assertThat(health.getStatus()).isEqualTo(Status.UP);
+        assertThat(health.getDetails()).containsOnlyKeys("clusterSize");
+    }
+}
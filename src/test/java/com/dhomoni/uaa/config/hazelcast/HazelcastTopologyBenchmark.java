@@ -0,0 +1,143 @@
+package com.dhomoni.uaa.config.hazelcast;
+
+import com.dhomoni.uaa.config.UaaProperties;
+import com.dhomoni.uaa.domain.User;
+import com.dhomoni.uaa.repository.UserRepository;
+
+import com.hazelcast.client.HazelcastClient;
+import com.hazelcast.client.config.ClientConfig;
+import com.hazelcast.config.Config;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+import com.hazelcast.spi.properties.GroupProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the Hazelcast topologies of {@link UaaProperties.CacheCluster.Topology}: two data members holding the
+ * usersByLogin map are started, and the measured node joins them as a data member, a lite member or a client.
+ * <ul>
+ * <li>lookup: reads a user from the map, without near cache, so that the round trips to the owners are measured</li>
+ * <li>scaleOut: starts one more node of the measured kind, until it has read a user, and shuts it down</li>
+ * </ul>
+ * This is not a unit test, run it with the {@link #main(String[])} method once the test classes are compiled.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+public class HazelcastTopologyBenchmark {
+
+    private static final String GROUP_NAME = "uaa-topology-benchmark";
+
+    private static final int FIRST_PORT = 5801;
+
+    private static final int USERS = 1000;
+
+    @Param({"MEMBER", "LITE_MEMBER", "CLIENT"})
+    private UaaProperties.CacheCluster.Topology topology;
+
+    private HazelcastInstance node;
+
+    private IMap<String, User> usersByLogin;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        for (int i = 0; i < 2; i++) {
+            HazelcastInstance dataMember = Hazelcast.newHazelcastInstance(memberConfig(false));
+            if (i == 0) {
+                IMap<String, User> map = dataMember.getMap(UserRepository.USERS_BY_LOGIN_CACHE);
+                for (int user = 0; user < USERS; user++) {
+                    map.set(login(user), user(user));
+                }
+            }
+        }
+        node = startNode();
+        usersByLogin = node.getMap(UserRepository.USERS_BY_LOGIN_CACHE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        HazelcastClient.shutdownAll();
+        Hazelcast.shutdownAll();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    public User lookup() {
+        return usersByLogin.get(login(ThreadLocalRandom.current().nextInt(USERS)));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public User scaleOut() {
+        HazelcastInstance newNode = startNode();
+        try {
+            return newNode.<String, User>getMap(UserRepository.USERS_BY_LOGIN_CACHE).get(login(0));
+        } finally {
+            newNode.shutdown();
+        }
+    }
+
+    private HazelcastInstance startNode() {
+        if (topology != UaaProperties.CacheCluster.Topology.CLIENT) {
+            return Hazelcast.newHazelcastInstance(memberConfig(topology == UaaProperties.CacheCluster.Topology.LITE_MEMBER));
+        }
+        ClientConfig clientConfig = new ClientConfig();
+        clientConfig.getGroupConfig().setName(GROUP_NAME);
+        clientConfig.getNetworkConfig().addAddress("127.0.0.1:" + FIRST_PORT, "127.0.0.1:" + (FIRST_PORT + 1));
+        DomainSerializers.register(clientConfig.getSerializationConfig());
+        return HazelcastClient.newHazelcastClient(clientConfig);
+    }
+
+    private static Config memberConfig(boolean liteMember) {
+        Config config = new Config();
+        config.getGroupConfig().setName(GROUP_NAME);
+        config.setLiteMember(liteMember);
+        config.setProperty(GroupProperty.PHONE_HOME_ENABLED.getName(), "false");
+        // as with the default uaa.cache-cluster.wait-seconds-before-join
+        config.setProperty(GroupProperty.WAIT_SECONDS_BEFORE_JOIN.getName(), "2");
+        config.getNetworkConfig().setPort(FIRST_PORT);
+        config.getNetworkConfig().getJoin().getMulticastConfig().setEnabled(false);
+        config.getNetworkConfig().getJoin().getTcpIpConfig().setEnabled(true).addMember("127.0.0.1");
+        DomainSerializers.register(config.getSerializationConfig());
+        return config;
+    }
+
+    private static String login(int user) {
+        return "user-" + user;
+    }
+
+    private static User user(int user) {
+        User cached = DomainSerializersUnitTest.user();
+        cached.setLogin(login(user));
+        cached.setEmail(login(user) + "@localhost");
+        return cached;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(HazelcastTopologyBenchmark.class.getSimpleName()).build()).run();
+    }
+}
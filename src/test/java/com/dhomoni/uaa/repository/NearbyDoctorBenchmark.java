@@ -0,0 +1,153 @@
+package com.dhomoni.uaa.repository;
+
+import com.dhomoni.uaa.domain.enumeration.DoctorType;
+import com.dhomoni.uaa.service.dto.NearbyDoctorDTO;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the {@link NearbyDoctorRepository} on a few hundred thousand doctors, spread evenly over 300 km around
+ * Dhaka, about 3 doctors per km².
+ * <ul>
+ * <li>firstPage: the 20 nearest doctors</li>
+ * <li>secondPage: the 20 next ones, after the (distance, id) of the 20th</li>
+ * <li>firstPageOfType: the 20 nearest surgeons of a medical department, a tenth of the doctors</li>
+ * </ul>
+ * The database is an in-memory H2/GeoDB by default, or the PostGIS database of the "benchmark.url",
+ * "benchmark.username" and "benchmark.password" system properties, where the tables are created and dropped:
+ * <pre>
+ * -Dbenchmark.url=jdbc:postgresql://localhost:5432/benchmark -Dbenchmark.username=uaa
+ * </pre>
+ * This is not a unit test, run it with the {@link #main(String[])} method once the test classes are compiled.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class NearbyDoctorBenchmark {
+
+    private static final double LATITUDE = 23.7380;
+
+    private static final double LONGITUDE = 90.3958;
+
+    private static final double SPREAD_IN_DEGREES = 1.5;
+
+    private static final int PAGE_SIZE = 20;
+
+    private static final int BATCH_SIZE = 5000;
+
+    @Param({"300000"})
+    private int doctors;
+
+    @Param({"2000", "10000"})
+    private double radiusInMeters;
+
+    private SingleConnectionDataSource dataSource;
+
+    private NearbyDoctorRepository nearbyDoctorRepository;
+
+    private NearbyDoctorDTO lastOfFirstPage;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        String url = System.getProperty("benchmark.url", "jdbc:h2:mem:nearby;DB_CLOSE_DELAY=-1");
+        boolean postgis = url.startsWith("jdbc:postgresql:");
+        dataSource = new SingleConnectionDataSource(url, System.getProperty("benchmark.username", ""),
+            System.getProperty("benchmark.password", ""), true);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        if (!postgis) {
+            jdbcTemplate.execute("CREATE ALIAS IF NOT EXISTS InitGeoDB for \"geodb.GeoDB.InitGeoDB\"");
+            jdbcTemplate.execute("CALL InitGeoDB()");
+        }
+        jdbcTemplate.execute("drop table if exists doctor");
+        jdbcTemplate.execute("drop table if exists jhi_user");
+        jdbcTemplate.execute("create table jhi_user (id bigint primary key, first_name varchar(50)," +
+            " last_name varchar(50), activated boolean not null)");
+        jdbcTemplate.execute("create table doctor (id bigint primary key, type varchar(255), medical_department_id int," +
+            " designation varchar(255), address varchar(255), image_content_type varchar(255), user_id bigint," +
+            " GEOM GEOMETRY(Point, 4326))");
+        seed(jdbcTemplate);
+        if (postgis) {
+            // as in the Liquibase changelog
+            jdbcTemplate.execute("create index idx_doctor_geom on doctor using gist (GEOM)");
+            jdbcTemplate.execute("analyze doctor");
+            jdbcTemplate.execute("analyze jhi_user");
+        }
+        nearbyDoctorRepository = new NearbyDoctorRepository(new NamedParameterJdbcTemplate(dataSource), postgis);
+        List<NearbyDoctorDTO> firstPage = firstPage();
+        lastOfFirstPage = firstPage.get(firstPage.size() - 1);
+    }
+
+    private void seed(JdbcTemplate jdbcTemplate) {
+        Random random = new Random(42);
+        DoctorType[] types = DoctorType.values();
+        for (int from = 0; from < doctors; from += BATCH_SIZE) {
+            List<Object[]> users = new ArrayList<>();
+            List<Object[]> batch = new ArrayList<>();
+            for (long id = from; id < Math.min(from + BATCH_SIZE, doctors); id++) {
+                double latitude = LATITUDE + (random.nextDouble() * 2 - 1) * SPREAD_IN_DEGREES;
+                double longitude = LONGITUDE + (random.nextDouble() * 2 - 1) * SPREAD_IN_DEGREES;
+                users.add(new Object[] {id, "first " + id, "last " + id, random.nextInt(10) != 0});
+                batch.add(new Object[] {id, types[random.nextInt(types.length)].name(), random.nextInt(5),
+                    "designation " + id, "address " + id, id, "POINT(" + longitude + " " + latitude + ")"});
+            }
+            jdbcTemplate.batchUpdate("insert into jhi_user (id, first_name, last_name, activated) values (?, ?, ?, ?)", users);
+            jdbcTemplate.batchUpdate("insert into doctor (id, type, medical_department_id, designation, address, user_id, GEOM)" +
+                " values (?, ?, ?, ?, ?, ?, ST_GeomFromText(?, 4326))", batch);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("drop table doctor");
+        jdbcTemplate.execute("drop table jhi_user");
+        dataSource.destroy();
+    }
+
+    @Benchmark
+    public List<NearbyDoctorDTO> firstPage() {
+        return nearbyDoctorRepository.findNearby(LATITUDE, LONGITUDE, radiusInMeters, null, null, null, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<NearbyDoctorDTO> secondPage() {
+        return nearbyDoctorRepository.findNearby(LATITUDE, LONGITUDE, radiusInMeters, null, null,
+            lastOfFirstPage.getDistanceInMeters(), lastOfFirstPage.getId(), PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<NearbyDoctorDTO> firstPageOfType() {
+        return nearbyDoctorRepository.findNearby(LATITUDE, LONGITUDE, radiusInMeters, DoctorType.SURGEON, 2, null, null,
+            PAGE_SIZE);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(NearbyDoctorBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,112 @@
+package com.dhomoni.uaa.repository;
+
+import com.dhomoni.uaa.UaaApp;
+import com.dhomoni.uaa.domain.User;
+import com.dhomoni.uaa.domain.enumeration.DoctorType;
+import com.dhomoni.uaa.service.dto.NearbyDoctorDTO;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Test class for the NearbyDoctorRepository, on H2/GeoDB.
+ * <p>
+ * The locations are written with GeoDB functions, as Hibernate Spatial can't bind them on H2.
+ *
+ * @see NearbyDoctorRepository
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = UaaApp.class)
+@Transactional
+public class NearbyDoctorRepositoryIntTest {
+
+    // Shahbag, in Dhaka
+    private static final double LATITUDE = 23.7380;
+
+    private static final double LONGITUDE = 90.3958;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NearbyDoctorRepository nearbyDoctorRepository;
+
+    @Before
+    public void setup() {
+        // 1.1 km, 2.2 km and 3.3 km north, 1.2 km east, and 30 km south
+        insertDoctor(100001L, 23.7480, LONGITUDE, DoctorType.PHYSICIAN, 1, true);
+        insertDoctor(100002L, 23.7580, LONGITUDE, DoctorType.SURGEON, 1, true);
+        insertDoctor(100003L, 23.7680, LONGITUDE, DoctorType.PHYSICIAN, 2, true);
+        insertDoctor(100004L, LATITUDE, 90.4080, DoctorType.PHYSICIAN, 1, true);
+        insertDoctor(100005L, 23.4682, LONGITUDE, DoctorType.PHYSICIAN, 1, true);
+        // not activated
+        insertDoctor(100006L, 23.7390, LONGITUDE, DoctorType.PHYSICIAN, 1, false);
+    }
+
+    @Test
+    public void findNearbyDoctorsFromTheNearest() {
+        List<NearbyDoctorDTO> doctors = nearbyDoctorRepository.findNearby(LATITUDE, LONGITUDE, 5000, null, null, null, null, 10);
+
+        assertThat(doctors).extracting(NearbyDoctorDTO::getId).containsExactly(100001L, 100004L, 100002L, 100003L);
+        assertThat(doctors.get(0).getDistanceInMeters()).isCloseTo(1112, within(5.0));
+        assertThat(doctors.get(0).getLatitude()).isEqualTo(23.7480);
+        assertThat(doctors.get(0).getLongitude()).isEqualTo(LONGITUDE);
+        assertThat(doctors.get(0).getType()).isEqualTo(DoctorType.PHYSICIAN);
+    }
+
+    @Test
+    public void findNearbyDoctorsByTypeAndMedicalDepartment() {
+        List<NearbyDoctorDTO> doctors = nearbyDoctorRepository.findNearby(LATITUDE, LONGITUDE, 5000, DoctorType.PHYSICIAN, 1, null, null, 10);
+
+        assertThat(doctors).extracting(NearbyDoctorDTO::getId).containsExactly(100001L, 100004L);
+    }
+
+    @Test
+    public void findNearbyDoctorsByPage() {
+        List<NearbyDoctorDTO> firstPage = nearbyDoctorRepository.findNearby(LATITUDE, LONGITUDE, 50000, null, null, null, null, 2);
+        NearbyDoctorDTO last = firstPage.get(1);
+        List<NearbyDoctorDTO> secondPage = nearbyDoctorRepository.findNearby(LATITUDE, LONGITUDE, 50000, null, null,
+            last.getDistanceInMeters(), last.getId(), 2);
+        NearbyDoctorDTO secondLast = secondPage.get(1);
+        List<NearbyDoctorDTO> thirdPage = nearbyDoctorRepository.findNearby(LATITUDE, LONGITUDE, 50000, null, null,
+            secondLast.getDistanceInMeters(), secondLast.getId(), 2);
+
+        assertThat(firstPage).extracting(NearbyDoctorDTO::getId).containsExactly(100001L, 100004L);
+        assertThat(secondPage).extracting(NearbyDoctorDTO::getId).containsExactly(100002L, 100003L);
+        assertThat(thirdPage).extracting(NearbyDoctorDTO::getId).containsExactly(100005L);
+    }
+
+    private void insertDoctor(Long id, double latitude, double longitude, DoctorType type, int medicalDepartment,
+                              boolean activated) {
+        User user = new User();
+        user.setLogin("nearby-" + id);
+        user.setPassword(RandomStringUtils.random(60));
+        user.setActivated(activated);
+        user.setEmail("nearby-" + id + "@localhost");
+        user.setLangKey("en");
+        userRepository.saveAndFlush(user);
+        jdbcTemplate.update("insert into doctor (id, type, medical_department_id, user_id, GEOM)" +
+                " values (:id, :type, :medicalDepartment, :userId, ST_GeomFromText(:location, 4326))",
+            new MapSqlParameterSource()
+                .addValue("id", id)
+                .addValue("type", type.name())
+                .addValue("medicalDepartment", medicalDepartment)
+                .addValue("userId", user.getId())
+                .addValue("location", "POINT(" + longitude + " " + latitude + ")"));
+    }
+}
@@ -0,0 +1,228 @@
+package com.dhomoni.uaa.repository;
+
+import com.dhomoni.uaa.domain.Authority;
+import com.dhomoni.uaa.domain.Patient;
+import com.dhomoni.uaa.domain.User;
+import com.dhomoni.uaa.domain.enumeration.BloodGroup;
+import com.dhomoni.uaa.domain.enumeration.Sex;
+import com.dhomoni.uaa.service.PatientCohortService;
+import com.dhomoni.uaa.service.dto.PatientCohortCriteria;
+import com.dhomoni.uaa.service.dto.PatientCohortDTO;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition.RepositoryFragments;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import javax.persistence.EntityManager;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the {@link PatientCohortService} on a million patients, spread evenly over 300 km around Dhaka, about
+ * 10 patients per km², of whom 1 in 16 is O- and female.
+ * <ul>
+ * <li>firstPage: the first 100 O- patients within the radius</li>
+ * <li>secondPage: the 100 next ones, after the id of the 100th</li>
+ * <li>firstPageOfFemalesBornBefore1990: the first 100 O- women born before 1990 within the radius</li>
+ * <li>firstPageWithoutLocation: the first 100 O- women, on the composite index only</li>
+ * </ul>
+ * The database is an in-memory H2/GeoDB by default, or the PostGIS database of the "benchmark.url",
+ * "benchmark.username" and "benchmark.password" system properties, where the tables are created and dropped:
+ * <pre>
+ * -Dbenchmark.url=jdbc:postgresql://localhost:5432/benchmark -Dbenchmark.username=uaa
+ * </pre>
+ * This is not a unit test, run it with the {@link #main(String[])} method once the test classes are compiled.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PatientCohortBenchmark {
+
+    private static final double LATITUDE = 23.7380;
+
+    private static final double LONGITUDE = 90.3958;
+
+    private static final double SPREAD_IN_DEGREES = 1.5;
+
+    private static final int PAGE_SIZE = 100;
+
+    private static final int BATCH_SIZE = 5000;
+
+    private static final long MIN_BIRTH = Instant.parse("1940-01-01T00:00:00Z").toEpochMilli();
+
+    private static final long MAX_BIRTH = Instant.parse("2018-01-01T00:00:00Z").toEpochMilli();
+
+    @Param({"1000000"})
+    private int patients;
+
+    @Param({"2", "10"})
+    private double radiusInKilometers;
+
+    private SingleConnectionDataSource dataSource;
+
+    private SessionFactory sessionFactory;
+
+    private EntityManager entityManager;
+
+    private PatientCohortService patientCohortService;
+
+    private PatientCohortCriteria cohort;
+
+    private PatientCohortCriteria femalesBornBefore1990;
+
+    private PatientCohortCriteria withoutLocation;
+
+    private Long lastOfFirstPage;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        String url = System.getProperty("benchmark.url", "jdbc:h2:mem:cohort;DB_CLOSE_DELAY=-1");
+        String username = System.getProperty("benchmark.username", "");
+        String password = System.getProperty("benchmark.password", "");
+        boolean postgis = url.startsWith("jdbc:postgresql:");
+        dataSource = new SingleConnectionDataSource(url, username, password, true);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        if (!postgis) {
+            jdbcTemplate.execute("CREATE ALIAS IF NOT EXISTS InitGeoDB for \"geodb.GeoDB.InitGeoDB\"");
+            jdbcTemplate.execute("CALL InitGeoDB()");
+        }
+        jdbcTemplate.execute("drop table if exists patient");
+        jdbcTemplate.execute("drop table if exists jhi_user");
+        jdbcTemplate.execute("create table jhi_user (id bigint primary key, login varchar(50), password_hash varchar(60)," +
+            " first_name varchar(50), last_name varchar(50), email varchar(254), image_url varchar(256)," +
+            " activated boolean not null, lang_key varchar(6), activation_key varchar(20), reset_key varchar(20)," +
+            " reset_date timestamp, created_by varchar(50), created_date timestamp, last_modified_by varchar(50)," +
+            " last_modified_date timestamp)");
+        jdbcTemplate.execute("create table patient (id bigint primary key, phone varchar(255), sex varchar(255)," +
+            " birth_timestamp timestamp, blood_group varchar(255), weight_in_kg double precision," +
+            " height_in_inch double precision, image " + (postgis ? "bytea" : "blob") + "," +
+            " image_content_type varchar(255), image_etag varchar(32), address varchar(255), user_id bigint," +
+            " GEOM GEOMETRY(Point, 4326))");
+        seed(jdbcTemplate);
+        // as in the Liquibase changelog
+        jdbcTemplate.execute("create index idx_patient_cohort on patient (blood_group, sex, id)");
+        if (postgis) {
+            jdbcTemplate.execute("create index idx_patient_geom on patient using gist (GEOM)");
+            jdbcTemplate.execute("analyze patient");
+            jdbcTemplate.execute("analyze jhi_user");
+        }
+
+        sessionFactory = new MetadataSources(new StandardServiceRegistryBuilder()
+            .applySetting("hibernate.connection.url", url)
+            .applySetting("hibernate.connection.username", username)
+            .applySetting("hibernate.connection.password", password)
+            .applySetting("hibernate.dialect", postgis ? "org.hibernate.spatial.dialect.postgis.PostgisDialect" :
+                "org.hibernate.spatial.dialect.h2geodb.GeoDBDialect")
+            .build())
+            .addAnnotatedClass(User.class)
+            .addAnnotatedClass(Authority.class)
+            .addAnnotatedClass(Patient.class)
+            .buildMetadata()
+            .buildSessionFactory();
+        entityManager = sessionFactory.createEntityManager();
+        PatientRepository patientRepository = new JpaRepositoryFactory(entityManager).getRepository(PatientRepository.class,
+            RepositoryFragments.just(new PatientRepositoryImpl(entityManager)));
+        patientCohortService = new PatientCohortService(patientRepository);
+
+        cohort = new PatientCohortCriteria();
+        cohort.setBloodGroup(BloodGroup.O_NEGATIVE);
+        cohort.setLatitude(LATITUDE);
+        cohort.setLongitude(LONGITUDE);
+        cohort.setRadius(radiusInKilometers);
+        femalesBornBefore1990 = new PatientCohortCriteria();
+        femalesBornBefore1990.setBloodGroup(BloodGroup.O_NEGATIVE);
+        femalesBornBefore1990.setSex(Sex.FEMALE);
+        femalesBornBefore1990.setBornBefore(Instant.parse("1990-01-01T00:00:00Z"));
+        femalesBornBefore1990.setLatitude(LATITUDE);
+        femalesBornBefore1990.setLongitude(LONGITUDE);
+        femalesBornBefore1990.setRadius(radiusInKilometers);
+        withoutLocation = new PatientCohortCriteria();
+        withoutLocation.setBloodGroup(BloodGroup.O_NEGATIVE);
+        withoutLocation.setSex(Sex.FEMALE);
+        List<PatientCohortDTO> firstPage = firstPage();
+        lastOfFirstPage = firstPage.get(firstPage.size() - 1).getId();
+    }
+
+    private void seed(JdbcTemplate jdbcTemplate) {
+        Random random = new Random(42);
+        BloodGroup[] bloodGroups = BloodGroup.values();
+        Sex[] sexes = Sex.values();
+        for (int from = 0; from < patients; from += BATCH_SIZE) {
+            List<Object[]> users = new ArrayList<>();
+            List<Object[]> batch = new ArrayList<>();
+            for (long id = from; id < Math.min(from + BATCH_SIZE, patients); id++) {
+                double latitude = LATITUDE + (random.nextDouble() * 2 - 1) * SPREAD_IN_DEGREES;
+                double longitude = LONGITUDE + (random.nextDouble() * 2 - 1) * SPREAD_IN_DEGREES;
+                Timestamp birthTimestamp = new Timestamp(MIN_BIRTH + (long) (random.nextDouble() * (MAX_BIRTH - MIN_BIRTH)));
+                users.add(new Object[] {id, "patient-" + id, "first " + id, "last " + id, random.nextInt(10) != 0});
+                batch.add(new Object[] {id, sexes[random.nextInt(sexes.length)].name(), birthTimestamp,
+                    bloodGroups[random.nextInt(bloodGroups.length)].name(), id, "POINT(" + longitude + " " + latitude + ")"});
+            }
+            jdbcTemplate.batchUpdate("insert into jhi_user (id, login, first_name, last_name, activated) values (?, ?, ?, ?, ?)",
+                users);
+            jdbcTemplate.batchUpdate("insert into patient (id, sex, birth_timestamp, blood_group, user_id, GEOM)" +
+                " values (?, ?, ?, ?, ?, ST_GeomFromText(?, 4326))", batch);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        entityManager.close();
+        sessionFactory.close();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("drop table patient");
+        jdbcTemplate.execute("drop table jhi_user");
+        dataSource.destroy();
+    }
+
+    @Benchmark
+    public List<PatientCohortDTO> firstPage() {
+        return patientCohortService.findCohort(cohort, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<PatientCohortDTO> secondPage() {
+        return patientCohortService.findCohort(cohort, lastOfFirstPage, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<PatientCohortDTO> firstPageOfFemalesBornBefore1990() {
+        return patientCohortService.findCohort(femalesBornBefore1990, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<PatientCohortDTO> firstPageWithoutLocation() {
+        return patientCohortService.findCohort(withoutLocation, null, PAGE_SIZE);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PatientCohortBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,137 @@
+package com.dhomoni.uaa.repository;
+
+import com.dhomoni.uaa.UaaApp;
+import com.dhomoni.uaa.domain.Patient;
+import com.dhomoni.uaa.domain.User;
+import com.dhomoni.uaa.domain.enumeration.BloodGroup;
+import com.dhomoni.uaa.domain.enumeration.Sex;
+import com.dhomoni.uaa.service.dto.PatientCohortDTO;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+import static com.dhomoni.uaa.repository.PatientSpecifications.bornBefore;
+import static com.dhomoni.uaa.repository.PatientSpecifications.hasBloodGroup;
+import static com.dhomoni.uaa.repository.PatientSpecifications.hasSex;
+import static com.dhomoni.uaa.repository.PatientSpecifications.locatedAround;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the cohort queries of the PatientRepository, on H2/GeoDB.
+ * <p>
+ * The locations are written with GeoDB functions, as Hibernate Spatial can't bind them on H2.
+ *
+ * @see PatientRepository
+ * @see PatientSpecifications
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = UaaApp.class)
+@Transactional
+public class PatientRepositoryIntTest {
+
+    // Shahbag, in Dhaka
+    private static final double LATITUDE = 23.7380;
+
+    private static final double LONGITUDE = 90.3958;
+
+    private static final Instant BORN_1980 = Instant.parse("1980-01-01T00:00:00Z");
+
+    private static final Instant BORN_2000 = Instant.parse("2000-01-01T00:00:00Z");
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Before
+    public void setup() {
+        // 1.1 km and 2.2 km north, 30 km south, and without location
+        insertPatient(200001L, 23.7480, LONGITUDE, BloodGroup.O_NEGATIVE, Sex.FEMALE, BORN_1980, true);
+        insertPatient(200002L, 23.7580, LONGITUDE, BloodGroup.O_NEGATIVE, Sex.MALE, BORN_2000, true);
+        insertPatient(200003L, 23.4682, LONGITUDE, BloodGroup.O_NEGATIVE, Sex.FEMALE, BORN_1980, true);
+        insertPatient(200004L, null, null, BloodGroup.O_NEGATIVE, Sex.FEMALE, BORN_1980, true);
+        insertPatient(200005L, 23.7480, LONGITUDE, BloodGroup.A_POSITIVE, Sex.FEMALE, BORN_1980, true);
+        // not activated
+        insertPatient(200006L, 23.7390, LONGITUDE, BloodGroup.O_NEGATIVE, Sex.FEMALE, BORN_1980, false);
+    }
+
+    @Test
+    public void findCohortByBloodGroup() {
+        List<PatientCohortDTO> cohort = patientRepository.findCohort(
+            Specification.where(hasBloodGroup(BloodGroup.O_NEGATIVE)), null, 10);
+
+        assertThat(cohort).extracting(PatientCohortDTO::getId).containsExactly(200001L, 200002L, 200003L, 200004L);
+        assertThat(cohort.get(0).getLatitude()).isEqualTo(23.7480);
+        assertThat(cohort.get(0).getLongitude()).isEqualTo(LONGITUDE);
+        assertThat(cohort.get(0).getBirthTimestamp()).isEqualTo(BORN_1980);
+        assertThat(cohort.get(3).getLatitude()).isNull();
+    }
+
+    @Test
+    public void findCohortBySexAndBirth() {
+        List<PatientCohortDTO> cohort = patientRepository.findCohort(Specification.where(hasBloodGroup(BloodGroup.O_NEGATIVE))
+            .and(hasSex(Sex.FEMALE)).and(bornBefore(Instant.parse("1990-01-01T00:00:00Z"))), null, 10);
+
+        assertThat(cohort).extracting(PatientCohortDTO::getId).containsExactly(200001L, 200003L, 200004L);
+    }
+
+    @Test
+    public void findCohortInTheBoundingBox() {
+        List<PatientCohortDTO> cohort = patientRepository.findCohort(Specification.where(hasBloodGroup(BloodGroup.O_NEGATIVE))
+            .and(locatedAround(new GeoCircle(LATITUDE, LONGITUDE, 5000))), null, 10);
+
+        assertThat(cohort).extracting(PatientCohortDTO::getId).containsExactly(200001L, 200002L);
+    }
+
+    @Test
+    public void findCohortByPage() {
+        Specification<Patient> specification = Specification.where(hasBloodGroup(BloodGroup.O_NEGATIVE));
+        List<PatientCohortDTO> firstPage = patientRepository.findCohort(specification, null, 3);
+        List<PatientCohortDTO> secondPage = patientRepository.findCohort(specification, firstPage.get(2).getId(), 3);
+
+        assertThat(firstPage).extracting(PatientCohortDTO::getId).containsExactly(200001L, 200002L, 200003L);
+        assertThat(secondPage).extracting(PatientCohortDTO::getId).containsExactly(200004L);
+    }
+
+    @Test
+    public void countCohortWithTheSpecificationExecutor() {
+        assertThat(patientRepository.count(Specification.where(hasBloodGroup(BloodGroup.O_NEGATIVE)).and(hasSex(Sex.FEMALE))))
+            .isEqualTo(4);
+    }
+
+    private void insertPatient(Long id, Double latitude, Double longitude, BloodGroup bloodGroup, Sex sex,
+                               Instant birthTimestamp, boolean activated) {
+        User user = new User();
+        user.setLogin("cohort-" + id);
+        user.setPassword(RandomStringUtils.random(60));
+        user.setActivated(activated);
+        user.setEmail("cohort-" + id + "@localhost");
+        user.setLangKey("en");
+        userRepository.saveAndFlush(user);
+        jdbcTemplate.update("insert into patient (id, blood_group, sex, birth_timestamp, user_id, GEOM)" +
+                " values (:id, :bloodGroup, :sex, :birthTimestamp, :userId, ST_GeomFromText(:location, 4326))",
+            new MapSqlParameterSource()
+                .addValue("id", id)
+                .addValue("bloodGroup", bloodGroup.name())
+                .addValue("sex", sex.name())
+                .addValue("birthTimestamp", Timestamp.from(birthTimestamp))
+                .addValue("userId", user.getId())
+                .addValue("location", latitude == null ? null : "POINT(" + longitude + " " + latitude + ")"));
+    }
+}
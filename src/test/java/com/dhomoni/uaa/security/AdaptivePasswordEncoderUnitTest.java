@@ -0,0 +1,74 @@
+package com.dhomoni.uaa.security;
+
+import org.junit.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test class for the AdaptivePasswordEncoder.
+ *
+ * @see AdaptivePasswordEncoder
+ */
+public class AdaptivePasswordEncoderUnitTest {
+
+    @Test
+    public void testLegacyHashMatchesAndNeedsUpgrade() {
+        AdaptivePasswordEncoder passwordEncoder = new AdaptivePasswordEncoder(AdaptivePasswordEncoder.BCRYPT, 4);
+        String legacyHash = new BCryptPasswordEncoder(4).encode("password");
+
+        assertThat(passwordEncoder.matches("password", legacyHash)).isTrue();
+        assertThat(passwordEncoder.matches("wrong", legacyHash)).isFalse();
+        assertThat(passwordEncoder.needsUpgrade(legacyHash)).isTrue();
+    }
+
+    @Test
+    public void testHashIsPrefixedByItsAlgorithm() {
+        AdaptivePasswordEncoder passwordEncoder = new AdaptivePasswordEncoder(AdaptivePasswordEncoder.BCRYPT, 4);
+
+        String hash = passwordEncoder.encode("password");
+
+        assertThat(hash).startsWith("{bcrypt}$2a$04$");
+        assertThat(passwordEncoder.matches("password", hash)).isTrue();
+        assertThat(passwordEncoder.needsUpgrade(hash)).isFalse();
+    }
+
+    @Test
+    public void testOnlyLowerCostNeedsUpgrade() {
+        String weakHash = new AdaptivePasswordEncoder(AdaptivePasswordEncoder.BCRYPT, 4).encode("password");
+        String strongHash = new AdaptivePasswordEncoder(AdaptivePasswordEncoder.BCRYPT, 6).encode("password");
+
+        AdaptivePasswordEncoder passwordEncoder = new AdaptivePasswordEncoder(AdaptivePasswordEncoder.BCRYPT, 5);
+
+        assertThat(passwordEncoder.needsUpgrade(weakHash)).isTrue();
+        assertThat(passwordEncoder.needsUpgrade(strongHash)).isFalse();
+        assertThat(passwordEncoder.matches("password", strongHash)).isTrue();
+    }
+
+    @Test
+    public void testBCryptHashIsUpgradedToSCrypt() {
+        String bcryptHash = new AdaptivePasswordEncoder(AdaptivePasswordEncoder.BCRYPT, 4).encode("password");
+        AdaptivePasswordEncoder passwordEncoder = new AdaptivePasswordEncoder(AdaptivePasswordEncoder.SCRYPT, 10);
+
+        String scryptHash = passwordEncoder.encode("password");
+
+        assertThat(passwordEncoder.matches("password", bcryptHash)).isTrue();
+        assertThat(passwordEncoder.needsUpgrade(bcryptHash)).isTrue();
+        assertThat(scryptHash).startsWith("{scrypt}$a0801$");
+        assertThat(passwordEncoder.matches("password", scryptHash)).isTrue();
+        assertThat(passwordEncoder.needsUpgrade(scryptHash)).isFalse();
+        assertThat(new AdaptivePasswordEncoder(AdaptivePasswordEncoder.SCRYPT, 11).needsUpgrade(scryptHash)).isTrue();
+    }
+
+    @Test
+    public void testCalibrationNeverLowersTheCost() {
+        assertThat(AdaptivePasswordEncoder.calibrate(AdaptivePasswordEncoder.BCRYPT, 4, 1)).isEqualTo(4);
+        assertThat(AdaptivePasswordEncoder.calibrate(AdaptivePasswordEncoder.BCRYPT, 4, 10_000)).isGreaterThan(4);
+    }
+
+    @Test
+    public void testUnknownAlgorithmIsRejected() {
+        assertThatThrownBy(() -> new AdaptivePasswordEncoder("md5", 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
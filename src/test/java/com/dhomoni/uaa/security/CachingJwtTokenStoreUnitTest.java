@@ -0,0 +1,104 @@
+package com.dhomoni.uaa.security;
+
+import com.codahale.metrics.MetricRegistry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+
+import java.util.Collections;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the CachingJwtTokenStore.
+ *
+ * @see CachingJwtTokenStore
+ */
+public class CachingJwtTokenStoreUnitTest {
+
+    private static final String HITS = MetricRegistry.name(CachingJwtTokenStore.class, "hits");
+    private static final String MISSES = MetricRegistry.name(CachingJwtTokenStore.class, "misses");
+
+    private JwtAccessTokenConverter converter;
+
+    private MetricRegistry metricRegistry;
+
+    private CachingJwtTokenStore tokenStore;
+
+    @Before
+    public void setup() throws Exception {
+        converter = new JwtAccessTokenConverter();
+        converter.setSigningKey("test-signing-key");
+        converter.afterPropertiesSet();
+        metricRegistry = new MetricRegistry();
+        tokenStore = new CachingJwtTokenStore(converter, 2, 300, metricRegistry);
+    }
+
+    @Test
+    public void testTokenIsVerifiedOnlyOnce() {
+        String token = createToken("client", 60);
+
+        OAuth2AccessToken first = tokenStore.readAccessToken(token);
+        OAuth2Authentication firstAuthentication = tokenStore.readAuthentication(first);
+        OAuth2AccessToken second = tokenStore.readAccessToken(token);
+        OAuth2Authentication secondAuthentication = tokenStore.readAuthentication(second);
+
+        assertThat(second).isSameAs(first);
+        assertThat(secondAuthentication).isSameAs(firstAuthentication);
+        assertThat(secondAuthentication.getOAuth2Request().getClientId()).isEqualTo("client");
+        assertThat(metricRegistry.meter(MISSES).getCount()).isEqualTo(1);
+        assertThat(metricRegistry.meter(HITS).getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testExpiredTokenIsNotCached() {
+        String token = createToken("client", -60);
+
+        tokenStore.readAccessToken(token);
+        OAuth2AccessToken accessToken = tokenStore.readAccessToken(token);
+
+        assertThat(accessToken).isNotSameAs(tokenStore.readAccessToken(token));
+        assertThat(accessToken.isExpired()).isTrue();
+    }
+
+    @Test
+    public void testCacheIsBounded() {
+        tokenStore.readAccessToken(createToken("client-one", 60));
+        tokenStore.readAccessToken(createToken("client-two", 60));
+        tokenStore.readAccessToken(createToken("client-three", 60));
+
+        assertThat(metricRegistry.getGauges().get(MetricRegistry.name(CachingJwtTokenStore.class, "size")).getValue())
+            .isEqualTo(2);
+    }
+
+    @Test
+    public void testTokensOfRemovedKeysAreEvicted() {
+        String token = createToken("client", 60);
+        OAuth2AccessToken first = tokenStore.readAccessToken(token);
+        tokenStore.readAuthentication(first);
+
+        tokenStore.evictKeys(Collections.singleton("removed"));
+        OAuth2AccessToken second = tokenStore.readAccessToken(token);
+        tokenStore.readAuthentication(second);
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(metricRegistry.meter(MISSES).getCount()).isEqualTo(2);
+        assertThat(metricRegistry.meter(HITS).getCount()).isZero();
+    }
+
+    private String createToken(String clientId, int expiresInSeconds) {
+        DefaultOAuth2AccessToken accessToken = new DefaultOAuth2AccessToken(clientId + "-token");
+        accessToken.setExpiration(new Date(System.currentTimeMillis() + expiresInSeconds * 1000L));
+        OAuth2Request request = new OAuth2Request(Collections.emptyMap(), clientId,
+            Collections.singleton(new SimpleGrantedAuthority(AuthoritiesConstants.ADMIN)), true,
+            Collections.singleton("web-app"), null, null, null, null);
+        return converter.enhance(accessToken, new OAuth2Authentication(request, null)).getValue();
+    }
+}
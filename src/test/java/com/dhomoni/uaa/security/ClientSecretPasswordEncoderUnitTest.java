@@ -0,0 +1,92 @@
+package com.dhomoni.uaa.security;
+
+import com.codahale.metrics.MetricRegistry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Test class for the ClientSecretPasswordEncoder.
+ *
+ * @see ClientSecretPasswordEncoder
+ */
+public class ClientSecretPasswordEncoderUnitTest {
+
+    private static final String HITS = MetricRegistry.name(ClientSecretPasswordEncoder.class, "hits");
+    private static final String MISSES = MetricRegistry.name(ClientSecretPasswordEncoder.class, "misses");
+
+    private PasswordEncoder delegate;
+
+    private MetricRegistry metricRegistry;
+
+    private ClientSecretPasswordEncoder passwordEncoder;
+
+    private String encodedSecret;
+
+    @Before
+    public void setup() {
+        delegate = spy(new BCryptPasswordEncoder(4));
+        metricRegistry = new MetricRegistry();
+        passwordEncoder = new ClientSecretPasswordEncoder(delegate, 1, 300, metricRegistry);
+        encodedSecret = passwordEncoder.encode("secret");
+    }
+
+    @Test
+    public void testSecretIsVerifiedOnce() {
+        assertThat(passwordEncoder.matches("secret", encodedSecret)).isTrue();
+        assertThat(passwordEncoder.matches("secret", encodedSecret)).isTrue();
+
+        verify(delegate, times(1)).matches(any(), anyString());
+        assertThat(metricRegistry.meter(MISSES).getCount()).isEqualTo(1);
+        assertThat(metricRegistry.meter(HITS).getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testSecretIsVerifiedAgainOnceExpired() {
+        passwordEncoder = new ClientSecretPasswordEncoder(delegate, 1, 0, new MetricRegistry());
+
+        passwordEncoder.matches("secret", encodedSecret);
+        passwordEncoder.matches("secret", encodedSecret);
+
+        verify(delegate, times(2)).matches(any(), anyString());
+    }
+
+    @Test
+    public void testCacheIsBounded() {
+        String otherSecret = passwordEncoder.encode("other");
+
+        passwordEncoder.matches("secret", encodedSecret);
+        passwordEncoder.matches("other", otherSecret);
+
+        assertThat(metricRegistry.getGauges().get(MetricRegistry.name(ClientSecretPasswordEncoder.class, "size")).getValue())
+            .isEqualTo(1);
+    }
+
+    @Test
+    public void testWrongSecretIsAlwaysVerified() {
+        passwordEncoder.matches("secret", encodedSecret);
+
+        assertThat(passwordEncoder.matches("wrong", encodedSecret)).isFalse();
+        assertThat(passwordEncoder.matches("wrong", encodedSecret)).isFalse();
+
+        verify(delegate, times(3)).matches(any(), anyString());
+    }
+
+    @Test
+    public void testChangedSecretIsVerifiedAgain() {
+        passwordEncoder.matches("secret", encodedSecret);
+        String changedSecret = passwordEncoder.encode("changed");
+
+        assertThat(passwordEncoder.matches("secret", changedSecret)).isFalse();
+        assertThat(passwordEncoder.matches("changed", changedSecret)).isTrue();
+    }
+}
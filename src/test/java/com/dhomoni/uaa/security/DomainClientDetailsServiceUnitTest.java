@@ -0,0 +1,79 @@
+package com.dhomoni.uaa.security;
+
+import com.dhomoni.uaa.domain.OAuthClient;
+import com.dhomoni.uaa.repository.OAuthClientRepository;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.oauth2.provider.ClientDetails;
+import org.springframework.security.oauth2.provider.NoSuchClientException;
+import org.springframework.security.oauth2.provider.client.BaseClientDetails;
+
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for the DomainClientDetailsService.
+ *
+ * @see DomainClientDetailsService
+ */
+public class DomainClientDetailsServiceUnitTest {
+
+    private OAuthClientRepository oAuthClientRepository;
+
+    private DomainClientDetailsService clientDetailsService;
+
+    @Before
+    public void setup() {
+        oAuthClientRepository = mock(OAuthClientRepository.class);
+        when(oAuthClientRepository.findOneByClientId(anyString())).thenReturn(Optional.empty());
+        BaseClientDetails webClient = new BaseClientDetails("web_app", null, "openid", "password", null);
+        clientDetailsService = new DomainClientDetailsService(oAuthClientRepository, Collections.singletonList(webClient));
+    }
+
+    @Test
+    public void testConfiguredClientIsNotLoadedFromDatabase() {
+        ClientDetails clientDetails = clientDetailsService.loadClientByClientId("web_app");
+
+        assertThat(clientDetails.getScope()).containsExactly("openid");
+        verifyZeroInteractions(oAuthClientRepository);
+    }
+
+    @Test
+    public void testClientIsLoadedFromDatabase() {
+        OAuthClient oAuthClient = new OAuthClient();
+        oAuthClient.setClientId("billing");
+        oAuthClient.setClientSecret("encoded-secret");
+        oAuthClient.setScopes("web-app");
+        oAuthClient.setAuthorizedGrantTypes("client_credentials");
+        oAuthClient.setAuthorities(AuthoritiesConstants.ADMIN + "," + AuthoritiesConstants.USER);
+        oAuthClient.setAccessTokenValidity(600);
+        oAuthClient.setAutoApprove(true);
+        when(oAuthClientRepository.findOneByClientId("billing")).thenReturn(Optional.of(oAuthClient));
+
+        ClientDetails clientDetails = clientDetailsService.loadClientByClientId("billing");
+
+        assertThat(clientDetails.getClientSecret()).isEqualTo("encoded-secret");
+        assertThat(clientDetails.getAuthorizedGrantTypes()).containsExactly("client_credentials");
+        assertThat(clientDetails.getAuthorities()).extracting("authority")
+            .containsExactlyInAnyOrder(AuthoritiesConstants.ADMIN, AuthoritiesConstants.USER);
+        assertThat(clientDetails.getAccessTokenValiditySeconds()).isEqualTo(600);
+        assertThat(clientDetails.getRefreshTokenValiditySeconds()).isNull();
+        assertThat(clientDetails.isAutoApprove("web-app")).isTrue();
+        verify(oAuthClientRepository).findOneByClientId("billing");
+    }
+
+    @Test
+    public void testUnknownClientIsRejected() {
+        assertThatThrownBy(() -> clientDetailsService.loadClientByClientId("unknown"))
+            .isInstanceOf(NoSuchClientException.class);
+    }
+}
@@ -1,6 +1,7 @@
 package com.dhomoni.uaa.security;
 
 import com.dhomoni.uaa.UaaApp;
+import com.dhomoni.uaa.domain.Authority;
 import com.dhomoni.uaa.domain.User;
 import com.dhomoni.uaa.repository.UserRepository;
 
@@ -10,6 +11,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -43,12 +45,17 @@ public class DomainUserDetailsServiceIntTest {
     @Autowired
     private UserDetailsService domainUserDetailsService;
 
+    @Autowired
+    private CacheManager cacheManager;
+
     private User userOne;
     private User userTwo;
     private User userThree;
 
     @Before
     public void init() {
+        cacheManager.getCache(UserRepository.USER_CREDENTIALS_CACHE).clear();
+
         userOne = new User();
         userOne.setLogin(USER_ONE_LOGIN);
         userOne.setPassword(RandomStringUtils.random(60));
@@ -118,6 +125,19 @@ public class DomainUserDetailsServiceIntTest {
         assertThat(userDetails.getUsername()).isEqualTo(USER_ONE_LOGIN);
     }
 
+    @Test
+    @Transactional
+    public void assertThatAuthoritiesAreLoaded() {
+        Authority authority = new Authority();
+        authority.setName(AuthoritiesConstants.USER);
+        userOne.getAuthorities().add(authority);
+        userRepository.saveAndFlush(userOne);
+
+        UserDetails userDetails = domainUserDetailsService.loadUserByUsername(USER_ONE_LOGIN);
+        assertThat(userDetails.getAuthorities()).extracting("authority").containsExactly(AuthoritiesConstants.USER);
+        assertThat(cacheManager.getCache(UserRepository.USER_CREDENTIALS_CACHE).get(USER_ONE_LOGIN)).isNotNull();
+    }
+
     @Test(expected = UserNotActivatedException.class)
     @Transactional
     public void assertThatUserNotActivatedExceptionIsThrownForNotActivatedUsers() {
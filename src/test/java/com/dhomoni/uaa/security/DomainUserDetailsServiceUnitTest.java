@@ -0,0 +1,94 @@
+package com.dhomoni.uaa.security;
+
+import com.dhomoni.uaa.config.UaaProperties;
+import com.dhomoni.uaa.repository.UserRepository;
+import com.dhomoni.uaa.service.UserCacheEvictor;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for the credentials lookup of the DomainUserDetailsService.
+ *
+ * @see DomainUserDetailsService
+ */
+public class DomainUserDetailsServiceUnitTest {
+
+    private UserRepository userRepository;
+
+    private DomainUserDetailsService domainUserDetailsService;
+
+    @Before
+    public void setup() {
+        userRepository = mock(UserRepository.class);
+        ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager();
+        when(userRepository.findCredentialsByLoginOrEmail(anyString())).thenReturn(Collections.emptyList());
+        domainUserDetailsService = new DomainUserDetailsService(userRepository, cacheManager, new UserCacheEvictor(cacheManager, new UaaProperties()));
+    }
+
+    @Test
+    public void testCredentialsAreLoadedOnceWithAllAuthorities() {
+        List<UserRepository.CredentialsRow> rows = Arrays.asList(
+            row(1L, "john", "john@localhost", AuthoritiesConstants.USER),
+            row(1L, "john", "john@localhost", AuthoritiesConstants.ADMIN));
+        when(userRepository.findCredentialsByLoginOrEmail("john")).thenReturn(rows);
+
+        domainUserDetailsService.loadUserByUsername("John");
+        UserDetails userDetails = domainUserDetailsService.loadUserByUsername("john");
+
+        assertThat(userDetails.getUsername()).isEqualTo("john");
+        assertThat(userDetails.getAuthorities()).extracting("authority")
+            .containsExactlyInAnyOrder(AuthoritiesConstants.USER, AuthoritiesConstants.ADMIN);
+        assertThat(((CustomUser) userDetails).getRegistrationId()).isEqualTo(1L);
+        verify(userRepository, times(1)).findCredentialsByLoginOrEmail("john");
+    }
+
+    @Test
+    public void testEmailIsPrioritizedOverLogin() {
+        List<UserRepository.CredentialsRow> rows = Arrays.asList(
+            row(1L, "jane@localhost", "other@localhost", null),
+            row(2L, "jane", "jane@localhost", null));
+        when(userRepository.findCredentialsByLoginOrEmail("jane@localhost")).thenReturn(rows);
+
+        UserDetails userDetails = domainUserDetailsService.loadUserByUsername("jane@localhost");
+
+        assertThat(userDetails.getUsername()).isEqualTo("jane");
+        assertThat(userDetails.getAuthorities()).isEmpty();
+    }
+
+    @Test
+    public void testUnknownUserIsNotCached() {
+        assertThatThrownBy(() -> domainUserDetailsService.loadUserByUsername("unknown"))
+            .isInstanceOf(UsernameNotFoundException.class);
+        assertThatThrownBy(() -> domainUserDetailsService.loadUserByUsername("unknown"))
+            .isInstanceOf(UsernameNotFoundException.class);
+
+        verify(userRepository, times(2)).findCredentialsByLoginOrEmail("unknown");
+    }
+
+    private static UserRepository.CredentialsRow row(Long id, String login, String email, String authority) {
+        UserRepository.CredentialsRow row = mock(UserRepository.CredentialsRow.class);
+        when(row.getId()).thenReturn(id);
+        when(row.getLogin()).thenReturn(login);
+        when(row.getEmail()).thenReturn(email);
+        when(row.getPassword()).thenReturn("hash");
+        when(row.getActivated()).thenReturn(true);
+        when(row.getAuthority()).thenReturn(authority);
+        return row;
+    }
+}
@@ -0,0 +1,118 @@
+package com.dhomoni.uaa.security;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the ExpiringCache.
+ *
+ * @see ExpiringCache
+ */
+public class ExpiringCacheUnitTest {
+
+    @Test
+    public void testExpiredValueIsNotKept() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10, 60_000);
+
+        cache.put("expired", "value", System.currentTimeMillis() - 1);
+
+        assertThat(cache.get("expired")).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    public void testEntryExpiresAtTheEndOfTheTimeToLive() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10, 0);
+
+        cache.put("key", "value");
+
+        assertThat(cache.get("key")).isNull();
+    }
+
+    @Test
+    public void testEntriesWhichExpireFirstAreDroppedWhenFull() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(2, 60_000);
+        long now = System.currentTimeMillis();
+
+        cache.put("late", "value", now + 50_000);
+        cache.put("early", "value", now + 10_000);
+        cache.put("new", "value");
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get("early")).isNull();
+        assertThat(cache.get("late")).isEqualTo("value");
+        assertThat(cache.get("new")).isEqualTo("value");
+    }
+
+    @Test
+    public void testATenthOfTheEntriesIsDroppedWhenFull() {
+        ExpiringCache<Integer, String> cache = new ExpiringCache<>(100, 60_000);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, "value", now + 10_000 + i);
+        }
+
+        cache.put(100, "value");
+
+        assertThat(cache.size()).isEqualTo(91);
+        assertThat(cache.get(9)).isNull();
+        assertThat(cache.get(10)).isEqualTo("value");
+        assertThat(cache.get(100)).isEqualTo("value");
+    }
+
+    @Test
+    public void testConcurrentPutsStayBounded() throws Exception {
+        int maxSize = 100;
+        int threads = 8;
+        ExpiringCache<String, Integer> cache = new ExpiringCache<>(maxSize, 60_000);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> puts = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+            String prefix = "thread" + thread + "-";
+            puts.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 10_000; i++) {
+                    cache.put(prefix + i, i);
+                    assertThat(cache.size()).isLessThanOrEqualTo(maxSize + threads);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        try {
+            for (Future<?> put : puts) {
+                put.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // a put may only go past the limit while another one is making room
+        assertThat(cache.size()).isLessThanOrEqualTo(maxSize + threads);
+        cache.put("last", 0);
+        assertThat(cache.size()).isLessThanOrEqualTo(maxSize);
+        assertThat(cache.get("last")).isZero();
+    }
+
+    @Test
+    public void testRemoveIfDropsMatchingValues() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10, 60_000);
+        cache.put("one", "kept");
+        cache.put("two", "dropped");
+
+        cache.removeIf("dropped"::equals);
+
+        assertThat(cache.get("one")).isEqualTo("kept");
+        assertThat(cache.get("two")).isNull();
+    }
+}
@@ -0,0 +1,105 @@
+package com.dhomoni.uaa.security;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test class for the PasswordHashingExecutor.
+ *
+ * @see PasswordHashingExecutor
+ */
+public class PasswordHashingExecutorUnitTest {
+
+    private PasswordHashingExecutor hashingExecutor;
+
+    @Before
+    public void setup() {
+        hashingExecutor = new PasswordHashingExecutor(1, 1, 2000);
+    }
+
+    @After
+    public void tearDown() {
+        hashingExecutor.shutdown();
+    }
+
+    @Test
+    public void testHashingRunsOnThePool() {
+        String threadName = hashingExecutor.execute(() -> Thread.currentThread().getName());
+
+        assertThat(threadName).startsWith("uaa-PasswordHashing-");
+        assertThat(((Timer) hashingExecutor.getMetrics().get("hash")).getCount()).isEqualTo(1);
+        assertThat(((Timer) hashingExecutor.getMetrics().get("wait")).getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testHashingFailureIsRethrown() {
+        assertThatThrownBy(() -> hashingExecutor.execute(() -> {
+            throw new IllegalArgumentException("Invalid hash");
+        })).isInstanceOf(IllegalArgumentException.class).hasMessage("Invalid hash");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testHashingIsRejectedWhenQueueIsFull() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> first = CompletableFuture.supplyAsync(() -> hashingExecutor.execute(() -> {
+            running.countDown();
+            return await(release);
+        }));
+        running.await(10, TimeUnit.SECONDS);
+        CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(() -> hashingExecutor.execute(() -> true));
+        while (((Gauge<Integer>) hashingExecutor.getMetrics().get("queue")).getValue() == 0) {
+            Thread.sleep(10);
+        }
+
+        assertThatThrownBy(() -> hashingExecutor.execute(() -> true))
+            .isInstanceOf(PasswordHashingRejectedException.class);
+        assertThat(((Meter) hashingExecutor.getMetrics().get("rejected")).getCount()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(first.get(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(queued.get(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void testHashingIsRejectedAfterTheMaximumWait() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // the caller of the blocked hash gives up too
+        CompletableFuture.runAsync(() -> hashingExecutor.execute(() -> {
+            running.countDown();
+            return await(release);
+        }));
+        running.await(10, TimeUnit.SECONDS);
+
+        try {
+            assertThatThrownBy(() -> hashingExecutor.execute(() -> true))
+                .isInstanceOf(PasswordHashingRejectedException.class);
+            assertThat(((Meter) hashingExecutor.getMetrics().get("rejected")).getCount()).isPositive();
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
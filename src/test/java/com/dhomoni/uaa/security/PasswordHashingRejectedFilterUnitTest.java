@@ -0,0 +1,43 @@
+package com.dhomoni.uaa.security;
+
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the PasswordHashingRejectedFilter.
+ *
+ * @see PasswordHashingRejectedFilter
+ */
+public class PasswordHashingRejectedFilterUnitTest {
+
+    private final PasswordHashingRejectedFilter filter = new PasswordHashingRejectedFilter();
+
+    @Test
+    public void testRejectedClientAuthenticationIsServiceUnavailable() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/oauth/token");
+        request.addHeader(HttpHeaders.ACCEPT, "application/json");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (servletRequest, servletResponse) -> {
+            throw new PasswordHashingRejectedException();
+        });
+
+        assertThat(response.getStatus()).isEqualTo(503);
+        assertThat(response.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(response.getContentAsString()).contains("\"error\":\"temporarily_unavailable\"");
+    }
+
+    @Test
+    public void testOtherRequestsGoThrough() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("POST", "/oauth/token"), response,
+            (servletRequest, servletResponse) -> ((MockHttpServletResponse) servletResponse).setStatus(200));
+
+        assertThat(response.getStatus()).isEqualTo(200);
+    }
+}
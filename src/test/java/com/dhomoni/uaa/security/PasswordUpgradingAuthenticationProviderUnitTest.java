@@ -0,0 +1,63 @@
+package com.dhomoni.uaa.security;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.Collections;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for the PasswordUpgradingAuthenticationProvider.
+ *
+ * @see PasswordUpgradingAuthenticationProvider
+ */
+public class PasswordUpgradingAuthenticationProviderUnitTest {
+
+    private DomainUserDetailsService userDetailsService;
+
+    private AdaptivePasswordEncoder passwordEncoder;
+
+    private PasswordUpgradingAuthenticationProvider authenticationProvider;
+
+    @Before
+    public void setup() {
+        userDetailsService = mock(DomainUserDetailsService.class);
+        passwordEncoder = new AdaptivePasswordEncoder(AdaptivePasswordEncoder.BCRYPT, 4);
+        authenticationProvider = new PasswordUpgradingAuthenticationProvider(userDetailsService, passwordEncoder);
+    }
+
+    @Test
+    public void testOutdatedHashIsUpgraded() {
+        UserDetails user = user(new BCryptPasswordEncoder(4).encode("password"));
+        when(userDetailsService.loadUserByUsername("user")).thenReturn(user);
+
+        authenticationProvider.authenticate(new UsernamePasswordAuthenticationToken("user", "password"));
+
+        verify(userDetailsService).updatePassword(eq(user),
+            argThat(hash -> hash.startsWith("{bcrypt}") && passwordEncoder.matches("password", hash)));
+    }
+
+    @Test
+    public void testCurrentHashIsKept() {
+        UserDetails user = user(passwordEncoder.encode("password"));
+        when(userDetailsService.loadUserByUsername("user")).thenReturn(user);
+
+        authenticationProvider.authenticate(new UsernamePasswordAuthenticationToken("user", "password"));
+
+        verify(userDetailsService, never()).updatePassword(any(), any());
+    }
+
+    private static UserDetails user(String password) {
+        return new CustomUser("user", password, Collections.emptyList(), 1L);
+    }
+}
@@ -0,0 +1,116 @@
+package com.dhomoni.uaa.security.jwt;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.dhomoni.uaa.security.jwt.KeyStoreJwtAccessTokenConverterUnitTest.ecKeyPair;
+import static com.dhomoni.uaa.security.jwt.KeyStoreJwtAccessTokenConverterUnitTest.rsaKeyPair;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for the JwtKeyRing.
+ *
+ * @see JwtKeyRing
+ */
+public class JwtKeyRingUnitTest {
+
+    private JwtKeyStore keyStore;
+
+    private JwtSigningKey current;
+
+    private JwtSigningKey previous;
+
+    private JwtSigningKey next;
+
+    private JwtSigningKey other;
+
+    @Before
+    public void setup() throws Exception {
+        keyStore = mock(JwtKeyStore.class);
+        Instant now = Instant.now();
+        previous = JwtSigningKey.of("uaa-previous", rsaKeyPair(), now.minus(30, ChronoUnit.DAYS));
+        current = JwtSigningKey.of("uaa-current", ecKeyPair("secp256r1"), now.minus(1, ChronoUnit.DAYS));
+        next = JwtSigningKey.of("uaa-next", rsaKeyPair(), now.plus(1, ChronoUnit.DAYS));
+        other = JwtSigningKey.of("other", rsaKeyPair(), now.minus(1, ChronoUnit.HOURS));
+        when(keyStore.getSigningKeys()).thenReturn(Arrays.asList(previous, current, next, other));
+    }
+
+    @Test
+    public void testAliasIsUsedWithoutRotation() {
+        JwtKeyRing keyRing = new JwtKeyRing(keyStore, "uaa-previous", false);
+
+        assertThat(keyRing.getSigningKey()).isSameAs(previous);
+        assertThat(keyRing.getVerificationKey(null)).contains(previous);
+    }
+
+    @Test
+    public void testMostRecentValidKeyOfTheAliasIsUsedWithRotation() {
+        JwtKeyRing keyRing = new JwtKeyRing(keyStore, "uaa", true);
+
+        assertThat(keyRing.getSigningKey()).isSameAs(current);
+        assertThat(keyRing.getVerificationKey("other")).contains(other);
+        assertThat(keyRing.getVerificationKey("uaa-next")).contains(next);
+        assertThat(keyRing.getVerificationKey("unknown")).isEmpty();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testJwkSetPublishesAllKeys() {
+        JwtKeyRing keyRing = new JwtKeyRing(keyStore, "uaa", true);
+
+        List<Map<String, String>> keys = (List<Map<String, String>>) keyRing.getJwkSet().get("keys");
+
+        assertThat(keys).extracting(jwk -> jwk.get("kid")).containsExactly("uaa-previous", "uaa-current", "uaa-next", "other");
+        assertThat(keys.get(0)).containsEntry("kty", "RSA").containsEntry("alg", "RS256").containsKeys("n", "e");
+        assertThat(keys.get(1)).containsEntry("kty", "EC").containsEntry("crv", "P-256").containsKeys("x", "y");
+        assertThat(keys).allSatisfy(jwk -> assertThat(jwk).containsEntry("use", "sig").doesNotContainKey("d"));
+    }
+
+    @Test
+    public void testRefreshKeepsKeysWhenKeyStoreCannotBeRead() {
+        JwtKeyRing keyRing = new JwtKeyRing(keyStore, "uaa", true);
+        String eTag = keyRing.getJwkSetETag();
+
+        when(keyStore.getSigningKeys()).thenThrow(new IllegalStateException("Cannot read key store"));
+        keyRing.refresh();
+
+        assertThat(keyRing.getSigningKey()).isSameAs(current);
+        assertThat(keyRing.getJwkSetETag()).isEqualTo(eTag);
+    }
+
+    @Test
+    public void testRefreshChangesETagWhenKeyIsRemoved() {
+        JwtKeyRing keyRing = new JwtKeyRing(keyStore, "uaa", true);
+        String eTag = keyRing.getJwkSetETag();
+
+        when(keyStore.getSigningKeys()).thenReturn(Arrays.asList(current, next, other));
+        keyRing.refresh();
+
+        assertThat(keyRing.getVerificationKey("uaa-previous")).isEmpty();
+        assertThat(keyRing.getJwkSetETag()).isNotEqualTo(eTag);
+    }
+
+    @Test
+    public void testRefreshNotifiesRemovedKeys() {
+        JwtKeyRing keyRing = new JwtKeyRing(keyStore, "uaa", true);
+        List<Set<String>> removals = new ArrayList<>();
+        keyRing.addKeyRemovalListener(removals::add);
+
+        keyRing.refresh();
+        when(keyStore.getSigningKeys()).thenReturn(Arrays.asList(current, next));
+        keyRing.refresh();
+
+        assertThat(removals).containsExactly(new HashSet<>(Arrays.asList("uaa-previous", "other")));
+    }
+}
@@ -0,0 +1,66 @@
+package com.dhomoni.uaa.security.jwt;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.jwt.Jwt;
+import org.springframework.security.jwt.JwtHelper;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the sign and verify throughput of RSA-2048 (RS256) and EC P-256 (ES256) JWT signing keys.
+ * <p>
+ * This is not a unit test, run it with the {@link #main(String[])} method once the test classes are compiled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtSigningBenchmark {
+
+    private static final String CLAIMS = "{\"user_name\":\"admin\",\"scope\":[\"openid\"],\"exp\":1546300800," +
+        "\"iat\":1546300500,\"authorities\":[\"ROLE_ADMIN\",\"ROLE_USER\"],\"jti\":\"4e2f9d1c\",\"client_id\":\"web_app\"}";
+
+    @Param({"RSA", "EC"})
+    private String keyType;
+
+    private JwtSigningKey signingKey;
+
+    private String token;
+
+    @Setup
+    public void setup() throws Exception {
+        signingKey = JwtSigningKey.of(keyType, "RSA".equals(keyType)
+            ? KeyStoreJwtAccessTokenConverterUnitTest.rsaKeyPair()
+            : KeyStoreJwtAccessTokenConverterUnitTest.ecKeyPair("secp256r1"));
+        token = signingKey.sign(CLAIMS);
+    }
+
+    @Benchmark
+    public String sign() {
+        return signingKey.sign(CLAIMS);
+    }
+
+    @Benchmark
+    public Jwt verify() {
+        return JwtHelper.decodeAndVerify(token, signingKey.getVerifier());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtSigningBenchmark.class.getSimpleName()).build()).run();
+    }
+}
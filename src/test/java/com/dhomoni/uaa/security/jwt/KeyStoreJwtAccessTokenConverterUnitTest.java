@@ -0,0 +1,115 @@
+package com.dhomoni.uaa.security.jwt;
+
+import org.junit.Test;
+import org.springframework.security.jwt.JwtHelper;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for the KeyStoreJwtAccessTokenConverter.
+ *
+ * @see KeyStoreJwtAccessTokenConverter
+ */
+public class KeyStoreJwtAccessTokenConverterUnitTest {
+
+    @Test
+    public void testRsaTokenRoundTrip() throws Exception {
+        KeyStoreJwtAccessTokenConverter converter = converter(JwtSigningKey.of("rsa", rsaKeyPair()));
+
+        String token = createToken(converter);
+
+        assertThat(JwtHelper.headers(token)).containsEntry("alg", "RS256").containsEntry("kid", "rsa");
+        assertThat(new JwtTokenStore(converter).readAuthentication(token).getOAuth2Request().getClientId())
+            .isEqualTo("internal");
+        assertThat(converter.getKey()).containsEntry("alg", "SHA256withRSA");
+    }
+
+    @Test
+    public void testEcTokenRoundTrip() throws Exception {
+        KeyStoreJwtAccessTokenConverter converter = converter(JwtSigningKey.of("ec", ecKeyPair("secp256r1")));
+
+        String token = createToken(converter);
+
+        assertThat(JwtHelper.headers(token)).containsEntry("alg", "ES256");
+        assertThat(new JwtTokenStore(converter).readAuthentication(token).getOAuth2Request().getClientId())
+            .isEqualTo("internal");
+        assertThat(converter.isPublic()).isTrue();
+        assertThat(converter.getKey()).containsEntry("alg", "SHA256withECDSA");
+        assertThat(converter.getKey().get("value")).startsWith("-----BEGIN PUBLIC KEY-----");
+    }
+
+    @Test
+    public void testEcP521TokenRoundTrip() throws Exception {
+        KeyStoreJwtAccessTokenConverter converter = converter(JwtSigningKey.of("ec", ecKeyPair("secp521r1")));
+
+        String token = createToken(converter);
+
+        assertThat(JwtHelper.headers(token)).containsEntry("alg", "ES512");
+        assertThat(new JwtTokenStore(converter).readAuthentication(token).getOAuth2Request().getClientId())
+            .isEqualTo("internal");
+    }
+
+    @Test
+    public void testTokenIsVerifiedWithItsKeyId() throws Exception {
+        JwtSigningKey oldKey = JwtSigningKey.of("old", ecKeyPair("secp256r1"));
+        JwtSigningKey newKey = JwtSigningKey.of("new", rsaKeyPair());
+        String oldToken = createToken(converter(oldKey));
+
+        KeyStoreJwtAccessTokenConverter converter = converter(newKey, oldKey);
+        String newToken = createToken(converter);
+
+        assertThat(JwtHelper.headers(newToken)).containsEntry("kid", "new");
+        assertThat(new JwtTokenStore(converter).readAuthentication(oldToken).getOAuth2Request().getClientId())
+            .isEqualTo("internal");
+        assertThat(new JwtTokenStore(converter).readAuthentication(newToken).getOAuth2Request().getClientId())
+            .isEqualTo("internal");
+    }
+
+    @Test
+    public void testTokenSignedWithAnotherKeyIsRejected() throws Exception {
+        KeyStoreJwtAccessTokenConverter signing = converter(JwtSigningKey.of("ec", ecKeyPair("secp256r1")));
+        KeyStoreJwtAccessTokenConverter verifying = converter(JwtSigningKey.of("ec", ecKeyPair("secp256r1")));
+
+        String token = createToken(signing);
+
+        assertThatThrownBy(() -> new JwtTokenStore(verifying).readAuthentication(token)).isInstanceOf(InvalidTokenException.class);
+    }
+
+    private static KeyStoreJwtAccessTokenConverter converter(JwtSigningKey... signingKeys) {
+        JwtKeyStore keyStore = mock(JwtKeyStore.class);
+        when(keyStore.getSigningKeys()).thenReturn(Arrays.asList(signingKeys));
+        return new KeyStoreJwtAccessTokenConverter(new JwtKeyRing(keyStore, signingKeys[0].getKeyId(), false));
+    }
+
+    static KeyPair rsaKeyPair() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        return generator.generateKeyPair();
+    }
+
+    static KeyPair ecKeyPair(String curve) throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec(curve));
+        return generator.generateKeyPair();
+    }
+
+    private static String createToken(KeyStoreJwtAccessTokenConverter converter) {
+        OAuth2Request request = new OAuth2Request(Collections.emptyMap(), "internal", Collections.emptyList(), true,
+            Collections.singleton("web-app"), null, null, null, null);
+        return converter.enhance(new DefaultOAuth2AccessToken("token"), new OAuth2Authentication(request, null)).getValue();
+    }
+}
@@ -0,0 +1,154 @@
+package com.dhomoni.uaa.service;
+
+import com.dhomoni.uaa.config.UaaProperties;
+import com.dhomoni.uaa.domain.User;
+import com.dhomoni.uaa.repository.AuthorityRepository;
+import com.dhomoni.uaa.repository.PersistenceAuditEventRepository;
+import com.dhomoni.uaa.repository.UserRepository;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.data.domain.Pageable;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for the CacheWarmUp.
+ *
+ * @see CacheWarmUp
+ */
+public class CacheWarmUpUnitTest {
+
+    private PersistenceAuditEventRepository persistenceAuditEventRepository;
+
+    private UserRepository userRepository;
+
+    private AuthorityRepository authorityRepository;
+
+    private UserCacheEvictor userCacheEvictor;
+
+    private UaaProperties uaaProperties;
+
+    @Before
+    public void setup() {
+        persistenceAuditEventRepository = mock(PersistenceAuditEventRepository.class);
+        userRepository = mock(UserRepository.class);
+        authorityRepository = mock(AuthorityRepository.class);
+        userCacheEvictor = mock(UserCacheEvictor.class);
+        uaaProperties = new UaaProperties();
+        uaaProperties.getCacheWarmUp().setEnabled(true);
+        uaaProperties.getCacheWarmUp().setBatchSize(2);
+    }
+
+    @Test
+    public void testDisabledWarmUpIsHealthy() {
+        uaaProperties.getCacheWarmUp().setEnabled(false);
+        CacheWarmUp cacheWarmUp = cacheWarmUp();
+
+        cacheWarmUp.warmUp();
+
+        assertThat(cacheWarmUp.health().getStatus()).isEqualTo(Status.UP);
+        verifyZeroInteractions(persistenceAuditEventRepository, userRepository, userCacheEvictor);
+    }
+
+    @Test
+    public void testRecentUsersAreCachedByBatches() {
+        when(persistenceAuditEventRepository.findRecentPrincipalsByAuditEventType(anyString(), any(Instant.class),
+            any(Pageable.class))).thenReturn(Arrays.asList("john", "jane@localhost", "jim"));
+        User john = user(1L, "john");
+        User jane = user(2L, "jane");
+        User jim = user(3L, "jim");
+        when(userRepository.findAllWithAuthoritiesByLoginIn(Arrays.asList("john", "jane@localhost")))
+            .thenReturn(Arrays.asList(john, john));
+        when(userRepository.findAllWithAuthoritiesByEmailIn(Collections.singletonList("jane@localhost")))
+            .thenReturn(Collections.singletonList(jane));
+        when(userRepository.findAllWithAuthoritiesByLoginIn(Collections.singletonList("jim")))
+            .thenReturn(Collections.singletonList(jim));
+        List<UserRepository.VersionRow> firstVersions = Arrays.asList(version(1L, 0L), version(2L, 0L));
+        List<UserRepository.VersionRow> secondVersions = Collections.singletonList(version(3L, 0L));
+        when(userRepository.findVersionsByIdIn(anyCollection())).thenReturn(firstVersions, secondVersions);
+        CacheWarmUp cacheWarmUp = cacheWarmUp();
+
+        assertThat(cacheWarmUp.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+        cacheWarmUp.warmUp();
+
+        verify(authorityRepository).findAll();
+        verify(userCacheEvictor).cache(john);
+        verify(userCacheEvictor).cache(jane);
+        verify(userCacheEvictor).cache(jim);
+        assertThat(cacheWarmUp.health().getStatus()).isEqualTo(Status.UP);
+        assertThat(cacheWarmUp.health().getDetails()).containsEntry("loadedUsers", 3);
+    }
+
+    @Test
+    public void testUsersChangedMeanwhileAreEvicted() {
+        when(persistenceAuditEventRepository.findRecentPrincipalsByAuditEventType(anyString(), any(Instant.class),
+            any(Pageable.class))).thenReturn(Arrays.asList("john", "jim"));
+        User john = user(1L, "john");
+        User jim = user(3L, "jim");
+        when(userRepository.findAllWithAuthoritiesByLoginIn(Arrays.asList("john", "jim")))
+            .thenReturn(Arrays.asList(john, jim));
+        // john was updated, and jim deleted, on another node after the batch was read
+        List<UserRepository.VersionRow> versions = Collections.singletonList(version(1L, 1L));
+        when(userRepository.findVersionsByIdIn(anyCollection())).thenReturn(versions);
+        CacheWarmUp cacheWarmUp = cacheWarmUp();
+
+        cacheWarmUp.warmUp();
+
+        InOrder inOrder = inOrder(userCacheEvictor);
+        inOrder.verify(userCacheEvictor).cache(john);
+        inOrder.verify(userCacheEvictor).cache(jim);
+        inOrder.verify(userCacheEvictor).evict(john);
+        inOrder.verify(userCacheEvictor).evict(jim);
+        assertThat(cacheWarmUp.health().getDetails()).containsEntry("loadedUsers", 0);
+    }
+
+    @Test
+    public void testWarmUpStopsAfterTimeBudget() {
+        uaaProperties.getCacheWarmUp().setTimeBudgetInSeconds(-1);
+        when(persistenceAuditEventRepository.findRecentPrincipalsByAuditEventType(anyString(), any(Instant.class),
+            any(Pageable.class))).thenReturn(Arrays.asList("john", "jim"));
+        CacheWarmUp cacheWarmUp = cacheWarmUp();
+
+        cacheWarmUp.warmUp();
+
+        verify(userRepository, never()).findAllWithAuthoritiesByLoginIn(anyCollection());
+        assertThat(cacheWarmUp.health().getStatus()).isEqualTo(Status.UP);
+    }
+
+    private CacheWarmUp cacheWarmUp() {
+        return new CacheWarmUp(persistenceAuditEventRepository, userRepository, authorityRepository, userCacheEvictor,
+            uaaProperties);
+    }
+
+    private static User user(Long id, String login) {
+        User user = new User();
+        user.setId(id);
+        user.setLogin(login);
+        user.setVersion(0L);
+        return user;
+    }
+
+    private static UserRepository.VersionRow version(Long id, Long version) {
+        UserRepository.VersionRow row = mock(UserRepository.VersionRow.class);
+        when(row.getId()).thenReturn(id);
+        when(row.getVersion()).thenReturn(version);
+        return row;
+    }
+}
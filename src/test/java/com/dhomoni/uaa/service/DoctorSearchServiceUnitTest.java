@@ -0,0 +1,116 @@
+package com.dhomoni.uaa.service;
+
+import com.dhomoni.uaa.domain.DoctorDocument;
+import com.dhomoni.uaa.domain.enumeration.DoctorType;
+import com.dhomoni.uaa.service.dto.DoctorSearchResultDTO;
+import com.github.vanroy.springdata.jest.aggregation.impl.AggregatedPageImpl;
+import com.google.gson.JsonParser;
+import io.searchbox.core.search.aggregation.RootAggregation;
+
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.query.NativeSearchQuery;
+import org.springframework.data.elasticsearch.core.query.SearchQuery;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for the DoctorSearchService, with a mocked Elasticsearch template.
+ *
+ * @see DoctorSearchService
+ */
+public class DoctorSearchServiceUnitTest {
+
+    private static final String AGGREGATIONS = "{" +
+        "\"type\": {\"doc_count\": 10, \"type\": {\"buckets\": [" +
+        "{\"key\": \"PHYSICIAN\", \"doc_count\": 7}, {\"key\": \"SURGEON\", \"doc_count\": 3}]}}," +
+        "\"medicalDepartment\": {\"doc_count\": 10, \"medicalDepartment\": {\"buckets\": [" +
+        "{\"key\": \"2\", \"doc_count\": 6}, {\"key\": \"1\", \"doc_count\": 4}]}}}";
+
+    private ElasticsearchOperations elasticsearchOperations;
+
+    private DoctorSearchService doctorSearchService;
+
+    private DoctorDocument doctor;
+
+    @Before
+    public void setup() {
+        elasticsearchOperations = mock(ElasticsearchOperations.class);
+        doctorSearchService = new DoctorSearchService(elasticsearchOperations);
+        doctor = new DoctorDocument();
+        doctor.setId(12L);
+        when(elasticsearchOperations.queryForPage(any(SearchQuery.class), eq(DoctorDocument.class)))
+            .thenAnswer(invocation -> new AggregatedPageImpl<>(Collections.singletonList(doctor),
+                ((SearchQuery) invocation.getArgument(0)).getPageable(), 10,
+                new RootAggregation("aggregations", new JsonParser().parse(AGGREGATIONS).getAsJsonObject())));
+    }
+
+    @Test
+    public void searchReturnsTheDoctorsAndTheFacets() {
+        DoctorSearchResultDTO result = doctorSearchService.search("cardiology", null, null, null, null, null,
+            PageRequest.of(0, 1));
+
+        assertThat(result.getDoctors()).containsExactly(doctor);
+        assertThat(result.getTotal()).isEqualTo(10);
+        assertThat(result.getFacets().get(DoctorSearchService.TYPE)).containsEntry("PHYSICIAN", 7L).containsEntry("SURGEON", 3L);
+        assertThat(result.getFacets().get(DoctorSearchService.MEDICAL_DEPARTMENT)).containsEntry("2", 6L).containsEntry("1", 4L);
+    }
+
+    @Test
+    public void searchAroundAPointFiltersAndSortsByDistance() {
+        doctorSearchService.search("cardiology", 23.738, 90.3958, 5.0, DoctorType.SURGEON, 2,
+            PageRequest.of(1, 20, Sort.by("id")));
+
+        NativeSearchQuery query = capturedQuery();
+        assertThat(query.getQuery().toString()).contains("\"geo_distance\"").contains("\"distance\" : 5000.0")
+            .contains("\"nested\"").contains("cardiology");
+        assertThat(query.getFilter().toString()).contains("\"type\" : {").contains("SURGEON")
+            .contains("\"medicalDepartment\" : {");
+        assertThat(query.getElasticsearchSorts()).hasSize(1);
+        assertThat(query.getElasticsearchSorts().get(0).toString()).contains("_geo_distance");
+        assertThat(query.getPageable().getPageNumber()).isEqualTo(1);
+        assertThat(query.getPageable().getSort().isSorted()).isFalse();
+        assertThat(query.getAggregations()).extracting("name")
+            .containsExactly(DoctorSearchService.TYPE, DoctorSearchService.MEDICAL_DEPARTMENT);
+    }
+
+    @Test
+    public void eachFacetIsCountedWithinTheOtherFacetFilterOnly() {
+        doctorSearchService.search(null, null, null, null, DoctorType.SURGEON, 2, PageRequest.of(0, 20));
+
+        NativeSearchQuery query = capturedQuery();
+        String typeFacet = new SearchSourceBuilder().aggregation(query.getAggregations().get(0)).toString();
+        String medicalDepartmentFacet = new SearchSourceBuilder().aggregation(query.getAggregations().get(1)).toString();
+        assertThat(typeFacet).contains("\"filter\"").contains("\"medicalDepartment\" : {").doesNotContain("SURGEON")
+            .contains("\"field\" : \"type\"");
+        assertThat(medicalDepartmentFacet).contains("\"filter\"").contains("SURGEON")
+            .contains("\"field\" : \"medicalDepartment\"");
+    }
+
+    @Test
+    public void searchWithoutTextMatchesAllTheDoctors() {
+        doctorSearchService.search(" ", null, null, null, null, null, PageRequest.of(0, 20));
+
+        NativeSearchQuery query = capturedQuery();
+        assertThat(query.getQuery().toString()).contains("\"match_all\"").doesNotContain("geo_distance");
+        assertThat(query.getElasticsearchSorts()).isNullOrEmpty();
+    }
+
+    private NativeSearchQuery capturedQuery() {
+        ArgumentCaptor<SearchQuery> query = ArgumentCaptor.forClass(SearchQuery.class);
+        verify(elasticsearchOperations).queryForPage(query.capture(), eq(DoctorDocument.class));
+        return (NativeSearchQuery) query.getValue();
+    }
+}
@@ -0,0 +1,208 @@
+package com.dhomoni.uaa.service;
+
+import com.dhomoni.uaa.config.UaaProperties;
+import com.dhomoni.uaa.domain.Doctor;
+import com.dhomoni.uaa.domain.Patient;
+import com.dhomoni.uaa.domain.User;
+import com.dhomoni.uaa.repository.DoctorRepository;
+import com.dhomoni.uaa.repository.PatientRepository;
+import com.dhomoni.uaa.security.AuthoritiesConstants;
+import com.dhomoni.uaa.service.image.ImageProcessor;
+import com.dhomoni.uaa.service.image.StoredImage;
+import com.dhomoni.uaa.web.rest.errors.InvalidImageException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StreamUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for the ImageService, with a filesystem image store.
+ *
+ * @see ImageService
+ */
+public class ImageServiceUnitTest {
+
+    @Rule
+    public TemporaryFolder directory = new TemporaryFolder();
+
+    private DoctorRepository doctorRepository;
+
+    private ImageService imageService;
+
+    private Doctor doctor;
+
+    private Patient patient;
+
+    @Before
+    public void setup() {
+        doctorRepository = mock(DoctorRepository.class);
+        PatientRepository patientRepository = mock(PatientRepository.class);
+        UaaProperties uaaProperties = new UaaProperties();
+        uaaProperties.getImageStore().setType(ImageService.FILESYSTEM);
+        uaaProperties.getImageStore().setDirectory(directory.getRoot().getPath());
+        // the thumbnails are created before saveImage returns
+        imageService = new ImageService(doctorRepository, patientRepository, uaaProperties, Runnable::run);
+        doctor = new Doctor();
+        doctor.setId(12L);
+        when(doctorRepository.findById(12L)).thenReturn(Optional.of(doctor));
+        User user = new User();
+        user.setLogin("patient");
+        patient = new Patient();
+        patient.setId(21L);
+        patient.setUser(user);
+        when(patientRepository.findById(21L)).thenReturn(Optional.of(patient));
+    }
+
+    @After
+    public void teardown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void testImageIsStoredUnderItsEtag() throws IOException {
+        doctor.setImage(new byte[] {9});
+
+        imageService.saveImage(doctor, image(300, 200, "png"));
+
+        byte[] stored = Files.readAllBytes(new File(directory.getRoot(), "doctors/12/" + doctor.getImageEtag()).toPath());
+        assertThat(doctor.getImage()).isNull();
+        assertThat(doctor.getImageContentType()).isEqualTo(ImageProcessor.JPEG);
+        assertThat(doctor.getImageEtag()).isEqualTo(DigestUtils.md5DigestAsHex(stored));
+        StoredImage image = imageService.findDoctorImage(12L, null).get();
+        assertThat(image.getContentType()).isEqualTo(ImageProcessor.JPEG);
+        assertThat(image.getEtag()).isEqualTo(doctor.getImageEtag());
+        assertThat(StreamUtils.copyToByteArray(image.getContent().getInputStream())).isEqualTo(stored);
+    }
+
+    @Test
+    public void testSmallestLargerThumbnailIsFound() throws IOException {
+        imageService.saveImage(doctor, image(300, 200, "png"));
+
+        StoredImage small = imageService.findDoctorImage(12L, 48).get();
+        StoredImage medium = imageService.findDoctorImage(12L, 100).get();
+        StoredImage large = imageService.findDoctorImage(12L, 1000).get();
+
+        assertThat(small.getEtag()).isEqualTo(doctor.getImageEtag() + "-64");
+        assertThat(read(small).getWidth()).isEqualTo(64);
+        assertThat(read(small).getHeight()).isEqualTo(43);
+        assertThat(medium.getEtag()).isEqualTo(doctor.getImageEtag() + "-256");
+        assertThat(read(medium).getWidth()).isEqualTo(256);
+        assertThat(large.getEtag()).isEqualTo(doctor.getImageEtag());
+        assertThat(read(large).getWidth()).isEqualTo(300);
+    }
+
+    @Test
+    public void testSmallImageHasNoLargerThumbnail() throws IOException {
+        imageService.saveImage(doctor, image(100, 100, "jpeg"));
+
+        StoredImage image = imageService.findDoctorImage(12L, 200).get();
+
+        assertThat(image.getEtag()).isEqualTo(doctor.getImageEtag());
+        assertThat(new File(directory.getRoot(), "doctors/12/" + doctor.getImageEtag() + "-64")).exists();
+        assertThat(new File(directory.getRoot(), "doctors/12/" + doctor.getImageEtag() + "-256")).doesNotExist();
+    }
+
+    @Test
+    public void testPreviousImageAndThumbnailsAreDeleted() throws IOException {
+        imageService.saveImage(doctor, image(300, 200, "png"));
+        String previousEtag = doctor.getImageEtag();
+
+        imageService.saveImage(doctor, image(200, 300, "jpeg"));
+
+        assertThat(new File(directory.getRoot(), "doctors/12/" + previousEtag)).doesNotExist();
+        assertThat(new File(directory.getRoot(), "doctors/12/" + previousEtag + "-64")).doesNotExist();
+        assertThat(new File(directory.getRoot(), "doctors/12/" + doctor.getImageEtag())).exists();
+        assertThat(new File(directory.getRoot(), "doctors/12/" + doctor.getImageEtag() + "-64")).exists();
+    }
+
+    @Test
+    public void testInvalidImageIsRejected() {
+        assertThatThrownBy(() -> imageService.saveImage(doctor, new byte[] {1, 2, 3}))
+            .isInstanceOf(InvalidImageException.class);
+
+        assertThat(doctor.getImageEtag()).isNull();
+        assertThat(directory.getRoot().list()).isEmpty();
+    }
+
+    @Test
+    public void testImageStoredInTheDatabaseIsFound() throws IOException {
+        byte[] content = image(10, 10, "png");
+        doctor.setImageContentType("image/png");
+        when(doctorRepository.findImageById(12L)).thenReturn(Optional.of(content));
+
+        StoredImage image = imageService.findDoctorImage(12L, 64).get();
+
+        assertThat(image.getEtag()).isEqualTo(DigestUtils.md5DigestAsHex(content));
+        assertThat(StreamUtils.copyToByteArray(image.getContent().getInputStream())).isEqualTo(content);
+    }
+
+    @Test
+    public void testMissingImageIsNotFound() {
+        imageService.saveImage(doctor, null);
+
+        assertThat(imageService.findDoctorImage(12L, null)).isEmpty();
+    }
+
+    @Test
+    public void testPatientImageIsFoundByThePatient() throws IOException {
+        imageService.saveImage(patient, image(100, 100, "jpeg"));
+        authenticate("patient", AuthoritiesConstants.PATIENT);
+
+        assertThat(imageService.findPatientImage(21L, null).get().getEtag()).isEqualTo(patient.getImageEtag());
+    }
+
+    @Test
+    public void testPatientImageIsFoundByAnAdmin() throws IOException {
+        imageService.saveImage(patient, image(100, 100, "jpeg"));
+        authenticate("admin", AuthoritiesConstants.ADMIN);
+
+        assertThat(imageService.findPatientImage(21L, null)).isPresent();
+    }
+
+    @Test
+    public void testPatientImageIsNotFoundByAnotherUser() throws IOException {
+        imageService.saveImage(patient, image(100, 100, "jpeg"));
+        authenticate("doctor", AuthoritiesConstants.DOCTOR);
+
+        assertThat(imageService.findPatientImage(21L, null)).isEmpty();
+    }
+
+    private static void authenticate(String login, String authority) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(login, login,
+            Collections.singletonList(new SimpleGrantedAuthority(authority))));
+    }
+
+    static byte[] image(int width, int height, String format) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        image.getGraphics().fillRect(width / 4, height / 4, width / 2, height / 2);
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        ImageIO.write(image, format, content);
+        return content.toByteArray();
+    }
+
+    private static BufferedImage read(StoredImage image) throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(StreamUtils.copyToByteArray(image.getContent().getInputStream())));
+    }
+}
@@ -0,0 +1,107 @@
+package com.dhomoni.uaa.service;
+
+import com.dhomoni.uaa.domain.enumeration.BloodGroup;
+import com.dhomoni.uaa.repository.PatientRepository;
+import com.dhomoni.uaa.service.dto.PatientCohortCriteria;
+import com.dhomoni.uaa.service.dto.PatientCohortDTO;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for the PatientCohortService, with a mocked repository.
+ *
+ * @see PatientCohortService
+ */
+public class PatientCohortServiceUnitTest {
+
+    // Shahbag, in Dhaka
+    private static final double LATITUDE = 23.7380;
+
+    private static final double LONGITUDE = 90.3958;
+
+    private PatientRepository patientRepository;
+
+    private PatientCohortService patientCohortService;
+
+    @Before
+    public void setup() {
+        patientRepository = mock(PatientRepository.class);
+        patientCohortService = new PatientCohortService(patientRepository);
+    }
+
+    @Test
+    public void findCohortWithoutLocationReturnsTheSelectedPatients() {
+        when(patientRepository.findCohort(any(), isNull(), eq(2))).thenReturn(Arrays.asList(patient(1L, null, null),
+            patient(2L, null, null)));
+
+        List<PatientCohortDTO> cohort = patientCohortService.findCohort(criteria(), null, 2);
+
+        assertThat(cohort).extracting(PatientCohortDTO::getId).containsExactly(1L, 2L);
+        assertThat(cohort.get(0).getDistanceInMeters()).isNull();
+        verify(patientRepository, never()).findCohort(any(), eq(2L), eq(2));
+    }
+
+    @Test
+    public void findCohortAroundAPointFiltersTheCornersOfTheBoundingBox() {
+        PatientCohortCriteria criteria = criteria();
+        criteria.setLatitude(LATITUDE);
+        criteria.setLongitude(LONGITUDE);
+        criteria.setRadius(2.0);
+        // 1.1 km north, 2.2 km north-east in the corner of the box, and 1.9 km north
+        when(patientRepository.findCohort(any(), isNull(), eq(2))).thenReturn(Arrays.asList(
+            patient(1L, 23.7480, LONGITUDE), patient(2L, 23.7520, 90.4110)));
+        when(patientRepository.findCohort(any(), eq(2L), eq(2))).thenReturn(Collections.singletonList(
+            patient(3L, 23.7550, LONGITUDE)));
+
+        List<PatientCohortDTO> cohort = patientCohortService.findCohort(criteria, null, 2);
+
+        assertThat(cohort).extracting(PatientCohortDTO::getId).containsExactly(1L, 3L);
+        assertThat(cohort.get(0).getDistanceInMeters()).isBetween(1100.0, 1125.0);
+    }
+
+    @Test
+    public void findCohortStopsOnceThePageIsFull() {
+        PatientCohortCriteria criteria = criteria();
+        criteria.setLatitude(LATITUDE);
+        criteria.setLongitude(LONGITUDE);
+        criteria.setRadius(2.0);
+        when(patientRepository.findCohort(any(), eq(5L), eq(1))).thenReturn(Collections.singletonList(
+            patient(6L, 23.7520, 90.4110)));
+        when(patientRepository.findCohort(any(), eq(6L), eq(1))).thenReturn(Collections.singletonList(
+            patient(7L, 23.7480, LONGITUDE)));
+
+        List<PatientCohortDTO> cohort = patientCohortService.findCohort(criteria, 5L, 1);
+
+        assertThat(cohort).extracting(PatientCohortDTO::getId).containsExactly(7L);
+        verify(patientRepository, never()).findCohort(any(), eq(7L), eq(1));
+    }
+
+    private static PatientCohortCriteria criteria() {
+        PatientCohortCriteria criteria = new PatientCohortCriteria();
+        criteria.setBloodGroup(BloodGroup.O_NEGATIVE);
+        return criteria;
+    }
+
+    private static PatientCohortDTO patient(Long id, Double latitude, Double longitude) {
+        PatientCohortDTO patient = new PatientCohortDTO();
+        patient.setId(id);
+        patient.setBloodGroup(BloodGroup.O_NEGATIVE);
+        patient.setLatitude(latitude);
+        patient.setLongitude(longitude);
+        return patient;
+    }
+}
@@ -0,0 +1,299 @@
+package com.dhomoni.uaa.service;
+
+import com.codahale.metrics.MetricRegistry;
+import com.dhomoni.uaa.config.ElasticsearchConfiguration;
+import com.dhomoni.uaa.config.UaaProperties;
+import com.dhomoni.uaa.domain.Doctor;
+import com.dhomoni.uaa.domain.DoctorDocument;
+import com.dhomoni.uaa.domain.SearchOutboxEntry;
+import com.dhomoni.uaa.domain.User;
+import com.dhomoni.uaa.domain.enumeration.SearchDocumentType;
+import com.dhomoni.uaa.repository.DoctorRepository;
+import com.dhomoni.uaa.repository.SearchOutboxEntryRepository;
+import com.dhomoni.uaa.repository.UserRepository;
+import com.dhomoni.uaa.service.mapper.DoctorDocumentMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.google.gson.Gson;
+import com.google.gson.JsonParser;
+import io.searchbox.client.JestClient;
+import io.searchbox.core.Bulk;
+import io.searchbox.core.BulkResult;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.mapping.ElasticsearchPersistentEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for the SearchOutboxWorker, with mocked repositories and Jest client.
+ *
+ * @see SearchOutboxWorker
+ */
+public class SearchOutboxWorkerUnitTest {
+
+    private SearchOutboxEntryRepository searchOutboxEntryRepository;
+
+    private UserRepository userRepository;
+
+    private DoctorRepository doctorRepository;
+
+    private JestClient jestClient;
+
+    private SearchReindexJob searchReindexJob;
+
+    private MetricRegistry metricRegistry;
+
+    private UaaProperties uaaProperties;
+
+    private SearchOutboxWorker worker;
+
+    @Before
+    public void setup() {
+        searchOutboxEntryRepository = mock(SearchOutboxEntryRepository.class);
+        userRepository = mock(UserRepository.class);
+        doctorRepository = mock(DoctorRepository.class);
+        jestClient = mock(JestClient.class);
+        searchReindexJob = mock(SearchReindexJob.class);
+        ElasticsearchOperations elasticsearchOperations = mock(ElasticsearchOperations.class);
+        ElasticsearchPersistentEntity userEntity = persistentEntity("user");
+        ElasticsearchPersistentEntity doctorEntity = persistentEntity("doctor");
+        when(elasticsearchOperations.getPersistentEntityFor(User.class)).thenReturn(userEntity);
+        when(elasticsearchOperations.getPersistentEntityFor(DoctorDocument.class)).thenReturn(doctorEntity);
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        metricRegistry = new MetricRegistry();
+        uaaProperties = new UaaProperties();
+        uaaProperties.getSearchOutbox().setBatchSize(2);
+        worker = new SearchOutboxWorker(searchOutboxEntryRepository, userRepository, doctorRepository,
+            new DoctorDocumentMapper(), jestClient, elasticsearchOperations,
+            new ElasticsearchConfiguration(objectMapper).getEntityMapper(), mock(PlatformTransactionManager.class),
+            searchReindexJob, metricRegistry, uaaProperties);
+        when(searchOutboxEntryRepository.findFirstByOrderByIdAsc()).thenReturn(Optional.empty());
+    }
+
+    @Test
+    public void drainIndexesTheUsersAndDeletesTheMissingOnes() throws IOException {
+        User user = user(1L, true);
+        givenDueEntries(entry(10L, SearchDocumentType.USER, 1L), entry(11L, SearchDocumentType.USER, 1L),
+            entry(12L, SearchDocumentType.USER, 2L));
+        when(userRepository.findAllWithAuthoritiesByIdIn(any())).thenReturn(Collections.singletonList(user));
+        when(jestClient.execute(any(Bulk.class))).thenReturn(bulkResult("{\"errors\": false, \"items\": []}", true));
+
+        assertThat(worker.drainBatch()).isEqualTo(3);
+
+        String bulk = sentBulk();
+        assertThat(bulk).contains("{\"index\":{\"_id\":\"1\",\"_index\":\"user\",\"_type\":\"user\"}}")
+            .contains("\"login\":\"user1\"")
+            .contains("{\"delete\":{\"_id\":\"2\",\"_index\":\"user\",\"_type\":\"user\"}}");
+        // the two entries of the user are sent as one action
+        assertThat(bulk.split("\"_id\":\"1\"", -1)).hasSize(2);
+        verify(searchOutboxEntryRepository).deleteByIdIn(Arrays.asList(10L, 11L, 12L));
+        verify(searchOutboxEntryRepository, never()).updateAttempts(anyLong(), anyInt(), any());
+    }
+
+    @Test
+    public void drainDeletesTheDoctorsWhoseUserIsNotActivated() throws IOException {
+        Doctor activated = doctor(20L, user(1L, true));
+        Doctor deactivated = doctor(21L, user(2L, false));
+        givenDueEntries(entry(10L, SearchDocumentType.DOCTOR, 20L), entry(11L, SearchDocumentType.DOCTOR, 21L));
+        when(doctorRepository.findAllWithUserAndProfessionalDegreesByIdIn(any()))
+            .thenReturn(Arrays.asList(activated, deactivated, activated));
+        when(jestClient.execute(any(Bulk.class))).thenReturn(bulkResult("{\"errors\": false, \"items\": []}", true));
+
+        worker.drainBatch();
+
+        assertThat(sentBulk()).contains("{\"index\":{\"_id\":\"20\",\"_index\":\"doctor\",\"_type\":\"doctor\"}}")
+            .contains("\"firstName\":\"first1\"")
+            .contains("{\"delete\":{\"_id\":\"21\",\"_index\":\"doctor\",\"_type\":\"doctor\"}}");
+        verify(searchOutboxEntryRepository).deleteByIdIn(Arrays.asList(10L, 11L));
+    }
+
+    @Test
+    public void drainDelaysTheFailedDocuments() throws IOException {
+        givenDueEntries(entry(10L, SearchDocumentType.USER, 1L), entry(11L, SearchDocumentType.USER, 2L));
+        when(userRepository.findAllWithAuthoritiesByIdIn(any())).thenReturn(Arrays.asList(user(1L, true), user(2L, true)));
+        when(jestClient.execute(any(Bulk.class))).thenReturn(bulkResult("{\"errors\": true, \"items\": [" +
+            "{\"index\": {\"_index\": \"user\", \"_type\": \"user\", \"_id\": \"1\", \"status\": 201}}," +
+            "{\"index\": {\"_index\": \"user\", \"_type\": \"user\", \"_id\": \"2\", \"status\": 429," +
+            " \"error\": {\"type\": \"es_rejected_execution_exception\", \"reason\": \"queue full\"}}}]}", false));
+
+        Instant before = Instant.now();
+        worker.drainBatch();
+
+        verify(searchOutboxEntryRepository).deleteByIdIn(Collections.singletonList(10L));
+        ArgumentCaptor<Instant> nextAttemptDate = ArgumentCaptor.forClass(Instant.class);
+        verify(searchOutboxEntryRepository).updateAttempts(eq(11L), eq(1), nextAttemptDate.capture());
+        assertThat(nextAttemptDate.getValue()).isAfterOrEqualTo(before.plusSeconds(1));
+        assertThat(metricRegistry.meter("search.outbox.failed").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.meter("search.outbox.indexed").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void drainDelaysTheWholeBatchWhenTheRequestFails() throws IOException {
+        SearchOutboxEntry retried = entry(11L, SearchDocumentType.USER, 2L);
+        retried.setAttempts(3);
+        givenDueEntries(entry(10L, SearchDocumentType.USER, 1L), retried);
+        when(userRepository.findAllWithAuthoritiesByIdIn(any())).thenReturn(Collections.singletonList(user(1L, true)));
+        when(jestClient.execute(any(Bulk.class))).thenThrow(new IOException("Connection refused"));
+
+        worker.drainBatch();
+
+        verify(searchOutboxEntryRepository, never()).deleteByIdIn(any());
+        verify(searchOutboxEntryRepository).updateAttempts(eq(10L), eq(1), any());
+        verify(searchOutboxEntryRepository).updateAttempts(eq(11L), eq(4), any());
+    }
+
+    @Test
+    public void drainLocksTheEntriesForTheLease() throws IOException {
+        givenDueEntries(entry(10L, SearchDocumentType.USER, 1L), entry(11L, SearchDocumentType.USER, 2L));
+        when(userRepository.findAllWithAuthoritiesByIdIn(any())).thenReturn(Collections.emptyList());
+        when(jestClient.execute(any(Bulk.class))).thenReturn(bulkResult("{\"errors\": false, \"items\": []}", true));
+
+        Instant before = Instant.now();
+        worker.drainBatch();
+
+        ArgumentCaptor<String> lockedBy = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Instant> leaseEnd = ArgumentCaptor.forClass(Instant.class);
+        verify(searchOutboxEntryRepository).lock(eq(Arrays.asList(10L, 11L)), lockedBy.capture(), any(),
+            leaseEnd.capture());
+        verify(searchOutboxEntryRepository).findAllByLockedByOrderByIdAsc(lockedBy.getValue());
+        assertThat(leaseEnd.getValue()).isAfterOrEqualTo(before.plusSeconds(60));
+    }
+
+    @Test
+    public void drainLeavesTheEntriesHeldByAnotherDrain() throws IOException {
+        givenDueEntries(entry(10L, SearchDocumentType.USER, 1L), entry(11L, SearchDocumentType.USER, 2L));
+        when(searchOutboxEntryRepository.lock(any(), any(), any(), any())).thenReturn(0);
+
+        assertThat(worker.drainBatch()).isZero();
+
+        verify(jestClient, never()).execute(any(Bulk.class));
+        verify(searchOutboxEntryRepository, never()).findAllByLockedByOrderByIdAsc(any());
+        verify(searchOutboxEntryRepository, never()).deleteByIdIn(any());
+    }
+
+    @Test
+    public void drainGoesOnWhileTheBatchesAreFull() throws IOException {
+        when(searchOutboxEntryRepository.findAllByNextAttemptDateLessThanEqualOrderByNextAttemptDateAscIdAsc(any(), any()))
+            .thenReturn(Arrays.asList(entry(10L, SearchDocumentType.USER, 1L), entry(11L, SearchDocumentType.USER, 2L)))
+            .thenReturn(Collections.singletonList(entry(12L, SearchDocumentType.USER, 3L)));
+        when(searchOutboxEntryRepository.lock(any(), any(), any(), any())).thenReturn(2).thenReturn(1);
+        when(searchOutboxEntryRepository.findAllByLockedByOrderByIdAsc(any()))
+            .thenReturn(Arrays.asList(entry(10L, SearchDocumentType.USER, 1L), entry(11L, SearchDocumentType.USER, 2L)))
+            .thenReturn(Collections.singletonList(entry(12L, SearchDocumentType.USER, 3L)));
+        when(userRepository.findAllWithAuthoritiesByIdIn(any())).thenReturn(Collections.emptyList());
+        when(jestClient.execute(any(Bulk.class))).thenReturn(bulkResult("{\"errors\": false, \"items\": []}", true));
+        SearchOutboxEntry oldest = entry(13L, SearchDocumentType.USER, 4L);
+        oldest.setCreatedDate(Instant.now().minusSeconds(60));
+        when(searchOutboxEntryRepository.count()).thenReturn(5L);
+        when(searchOutboxEntryRepository.findFirstByOrderByIdAsc()).thenReturn(Optional.of(oldest));
+
+        worker.drain();
+
+        verify(jestClient, times(2)).execute(any(Bulk.class));
+        assertThat(metricRegistry.getGauges().get("search.outbox.pending").getValue()).isEqualTo(5L);
+        assertThat((Long) metricRegistry.getGauges().get("search.outbox.lag").getValue()).isGreaterThanOrEqualTo(60000L);
+    }
+
+    @Test
+    public void drainDoesNothingWhenDisabled() {
+        uaaProperties.getSearchOutbox().setEnabled(false);
+
+        worker.drain();
+
+        verify(searchOutboxEntryRepository, never())
+            .findAllByNextAttemptDateLessThanEqualOrderByNextAttemptDateAscIdAsc(any(), any());
+    }
+
+    @Test
+    public void drainWaitsForTheEndOfTheReindex() {
+        when(searchReindexJob.isRunning()).thenReturn(true);
+
+        worker.drain();
+
+        verify(searchOutboxEntryRepository, never())
+            .findAllByNextAttemptDateLessThanEqualOrderByNextAttemptDateAscIdAsc(any(), any());
+    }
+
+    @Test
+    public void backoffIsDoubledUpToTheMaximum() {
+        assertThat(worker.backoff(1)).isEqualTo(Duration.ofSeconds(1));
+        assertThat(worker.backoff(2)).isEqualTo(Duration.ofSeconds(2));
+        assertThat(worker.backoff(4)).isEqualTo(Duration.ofSeconds(8));
+        assertThat(worker.backoff(10)).isEqualTo(Duration.ofMinutes(5));
+        assertThat(worker.backoff(100)).isEqualTo(Duration.ofMinutes(5));
+    }
+
+    private void givenDueEntries(SearchOutboxEntry... entries) {
+        when(searchOutboxEntryRepository.findAllByNextAttemptDateLessThanEqualOrderByNextAttemptDateAscIdAsc(any(), any()))
+            .thenReturn(Arrays.asList(entries));
+        when(searchOutboxEntryRepository.lock(any(), any(), any(), any())).thenReturn(entries.length);
+        when(searchOutboxEntryRepository.findAllByLockedByOrderByIdAsc(any())).thenReturn(Arrays.asList(entries));
+    }
+
+    private String sentBulk() throws IOException {
+        ArgumentCaptor<Bulk> bulk = ArgumentCaptor.forClass(Bulk.class);
+        verify(jestClient).execute(bulk.capture());
+        return bulk.getValue().getData(new Gson());
+    }
+
+    private static ElasticsearchPersistentEntity persistentEntity(String name) {
+        ElasticsearchPersistentEntity entity = mock(ElasticsearchPersistentEntity.class);
+        when(entity.getIndexName()).thenReturn(name);
+        when(entity.getIndexType()).thenReturn(name);
+        return entity;
+    }
+
+    private static BulkResult bulkResult(String json, boolean succeeded) {
+        BulkResult result = new BulkResult(new Gson());
+        result.setJsonObject(new JsonParser().parse(json).getAsJsonObject());
+        result.setSucceeded(succeeded);
+        return result;
+    }
+
+    private static SearchOutboxEntry entry(Long id, SearchDocumentType documentType, Long documentId) {
+        SearchOutboxEntry entry = new SearchOutboxEntry();
+        entry.setId(id);
+        entry.setDocumentType(documentType);
+        entry.setDocumentId(documentId);
+        entry.setCreatedDate(Instant.now());
+        entry.setNextAttemptDate(Instant.now());
+        return entry;
+    }
+
+    private static User user(Long id, boolean activated) {
+        User user = new User();
+        user.setId(id);
+        user.setLogin("user" + id);
+        user.setFirstName("first" + id);
+        user.setActivated(activated);
+        return user;
+    }
+
+    private static Doctor doctor(Long id, User user) {
+        Doctor doctor = new Doctor();
+        doctor.setId(id);
+        doctor.setUser(user);
+        return doctor;
+    }
+}
@@ -0,0 +1,227 @@
+package com.dhomoni.uaa.service;
+
+import com.dhomoni.uaa.config.ElasticsearchConfiguration;
+import com.dhomoni.uaa.config.UaaProperties;
+import com.dhomoni.uaa.domain.User;
+import com.dhomoni.uaa.repository.UserRepository;
+import com.dhomoni.uaa.service.dto.SearchReindexProgressDTO;
+import com.dhomoni.uaa.service.dto.SearchReindexProgressDTO.Status;
+import com.dhomoni.uaa.web.rest.errors.BadRequestAlertException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+import io.searchbox.action.Action;
+import io.searchbox.client.JestClient;
+import io.searchbox.client.JestResult;
+import io.searchbox.core.Bulk;
+import io.searchbox.core.BulkResult;
+import io.searchbox.indices.CreateIndex;
+import io.searchbox.indices.DeleteIndex;
+import io.searchbox.indices.aliases.GetAliases;
+import io.searchbox.indices.aliases.ModifyAliases;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.mapping.ElasticsearchPersistentEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for the SearchReindexJob, with mocked repository, Jest client and Hazelcast map.
+ *
+ * @see SearchReindexJob
+ */
+public class SearchReindexJobUnitTest {
+
+    private static final List<Long> USER_IDS = LongStream.rangeClosed(1, 5).boxed().collect(Collectors.toList());
+
+    private final Map<String, SearchReindexProgressDTO> progressMap = new ConcurrentHashMap<>();
+
+    private final List<Action<?>> actions = Collections.synchronizedList(new ArrayList<>());
+
+    private UaaProperties uaaProperties;
+
+    private String aliases;
+
+    private boolean bulkFails;
+
+    private SearchReindexJob job;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setup() throws IOException {
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.count()).thenReturn((long) USER_IDS.size());
+        when(userRepository.findAllIdsByIdGreaterThan(anyLong(), any())).thenAnswer(invocation -> {
+            Long afterId = invocation.getArgument(0);
+            Pageable pageable = invocation.getArgument(1);
+            return USER_IDS.stream().filter(id -> id > afterId).limit(pageable.getPageSize()).collect(Collectors.toList());
+        });
+        when(userRepository.findAllWithAuthoritiesByIdIn(any())).thenAnswer(invocation ->
+            ((Collection<Long>) invocation.getArgument(0)).stream().map(SearchReindexJobUnitTest::user)
+                .collect(Collectors.toList()));
+
+        JestClient jestClient = mock(JestClient.class);
+        when(jestClient.execute(any())).thenAnswer(invocation -> {
+            Action<?> action = invocation.getArgument(0);
+            actions.add(action);
+            if (action instanceof Bulk) {
+                return bulkFails ?
+                    result(new BulkResult(new Gson()), "{\"errors\": true, \"items\": [{\"index\": {\"_index\": \"user\"," +
+                        " \"_type\": \"user\", \"_id\": \"1\", \"status\": 400, \"error\": {\"type\": \"mapper_parsing_exception\"}}}]}", false) :
+                    result(new BulkResult(new Gson()), "{\"errors\": false, \"items\": []}", true);
+            }
+            return result(new JestResult(new Gson()), action instanceof GetAliases ? aliases : "{}", true);
+        });
+
+        ElasticsearchOperations elasticsearchOperations = mock(ElasticsearchOperations.class);
+        ElasticsearchPersistentEntity userEntity = mock(ElasticsearchPersistentEntity.class);
+        when(userEntity.getIndexName()).thenReturn("user");
+        when(userEntity.getIndexType()).thenReturn("user");
+        when(userEntity.getShards()).thenReturn((short) 5);
+        when(userEntity.getReplicas()).thenReturn((short) 1);
+        when(userEntity.getRefreshInterval()).thenReturn("1s");
+        when(elasticsearchOperations.getPersistentEntityFor(User.class)).thenReturn(userEntity);
+
+        IMap<String, SearchReindexProgressDTO> map = mock(IMap.class);
+        when(map.get(anyString())).thenAnswer(invocation -> progressMap.get(invocation.<String>getArgument(0)));
+        when(map.put(anyString(), any())).thenAnswer(invocation ->
+            progressMap.put(invocation.getArgument(0), invocation.getArgument(1)));
+        when(map.put(anyString(), any(), anyLong(), any())).thenAnswer(invocation ->
+            progressMap.put(invocation.getArgument(0), invocation.getArgument(1)));
+        HazelcastInstance hazelcastInstance = mock(HazelcastInstance.class);
+        when(hazelcastInstance.<String, SearchReindexProgressDTO>getMap(SearchReindexJob.PROGRESS_MAP)).thenReturn(map);
+
+        uaaProperties = new UaaProperties();
+        uaaProperties.getSearchReindex().setChunkSize(2);
+        uaaProperties.getSearchReindex().setThreads(2);
+        uaaProperties.getSearchReindex().setMaxAttempts(1);
+        aliases = "{\"user_20190101000000\": {\"aliases\": {\"user\": {}}}}";
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        job = new SearchReindexJob(userRepository, jestClient, elasticsearchOperations,
+            new ElasticsearchConfiguration(objectMapper).getEntityMapper(), mock(PlatformTransactionManager.class),
+            hazelcastInstance, Runnable::run, uaaProperties);
+    }
+
+    @Test
+    public void rebuildIndexesAllTheUsersAndMovesTheAlias() {
+        SearchReindexProgressDTO started = job.start();
+
+        assertThat(started.getStatus()).isEqualTo(Status.RUNNING);
+        assertThat(started.getIndex()).startsWith("user_");
+        SearchReindexProgressDTO progress = job.getProgress().get();
+        assertThat(progress.getStatus()).isEqualTo(Status.COMPLETED);
+        assertThat(progress.getIndexedUsers()).isEqualTo(5);
+        assertThat(job.isRunning()).isFalse();
+
+        assertThat(actionsOf(CreateIndex.class)).extracting(Action::getURI).containsExactly(started.getIndex());
+        JsonObject created = new JsonParser().parse(actionsOf(CreateIndex.class).get(0).getData(new Gson())).getAsJsonObject();
+        assertThat(created.getAsJsonObject("settings").get("refresh_interval").getAsString()).isEqualTo("-1");
+        assertThat(created.getAsJsonObject("mappings").getAsJsonObject("user").getAsJsonObject("properties")
+            .getAsJsonObject("login").getAsJsonObject("fields").has("keyword")).isTrue();
+        List<String> bulks = actionsOf(Bulk.class).stream().map(bulk -> bulk.getData(new Gson())).collect(Collectors.toList());
+        assertThat(bulks).hasSize(3);
+        assertThat(String.join("", bulks)).contains("\"login\":\"user1\"").contains("\"login\":\"user5\"");
+        assertThat(actionsOf(ModifyAliases.class).get(0).getData(new Gson()))
+            .contains("{\"add\":{\"index\":\"" + started.getIndex() + "\",\"alias\":\"user\"}}")
+            .contains("{\"remove\":{\"index\":\"user_20190101000000\",\"alias\":\"user\"}}");
+        assertThat(actionsOf(DeleteIndex.class)).extracting(Action::getURI).containsExactly("user_20190101000000");
+    }
+
+    @Test
+    public void firstRebuildReplacesTheIndexNamedAfterTheAlias() {
+        aliases = "{\"user\": {\"aliases\": {}}}";
+
+        SearchReindexProgressDTO started = job.start();
+
+        assertThat(job.getProgress().get().getStatus()).isEqualTo(Status.COMPLETED);
+        assertThat(actionsOf(DeleteIndex.class)).extracting(Action::getURI).containsExactly("user");
+        assertThat(actions.indexOf(actionsOf(DeleteIndex.class).get(0)))
+            .isLessThan(actions.indexOf(actionsOf(ModifyAliases.class).get(0)));
+        assertThat(actionsOf(ModifyAliases.class).get(0).getData(new Gson()))
+            .contains("{\"add\":{\"index\":\"" + started.getIndex() + "\",\"alias\":\"user\"}}")
+            .doesNotContain("remove");
+    }
+
+    @Test
+    public void failedBulkRequestDeletesTheNewIndexAndKeepsTheAlias() {
+        bulkFails = true;
+
+        SearchReindexProgressDTO started = job.start();
+
+        SearchReindexProgressDTO progress = job.getProgress().get();
+        assertThat(progress.getStatus()).isEqualTo(Status.FAILED);
+        assertThat(progress.getError()).contains("mapper_parsing_exception");
+        assertThat(actionsOf(ModifyAliases.class)).isEmpty();
+        assertThat(actionsOf(DeleteIndex.class)).extracting(Action::getURI).containsExactly(started.getIndex());
+    }
+
+    @Test
+    public void startIsRejectedWhileARebuildIsRunning() {
+        SearchReindexProgressDTO running = new SearchReindexProgressDTO();
+        running.setStatus(Status.RUNNING);
+        running.setIndex("user_20190101000000");
+        progressMap.put("user", running);
+
+        assertThat(job.isRunning()).isTrue();
+        assertThatThrownBy(() -> job.start()).isInstanceOf(BadRequestAlertException.class);
+        assertThat(actions).isEmpty();
+    }
+
+    @Test
+    public void progressHasTheThroughputAndTheEta() {
+        SearchReindexJob.Run run = new SearchReindexJob.Run("user_1", Instant.now().minusSeconds(10), 100);
+        run.indexedUsers.set(20);
+
+        SearchReindexProgressDTO progress = run.toProgress();
+
+        assertThat(progress.getStatus()).isEqualTo(Status.RUNNING);
+        assertThat(progress.getUsersPerSecond()).isBetween(1.9, 2.0);
+        assertThat(progress.getEtaInSeconds()).isBetween(40L, 42L);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Action<?>> List<T> actionsOf(Class<T> type) {
+        synchronized (actions) {
+            return actions.stream().filter(type::isInstance).map(action -> (T) action).collect(Collectors.toList());
+        }
+    }
+
+    private static <T extends JestResult> T result(T result, String json, boolean succeeded) {
+        result.setJsonObject(new JsonParser().parse(json).getAsJsonObject());
+        result.setSucceeded(succeeded);
+        return result;
+    }
+
+    private static User user(Long id) {
+        User user = new User();
+        user.setId(id);
+        user.setLogin("user" + id);
+        user.setActivated(true);
+        return user;
+    }
+}
@@ -0,0 +1,219 @@
+package com.dhomoni.uaa.service;
+
+import com.dhomoni.uaa.config.UaaProperties;
+import com.dhomoni.uaa.domain.User;
+import com.dhomoni.uaa.repository.UserRepository;
+import com.dhomoni.uaa.security.UserCredentials;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.AbstractMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the UserCacheEvictor.
+ *
+ * @see UserCacheEvictor
+ */
+public class UserCacheEvictorUnitTest {
+
+    private ConcurrentMapCacheManager cacheManager;
+
+    private UaaProperties uaaProperties;
+
+    private UserCacheEvictor userCacheEvictor;
+
+    @Before
+    public void setup() {
+        cacheManager = new ConcurrentMapCacheManager();
+        uaaProperties = new UaaProperties();
+        userCacheEvictor = new UserCacheEvictor(cacheManager, uaaProperties);
+        cache(UserRepository.USERS_BY_LOGIN_CACHE).put("john", "user");
+        cache(UserRepository.USERS_BY_LOGIN_CACHE).put("johnny", "user");
+        cache(UserRepository.USERS_BY_EMAIL_CACHE).put("john@localhost", "user");
+        cache(UserRepository.USERS_BY_EMAIL_CACHE).put("johnny@localhost", "user");
+        cache(UserRepository.USER_CREDENTIALS_CACHE).put("john", "credentials");
+        cache(UserRepository.USER_CREDENTIALS_CACHE).put("john@localhost", "credentials");
+    }
+
+    @After
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void testEvictsImmediatelyWithoutTransaction() {
+        userCacheEvictor.evict(user("john", "john@localhost"));
+
+        assertThat(cache(UserRepository.USERS_BY_LOGIN_CACHE).get("john")).isNull();
+        assertThat(cache(UserRepository.USERS_BY_EMAIL_CACHE).get("john@localhost")).isNull();
+        assertThat(cache(UserRepository.USER_CREDENTIALS_CACHE).get("john")).isNull();
+        assertThat(cache(UserRepository.USER_CREDENTIALS_CACHE).get("john@localhost")).isNull();
+        assertThat(cache(UserRepository.USERS_BY_LOGIN_CACHE).get("johnny")).isNotNull();
+    }
+
+    @Test
+    public void testEvictsOldAndNewKeysAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        User user = user("john", "john@localhost");
+
+        userCacheEvictor.evict(user);
+        user.setLogin("johnny");
+        user.setEmail("johnny@localhost");
+        userCacheEvictor.evict(user);
+
+        assertThat(cache(UserRepository.USERS_BY_LOGIN_CACHE).get("john")).isNotNull();
+        assertThat(TransactionSynchronizationManager.getSynchronizations()).hasSize(1);
+
+        TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+            TransactionSynchronization.STATUS_COMMITTED);
+
+        assertThat(cache(UserRepository.USERS_BY_LOGIN_CACHE).get("john")).isNull();
+        assertThat(cache(UserRepository.USERS_BY_LOGIN_CACHE).get("johnny")).isNull();
+        assertThat(cache(UserRepository.USERS_BY_EMAIL_CACHE).get("john@localhost")).isNull();
+        assertThat(cache(UserRepository.USERS_BY_EMAIL_CACHE).get("johnny@localhost")).isNull();
+        assertThat(cache(UserRepository.USER_CREDENTIALS_CACHE).get("john")).isNull();
+        assertThat(TransactionSynchronizationManager.hasResource(userCacheEvictor)).isFalse();
+    }
+
+    @Test
+    public void testRefreshEvictsWithoutWriteThrough() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        userCacheEvictor.refresh(user("john", "john@localhost", 1L));
+        commit();
+
+        assertThat(cache(UserRepository.USERS_BY_LOGIN_CACHE).get("john")).isNull();
+        assertThat(cache(UserRepository.USER_CREDENTIALS_CACHE).get("john")).isNull();
+    }
+
+    @Test
+    public void testWriteThroughPutsUserAfterCommitAndEvictsOldKeys() {
+        enableWriteThrough();
+        TransactionSynchronizationManager.initSynchronization();
+        User user = user("john", "john@localhost", 1L);
+
+        userCacheEvictor.refresh(user);
+        user.setLogin("johnny");
+        user.setEmail("johnny@localhost");
+        user.setVersion(2L);
+
+        assertThat(cache(UserRepository.USERS_BY_LOGIN_CACHE).get("john")).isNotNull();
+
+        commit();
+
+        assertThat(cache(UserRepository.USERS_BY_LOGIN_CACHE).get("john")).isNull();
+        assertThat(cache(UserRepository.USERS_BY_EMAIL_CACHE).get("john@localhost")).isNull();
+        assertThat(cache(UserRepository.USER_CREDENTIALS_CACHE).get("john")).isNull();
+        assertThat(cache(UserRepository.USER_CREDENTIALS_CACHE).get("john@localhost")).isNull();
+        assertThat(cache(UserRepository.USERS_BY_LOGIN_CACHE).get("johnny").get()).isSameAs(user);
+        assertThat(cache(UserRepository.USERS_BY_EMAIL_CACHE).get("johnny@localhost").get()).isSameAs(user);
+        UserCredentials credentials = (UserCredentials) cache(UserRepository.USER_CREDENTIALS_CACHE).get("johnny").get();
+        assertThat(credentials.getVersion()).isEqualTo(2L);
+        assertThat(cache(UserRepository.USER_CREDENTIALS_CACHE).get("johnny@localhost").get()).isSameAs(credentials);
+    }
+
+    @Test
+    public void testWriteThroughKeepsNewerCachedUser() {
+        enableWriteThrough();
+        User newer = user("john", "john@localhost", 3L);
+        cache(UserRepository.USERS_BY_LOGIN_CACHE).put("john", newer);
+        TransactionSynchronizationManager.initSynchronization();
+
+        userCacheEvictor.refresh(user("john", "john@localhost", 2L));
+        commit();
+
+        assertThat(cache(UserRepository.USERS_BY_LOGIN_CACHE).get("john").get()).isSameAs(newer);
+    }
+
+    @Test
+    public void testWriteThroughEvictsAfterRollback() {
+        enableWriteThrough();
+        TransactionSynchronizationManager.initSynchronization();
+
+        userCacheEvictor.refresh(user("john", "john@localhost", 2L));
+        TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+            TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(cache(UserRepository.USERS_BY_LOGIN_CACHE).get("john")).isNull();
+        assertThat(cache(UserRepository.USER_CREDENTIALS_CACHE).get("john")).isNull();
+    }
+
+    @Test
+    public void testWriteThroughDoesNotPutDeletedUser() {
+        enableWriteThrough();
+        TransactionSynchronizationManager.initSynchronization();
+        User user = user("john", "john@localhost", 2L);
+
+        userCacheEvictor.refresh(user);
+        userCacheEvictor.evict(user);
+        commit();
+
+        assertThat(cache(UserRepository.USERS_BY_LOGIN_CACHE).get("john")).isNull();
+    }
+
+    @Test
+    public void testCacheKeepsNewerCachedUser() {
+        User newer = user("john", "john@localhost", 3L);
+        cache(UserRepository.USERS_BY_LOGIN_CACHE).put("john", newer);
+
+        userCacheEvictor.cache(user("john", "john@localhost", 2L));
+
+        assertThat(cache(UserRepository.USERS_BY_LOGIN_CACHE).get("john").get()).isSameAs(newer);
+        UserCredentials credentials = (UserCredentials) cache(UserRepository.USER_CREDENTIALS_CACHE).get("john").get();
+        assertThat(credentials.getVersion()).isEqualTo(2L);
+    }
+
+    @Test
+    public void testPutIfNewerComparesVersions() {
+        Map.Entry<Object, Object> entry = new AbstractMap.SimpleEntry<>("john", user("john", "john@localhost", 2L));
+
+        new UserCacheEvictor.PutIfNewer(user("john", "john@localhost", 1L)).process(entry);
+        assertThat(((User) entry.getValue()).getVersion()).isEqualTo(2L);
+
+        new UserCacheEvictor.PutIfNewer(user("john", "john@localhost", 3L)).process(entry);
+        assertThat(((User) entry.getValue()).getVersion()).isEqualTo(3L);
+
+        entry.setValue(null);
+        new UserCacheEvictor.PutIfNewer(user("john", "john@localhost", 1L)).process(entry);
+        assertThat(((User) entry.getValue()).getVersion()).isEqualTo(1L);
+    }
+
+    private void enableWriteThrough() {
+        uaaProperties.getUserCache().setWriteThrough(true);
+        userCacheEvictor = new UserCacheEvictor(cacheManager, uaaProperties);
+    }
+
+    private static void commit() {
+        TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+            TransactionSynchronization.STATUS_COMMITTED);
+    }
+
+    private Cache cache(String name) {
+        return cacheManager.getCache(name);
+    }
+
+    private static User user(String login, String email) {
+        User user = new User();
+        user.setLogin(login);
+        user.setEmail(email);
+        return user;
+    }
+
+    private static User user(String login, String email, Long version) {
+        User user = user(login, email);
+        user.setVersion(version);
+        return user;
+    }
+}
@@ -0,0 +1,183 @@
+package com.dhomoni.uaa.service;
+
+import com.dhomoni.uaa.config.ElasticsearchConfiguration;
+import com.dhomoni.uaa.config.UaaProperties;
+import com.dhomoni.uaa.domain.User;
+import com.dhomoni.uaa.service.dto.UserSearchDTO;
+import com.dhomoni.uaa.web.rest.errors.BadRequestAlertException;
+import com.dhomoni.uaa.web.rest.errors.SearchTimeoutException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.searchbox.client.JestClient;
+import io.searchbox.core.Search;
+import io.searchbox.core.SearchResult;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.mapping.ElasticsearchPersistentEntity;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for the UserSearchService, with a mocked Jest client.
+ *
+ * @see UserSearchService
+ */
+public class UserSearchServiceUnitTest {
+
+    private static final String HITS = "{\"timed_out\": false, \"hits\": {\"total\": 42, \"hits\": [" +
+        "{\"_index\": \"user\", \"_type\": \"user\", \"_id\": \"3\", \"_source\": {\"id\": 3, \"login\": \"user3\", \"activated\": true}}," +
+        "{\"_index\": \"user\", \"_type\": \"user\", \"_id\": \"7\", \"_source\": {\"id\": 7, \"login\": \"user7\", \"email\": \"user7@localhost\"}}]}}";
+
+    private final List<Search> searches = new ArrayList<>();
+
+    private String response;
+
+    private int responseCode;
+
+    private UserSearchService userSearchService;
+
+    @Before
+    public void setup() throws IOException {
+        response = HITS;
+        responseCode = 200;
+        JestClient jestClient = mock(JestClient.class);
+        when(jestClient.execute(any(Search.class))).thenAnswer(invocation -> {
+            searches.add(invocation.getArgument(0));
+            SearchResult result = new SearchResult(new Gson());
+            result.setJsonObject(new JsonParser().parse(response).getAsJsonObject());
+            result.setResponseCode(responseCode);
+            result.setSucceeded(responseCode == 200);
+            return result;
+        });
+        ElasticsearchOperations elasticsearchOperations = mock(ElasticsearchOperations.class);
+        ElasticsearchPersistentEntity userEntity = mock(ElasticsearchPersistentEntity.class);
+        when(userEntity.getIndexName()).thenReturn("user");
+        when(userEntity.getIndexType()).thenReturn("user");
+        when(elasticsearchOperations.getPersistentEntityFor(User.class)).thenReturn(userEntity);
+        UaaProperties uaaProperties = new UaaProperties();
+        uaaProperties.getUserSearch().setMaxResultWindow(100);
+        uaaProperties.getUserSearch().setTimeoutInMillis(500);
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        userSearchService = new UserSearchService(jestClient, elasticsearchOperations,
+            new ElasticsearchConfiguration(objectMapper).getEntityMapper(), uaaProperties);
+    }
+
+    @Test
+    public void searchReadsTheFieldsOfThePageOnly() {
+        Page<UserSearchDTO> page = userSearchService.search("user*", PageRequest.of(2, 20, Sort.by("login")));
+
+        assertThat(page.getTotalElements()).isEqualTo(42);
+        assertThat(page.getContent()).extracting(UserSearchDTO::getLogin).containsExactly("user3", "user7");
+        assertThat(page.getContent().get(0).isActivated()).isTrue();
+        assertThat(page.getContent().get(1).getEmail()).isEqualTo("user7@localhost");
+        JsonObject source = source(0);
+        assertThat(source.get("from").getAsInt()).isEqualTo(40);
+        assertThat(source.get("size").getAsInt()).isEqualTo(20);
+        assertThat(source.get("timeout").getAsString()).isEqualTo("500ms");
+        assertThat(source.getAsJsonObject("_source").getAsJsonArray("includes").toString())
+            .isEqualTo("[\"id\",\"login\",\"firstName\",\"lastName\",\"email\",\"imageUrl\",\"activated\",\"langKey\"]");
+        assertThat(source.getAsJsonArray("sort").toString())
+            .contains("login.keyword").contains("\"id\"").doesNotContain("_score");
+        assertThat(source.getAsJsonObject("query").getAsJsonObject("query_string").get("query").getAsString())
+            .isEqualTo("user*");
+    }
+
+    @Test
+    public void unsortedSearchIsByRelevance() {
+        userSearchService.search("user*", PageRequest.of(0, 20));
+
+        assertThat(source(0).getAsJsonArray("sort").toString()).contains("_score").contains("\"id\"");
+    }
+
+    @Test
+    public void searchBeyondTheMaxResultWindowIsRejected() {
+        assertThatThrownBy(() -> userSearchService.search("*", PageRequest.of(5, 20)))
+            .isInstanceOf(BadRequestAlertException.class);
+        assertThat(searches).isEmpty();
+    }
+
+    @Test
+    public void totalEndsWithinTheMaxResultWindow() {
+        response = HITS.replace("\"total\": 42", "\"total\": 5000");
+
+        Page<UserSearchDTO> first = userSearchService.search("*", PageRequest.of(0, 30));
+        UserSearchService.UserSearchPage last = userSearchService.search("*", PageRequest.of(first.getTotalPages() - 1, 30));
+
+        assertThat(first.getTotalElements()).isEqualTo(100);
+        assertThat(first.getTotalPages()).isEqualTo(4);
+        assertThat(last.getTotalHits()).isEqualTo(5000);
+        assertThat(source(1).get("from").getAsInt()).isEqualTo(90);
+        assertThat(source(1).get("size").getAsInt()).isEqualTo(10);
+    }
+
+    @Test
+    public void searchSortedByAnotherFieldIsRejected() {
+        assertThatThrownBy(() -> userSearchService.search("*", PageRequest.of(0, 20, Sort.by("password"))))
+            .isInstanceOf(BadRequestAlertException.class);
+        assertThat(searches).isEmpty();
+    }
+
+    @Test
+    public void sortFieldsFollowTheUserMapping() {
+        assertThat(UserSearchService.sortFields())
+            .containsEntry("id", "id")
+            .containsEntry("activated", "activated")
+            .containsEntry("login", "login.keyword")
+            .containsEntry("email", "email.keyword")
+            .containsEntry("langKey", "langKey.keyword")
+            .doesNotContainKey("imageUrl");
+        assertThatThrownBy(() -> userSearchService.search("*", PageRequest.of(0, 20, Sort.by("imageUrl"))))
+            .isInstanceOf(BadRequestAlertException.class);
+    }
+
+    @Test
+    public void searchAfterStartsAfterTheIdOfTheLastUser() {
+        List<UserSearchDTO> users = userSearchService.searchAfter("*", 20000L, 2);
+
+        assertThat(users).extracting(UserSearchDTO::getId).containsExactly(3L, 7L);
+        JsonObject source = source(0);
+        assertThat(source.has("from")).isFalse();
+        assertThat(source.get("size").getAsInt()).isEqualTo(2);
+        assertThat(source.getAsJsonArray("search_after").toString()).isEqualTo("[20000]");
+        assertThat(source.getAsJsonArray("sort").toString()).contains("\"id\"").doesNotContain("_score");
+    }
+
+    @Test
+    public void timedOutSearchIsRejected() {
+        response = "{\"timed_out\": true, \"hits\": {\"total\": 1, \"hits\": []}}";
+
+        assertThatThrownBy(() -> userSearchService.search("*a*", PageRequest.of(0, 20)))
+            .isInstanceOf(SearchTimeoutException.class)
+            .hasMessageContaining("too long");
+    }
+
+    @Test
+    public void invalidQueryIsRejected() {
+        response = "{\"error\": {\"type\": \"search_phase_execution_exception\"}, \"status\": 400}";
+        responseCode = 400;
+
+        assertThatThrownBy(() -> userSearchService.search("login:(", PageRequest.of(0, 20)))
+            .isInstanceOf(BadRequestAlertException.class)
+            .hasMessageContaining("Invalid query");
+    }
+
+    private JsonObject source(int index) {
+        return new JsonParser().parse(searches.get(index).getData(new Gson())).getAsJsonObject();
+    }
+}
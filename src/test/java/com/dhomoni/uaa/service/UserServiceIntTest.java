@@ -2,13 +2,21 @@ package com.dhomoni.uaa.service;
 
 import com.dhomoni.uaa.UaaApp;
 import com.dhomoni.uaa.config.Constants;
+import com.dhomoni.uaa.domain.Authority;
+import com.dhomoni.uaa.domain.Doctor;
+import com.dhomoni.uaa.domain.SearchOutboxEntry;
 import com.dhomoni.uaa.domain.User;
-import com.dhomoni.uaa.repository.search.UserSearchRepository;
+import com.dhomoni.uaa.domain.enumeration.DoctorType;
+import com.dhomoni.uaa.domain.enumeration.SearchDocumentType;
+import com.dhomoni.uaa.repository.DoctorRepository;
+import com.dhomoni.uaa.repository.SearchOutboxEntryRepository;
 import com.dhomoni.uaa.repository.UserRepository;
+import com.dhomoni.uaa.security.AuthoritiesConstants;
 import com.dhomoni.uaa.service.dto.UserDTO;
 import com.dhomoni.uaa.service.util.RandomUtil;
 
 import org.apache.commons.lang3.RandomStringUtils;
+import org.hibernate.Hibernate;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -22,15 +30,15 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.Optional;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.Mockito.times;
-import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -46,16 +54,17 @@ public class UserServiceIntTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private DoctorRepository doctorRepository;
+
     @Autowired
     private UserService userService;
 
-    /**
-     * This repository is mocked in the com.dhomoni.uaa.repository.search test package.
-     *
-     * @see com.dhomoni.uaa.repository.search.UserSearchRepositoryMockConfiguration
-     */
     @Autowired
-    private UserSearchRepository mockUserSearchRepository;
+    private EntityManager entityManager;
+
+    @Autowired
+    private SearchOutboxEntryRepository searchOutboxEntryRepository;
 
     @Autowired
     private AuditingHandler auditingHandler;
@@ -170,8 +179,8 @@ public class UserServiceIntTest {
         users = userRepository.findAllByActivatedIsFalseAndCreatedDateBefore(now.minus(3, ChronoUnit.DAYS));
         assertThat(users).isEmpty();
 
-        // Verify Elasticsearch mock
-        verify(mockUserSearchRepository, times(1)).delete(user);
+        // Verify the user is removed from the search index
+        assertThatOutboxContains(SearchDocumentType.USER, dbUser.getId());
     }
 
     @Test
@@ -202,8 +211,66 @@ public class UserServiceIntTest {
         userService.removeNotActivatedUsers();
         assertThat(userRepository.findOneByLogin("johndoe")).isNotPresent();
 
-        // Verify Elasticsearch mock
-        verify(mockUserSearchRepository, times(1)).delete(user);
+        // Verify the user is removed from the search index
+        assertThatOutboxContains(SearchDocumentType.USER, user.getId());
+    }
+
+    @Test
+    @Transactional
+    public void assertThatDoctorLobsAreLoadedOnDemand() {
+        userRepository.saveAndFlush(user);
+        Doctor doctor = new Doctor();
+        doctor.setDescription("description");
+        doctor.setImage(new byte[] {1, 2, 3});
+        doctor.setUser(user);
+        doctorRepository.saveAndFlush(doctor);
+        entityManager.clear();
+
+        Doctor loaded = doctorRepository.findOneByUser(user).get();
+        assertThat(Hibernate.isPropertyInitialized(loaded, "description")).isFalse();
+        assertThat(Hibernate.isPropertyInitialized(loaded, "image")).isFalse();
+
+        assertThat(loaded.getDescription()).isEqualTo("description");
+        assertThat(Hibernate.isPropertyInitialized(loaded, "image")).isFalse();
+    }
+
+    @Test
+    @Transactional
+    public void assertThatActivatedDoctorIsIndexed() {
+        Authority doctorAuthority = new Authority();
+        doctorAuthority.setName(AuthoritiesConstants.DOCTOR);
+        user.setAuthorities(Collections.singleton(doctorAuthority));
+        user.setActivated(false);
+        user.setActivationKey("doctoractivationkey1");
+        userRepository.saveAndFlush(user);
+        Doctor doctor = new Doctor();
+        doctor.setType(DoctorType.SURGEON);
+        doctor.setDescription("description");
+        doctor.setUser(user);
+        doctorRepository.saveAndFlush(doctor);
+        entityManager.clear();
+
+        userService.activateRegistration("doctoractivationkey1");
+
+        assertThatOutboxContains(SearchDocumentType.USER, user.getId());
+        assertThatOutboxContains(SearchDocumentType.DOCTOR, doctor.getId());
+    }
+
+    @Test
+    @Transactional
+    public void assertThatRegisteredUserIsRecordedInOutbox() {
+        UserDTO userDTO = new UserDTO(user);
+        userDTO.setAuthorities(Collections.singleton(AuthoritiesConstants.USER));
+
+        User registered = userService.registerUser(userDTO, "password");
+
+        assertThatOutboxContains(SearchDocumentType.USER, registered.getId());
     }
 
+    private void assertThatOutboxContains(SearchDocumentType documentType, Long documentId) {
+        assertThat(searchOutboxEntryRepository.findAll())
+            .filteredOn(entry -> entry.getDocumentType() == documentType)
+            .extracting(SearchOutboxEntry::getDocumentId)
+            .contains(documentId);
+    }
 }
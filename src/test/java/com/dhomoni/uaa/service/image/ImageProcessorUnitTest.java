@@ -0,0 +1,110 @@
+package com.dhomoni.uaa.service.image;
+
+import com.dhomoni.uaa.web.rest.errors.InvalidImageException;
+
+import org.junit.Test;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test class for the ImageProcessor.
+ *
+ * @see ImageProcessor
+ */
+public class ImageProcessorUnitTest {
+
+    private static final String COMMENT = "taken at 23.8103 N, 90.4125 E";
+
+    private final ImageProcessor imageProcessor = new ImageProcessor(100 * 1024, 1000, 0.85f);
+
+    @Test
+    public void testMetadataIsStripped() throws IOException {
+        byte[] content = pngWithComment(new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB));
+        assertThat(new String(content, StandardCharsets.ISO_8859_1)).contains(COMMENT);
+
+        ImageProcessor.EncodedImage image = imageProcessor.process(content);
+
+        assertThat(image.getContentType()).isEqualTo(ImageProcessor.JPEG);
+        assertThat(new String(image.getContent(), StandardCharsets.ISO_8859_1)).doesNotContain(COMMENT);
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(image.getContent()));
+        assertThat(decoded.getWidth()).isEqualTo(20);
+        assertThat(decoded.getHeight()).isEqualTo(10);
+    }
+
+    @Test
+    public void testTransparentImageStaysPng() throws IOException {
+        byte[] content = pngWithComment(new BufferedImage(20, 10, BufferedImage.TYPE_INT_ARGB));
+
+        ImageProcessor.EncodedImage image = imageProcessor.process(content);
+
+        assertThat(image.getContentType()).isEqualTo(ImageProcessor.PNG);
+        assertThat(ImageIO.read(new ByteArrayInputStream(image.getContent())).getColorModel().hasAlpha()).isTrue();
+    }
+
+    @Test
+    public void testTooLargeUploadIsRejected() {
+        assertThatThrownBy(() -> imageProcessor.process(new byte[100 * 1024 + 1]))
+            .isInstanceOf(InvalidImageException.class);
+    }
+
+    @Test
+    public void testTooLargeDimensionIsRejected() throws IOException {
+        byte[] content = pngWithComment(new BufferedImage(1001, 1, BufferedImage.TYPE_BYTE_BINARY));
+
+        assertThatThrownBy(() -> imageProcessor.process(content))
+            .isInstanceOf(InvalidImageException.class)
+            .hasMessageContaining("1000 pixels");
+    }
+
+    @Test
+    public void testUnsupportedContentIsRejected() {
+        assertThatThrownBy(() -> imageProcessor.process("<svg/>".getBytes(StandardCharsets.UTF_8)))
+            .isInstanceOf(InvalidImageException.class);
+    }
+
+    @Test
+    public void testThumbnailKeepsTheAspectRatio() throws IOException {
+        byte[] content = imageProcessor.process(pngWithComment(new BufferedImage(900, 300, BufferedImage.TYPE_INT_RGB))).getContent();
+
+        BufferedImage thumbnail = ImageIO.read(new ByteArrayInputStream(imageProcessor.thumbnail(content, 64).get().getContent()));
+
+        assertThat(thumbnail.getWidth()).isEqualTo(64);
+        assertThat(thumbnail.getHeight()).isEqualTo(21);
+        assertThat(imageProcessor.thumbnail(content, 900)).isEmpty();
+    }
+
+    private static byte[] pngWithComment(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+        IIOMetadata metadata = writer.getDefaultImageMetadata(new ImageTypeSpecifier(image), null);
+        IIOMetadataNode text = new IIOMetadataNode("tEXt");
+        IIOMetadataNode entry = new IIOMetadataNode("tEXtEntry");
+        entry.setAttribute("keyword", "Comment");
+        entry.setAttribute("value", COMMENT);
+        text.appendChild(entry);
+        IIOMetadataNode root = new IIOMetadataNode(metadata.getNativeMetadataFormatName());
+        root.appendChild(text);
+        metadata.mergeTree(metadata.getNativeMetadataFormatName(), root);
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(content)) {
+            writer.setOutput(output);
+            writer.write(new IIOImage(image, null, metadata));
+        } finally {
+            writer.dispose();
+        }
+        return content.toByteArray();
+    }
+}
@@ -0,0 +1,70 @@
+package com.dhomoni.uaa.service.mapper;
+
+import com.dhomoni.uaa.domain.Doctor;
+import com.dhomoni.uaa.domain.DoctorDocument;
+import com.dhomoni.uaa.domain.ProfessionalDegree;
+import com.dhomoni.uaa.domain.User;
+import com.dhomoni.uaa.domain.enumeration.DoctorType;
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the DoctorDocumentMapper.
+ *
+ * @see DoctorDocumentMapper
+ */
+public class DoctorDocumentMapperUnitTest {
+
+    private final DoctorDocumentMapper doctorDocumentMapper = new DoctorDocumentMapper();
+
+    @Test
+    public void testDoctorToDoctorDocument() {
+        User user = new User();
+        user.setFirstName("Abul");
+        user.setLastName("Kalam");
+        ProfessionalDegree degree = new ProfessionalDegree();
+        degree.setName("MBBS");
+        degree.setInstitute("Dhaka Medical College");
+        degree.setPassingYear(2005);
+        Doctor doctor = new Doctor();
+        doctor.setId(12L);
+        doctor.setUser(user);
+        doctor.setType(DoctorType.SURGEON);
+        doctor.setMedicalDepartment(2);
+        doctor.setDescription("Cardiac surgeon");
+        doctor.setLocation(new GeometryFactory().createPoint(new Coordinate(90.3958, 23.738)));
+        doctor.setProfessionalDegrees(Collections.singleton(degree));
+        doctor.setImageContentType("image/jpeg");
+
+        DoctorDocument document = doctorDocumentMapper.doctorToDoctorDocument(doctor);
+
+        assertThat(document.getId()).isEqualTo(12L);
+        assertThat(document.getFirstName()).isEqualTo("Abul");
+        assertThat(document.getType()).isEqualTo(DoctorType.SURGEON);
+        assertThat(document.getMedicalDepartment()).isEqualTo(2);
+        assertThat(document.getDescription()).isEqualTo("Cardiac surgeon");
+        assertThat(document.getLocation().getLat()).isEqualTo(23.738);
+        assertThat(document.getLocation().getLon()).isEqualTo(90.3958);
+        assertThat(document.getProfessionalDegrees()).hasSize(1);
+        assertThat(document.getProfessionalDegrees().get(0).getInstitute()).isEqualTo("Dhaka Medical College");
+        assertThat(document.getImageLink()).isEqualTo("/api/doctors/12/image");
+    }
+
+    @Test
+    public void testDoctorWithoutLocationToDoctorDocument() {
+        Doctor doctor = new Doctor();
+        doctor.setId(13L);
+
+        DoctorDocument document = doctorDocumentMapper.doctorToDoctorDocument(doctor);
+
+        assertThat(document.getLocation()).isNull();
+        assertThat(document.getProfessionalDegrees()).isEmpty();
+        assertThat(document.getImageLink()).isNull();
+    }
+}
@@ -63,6 +63,7 @@ import com.dhomoni.uaa.service.dto.DoctorDTO;
 import com.dhomoni.uaa.service.dto.PasswordChangeDTO;
 import com.dhomoni.uaa.service.dto.PatientDTO;
 import com.dhomoni.uaa.service.dto.UserDTO;
+import com.dhomoni.uaa.service.image.ImageProcessor;
 import com.dhomoni.uaa.web.rest.errors.ExceptionTranslator;
 import com.dhomoni.uaa.web.rest.vm.KeyAndPasswordVM;
 import com.dhomoni.uaa.web.rest.vm.ManagedUserVM;
@@ -234,7 +235,8 @@ public class AccountResourceIntTest {
             .andExpect(jsonPath("$.authorities[1]").value(AuthoritiesConstants.DOCTOR))
             .andExpect(jsonPath("$.phone").value(doctor.getPhone()))
             .andExpect(jsonPath("$.address").value(doctor.getAddress()))
-            .andExpect(jsonPath("$.image").exists())
+            .andExpect(jsonPath("$.image").doesNotExist())
+            .andExpect(jsonPath("$.imageLink").exists())
             .andExpect(jsonPath("$.imageContentType").value(doctor.getImageContentType()))
             .andExpect(jsonPath("$.doctorDTO.type").value(doctor.getType().toString()))
             .andExpect(jsonPath("$.doctorDTO.medicalDepartment").value(doctor.getMedicalDepartment()))
@@ -298,7 +300,8 @@ public class AccountResourceIntTest {
             .andExpect(jsonPath("$.authorities[1]").value(AuthoritiesConstants.USER))
             .andExpect(jsonPath("$.phone").value(patient.getPhone()))
             .andExpect(jsonPath("$.address").value(patient.getAddress()))
-            .andExpect(jsonPath("$.image").exists())
+            .andExpect(jsonPath("$.image").doesNotExist())
+            .andExpect(jsonPath("$.imageLink").exists())
             .andExpect(jsonPath("$.imageContentType").value(patient.getImageContentType()))
             .andExpect(jsonPath("$.patientDTO.birthTimestamp").value(patient.getBirthTimestamp().getEpochSecond()))
             .andExpect(jsonPath("$.patientDTO.bloodGroup").value(patient.getBloodGroup().name()))
@@ -362,7 +365,7 @@ public class AccountResourceIntTest {
 //        Point point=gf.createPoint(new Coordinate(90.4125, 23.8103));
 //        validDoctor.setLocation(point);
         Path imagePath = new ClassPathResource("static/images/pervez.jpg").getFile().toPath();
-        validDoctor.setImage(Base64.getEncoder().encode(Files.readAllBytes(imagePath)));
+        validDoctor.setImage(Files.readAllBytes(imagePath));
         validDoctor.setImageContentType(Files.probeContentType(imagePath));
         DoctorDTO doctorDTO = new DoctorDTO();        
         doctorDTO.setType(DoctorType.SURGEON);
@@ -410,7 +413,7 @@ public class AccountResourceIntTest {
         validPatient.setPhone("8888123234355");
         validPatient.setAddress("Dhanmondi");
         Path imagePath = new ClassPathResource("static/images/pervez.jpg").getFile().toPath();
-        validPatient.setImage(Base64.getEncoder().encode(Files.readAllBytes(imagePath)));
+        validPatient.setImage(Files.readAllBytes(imagePath));
         validPatient.setImageContentType(Files.probeContentType(imagePath));
         PatientDTO patientDTO = new PatientDTO();
         String timestamp = "2016-02-16 11:00:02";
@@ -520,7 +523,7 @@ public class AccountResourceIntTest {
         invalidDoctor.setPhone("11112222345");
         invalidDoctor.setAddress("Dhanmondi");
         Path imagePath = new ClassPathResource("static/images/pervez.jpg").getFile().toPath();
-        invalidDoctor.setImage(Base64.getEncoder().encode(Files.readAllBytes(imagePath)));
+        invalidDoctor.setImage(Files.readAllBytes(imagePath));
         invalidDoctor.setImageContentType(Files.probeContentType(imagePath));
         DoctorDTO doctorDTO = new DoctorDTO();        
         doctorDTO.setType(DoctorType.SURGEON);
@@ -581,7 +584,7 @@ public class AccountResourceIntTest {
         invalidDoctor.setPhone("11112222345");
         invalidDoctor.setAddress("Dhanmondi");
         Path imagePath = new ClassPathResource("static/images/pervez.jpg").getFile().toPath();
-        invalidDoctor.setImage(Base64.getEncoder().encode(Files.readAllBytes(imagePath)));
+        invalidDoctor.setImage(Files.readAllBytes(imagePath));
         invalidDoctor.setImageContentType(Files.probeContentType(imagePath));
         DoctorDTO doctorDTO = new DoctorDTO();        
         doctorDTO.setType(DoctorType.SURGEON);
@@ -618,7 +621,7 @@ public class AccountResourceIntTest {
         invalidDoctor.setPhone("11112222345");
         invalidDoctor.setAddress("Dhanmondi");
         Path imagePath = new ClassPathResource("static/images/pervez.jpg").getFile().toPath();
-        invalidDoctor.setImage(Base64.getEncoder().encode(Files.readAllBytes(imagePath)));
+        invalidDoctor.setImage(Files.readAllBytes(imagePath));
         invalidDoctor.setImageContentType(Files.probeContentType(imagePath));
         assertThat(userRepository.findOneByLogin("test-doctor-register-valid").isPresent()).isFalse();
 
@@ -785,7 +788,7 @@ public class AccountResourceIntTest {
         firstDoctor.setPhone("11112222345");
         firstDoctor.setAddress("Dhanmondi");
         Path imagePath = new ClassPathResource("static/images/pervez.jpg").getFile().toPath();
-        firstDoctor.setImage(Base64.getEncoder().encode(Files.readAllBytes(imagePath)));
+        firstDoctor.setImage(Files.readAllBytes(imagePath));
         firstDoctor.setImageContentType(Files.probeContentType(imagePath));
         DoctorDTO doctorDTO = new DoctorDTO();        
         doctorDTO.setType(DoctorType.SURGEON);
@@ -1010,7 +1013,7 @@ public class AccountResourceIntTest {
         assertThat(updatedDoctor.getPhone()).isEqualTo(doctor.getPhone());
         assertThat(updatedDoctor.getAddress()).isEqualTo(doctor.getAddress());
         assertThat(updatedDoctor.getImage()).isEqualTo(doctor.getImage());
-        assertThat(updatedDoctor.getImageContentType()).isEqualTo(doctor.getImageContentType());
+        assertThat(updatedDoctor.getImageContentType()).isNull();
         assertThat(updatedDoctor.getType()).isEqualTo(doctorDTO.getType());
         assertThat(updatedDoctor.getMedicalDepartment()).isEqualTo(doctorDTO.getMedicalDepartment());
         assertThat(updatedDoctor.getDescription()).isEqualTo(doctorDTO.getDescription());
@@ -1052,7 +1055,7 @@ public class AccountResourceIntTest {
         patient.setPhone("11112222345");
         patient.setAddress("Dhanmondi");
         Path imagePath = new ClassPathResource("static/images/pervez.jpg").getFile().toPath();
-        patient.setImage(Base64.getEncoder().encode(Files.readAllBytes(imagePath)));
+        patient.setImage(Files.readAllBytes(imagePath));
         patient.setImageContentType(Files.probeContentType(imagePath));
         PatientDTO patientDTO = new PatientDTO();
         String timestamp = "2016-02-16 11:00:02";
@@ -1083,7 +1086,7 @@ public class AccountResourceIntTest {
         assertThat(updatedPatient.getPhone()).isEqualTo(patient.getPhone());
         assertThat(updatedPatient.getAddress()).isEqualTo(patient.getAddress());
         assertThat(updatedPatient.getImage()).isEqualTo(patient.getImage());
-        assertThat(updatedPatient.getImageContentType()).isEqualTo(patient.getImageContentType());
+        assertThat(updatedPatient.getImageContentType()).isEqualTo(ImageProcessor.JPEG);
         assertThat(updatedPatient.getBirthTimestamp()).isEqualTo(patientDTO.getBirthTimestamp());
         assertThat(updatedPatient.getBloodGroup()).isEqualTo(patientDTO.getBloodGroup());
         assertThat(updatedPatient.getHeightInInch()).isEqualTo(patientDTO.getHeightInInch());
@@ -0,0 +1,145 @@
+package com.dhomoni.uaa.web.rest;
+
+import com.dhomoni.uaa.domain.enumeration.DoctorType;
+import com.dhomoni.uaa.domain.DoctorDocument;
+import com.dhomoni.uaa.repository.NearbyDoctorRepository;
+import com.dhomoni.uaa.service.DoctorSearchService;
+import com.dhomoni.uaa.service.dto.DoctorSearchResultDTO;
+import com.dhomoni.uaa.service.dto.NearbyDoctorDTO;
+import com.dhomoni.uaa.web.rest.errors.ExceptionTranslator;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Test class for the DoctorResource REST controller.
+ *
+ * @see DoctorResource
+ */
+public class DoctorResourceUnitTest {
+
+    private NearbyDoctorRepository nearbyDoctorRepository;
+
+    private DoctorSearchService doctorSearchService;
+
+    private MockMvc restDoctorMockMvc;
+
+    @Before
+    public void setup() {
+        nearbyDoctorRepository = mock(NearbyDoctorRepository.class);
+        doctorSearchService = mock(DoctorSearchService.class);
+        restDoctorMockMvc = MockMvcBuilders.standaloneSetup(new DoctorResource(nearbyDoctorRepository, doctorSearchService))
+            .setCustomArgumentResolvers(new PageableHandlerMethodArgumentResolver())
+            .setControllerAdvice(new ExceptionTranslator())
+            .build();
+    }
+
+    @Test
+    public void testGetNearbyDoctors() throws Exception {
+        when(nearbyDoctorRepository.findNearby(anyDouble(), anyDouble(), anyDouble(), any(), any(), any(), any(), anyInt()))
+            .thenReturn(Arrays.asList(doctor(3L, 120.5), doctor(1L, 480.25)));
+
+        restDoctorMockMvc.perform(get("/api/doctors/nearby?latitude=23.738&longitude=90.3958&radius=2&type=SURGEON&size=2"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[0].id").value(3))
+            .andExpect(jsonPath("$.[1].distanceInMeters").value(480.25))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("afterDistance=480.25&afterId=1>; rel=\"next\"")))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("type=SURGEON")));
+
+        verify(nearbyDoctorRepository).findNearby(eq(23.738), eq(90.3958), eq(2000.0), eq(DoctorType.SURGEON), isNull(),
+            isNull(), isNull(), eq(2));
+    }
+
+    @Test
+    public void testGetLastPageOfNearbyDoctors() throws Exception {
+        when(nearbyDoctorRepository.findNearby(anyDouble(), anyDouble(), anyDouble(), any(), any(), any(), any(), anyInt()))
+            .thenReturn(Collections.singletonList(doctor(4L, 900)));
+
+        restDoctorMockMvc.perform(get("/api/doctors/nearby?latitude=23.738&longitude=90.3958&afterDistance=480.25&afterId=1"))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist(HttpHeaders.LINK));
+
+        verify(nearbyDoctorRepository).findNearby(eq(23.738), eq(90.3958), eq(10000.0), isNull(), isNull(),
+            eq(480.25), eq(1L), eq(20));
+    }
+
+    @Test
+    public void testGetNearbyDoctorsWithTooLargeRadius() throws Exception {
+        restDoctorMockMvc.perform(get("/api/doctors/nearby?latitude=23.738&longitude=90.3958&radius=500"))
+            .andExpect(status().isBadRequest());
+
+        verifyZeroInteractions(nearbyDoctorRepository);
+    }
+
+    @Test
+    public void testGetNearbyDoctorsWithHalfCursor() throws Exception {
+        restDoctorMockMvc.perform(get("/api/doctors/nearby?latitude=23.738&longitude=90.3958&afterId=1"))
+            .andExpect(status().isBadRequest());
+
+        verifyZeroInteractions(nearbyDoctorRepository);
+    }
+
+    @Test
+    public void testSearchDoctors() throws Exception {
+        DoctorDocument doctor = new DoctorDocument();
+        doctor.setId(12L);
+        Map<String, Long> types = new LinkedHashMap<>();
+        types.put("SURGEON", 3L);
+        DoctorSearchResultDTO result = new DoctorSearchResultDTO();
+        result.setDoctors(Collections.singletonList(doctor));
+        result.setTotal(41);
+        result.setFacets(Collections.singletonMap(DoctorSearchService.TYPE, types));
+        when(doctorSearchService.search(any(), any(), any(), any(), any(), any(), any())).thenReturn(result);
+
+        restDoctorMockMvc.perform(get("/api/_search/doctors?query=heart&latitude=23.738&longitude=90.3958&radius=5&type=SURGEON&page=1&size=20"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.doctors.[0].id").value(12))
+            .andExpect(jsonPath("$.total").value(41))
+            .andExpect(jsonPath("$.facets.type.SURGEON").value(3))
+            .andExpect(header().string("X-Total-Count", "41"))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("latitude=23.738&longitude=90.3958&radius=5&type=SURGEON&page=2&size=20>; rel=\"next\"")));
+
+        verify(doctorSearchService).search(eq("heart"), eq(23.738), eq(90.3958), eq(5.0), eq(DoctorType.SURGEON), isNull(),
+            any(Pageable.class));
+    }
+
+    @Test
+    public void testSearchDoctorsWithRadiusWithoutLocation() throws Exception {
+        restDoctorMockMvc.perform(get("/api/_search/doctors?query=heart&radius=5"))
+            .andExpect(status().isBadRequest());
+
+        verifyZeroInteractions(doctorSearchService);
+    }
+
+    private static NearbyDoctorDTO doctor(Long id, double distanceInMeters) {
+        NearbyDoctorDTO doctor = new NearbyDoctorDTO();
+        doctor.setId(id);
+        doctor.setDistanceInMeters(distanceInMeters);
+        return doctor;
+    }
+}
@@ -0,0 +1,84 @@
+package com.dhomoni.uaa.web.rest;
+
+import com.dhomoni.uaa.service.ImageService;
+import com.dhomoni.uaa.service.image.StoredImage;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Optional;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Test class for the ImageResource REST controller.
+ *
+ * @see ImageResource
+ */
+public class ImageResourceUnitTest {
+
+    private static final byte[] IMAGE = {1, 2, 3, 4, 5, 6, 7, 8};
+
+    private static final byte[] THUMBNAIL = {1, 2};
+
+    private MockMvc restImageMockMvc;
+
+    @Before
+    public void setup() {
+        ImageService imageService = mock(ImageService.class);
+        when(imageService.findDoctorImage(12L, null)).thenAnswer(invocation ->
+            Optional.of(new StoredImage(new ByteArrayResource(IMAGE), "image/png", "abc")));
+        when(imageService.findDoctorImage(12L, 64)).thenAnswer(invocation ->
+            Optional.of(new StoredImage(new ByteArrayResource(THUMBNAIL), "image/png", "abc-64")));
+        when(imageService.findDoctorImage(13L, null)).thenReturn(Optional.empty());
+        restImageMockMvc = MockMvcBuilders.standaloneSetup(new ImageResource(imageService)).build();
+    }
+
+    @Test
+    public void testGetImage() throws Exception {
+        restImageMockMvc.perform(get("/api/doctors/12/image"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "image/png"))
+            .andExpect(header().string(HttpHeaders.ETAG, "\"abc\""))
+            .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+            .andExpect(content().bytes(IMAGE));
+    }
+
+    @Test
+    public void testGetThumbnail() throws Exception {
+        restImageMockMvc.perform(get("/api/doctors/12/image").param("size", "64"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, "\"abc-64\""))
+            .andExpect(content().bytes(THUMBNAIL));
+    }
+
+    @Test
+    public void testGetUnmodifiedImage() throws Exception {
+        restImageMockMvc.perform(get("/api/doctors/12/image").header(HttpHeaders.IF_NONE_MATCH, "\"abc\""))
+            .andExpect(status().isNotModified())
+            .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    public void testGetImageRange() throws Exception {
+        restImageMockMvc.perform(get("/api/doctors/12/image").header(HttpHeaders.RANGE, "bytes=2-4"))
+            .andExpect(status().isPartialContent())
+            .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-4/8"))
+            .andExpect(content().bytes(new byte[] {3, 4, 5}));
+    }
+
+    @Test
+    public void testGetMissingImage() throws Exception {
+        restImageMockMvc.perform(get("/api/doctors/13/image"))
+            .andExpect(status().isNotFound());
+    }
+}
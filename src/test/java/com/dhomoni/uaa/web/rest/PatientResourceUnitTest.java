@@ -0,0 +1,138 @@
+package com.dhomoni.uaa.web.rest;
+
+import com.dhomoni.uaa.domain.enumeration.BloodGroup;
+import com.dhomoni.uaa.domain.enumeration.Sex;
+import com.dhomoni.uaa.service.PatientCohortService;
+import com.dhomoni.uaa.service.dto.PatientCohortCriteria;
+import com.dhomoni.uaa.service.dto.PatientCohortDTO;
+import com.dhomoni.uaa.web.rest.errors.ExceptionTranslator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Test class for the PatientResource REST controller.
+ *
+ * @see PatientResource
+ */
+public class PatientResourceUnitTest {
+
+    private PatientCohortService patientCohortService;
+
+    private MockMvc restPatientMockMvc;
+
+    @Before
+    public void setup() {
+        patientCohortService = mock(PatientCohortService.class);
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        restPatientMockMvc = MockMvcBuilders.standaloneSetup(new PatientResource(patientCohortService, objectMapper))
+            .setControllerAdvice(new ExceptionTranslator())
+            .build();
+    }
+
+    @Test
+    public void testGetPatientCohort() throws Exception {
+        when(patientCohortService.findCohort(any(), any(), anyInt())).thenReturn(Arrays.asList(patient(3L), patient(8L)));
+
+        restPatientMockMvc.perform(get("/api/patients/cohort?bloodGroup=O_NEGATIVE&sex=FEMALE" +
+                "&bornAfter=1980-01-01T00:00:00Z&latitude=23.738&longitude=90.3958&radius=10&size=2"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[0].id").value(3))
+            .andExpect(jsonPath("$.[1].bloodGroup").value("O_NEGATIVE"))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("afterId=8>; rel=\"next\"")))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("bloodGroup=O_NEGATIVE")));
+
+        ArgumentCaptor<PatientCohortCriteria> criteria = ArgumentCaptor.forClass(PatientCohortCriteria.class);
+        verify(patientCohortService).findCohort(criteria.capture(), isNull(), eq(2));
+        assertThat(criteria.getValue().getBloodGroup()).isEqualTo(BloodGroup.O_NEGATIVE);
+        assertThat(criteria.getValue().getSex()).isEqualTo(Sex.FEMALE);
+        assertThat(criteria.getValue().getBornAfter()).isEqualTo(Instant.parse("1980-01-01T00:00:00Z"));
+        assertThat(criteria.getValue().getRadius()).isEqualTo(10.0);
+    }
+
+    @Test
+    public void testGetLastPageOfPatientCohort() throws Exception {
+        when(patientCohortService.findCohort(any(), any(), anyInt())).thenReturn(Collections.singletonList(patient(9L)));
+
+        restPatientMockMvc.perform(get("/api/patients/cohort?bloodGroup=O_NEGATIVE&afterId=8"))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist(HttpHeaders.LINK));
+
+        verify(patientCohortService).findCohort(any(), eq(8L), eq(100));
+    }
+
+    @Test
+    public void testGetPatientCohortWithIncompleteLocation() throws Exception {
+        restPatientMockMvc.perform(get("/api/patients/cohort?latitude=23.738&longitude=90.3958"))
+            .andExpect(status().isBadRequest());
+
+        verifyZeroInteractions(patientCohortService);
+    }
+
+    @Test
+    public void testGetPatientCohortWithTooLargeSize() throws Exception {
+        restPatientMockMvc.perform(get("/api/patients/cohort?size=5000"))
+            .andExpect(status().isBadRequest());
+
+        verifyZeroInteractions(patientCohortService);
+    }
+
+    @Test
+    public void testStreamPatientCohort() throws Exception {
+        List<PatientCohortDTO> firstPage = new ArrayList<>();
+        for (long id = 1; id <= PatientResource.STREAM_PAGE_SIZE; id++) {
+            firstPage.add(patient(id));
+        }
+        when(patientCohortService.findCohort(any(), isNull(), eq(PatientResource.STREAM_PAGE_SIZE))).thenReturn(firstPage);
+        when(patientCohortService.findCohort(any(), eq((long) PatientResource.STREAM_PAGE_SIZE),
+            eq(PatientResource.STREAM_PAGE_SIZE))).thenReturn(Collections.singletonList(patient(1000L)));
+
+        MvcResult result = restPatientMockMvc.perform(get("/api/patients/cohort/stream?bloodGroup=O_NEGATIVE"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        restPatientMockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(PatientResource.STREAM_PAGE_SIZE + 1))
+            .andExpect(jsonPath("$.[0].id").value(1))
+            .andExpect(jsonPath("$.[" + PatientResource.STREAM_PAGE_SIZE + "].id").value(1000));
+    }
+
+    private static PatientCohortDTO patient(Long id) {
+        PatientCohortDTO patient = new PatientCohortDTO();
+        patient.setId(id);
+        patient.setBloodGroup(BloodGroup.O_NEGATIVE);
+        patient.setSex(Sex.FEMALE);
+        patient.setBirthTimestamp(Instant.parse("1985-06-01T00:00:00Z"));
+        return patient;
+    }
+}
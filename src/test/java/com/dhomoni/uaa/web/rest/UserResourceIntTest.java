@@ -7,6 +7,7 @@ import com.dhomoni.uaa.repository.UserRepository;
 import com.dhomoni.uaa.repository.search.UserSearchRepository;
 import com.dhomoni.uaa.security.AuthoritiesConstants;
 import com.dhomoni.uaa.service.MailService;
+import com.dhomoni.uaa.service.UserSearchService;
 import com.dhomoni.uaa.service.UserService;
 import com.dhomoni.uaa.service.dto.UserDTO;
 import com.dhomoni.uaa.service.mapper.UserMapper;
@@ -83,6 +84,9 @@ public class UserResourceIntTest {
     @Autowired
     private MailService mailService;
 
+    @Autowired
+    private UserSearchService userSearchService;
+
     @Autowired
     private UserService userService;
 
@@ -112,7 +116,7 @@ public class UserResourceIntTest {
     public void setup() {
         cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).clear();
         cacheManager.getCache(UserRepository.USERS_BY_EMAIL_CACHE).clear();
-        UserResource userResource = new UserResource(userService, userRepository, mailService, mockUserSearchRepository);
+        UserResource userResource = new UserResource(userService, userRepository, mailService, userSearchService);
 
         this.restUserMockMvc = MockMvcBuilders.standaloneSetup(userResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)